@@ -199,6 +199,7 @@ CTX.INPUT['common'] = """
  UndoLog.cpp
  NValue.cpp
  MMAPMemoryManager.cpp
+ MMAPSyncThread.cpp
  RecoveryProtoMessage.cpp
  RecoveryProtoMessageBuilder.cpp
  DefaultTupleSerializer.cpp
@@ -332,6 +333,7 @@ CTX.TESTS['logging'] = """
 
 CTX.TESTS['common'] = """
  debuglog_test
+ mmap_sync_test
  serializeio_test
  undolog_test
  valuearray_test
@@ -421,6 +423,7 @@ if CTX.ANTICACHE_BUILD:
         UnknownBlockAccessException.cpp
         FullBackingStoreException.cpp
         AntiCacheDB.cpp
+        BlockCompressor.cpp
         BerkeleyAntiCacheDB.cpp
         NVMAntiCacheDB.cpp
         AntiCacheEvictionManager.cpp
@@ -430,6 +433,7 @@ if CTX.ANTICACHE_BUILD:
     
     CTX.TESTS['anticache'] = """
         anticachedb_test
+        block_compressor_test
         berkeleydb_test
         anticache_eviction_manager_test
     """
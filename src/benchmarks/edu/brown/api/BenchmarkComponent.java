@@ -62,6 +62,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -69,6 +70,7 @@ import org.apache.commons.collections15.map.ListOrderedMap;
 import org.apache.log4j.Logger;
 import org.voltdb.CatalogContext;
 import org.voltdb.ClientResponseImpl;
+import org.voltdb.StoredProcedureInvocationHints;
 import org.voltdb.VoltSystemProcedure;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltTableRow;
@@ -83,8 +85,10 @@ import org.voltdb.client.Client;
 import org.voltdb.client.ClientFactory;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ProcedureCallback;
 import org.voltdb.client.StatsUploaderSettings;
 import org.voltdb.sysprocs.LoadMultipartitionTable;
+import org.voltdb.sysprocs.LoadPartitionTable;
 import org.voltdb.utils.Pair;
 import org.voltdb.utils.VoltSampler;
 
@@ -105,6 +109,7 @@ import edu.brown.statistics.TableStatistics;
 import edu.brown.statistics.WorkloadStatistics;
 import edu.brown.utils.ArgumentsParser;
 import edu.brown.utils.FileUtil;
+import edu.brown.utils.PartitionEstimator;
 import edu.brown.utils.StringUtil;
 
 /**
@@ -331,6 +336,17 @@ public abstract class BenchmarkComponent {
     private final File m_tableStatsDir;
     private final ObjectHistogram<String> m_tableTuples = new ObjectHistogram<String>();
     private final ObjectHistogram<String> m_tableBytes = new ObjectHistogram<String>();
+    
+    /**
+     * PartitionEstimators used to split up tables for ${client.partitioned_loader}.
+     * Loaders may invoke loadVoltTable() from multiple threads
+     */
+    private final ThreadLocal<PartitionEstimator> m_loaderEstimators = new ThreadLocal<PartitionEstimator>() {
+        @Override
+        protected PartitionEstimator initialValue() {
+            return (new PartitionEstimator(getCatalogContext()));
+        }
+    };
     private final Map<Table, TableStatistics> m_tableStatsData = new HashMap<Table, TableStatistics>();
     protected final BenchmarkComponentResults m_txnStats = new BenchmarkComponentResults();
     
@@ -955,6 +971,14 @@ public abstract class BenchmarkComponent {
                 } // SYNCH
             }
             
+            // CLIENT LATENCIES
+            // This is measured on our side from when the txn was queued (or when it
+            // was scheduled to be sent for open-loop clients), so it includes the time
+            // that the txn spent waiting in the client and the network
+            synchronized (m_txnStats.latencies) {
+                m_txnStats.latencies.record(cresponse.getClientRoundtrip());
+            } // SYNCH
+            
             // RESPONSE ENTRIES
             if (m_enableResponseEntries) {
                 long timestamp = System.currentTimeMillis();
@@ -1022,7 +1046,18 @@ public abstract class BenchmarkComponent {
             boolean locked = m_hstoreConf.client.blocking_loader;
             if (locked) m_loaderBlock.lock();
             try {
-                int tries = 3;
+                Table catalog_tbl = null;
+                if (m_hstoreConf.client.partitioned_loader) {
+                    catalog_tbl = this.getCatalogContext().getTableByName(tableName);
+                    if (catalog_tbl != null && (catalog_tbl.getIsreplicated() ||
+                                                CatalogUtil.getVerticalPartition(catalog_tbl) != null)) {
+                        catalog_tbl = null;
+                    }
+                }
+                int tries = (catalog_tbl != null ? 0 : 3);
+                if (catalog_tbl != null) {
+                    cr = this.loadPartitionedVoltTable(catalog_tbl, vt);
+                }
                 String procName = VoltSystemProcedure.procCallName(LoadMultipartitionTable.class);
                 while (tries-- > 0) {
                     try {
@@ -1086,6 +1121,83 @@ public abstract class BenchmarkComponent {
         return (cr);
     }
     
+    /**
+     * Split the given VoltTable by partition and then load each partition's tuples
+     * in parallel using a separate single-partition transaction.
+     * Returns the first failed ClientResponse, or the last successful one if all of them succeed.
+     * @param catalog_tbl
+     * @param vt
+     * @return
+     * @throws Exception
+     */
+    private ClientResponse loadPartitionedVoltTable(Table catalog_tbl, VoltTable vt) throws Exception {
+        final PartitionEstimator p_estimator = m_loaderEstimators.get();
+        final int num_partitions = this.getCatalogContext().numberOfPartitions;
+        final VoltTable partitionedTables[] = new VoltTable[num_partitions];
+        final int extraBytes = vt.getUnderlyingBufferSize() / num_partitions;
+        vt.resetRowPosition();
+        while (vt.advanceRow()) {
+            int p = p_estimator.getTableRowPartition(catalog_tbl, vt);
+            if (partitionedTables[p] == null) {
+                partitionedTables[p] = vt.clone(extraBytes);
+            }
+            partitionedTables[p].add(vt);
+        } // WHILE
+        vt.resetRowPosition();
+        
+        String procName = VoltSystemProcedure.procCallName(LoadPartitionTable.class);
+        ClientResponse cr = null;
+        int tries = 3;
+        while (tries-- > 0) {
+            int num_tables = 0;
+            for (VoltTable partitionedTable : partitionedTables) {
+                if (partitionedTable != null) num_tables++;
+            } // FOR
+            if (num_tables == 0) break;
+            
+            final ClientResponse responses[] = new ClientResponse[num_partitions];
+            final CountDownLatch latch = new CountDownLatch(num_tables);
+            for (int p = 0; p < num_partitions; p++) {
+                if (partitionedTables[p] == null) continue;
+                final int partition = p;
+                StoredProcedureInvocationHints hints = new StoredProcedureInvocationHints();
+                hints.basePartition = partition;
+                ProcedureCallback callback = new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        responses[partition] = clientResponse;
+                        latch.countDown();
+                    }
+                };
+                // Wait out any backpressure so that every table that we count on is actually queued
+                while (m_voltClient.callProcedure(callback, procName, hints,
+                                                  partition, catalog_tbl.getName(), partitionedTables[p]) == false) {
+                    m_voltClient.backpressureBarrier();
+                } // WHILE
+            } // FOR
+            latch.await();
+            
+            // Anything that was rejected will be sent again
+            cr = null;
+            for (int p = 0; p < num_partitions; p++) {
+                if (responses[p] == null) continue;
+                if (responses[p].getStatus() == Status.OK) {
+                    partitionedTables[p] = null;
+                    if (cr == null) cr = responses[p];
+                }
+                else if (responses[p].getStatus() == Status.ABORT_REJECT && tries > 0) {
+                    if (debug.val) 
+                        LOG.warn(String.format("Loading data for %s at partition %d was rejected. Going to try again\n%s",
+                                 catalog_tbl.getName(), p, responses[p].toString()));
+                }
+                else {
+                    return (responses[p]);
+                }
+            } // FOR
+        } // WHILE
+        return (cr != null ? cr : m_dummyResponse);
+    }
+    
     /**
      * Return an overridden transaction weight
      * @param txnName
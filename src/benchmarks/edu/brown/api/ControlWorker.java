@@ -1,6 +1,7 @@
 package edu.brown.api;
 
 import java.io.IOException;
+import java.util.Random;
 
 import org.apache.log4j.Logger;
 import org.voltdb.client.Client;
@@ -36,6 +37,20 @@ class ControlWorker extends Thread {
     private ProfileMeasurement execute_time = new ProfileMeasurement("EXECUTE");
     private ProfileMeasurement block_time = new ProfileMeasurement("BLOCK");
     
+    /**
+     * How the arrival times of txns are spaced out in the open-loop run loop
+     */
+    protected enum ArrivalDistribution {
+        /** Fixed interval between txns */
+        UNIFORM,
+        /** Exponentially distributed intervals between txns */
+        POISSON;
+        
+        public static ArrivalDistribution get(String name) {
+            return ArrivalDistribution.valueOf(name.toUpperCase());
+        }
+    }
+    
     
     /**
      * Constructor
@@ -57,6 +72,10 @@ class ControlWorker extends Thread {
                     cmp.m_sampler.start();
                 }
                 cmp.runLoop();
+            } else if (cmp.getHStoreConf().client.openloop) {
+                if (debug.val) LOG.debug(String.format("Running open-loop [m_txnRate=%d, distribution=%s]",
+                                         cmp.m_txnRate, cmp.getHStoreConf().client.openloop_distribution));
+                this.openLoopRunLoop();
             } else {
                 if (debug.val) LOG.debug(String.format("Running rate controlled [m_txnRate=%d, m_txnsPerMillisecond=%f]", cmp.m_txnRate, cmp.m_txnsPerMillisecond));
                 this.rateControlledRunLoop();
@@ -145,6 +164,90 @@ class ControlWorker extends Thread {
         } // WHILE
     }
  
+    /**
+     * Return the number of milliseconds until the next txn should arrive
+     * @param distribution
+     * @param mean
+     * @param rand
+     * @return
+     */
+    protected static double nextInterval(ArrivalDistribution distribution, double mean, Random rand) {
+        switch (distribution) {
+            case POISSON:
+                return (-Math.log(1.0d - rand.nextDouble()) * mean);
+            default:
+                return (mean);
+        } // SWITCH
+    }
+    
+    /**
+     * Submit txns on a fixed arrival schedule that does not depend on how fast
+     * the txns are completed. If we fall behind (e.g., because of backpressure), then
+     * we will not skip the txns that we missed. Instead we send them as soon as we can and
+     * tell the client when they were supposed to be sent so that their latencies include
+     * the time that they spent waiting for us.
+     */
+    private void openLoopRunLoop() throws InterruptedException {
+        final Client client = cmp.getClientHandle();
+        final ArrivalDistribution distribution = ArrivalDistribution.get(cmp.getHStoreConf().client.openloop_distribution);
+        final double mean = 1.0d / cmp.m_txnsPerMillisecond;
+        final Random rand = new Random();
+        
+        double nextArrival = System.currentTimeMillis();
+        boolean hadErrors = false;
+        boolean bp = false;
+        while (true) {
+            // Wait until there is no more back pressure. The arrival schedule keeps
+            // going while we are blocked, so we'll have to catch up afterwards
+            if (bp) {
+                if (this.profiling) this.block_time.start();
+                try {
+                    client.backpressureBarrier();
+                } finally {
+                    if (this.profiling) this.block_time.stop();
+                }
+                bp = false;
+            }
+            
+            // Check whether we are currently being paused
+            // The time that we spent paused does not count against any txns
+            if (cmp.m_controlState == ControlState.PAUSED) {
+                if (debug.val) LOG.debug("Pausing until control lock is released");
+                cmp.m_pauseLock.acquire();
+                if (debug.val) LOG.debug("Control lock is released! Resuming execution! Tiger style!");
+                nextArrival = Math.max(nextArrival, System.currentTimeMillis());
+            }
+            assert(cmp.m_controlState != ControlState.PAUSED) : "Unexpected " + cmp.m_controlState;
+            
+            final long now = System.currentTimeMillis();
+            if (nextArrival > now) {
+                Thread.sleep(Math.max(1, (long)nextArrival - now));
+                continue;
+            }
+            
+            // Send every txn whose arrival time has already passed
+            if (this.profiling) execute_time.start();
+            try {
+                while (nextArrival <= now) {
+                    client.setNextInvocationTime((long)nextArrival);
+                    // If the txn was not queued because of back pressure, then
+                    // we will retry it with the same arrival time
+                    bp = !cmp.runOnce();
+                    if (bp) break;
+                    nextArrival += nextInterval(distribution, mean, rand);
+                    if (cmp.m_controlState != ControlState.RUNNING) break;
+                } // WHILE
+            } catch (final IOException e) {
+                if (hadErrors) return;
+                hadErrors = true;
+                LOG.error("Failed to execute transaction: " + e.getMessage(), e);
+                ThreadUtil.sleep(5000);
+            } finally {
+                if (this.profiling) execute_time.stop();
+            }
+        } // WHILE
+    }
+ 
     public void enableProfiling(boolean val) {
         this.profiling = val;
     }
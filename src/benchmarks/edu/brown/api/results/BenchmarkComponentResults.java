@@ -14,6 +14,7 @@ import org.voltdb.catalog.Database;
 
 import edu.brown.hstore.Hstoreservice.Status;
 import edu.brown.statistics.FastIntHistogram;
+import edu.brown.statistics.LatencyHistogram;
 import edu.brown.statistics.ObjectHistogram;
 import edu.brown.utils.JSONSerializable;
 import edu.brown.utils.JSONUtil;
@@ -45,6 +46,12 @@ public class BenchmarkComponentResults implements JSONSerializable {
     public final Map<Integer, ObjectHistogram<Integer>> spLatencies = new HashMap<Integer, ObjectHistogram<Integer>>();
     public final Map<Integer, ObjectHistogram<Integer>> dtxnLatencies = new HashMap<Integer, ObjectHistogram<Integer>>();
     
+    /**
+     * The latencies of all txns in a log-linear histogram so that
+     * we can get the tail percentiles (p99, p999) for the run
+     */
+    public LatencyHistogram latencies = new LatencyHistogram();
+    
     public FastIntHistogram basePartitions = new FastIntHistogram(true);
     private boolean enableBasePartitions = false;
     
@@ -95,6 +102,10 @@ public class BenchmarkComponentResults implements JSONSerializable {
             } // FOR
         } // SYNCH
         
+        synchronized (this.latencies) {
+            copy.latencies.add(this.latencies);
+        } // SYNCH
+        
         copy.enableBasePartitions = this.enableBasePartitions;
         copy.basePartitions.put(this.basePartitions);
         
@@ -126,6 +137,9 @@ public class BenchmarkComponentResults implements JSONSerializable {
         }
         this.spLatencies.clear();
         this.dtxnLatencies.clear();
+        synchronized (this.latencies) {
+            this.latencies.clear();
+        } // SYNCH
         this.basePartitions.clearValues();
         this.responseStatuses.clearValues();
     }
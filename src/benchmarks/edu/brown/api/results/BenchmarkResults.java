@@ -34,6 +34,7 @@ import edu.brown.hstore.Hstoreservice.Status;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.statistics.Histogram;
+import edu.brown.statistics.LatencyHistogram;
 import edu.brown.statistics.ObjectHistogram;
 import edu.brown.utils.CollectionUtil;
 import edu.brown.utils.StringUtil;
@@ -97,6 +98,16 @@ public class BenchmarkResults {
     
     private final Histogram<String> responseStatuses = new ObjectHistogram<String>();
     
+    /**
+     * ClientName -> All of the client-side latencies for that client
+     */
+    private final Map<String, LatencyHistogram> clientLatencies = new TreeMap<String, LatencyHistogram>();
+    
+    /**
+     * ClientName -> The client-side latencies from the last poll of that client
+     */
+    private final Map<String, LatencyHistogram> lastClientLatencies = new TreeMap<String, LatencyHistogram>();
+    
     private int completedIntervals = 0;
     private final Histogram<String> clientResultCount = new ObjectHistogram<String>();
     
@@ -194,6 +205,40 @@ public class BenchmarkResults {
         return (this.responseStatuses);
     }
 
+    /**
+     * Return the client-side latencies of all txns from all clients
+     * @return
+     */
+    public LatencyHistogram getAllLatencyHistogram() {
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (LatencyHistogram h : this.clientLatencies.values()) {
+            latencies.add(h);
+        } // FOR
+        return (latencies);
+    }
+    /**
+     * Return the client-side latencies of all txns from the last poll of each client
+     * @return
+     */
+    public LatencyHistogram getLastLatencyHistogram() {
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (LatencyHistogram h : this.lastClientLatencies.values()) {
+            latencies.add(h);
+        } // FOR
+        return (latencies);
+    }
+    /**
+     * Return the client-side latencies of all txns from the given client
+     * @param clientName
+     * @return
+     */
+    public LatencyHistogram getClientLatencyHistogram(String clientName) {
+        LatencyHistogram latencies = new LatencyHistogram();
+        LatencyHistogram h = this.clientLatencies.get(clientName);
+        if (h != null) latencies.add(h);
+        return (latencies);
+    }
+
     private Histogram<Integer> getAllLatencies(boolean singlep, boolean dtxn) {
         ObjectHistogram<Integer> latencies = new ObjectHistogram<Integer>();
         for (Map<String, List<Result>> clientResults : data.values()) {
@@ -458,6 +503,19 @@ public class BenchmarkResults {
                 }
                 results.add(r);
             } // FOR
+            
+            if (cmpResults.latencies != null) {
+                LatencyHistogram latencies = this.clientLatencies.get(clientName);
+                if (latencies == null) {
+                    latencies = new LatencyHistogram();
+                    this.clientLatencies.put(clientName, latencies);
+                }
+                latencies.add(cmpResults.latencies);
+                
+                LatencyHistogram last = new LatencyHistogram();
+                last.add(cmpResults.latencies);
+                this.lastClientLatencies.put(clientName, last);
+            }
             this.clientResultCount.put(clientName);
             if (debug.val)
                 LOG.debug(String.format("New Result for '%s' => %d [minCount=%d]",
@@ -483,6 +541,16 @@ public class BenchmarkResults {
         clone.transactionNames.putAll(this.transactionNames);
         clone.completedIntervals = this.completedIntervals;
         clone.clientResultCount.put(this.clientResultCount);
+        for (Entry<String, LatencyHistogram> e : this.clientLatencies.entrySet()) {
+            LatencyHistogram h = new LatencyHistogram();
+            h.add(e.getValue());
+            clone.clientLatencies.put(e.getKey(), h);
+        } // FOR
+        for (Entry<String, LatencyHistogram> e : this.lastClientLatencies.entrySet()) {
+            LatencyHistogram h = new LatencyHistogram();
+            h.add(e.getValue());
+            clone.lastClientLatencies.put(e.getKey(), h);
+        } // FOR
 
         for (Entry<String, Map<String, List<Result>>> entry : this.data.entrySet()) {
             Map<String, List<Result>> txnsForClient = new TreeMap<String, List<Result>>();
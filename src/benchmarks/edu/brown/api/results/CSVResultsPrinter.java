@@ -17,6 +17,7 @@ import org.voltdb.utils.VoltTableUtil;
 import edu.brown.api.BenchmarkInterest;
 import edu.brown.statistics.Histogram;
 import edu.brown.statistics.HistogramUtil;
+import edu.brown.statistics.LatencyHistogram;
 
 public class CSVResultsPrinter implements BenchmarkInterest {
     private static final Logger LOG = Logger.getLogger(CSVResultsPrinter.class);
@@ -33,7 +34,10 @@ public class CSVResultsPrinter implements BenchmarkInterest {
         new ColumnInfo("LATENCY_50", VoltType.FLOAT),
         new ColumnInfo("LATENCY_95", VoltType.FLOAT),
         new ColumnInfo("LATENCY_99", VoltType.FLOAT),
-
+        new ColumnInfo("CLIENT_LATENCY_50", VoltType.FLOAT),
+        new ColumnInfo("CLIENT_LATENCY_99", VoltType.FLOAT),
+        new ColumnInfo("CLIENT_LATENCY_999", VoltType.FLOAT),
+        new ColumnInfo("CLIENT_LATENCY_MAX", VoltType.FLOAT),
     };
 
     private final List<Object[]> results = new ArrayList<Object[]>(); 
@@ -94,6 +98,9 @@ public class CSVResultsPrinter implements BenchmarkInterest {
         double intervalLatency_50 = latencies[0];
         double intervalLatency_95 = latencies[1];
         double intervalLatency_99 = latencies[2];
+        
+        // INTERVAL CLIENT LATENCY
+        LatencyHistogram lastClientLatencies = br.getLastLatencyHistogram();
         Object row[] = {
             this.intervalCounter++,
             br.getElapsedTime(),
@@ -104,7 +111,11 @@ public class CSVResultsPrinter implements BenchmarkInterest {
             0,
             intervalLatency_50,
             intervalLatency_95,
-            intervalLatency_99
+            intervalLatency_99,
+            (double)lastClientLatencies.getValueAtPercentile(50),
+            (double)lastClientLatencies.getValueAtPercentile(99),
+            (double)lastClientLatencies.getValueAtPercentile(99.9),
+            (double)lastClientLatencies.getMax(),
         };
         this.results.add(row);
         
@@ -10,6 +10,7 @@ import org.voltdb.catalog.Database;
 
 import edu.brown.api.BenchmarkControllerUtil;
 import edu.brown.statistics.Histogram;
+import edu.brown.statistics.LatencyHistogram;
 import edu.brown.utils.JSONSerializable;
 import edu.brown.utils.JSONUtil;
 
@@ -37,6 +38,15 @@ public class EntityResult implements JSONSerializable {
     public double dtxnMinLatency = 0d;
     public double dtxnMaxLatency = 0d;
     
+    /**
+     * Client-side latency percentiles. These include the time that
+     * a txn waited to be sent when the clients are running open-loop.
+     */
+    public double latencyP50 = 0d;
+    public double latencyP99 = 0d;
+    public double latencyP999 = 0d;
+    public double latencyMax = 0d;
+    
     public EntityResult(long totalTxnCount, long duration, long txnCount, long dtxnCount,
                         Histogram<Integer> totalLatencies, Histogram<Integer> spLatencies, Histogram<Integer> dtxnLatencies) {
         this.txnCount = txnCount;
@@ -87,6 +97,17 @@ public class EntityResult implements JSONSerializable {
         }
     }
     
+    /**
+     * Set the client-side latency percentiles from the given histogram
+     * @param latencies
+     */
+    public void setLatencyPercentiles(LatencyHistogram latencies) {
+        this.latencyP50 = latencies.getValueAtPercentile(50);
+        this.latencyP99 = latencies.getValueAtPercentile(99);
+        this.latencyP999 = latencies.getValueAtPercentile(99.9);
+        this.latencyMax = latencies.getMax();
+    }
+    
     public long getTxnCount() {
         return this.txnCount;
     }
@@ -150,6 +171,19 @@ public class EntityResult implements JSONSerializable {
     public double getDistributedMaxLatency() {
         return this.totalMaxLatency;
     }
+    
+    public double getLatencyP50() {
+        return this.latencyP50;
+    }
+    public double getLatencyP99() {
+        return this.latencyP99;
+    }
+    public double getLatencyP999() {
+        return this.latencyP999;
+    }
+    public double getLatencyMax() {
+        return this.latencyMax;
+    }
 
     // ----------------------------------------------------------------------------
     // SERIALIZATION METHODS
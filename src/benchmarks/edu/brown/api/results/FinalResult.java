@@ -18,6 +18,7 @@ import edu.brown.api.results.BenchmarkResults.Result;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.statistics.Histogram;
+import edu.brown.statistics.LatencyHistogram;
 import edu.brown.statistics.ObjectHistogram;
 import edu.brown.utils.JSONSerializable;
 import edu.brown.utils.JSONUtil;
@@ -57,6 +58,15 @@ public class FinalResult implements JSONSerializable {
     public double dtxnMinLatency;
     public double dtxnMaxLatency;
     
+    /**
+     * Client-side latency percentiles. These include the time that
+     * a txn waited to be sent when the clients are running open-loop.
+     */
+    public double latencyP50;
+    public double latencyP99;
+    public double latencyP999;
+    public double latencyMax;
+    
     /** TransactionName -> Results */
     public final Map<String, EntityResult> txnResults = new HashMap<String, EntityResult>();
     /** ClientName -> Results */
@@ -169,6 +179,12 @@ public class FinalResult implements JSONSerializable {
             this.dtxnStdevLatency = x[i++];
         }
         
+        LatencyHistogram allLatencies = results.getAllLatencyHistogram();
+        this.latencyP50 = allLatencies.getValueAtPercentile(50);
+        this.latencyP99 = allLatencies.getValueAtPercentile(99);
+        this.latencyP999 = allLatencies.getValueAtPercentile(99.9);
+        this.latencyMax = allLatencies.getMax();
+        
         // CLIENTS RESULTS
         for (String clientName : results.getClientNames()) {
             totalLatencies = results.getClientTotalLatencies(clientName);
@@ -177,6 +193,7 @@ public class FinalResult implements JSONSerializable {
             EntityResult er = new EntityResult(this.txnTotalCount, this.duration,
                                                clientTxnCounts.get(clientName), clientDtxnCounts.get(clientName),
                                                totalLatencies, spLatencies, dtxnLatencies);
+            er.setLatencyPercentiles(results.getClientLatencyHistogram(clientName));
             this.clientResults.put(clientName.replace("client-", ""), er);
         } // FOR
     }
@@ -228,6 +245,19 @@ public class FinalResult implements JSONSerializable {
         return this.totalMaxLatency;
     }
 
+    public double getLatencyP50() {
+        return this.latencyP50;
+    }
+    public double getLatencyP99() {
+        return this.latencyP99;
+    }
+    public double getLatencyP999() {
+        return this.latencyP999;
+    }
+    public double getLatencyMax() {
+        return this.latencyMax;
+    }
+
     public EntityResult getTransactionResult(String txnName) {
         return this.txnResults.get(txnName);
     }
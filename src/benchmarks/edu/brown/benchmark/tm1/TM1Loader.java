@@ -161,31 +161,30 @@ public class TM1Loader extends Loader {
      */
     void genSubscriber(Table catalog_tbl) {
         final VoltTable table = CatalogUtil.getVoltTable(catalog_tbl);
-        Object row[] = new Object[table.getColumnCount()];
+        final VoltTable.RowAppender row = table.getRowAppender();
         long total = 0;
         for (long s_id = 0; s_id < this.subscriberSize; s_id++) {
-            int col = 0;
-            row[col++] = s_id;
-            row[col++] = TM1Util.padWithZero(s_id);
+            row.startRow();
+            row.appendLong(s_id);
+            row.appendString(TM1Util.padWithZero(s_id));
 
             // BIT_##
             for (int j = 0; j < 10; j++) {
-                row[col++] = TM1Util.number(0, 1);
+                row.appendLong(TM1Util.number(0, 1));
             } // FOR
               // HEX_##
             for (int j = 0; j < 10; j++) {
-                row[col++] = TM1Util.number(0, 15);
+                row.appendLong(TM1Util.number(0, 15));
             }
             // BYTE2_##
             for (int j = 0; j < 10; j++) {
-                row[col++] = TM1Util.number(0, 255);
+                row.appendLong(TM1Util.number(0, 255));
             }
             // MSC_LOCATION + VLR_LOCATION
             for (int j = 0; j < 2; j++) {
-                row[col++] = TM1Util.number(0, Integer.MAX_VALUE);
+                row.appendLong(TM1Util.number(0, Integer.MAX_VALUE));
             }
-            assert col == table.getColumnCount();
-            table.addRow(row);
+            row.endRow();
             total++;
 
             if (table.getRowCount() >= TM1Constants.BATCH_SIZE) {
@@ -210,20 +209,21 @@ public class TM1Loader extends Loader {
      */
     void genAccessInfo(Table catalog_tbl) {
         final VoltTable table = CatalogUtil.getVoltTable(catalog_tbl);
+        final VoltTable.RowAppender row = table.getRowAppender();
         int[] arr = { 1, 2, 3, 4 };
 
         int[] ai_types = TM1Util.subArr(arr, 1, 4);
         long total = 0;
         for (long s_id = 0; s_id < this.subscriberSize; s_id++) {
             for (int ai_type : ai_types) {
-                Object row[] = new Object[table.getColumnCount()];
-                row[0] = s_id;
-                row[1] = ai_type;
-                row[2] = TM1Util.number(0, 255);
-                row[3] = TM1Util.number(0, 255);
-                row[4] = TM1Util.astring(3, 3);
-                row[5] = TM1Util.astring(5, 5);
-                table.addRow(row);
+                row.startRow()
+                   .appendLong(s_id)
+                   .appendLong(ai_type)
+                   .appendLong(TM1Util.number(0, 255))
+                   .appendLong(TM1Util.number(0, 255))
+                   .appendString(TM1Util.astring(3, 3))
+                   .appendString(TM1Util.astring(5, 5))
+                   .endRow();
                 total++;
             } // FOR
             if (table.getRowCount() >= TM1Constants.BATCH_SIZE) {
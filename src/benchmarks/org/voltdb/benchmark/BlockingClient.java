@@ -122,6 +122,14 @@ public class BlockingClient extends Semaphore implements Client {
         return this.inner.calculateInvocationSerializedSize(procName, parameters);
     }
 
+    /* (non-Javadoc)
+     * @see org.voltdb.client.Client#setNextInvocationTime(long)
+     */
+    @Override
+    public void setNextInvocationTime(long timestamp) {
+        this.inner.setNextInvocationTime(timestamp);
+    }
+
     /* (non-Javadoc)
      * @see org.voltdb.client.Client#callProcedure(java.lang.String, java.lang.Object[])
      */
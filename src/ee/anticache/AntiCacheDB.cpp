@@ -77,8 +77,8 @@ AntiCacheBlock* AntiCacheDB::getLRUBlock() {
     } else {
         lru_block_id = m_block_lru.front();
         //m_block_lru.pop_front();
+        // readBlock() takes the block out of the LRU and the block count
         lru_block = readBlock(lru_block_id);
-        m_totalBlocks--;
         return lru_block;
     }
 }
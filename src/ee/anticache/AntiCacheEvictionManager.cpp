@@ -34,6 +34,7 @@
 #include "storage/temptable.h"
 #include "storage/tablefactory.h"
 #include "anticache/EvictionIterator.h"
+#include "anticache/BlockCompressor.h"
 #include "boost/timer.hpp"
 #include "anticache/EvictedTable.h"
 #include "anticache/UnknownBlockAccessException.h"
@@ -83,12 +84,29 @@ AntiCacheEvictionManager::AntiCacheEvictionManager(const VoltDBEngine *engine) {
 
     m_numdbs = 0;
     m_migrate = false;
+
+    m_tracking_type = ANTICACHE_TRACKING_TIMESTAMP;
+    m_clock_epoch = 1; // zero is always the coldest
+    m_compression_type = ANTICACHE_COMPRESSION_NONE;
+
+    m_promote_threshold = 0;
+    m_demote_free_blocks = 0;
+    pthread_mutex_init(&m_promote_mutex, NULL);
+    m_blocks_promoted = 0;
+    m_blocks_demoted = 0;
+    for (int i = 0; i < MAX_DBS; i++) {
+        m_level_blocks_read[i] = 0;
+    }
 }
 
 AntiCacheEvictionManager::~AntiCacheEvictionManager() {
     delete m_evictResultTable;
     delete m_evicted_tuple;
     TupleSchema::freeTupleSchema(m_evicted_schema);
+    for (size_t i = 0; i < m_pending_promotions.size(); i++) {
+        delete m_pending_promotions[i].block;
+    }
+    pthread_mutex_destroy(&m_promote_mutex);
     
     // int i;
     //for (i = 1; i <= m_numdbs; i++) {
@@ -264,7 +282,11 @@ bool AntiCacheEvictionManager::updateTuple(PersistentTable* table, TableTuple* t
 #else
     // set timestamp to the hotest
     TableTuple update_tuple(tuple->address(), table->m_schema);
-    update_tuple.setTimeStamp();
+    if (m_tracking_type == ANTICACHE_TRACKING_CLOCK) {
+        update_tuple.touchTimeStamp(m_clock_epoch);
+    } else {
+        update_tuple.setTimeStamp();
+    }
 #endif
         
     return true; 
@@ -528,6 +550,27 @@ Table* AntiCacheEvictionManager::evictBlock(PersistentTable *table, long blockSi
     return (m_evictResultTable);
 }
 
+/**
+ * Write a serialized block of evicted tuples out to the given AntiCacheDB.
+ * The block is compressed first if we have a codec and that makes it smaller.
+ * The AntiCacheDB makes its own copy of the data.
+ */
+void AntiCacheEvictionManager::writeBlock(PersistentTable *table, AntiCacheDB* antiCacheDB, int16_t block_id,
+                                          int num_tuples, const char* data, long size) {
+    long compressed_size = size;
+    char* compressed = BlockCompressor::compress(m_compression_type, data, size, compressed_size);
+    if (compressed != NULL) {
+        VOLT_DEBUG("Compressed %s block #%d from %ld to %ld bytes",
+                   table->name().c_str(), block_id, size, compressed_size);
+        antiCacheDB->writeBlock(table->name(), block_id, num_tuples, compressed, compressed_size);
+        delete [] compressed;
+    } else {
+        compressed_size = size;
+        antiCacheDB->writeBlock(table->name(), block_id, num_tuples, data, size);
+    }
+    table->recordBlockCompression(m_compression_type, size, compressed_size);
+}
+
 bool AntiCacheEvictionManager::evictBlockToDisk(PersistentTable *table, const long block_size, int num_blocks) {
     voltdb::Table* evictedTable = table->getEvictedTable();
     int m_tuplesEvicted = table->getTuplesEvicted();
@@ -564,6 +607,8 @@ bool AntiCacheEvictionManager::evictBlockToDisk(PersistentTable *table, const lo
     EvictionIterator evict_itr(table);
 #ifdef ANTICACHE_TIMESTAMPS
     evict_itr.reserve((int64_t)block_size * num_blocks);
+    // Anything that is accessed after we've picked our victims is newer than them
+    if (m_tracking_type == ANTICACHE_TRACKING_CLOCK) m_clock_epoch++;
 #endif
 
     for(int i = 0; i < num_blocks; i++)
@@ -680,11 +725,8 @@ bool AntiCacheEvictionManager::evictBlockToDisk(PersistentTable *table, const lo
             // TODO: make this look like
             // block.flush();
             //  antiCacheDB->writeBlock(block);
-            antiCacheDB->writeBlock(table->name(),
-                                    _block_id,
-                                    num_tuples_evicted,
-                                    blockdata,
-                                    blocksize);
+            this->writeBlock(table, antiCacheDB, _block_id, num_tuples_evicted, blockdata, blocksize);
+            delete [] blockdata;
             
             // MJG: We need to check whether we're reusing a blockID.
 
@@ -807,6 +849,7 @@ bool AntiCacheEvictionManager::evictBlockToDiskInBatch(PersistentTable *table, P
 #ifdef ANTICACHE_TIMESTAMPS
     // TODO: what should I do with this?
     evict_itr.reserve((int64_t)block_size * num_blocks / 2);
+    if (m_tracking_type == ANTICACHE_TRACKING_CLOCK) m_clock_epoch++;
 #endif
 
     for(int i = 0; i < num_blocks; i++)
@@ -1019,11 +1062,8 @@ bool AntiCacheEvictionManager::evictBlockToDiskInBatch(PersistentTable *table, P
             //          antiCacheDB->writeBlock(block);
 
 
-            antiCacheDB->writeBlock(table->name(),
-                    _block_id,
-                    num_tuples_evicted,
-                    block.getSerializedData(),
-                    block.getSerializedSize());
+            this->writeBlock(table, antiCacheDB, _block_id, num_tuples_evicted,
+                             block.getSerializedData(), block.getSerializedSize());
             needs_flush = true;
 
 
@@ -1184,30 +1224,40 @@ bool AntiCacheEvictionManager::readEvictedBlock(PersistentTable *table, int32_t
 
     try {
         AntiCacheBlock* value = antiCacheDB->readBlock(_block_id);
+        m_level_blocks_read[ACID]++;
 
         // allocate the memory for this block
-        char* unevicted_tuples = new char[value->getSize()];
-        memcpy(unevicted_tuples, value->getData(), value->getSize());
+        // If it was compressed when it was evicted, then we decompress it into the new buffer
+        char* unevicted_tuples = NULL;
+        long unevicted_size = value->getSize();
+        if (BlockCompressor::isCompressed(value->getData(), value->getSize())) {
+            unevicted_tuples = BlockCompressor::decompress(value->getData(), value->getSize(), unevicted_size);
+        } else {
+            unevicted_tuples = new char[unevicted_size];
+            memcpy(unevicted_tuples, value->getData(), unevicted_size);
+        }
         /*
         for (int i = 0; i < 200; i++) {
             printf( "%X", unevicted_tuples[i]);
         }
         cout << "\n";*/
         VOLT_INFO("***************** READ EVICTED BLOCK %d *****************", _block_id);
-        VOLT_INFO("Block Size = %ld / Table = %s", value->getSize(), table->name().c_str());
-        ReferenceSerializeInput in(unevicted_tuples, value->getSize());
+        VOLT_INFO("Block Size = %ld / Table = %s", unevicted_size, table->name().c_str());
+        ReferenceSerializeInput in(unevicted_tuples, unevicted_size);
         
         // Read in all the block meta-data
         int num_tables = in.readInt();
         VOLT_DEBUG("num tables is %d", num_tables);
         std::vector<std::string> tableNames;
         std::vector<int> numTuples;
+        int32_t tuples_in_block = 0;
         for(int j = 0; j < num_tables; j++){
             std::string name = in.readTextString();
             tableNames.push_back(name);
             VOLT_DEBUG("tableName is %s", name.c_str());
             int tuples = in.readInt();
             numTuples.push_back(tuples);
+            tuples_in_block += tuples;
             VOLT_DEBUG("num tuples is %d", tuples);
         }
 
@@ -1218,6 +1268,16 @@ bool AntiCacheEvictionManager::readEvictedBlock(PersistentTable *table, int32_t
 
 
         table->insertUnevictedBlockID(std::pair<int32_t,int16_t>(block_id, 0));
+
+        // With the tuple-merge strategy the rest of the tuples in this block are
+        // still evicted, so we are going to read it again. Once it has been read
+        // enough times from a slower level, it is queued to be moved up to the
+        // next faster one. With the block-merge strategy the whole block comes
+        // back into memory, so there is nothing left to promote.
+        if (ACID > 0 && m_promote_threshold > 0 && !table->mergeStrategy() &&
+            countBlockRead(block_id, tuples_in_block, value)) {
+            value = NULL;
+        }
         delete value;
     } catch (UnknownBlockAccessException e) {
         throw e;
@@ -1349,26 +1409,8 @@ int32_t AntiCacheEvictionManager::migrateBlock(int32_t block_id, AntiCacheDB* ds
     VOLT_DEBUG("block_id: %x _block_id: %x acid: %x new_block_id: %x _new_block_id: %x new_acid: %x",
             block_id, _block_id, acid, new_block_id, _new_block_id, new_acid);
 
-    std::string tableName = block->getTableName();
-    PersistentTable *table = dynamic_cast<PersistentTable*>(m_engine->getTable(tableName));
-    if (table) {
-        EvictedTable *etable = dynamic_cast<EvictedTable*>(table->getEvictedTable());
-        if (etable) {
-            TableTuple tuple(etable->m_schema);
-
-            voltdb::TableIterator it(etable);
-            while (it.next(tuple)) {
-                if ((int32_t)ValuePeeker::peekInteger(tuple.getNValue(0)) == block_id) {
-                    tuple.setNValue(0, ValueFactory::getIntegerValue(new_block_id));
-                    VOLT_DEBUG("Updating tuple blockid from %8x to %8x", block_id, new_block_id);
-                }
-            }
-        } else {
-            VOLT_WARN("No evicted table! If this is an EE test, shouldn't be a problem");
-        }
-    } else {
-        VOLT_WARN("No persistent table! If this is an EE test, shouldn't be a problem");
-    }
+    forgetBlockReads(block_id);
+    updateEvictedBlockId(block->getTableName(), block_id, new_block_id);
 
     delete block;
     return new_block_id;
@@ -1394,7 +1436,7 @@ int32_t AntiCacheEvictionManager::migrateLRUBlock(AntiCacheDB* srcDB, AntiCacheD
 
 
     AntiCacheBlock* block = srcDB->getLRUBlock();
-    int32_t block_id = block->getBlockId();
+    int32_t block_id = ((srcDB->getACID() << 16) | (int32_t)block->getBlockId());
     _new_block_id = dstDB->nextBlockId();
     
     VOLT_DEBUG("block_id: %8x _new_block_id: %8x", block_id, _new_block_id);
@@ -1416,7 +1458,183 @@ int32_t AntiCacheEvictionManager::migrateLRUBlock(AntiCacheDB* srcDB, AntiCacheD
     VOLT_DEBUG("new_block_id: %x _new_block_id: %x new_acid: %x",
             new_block_id, _new_block_id, new_acid);
 
-    std::string tableName = block->getTableName();
+    forgetBlockReads(block_id);
+    PersistentTable *table = updateEvictedBlockId(block->getTableName(), block_id, new_block_id);
+    if (table) {
+        table->m_blocksDemoted++;
+    }
+    m_blocks_demoted++;
+
+    // MJG TODO!!!: We can't just delete this block willy nilly if we can't get a new_block_id. 
+    // Have to do something better than this. XXX
+    delete block;
+
+    return new_block_id;
+}
+
+/*
+ * Move a block that was just read from a slower AntiCacheDB up one level. The
+ * block has already been taken out of its level, so we write the given copy to
+ * the faster level and point its evicted tuples at the new block id. If the
+ * faster level is full, its LRU block is swapped down into the space that the
+ * read freed up. Returns the new block id, or -1 if the block was not moved.
+ */
+
+int32_t AntiCacheEvictionManager::promoteBlock(int32_t block_id, AntiCacheBlock* block) {
+    int16_t acid = (int16_t)((block_id & 0xFFFF0000) >> 16);
+    if (acid <= 0 || acid >= m_numdbs) {
+        return -1;
+    }
+    AntiCacheDB* srcDB = m_db_lookup[acid];
+    AntiCacheDB* dstDB = m_db_lookup[acid - 1];
+
+    if (dstDB->getBlockSize() < block->getSize()) {
+        VOLT_DEBUG("Block %x of size %ld is too large for ACID %d with block size %ld",
+                block_id, block->getSize(), dstDB->getACID(), dstDB->getBlockSize());
+        return -1;
+    }
+    if (dstDB->getFreeBlocks() < 1) {
+        if (migrateLRUBlock(dstDB, srcDB) == -1) {
+            VOLT_DEBUG("No room in ACID %d to promote block %x", dstDB->getACID(), block_id);
+            return -1;
+        }
+    }
+
+    int16_t _new_block_id = dstDB->nextBlockId();
+    dstDB->writeBlock(block->getTableName(), _new_block_id, 0, block->getData(), block->getSize());
+
+    int16_t new_acid = dstDB->getACID();
+    int32_t new_block_id = (int32_t) _new_block_id;
+    new_block_id = new_block_id | (new_acid << 16);
+    VOLT_DEBUG("Promoted block %x to %x", block_id, new_block_id);
+
+    forgetBlockReads(block_id);
+    PersistentTable *table = updateEvictedBlockId(block->getTableName(), block_id, new_block_id);
+    if (table) {
+        table->m_blocksPromoted++;
+    }
+    m_blocks_promoted++;
+    return new_block_id;
+}
+
+/*
+ * Count a read of a block from a slower AntiCacheDB with the tuple-merge
+ * strategy. This is invoked from the block-fetch thread, so it only decides
+ * whether the block should be promoted. If it should, then the block is queued
+ * for promotePendingBlocks() and this returns true, which means that we now own
+ * it. Each read merges one tuple back in, so once every tuple in the block has
+ * been read, the block is never read again and we forget about it.
+ */
+
+bool AntiCacheEvictionManager::countBlockRead(int32_t block_id, int32_t num_tuples, AntiCacheBlock* block) {
+    bool queued = false;
+    if (pthread_mutex_lock(&m_promote_mutex)) {
+        throwFatalException("Failed to lock mutex.");
+    }
+    int32_t reads = ++m_block_reads[block_id];
+    if (reads >= num_tuples) {
+        m_block_reads.erase(block_id);
+    } else if (reads >= m_promote_threshold) {
+        VOLT_DEBUG("Queuing block %x for promotion after %d reads", block_id, reads);
+        m_block_reads.erase(block_id);
+        PendingPromotion promotion;
+        promotion.blockId = block_id;
+        promotion.block = block;
+        m_pending_promotions.push_back(promotion);
+        queued = true;
+    }
+    if (pthread_mutex_unlock(&m_promote_mutex)) {
+        throwFatalException("Failed to unlock mutex.");
+    }
+    return queued;
+}
+
+/*
+ * Promote the blocks that countBlockRead() queued up. This must be invoked from
+ * the partition's thread in between txns, since it changes the AntiCacheDBs and
+ * the EvictedTables. Returns the number of blocks that were promoted.
+ */
+
+int32_t AntiCacheEvictionManager::promotePendingBlocks() {
+    std::vector<PendingPromotion> pending;
+    if (pthread_mutex_lock(&m_promote_mutex)) {
+        throwFatalException("Failed to lock mutex.");
+    }
+    pending.swap(m_pending_promotions);
+    if (pthread_mutex_unlock(&m_promote_mutex)) {
+        throwFatalException("Failed to unlock mutex.");
+    }
+
+    int32_t promoted = 0;
+    size_t i = 0;
+    try {
+        for (; i < pending.size(); i++) {
+            if (promoteBlock(pending[i].blockId, pending[i].block) != -1) {
+                promoted++;
+            }
+            delete pending[i].block;
+        }
+    } catch (...) {
+        for (; i < pending.size(); i++) {
+            delete pending[i].block;
+        }
+        throw;
+    }
+    return promoted;
+}
+
+/*
+ * Stop counting the reads for a block because it was moved to another level
+ */
+
+void AntiCacheEvictionManager::forgetBlockReads(int32_t block_id) {
+    if (pthread_mutex_lock(&m_promote_mutex)) {
+        throwFatalException("Failed to lock mutex.");
+    }
+    m_block_reads.erase(block_id);
+    if (pthread_mutex_unlock(&m_promote_mutex)) {
+        throwFatalException("Failed to unlock mutex.");
+    }
+}
+
+/*
+ * Move the LRU blocks of each level down to the next one until every level
+ * except the last has at least m_demote_free_blocks free blocks. This is meant
+ * to be invoked in between txns so that evictions and promotions find room in
+ * the faster levels without having to migrate a block first. We start from the
+ * slowest levels so that the blocks coming down from above have somewhere to go.
+ * Returns the number of blocks that were moved.
+ */
+
+int32_t AntiCacheEvictionManager::demoteColdBlocks() {
+    int32_t demoted = 0;
+    if (m_demote_free_blocks <= 0) {
+        return demoted;
+    }
+
+    for (int i = m_numdbs - 2; i >= 0; i--) {
+        AntiCacheDB* srcDB = m_db_lookup[i];
+        AntiCacheDB* dstDB = m_db_lookup[i+1];
+        while (srcDB->getFreeBlocks() < m_demote_free_blocks && srcDB->getNumBlocks() > 0) {
+            if (migrateLRUBlock(srcDB, dstDB) == -1) {
+                break;
+            }
+            demoted++;
+        }
+        VOLT_DEBUG("ACID %d: %d free blocks / %ld blocks read", srcDB->getACID(),
+                srcDB->getFreeBlocks(), (long)m_level_blocks_read[i]);
+    }
+    return demoted;
+}
+
+/*
+ * Point all of the evicted tuples for the given table that are in the old block
+ * at the new block. Returns the table or NULL if it doesn't exist.
+ */
+
+PersistentTable* AntiCacheEvictionManager::updateEvictedBlockId(const std::string &tableName,
+                                                                int32_t old_block_id,
+                                                                int32_t new_block_id) {
     PersistentTable *table = dynamic_cast<PersistentTable*>(m_engine->getTable(tableName));
     if (table) {
         EvictedTable *etable = dynamic_cast<EvictedTable*>(table->getEvictedTable());
@@ -1425,9 +1643,9 @@ int32_t AntiCacheEvictionManager::migrateLRUBlock(AntiCacheDB* srcDB, AntiCacheD
 
             voltdb::TableIterator it(etable);
             while (it.next(tuple)) {
-                if ((int32_t)ValuePeeker::peekInteger(tuple.getNValue(0)) == block_id) {
+                if ((int32_t)ValuePeeker::peekInteger(tuple.getNValue(0)) == old_block_id) {
                     tuple.setNValue(0, ValueFactory::getIntegerValue(new_block_id));
-                    VOLT_TRACE("Updating tuple blockid from %8x to %8x", block_id, new_block_id);
+                    VOLT_TRACE("Updating tuple blockid from %8x to %8x", old_block_id, new_block_id);
                 }
             }
         } else {
@@ -1436,12 +1654,7 @@ int32_t AntiCacheEvictionManager::migrateLRUBlock(AntiCacheDB* srcDB, AntiCacheD
     } else {
         VOLT_WARN("No persistent table! If this is an EE test, shouldn't be a problem");
     }
-
-    // MJG TODO!!!: We can't just delete this block willy nilly if we can't get a new_block_id. 
-    // Have to do something better than this. XXX
-    delete block;
-
-    return new_block_id;
+    return table;
 }
 
 /*
@@ -1624,18 +1837,10 @@ void AntiCacheEvictionManager::recordEvictedAccess(catalog::Table* catalogTable,
         throwFatalException("Trying to access evicted tuple from table '%s' that is also marked as deleted",
                             catalogTable->name().c_str());
     }
-    // Create an evicted tuple from the current tuple address
-    // NOTE: This is necessary because the original table tuple and the evicted tuple
-    // do not have the same schema
-    m_evicted_tuple->move(tuple->address()); 
-    VOLT_DEBUG("%s",m_evicted_tuple->getSchema()->debug().c_str());
-    VOLT_DEBUG("moved tuple into m_evicted_tuple. Time to get blockId"); 
+    int32_t block_id;
+    int32_t tuple_id;
+    getEvictedTupleLocation(tuple, block_id, tuple_id);
     VOLT_DEBUG("debug tuple: %s", m_evicted_tuple->debug(catalogTable->name()).c_str());
-    // Determine the block id and tuple offset in the block using the EvictedTable tuple
-    int32_t tuple_id = peeker.peekInteger(m_evicted_tuple->getNValue(1)); 
-    VOLT_DEBUG("Got tuple_id: %d", tuple_id);
-    int32_t block_id = peeker.peekInteger(m_evicted_tuple->getNValue(0));
-    VOLT_DEBUG("Got blockId: %d", block_id);
     // Updated internal tracking info
     m_evicted_tables.push_back(catalogTable);
     m_evicted_block_ids.push_back(block_id); 
@@ -1646,6 +1851,22 @@ void AntiCacheEvictionManager::recordEvictedAccess(catalog::Table* catalogTable,
     VOLT_TRACE("Evicted Tuple Acccess: %s", m_evicted_tuple->debug(catalogTable->name()).c_str());
 }
 
+/**
+ * Determine the block id and the offset in that block of the given evicted tuple
+ */
+void AntiCacheEvictionManager::getEvictedTupleLocation(TableTuple *tuple, int32_t &block_id, int32_t &tuple_id) {
+    // Create an evicted tuple from the current tuple address
+    // NOTE: This is necessary because the original table tuple and the evicted tuple
+    // do not have the same schema
+    m_evicted_tuple->move(tuple->address()); 
+    VOLT_DEBUG("%s",m_evicted_tuple->getSchema()->debug().c_str());
+    // Determine the block id and tuple offset in the block using the EvictedTable tuple
+    tuple_id = peeker.peekInteger(m_evicted_tuple->getNValue(1)); 
+    VOLT_DEBUG("Got tuple_id: %d", tuple_id);
+    block_id = peeker.peekInteger(m_evicted_tuple->getNValue(0));
+    VOLT_DEBUG("Got blockId: %d", block_id);
+}
+
 void AntiCacheEvictionManager::throwEvictedAccessException() {
     // Do we really want to remove all the non-unique blockIds here?
     // m_evicted_block_ids.unique();
@@ -38,6 +38,7 @@
 
 #include <vector>
 #include <map>
+#include <pthread.h>
 
 #define MAX_DBS 8
 
@@ -72,10 +73,75 @@ public:
 
     int32_t migrateBlock(int32_t blockId, AntiCacheDB* dstDB); 
     int32_t migrateLRUBlock(AntiCacheDB* srcDB, AntiCacheDB* dstDB); 
+    int32_t promoteBlock(int32_t blockId, AntiCacheBlock* block);
+    bool countBlockRead(int32_t blockId, int32_t numTuples, AntiCacheBlock* block);
+    int32_t promotePendingBlocks();
+    int32_t demoteColdBlocks();
     
     int16_t addAntiCacheDB(AntiCacheDB* acdb);
     AntiCacheDB* getAntiCacheDB(int acid);
 
+    // -----------------------------------------
+    // Tuple Access Tracking Methods
+    // -----------------------------------------
+    
+    inline void setTrackingType(AntiCacheTrackingType type) {
+        m_tracking_type = type;
+    }
+    inline AntiCacheTrackingType getTrackingType() const {
+        return (m_tracking_type);
+    }
+    inline uint32_t getClockEpoch() const {
+        return (m_clock_epoch);
+    }
+
+    // -----------------------------------------
+    // Block Compression Methods
+    // -----------------------------------------
+    
+    inline void setCompressionType(AntiCacheCompressionType type) {
+        m_compression_type = type;
+    }
+    inline AntiCacheCompressionType getCompressionType() const {
+        return (m_compression_type);
+    }
+
+    // -----------------------------------------
+    // Multi-Level Migration Methods
+    // -----------------------------------------
+    
+    /**
+     * A block that is read this many times from a slower AntiCacheDB level
+     * is moved up one level. This only applies to the tuple-merge strategy,
+     * since the block-merge strategy reads every block just once.
+     * Zero disables promotion.
+     */
+    inline void setPromoteThreshold(int32_t threshold) {
+        m_promote_threshold = threshold;
+    }
+    inline int32_t getPromoteThreshold() const {
+        return (m_promote_threshold);
+    }
+    /**
+     * demoteColdBlocks() moves LRU blocks down until every level but the
+     * last one has this many free blocks. Zero disables demotion.
+     */
+    inline void setDemoteFreeBlocks(int32_t freeBlocks) {
+        m_demote_free_blocks = freeBlocks;
+    }
+    inline int32_t getDemoteFreeBlocks() const {
+        return (m_demote_free_blocks);
+    }
+    inline int64_t getBlocksRead(int16_t acid) const {
+        return (m_level_blocks_read[acid]);
+    }
+    inline int64_t getBlocksPromoted() const {
+        return (m_blocks_promoted);
+    }
+    inline int64_t getBlocksDemoted() const {
+        return (m_blocks_demoted);
+    }
+
     // -----------------------------------------
     // Evicted Access Tracking Methods
     // -----------------------------------------
@@ -90,9 +156,14 @@ public:
     }
     void recordEvictedAccess(catalog::Table* catalogTable, TableTuple *tuple);
     void throwEvictedAccessException();
+    void getEvictedTupleLocation(TableTuple *tuple, int32_t &block_id, int32_t &tuple_id);
     
 protected:
     void initEvictResultTable();
+    void writeBlock(PersistentTable *table, AntiCacheDB* antiCacheDB, int16_t block_id,
+                    int num_tuples, const char* data, long size);
+    PersistentTable* updateEvictedBlockId(const std::string &tableName, int32_t old_block_id, int32_t new_block_id);
+    void forgetBlockReads(int32_t block_id);
     
     bool removeTupleSingleLinkedList(PersistentTable* table, uint32_t removal_id);
     bool removeTupleDoubleLinkedList(PersistentTable* table, TableTuple* tuple_to_remove, uint32_t removal_id);
@@ -120,6 +191,37 @@ protected:
     // encountering a full AntiCacheDB. As of now, it is set to tru when 
     // m_numdbs > 1;
     bool m_migrate;
+
+    // How we record that a tuple was accessed when ANTICACHE_TIMESTAMPS is enabled.
+    // With ANTICACHE_TRACKING_CLOCK, every eviction pass advances the epoch and
+    // the sampled tuples with the oldest epochs are evicted first.
+    AntiCacheTrackingType m_tracking_type;
+    uint32_t m_clock_epoch;
+
+    // The codec used to compress blocks before they are written to an AntiCacheDB
+    AntiCacheCompressionType m_compression_type;
+
+    // Multi-level placement. We count how many times each block has been read
+    // from a level below the first one so that blocks that keep getting read
+    // from a slow level can be promoted to a faster one. Blocks that are moved
+    // get a new id, so their count starts over.
+    // The blocks are read on the block-fetch thread, but moving them changes the
+    // AntiCacheDBs and the EvictedTables, which only the partition's thread may
+    // touch. So the read path only counts and queues the blocks to promote, and
+    // promotePendingBlocks() moves them in between txns. The mutex protects the
+    // counts and the queue.
+    struct PendingPromotion {
+        int32_t blockId;
+        AntiCacheBlock* block;
+    };
+    int32_t m_promote_threshold;
+    int32_t m_demote_free_blocks;
+    pthread_mutex_t m_promote_mutex;
+    std::map<int32_t, int32_t> m_block_reads;
+    std::vector<PendingPromotion> m_pending_promotions;
+    int64_t m_level_blocks_read[MAX_DBS];
+    int64_t m_blocks_promoted;
+    int64_t m_blocks_demoted;
     //std::map<int16_t, AntiCacheDB*> m_db_lookup_table;
     
 }; // AntiCacheEvictionManager class
@@ -0,0 +1,262 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "anticache/BlockCompressor.h"
+#include "common/debuglog.h"
+#include "common/FatalException.hpp"
+
+#include <string.h>
+
+namespace voltdb {
+
+// The number of bits used for the compressor's hash table
+#define LZF_HLOG 14
+#define LZF_HSIZE (1 << LZF_HLOG)
+#define LZF_MAX_LIT (1 << 5)
+#define LZF_MAX_OFF (1 << 13)
+#define LZF_MAX_REF ((1 << 8) + (1 << 3))
+
+// Every compressed block starts with this instead of the number of tables
+static const unsigned char COMPRESSED_MARKER[4] = { 0xFF, 0xFF, 0xFF, 0xFF };
+
+const char* BlockCompressor::getCodecName(AntiCacheCompressionType codec) {
+    switch (codec) {
+        case ANTICACHE_COMPRESSION_NONE:
+            return "NONE";
+        case ANTICACHE_COMPRESSION_LZF:
+            return "LZF";
+    }
+    return "UNKNOWN";
+}
+
+char* BlockCompressor::compress(AntiCacheCompressionType codec,
+                                const char* data, long size,
+                                long &compressedSize) {
+    if (codec == ANTICACHE_COMPRESSION_NONE || size <= HEADER_SIZE) {
+        return (NULL);
+    }
+
+    // We only want the compressed block if it's smaller than the original
+    long max_len = size - HEADER_SIZE - 1;
+    char* buffer = new char[HEADER_SIZE + max_len];
+    long len = 0;
+    switch (codec) {
+        case ANTICACHE_COMPRESSION_LZF:
+            len = lzfCompress(data, size, buffer + HEADER_SIZE, max_len);
+            break;
+        default:
+            delete [] buffer;
+            throwFatalException("Unexpected anti-cache compression type %d", (int)codec);
+    }
+    if (len == 0) {
+        VOLT_DEBUG("Unable to compress block [size=%ld / codec=%s]", size, getCodecName(codec));
+        delete [] buffer;
+        return (NULL);
+    }
+
+    int32_t uncompressed = static_cast<int32_t>(size);
+    memcpy(buffer, COMPRESSED_MARKER, sizeof(COMPRESSED_MARKER));
+    buffer[4] = static_cast<char>(codec);
+    memcpy(buffer + 5, &uncompressed, sizeof(uncompressed));
+
+    compressedSize = HEADER_SIZE + len;
+    VOLT_DEBUG("Compressed block from %ld to %ld bytes [codec=%s]",
+               size, compressedSize, getCodecName(codec));
+    return (buffer);
+}
+
+bool BlockCompressor::isCompressed(const char* data, long size) {
+    return (size > HEADER_SIZE && memcmp(data, COMPRESSED_MARKER, sizeof(COMPRESSED_MARKER)) == 0);
+}
+
+char* BlockCompressor::decompress(const char* data, long size, long &uncompressedSize) {
+    assert(isCompressed(data, size));
+    AntiCacheCompressionType codec = static_cast<AntiCacheCompressionType>(data[4]);
+    int32_t uncompressed;
+    memcpy(&uncompressed, data + 5, sizeof(uncompressed));
+
+    char* buffer = new char[uncompressed];
+    long len = 0;
+    switch (codec) {
+        case ANTICACHE_COMPRESSION_LZF:
+            len = lzfDecompress(data + HEADER_SIZE, size - HEADER_SIZE, buffer, uncompressed);
+            break;
+        default:
+            delete [] buffer;
+            throwFatalException("Unexpected anti-cache compression type %d", (int)codec);
+    }
+    if (len != uncompressed) {
+        delete [] buffer;
+        throwFatalException("Failed to decompress %s anti-cache block [expected=%d / actual=%ld]",
+                            getCodecName(codec), uncompressed, len);
+    }
+    uncompressedSize = len;
+    return (buffer);
+}
+
+// -------------------------------------------------
+// LZF
+// -------------------------------------------------
+
+/*
+ * This is the LZF format from liblzf. Every chunk starts with a control byte:
+ *   000LLLLL                    -> copy the next L+1 literal bytes
+ *   LLLOOOOO OOOOOOOO           -> copy L+2 bytes from O+1 bytes back
+ *   111OOOOO LLLLLLLL OOOOOOOO  -> copy L+9 bytes from O+1 bytes back
+ */
+
+long BlockCompressor::lzfCompress(const char* in, long in_len, char* out, long out_len) {
+    const unsigned char* ip = reinterpret_cast<const unsigned char*>(in);
+    const unsigned char* in_end = ip + in_len;
+    unsigned char* op = reinterpret_cast<unsigned char*>(out);
+    unsigned char* out_end = op + out_len;
+    const unsigned char* htab[LZF_HSIZE];
+    memset(htab, 0, sizeof(htab));
+
+    if (in_len == 0 || out_len < 2) return (0);
+
+    int lit = 0;
+    op++; // start run
+
+    while (ip + 2 < in_end) {
+        unsigned int hval = (ip[0] << 16) | (ip[1] << 8) | ip[2];
+        unsigned int slot = ((hval * 2654435761u) >> (32 - LZF_HLOG)) & (LZF_HSIZE - 1);
+        const unsigned char* ref = htab[slot];
+        htab[slot] = ip;
+
+        long off;
+        if (ref != NULL &&
+            (off = ip - ref - 1) < LZF_MAX_OFF &&
+            ref[0] == ip[0] && ref[1] == ip[1] && ref[2] == ip[2]) {
+
+            long len = 2;
+            long maxlen = in_end - ip - len;
+            if (maxlen > LZF_MAX_REF) maxlen = LZF_MAX_REF;
+
+            // first a faked literal, then the backref
+            if (op + 3 + 1 >= out_end) {
+                if (op - !lit + 3 + 1 >= out_end) return (0);
+            }
+
+            op[- lit - 1] = static_cast<unsigned char>(lit - 1); // stop run
+            op -= !lit; // undo run if length is zero
+
+            do {
+                len++;
+            } while (len < maxlen && ref[len] == ip[len]);
+
+            len -= 2; // len is now #octets - 1
+            ip++;
+
+            if (len < 7) {
+                *op++ = static_cast<unsigned char>((off >> 8) + (len << 5));
+            } else {
+                *op++ = static_cast<unsigned char>((off >> 8) + (7 << 5));
+                *op++ = static_cast<unsigned char>(len - 7);
+            }
+            *op++ = static_cast<unsigned char>(off);
+
+            lit = 0;
+            op++; // start run
+
+            ip += len + 1;
+            if (ip + 2 >= in_end) break;
+
+            // index the positions that we skipped over
+            --ip;
+            hval = (ip[0] << 16) | (ip[1] << 8) | ip[2];
+            htab[((hval * 2654435761u) >> (32 - LZF_HLOG)) & (LZF_HSIZE - 1)] = ip;
+            ip++;
+        } else {
+            if (op >= out_end) return (0);
+            lit++;
+            *op++ = *ip++;
+            if (lit == LZF_MAX_LIT) {
+                op[- lit - 1] = static_cast<unsigned char>(lit - 1); // stop run
+                lit = 0;
+                op++; // start run
+            }
+        }
+    } // WHILE
+
+    if (op + 3 > out_end) return (0);
+
+    while (ip < in_end) {
+        lit++;
+        *op++ = *ip++;
+        if (lit == LZF_MAX_LIT) {
+            op[- lit - 1] = static_cast<unsigned char>(lit - 1); // stop run
+            lit = 0;
+            op++; // start run
+        }
+    } // WHILE
+
+    op[- lit - 1] = static_cast<unsigned char>(lit - 1); // end run
+    op -= !lit; // undo run if length is zero
+
+    return (op - reinterpret_cast<unsigned char*>(out));
+}
+
+long BlockCompressor::lzfDecompress(const char* in, long in_len, char* out, long out_len) {
+    const unsigned char* ip = reinterpret_cast<const unsigned char*>(in);
+    const unsigned char* in_end = ip + in_len;
+    unsigned char* op = reinterpret_cast<unsigned char*>(out);
+    unsigned char* out_start = op;
+    unsigned char* out_end = op + out_len;
+
+    while (ip < in_end) {
+        unsigned int ctrl = *ip++;
+
+        if (ctrl < (1 << 5)) { // literal run
+            ctrl++;
+            if (op + ctrl > out_end || ip + ctrl > in_end) return (0);
+            memcpy(op, ip, ctrl);
+            op += ctrl;
+            ip += ctrl;
+        } else { // back reference
+            unsigned int len = ctrl >> 5;
+            const unsigned char* ref = op - ((ctrl & 0x1f) << 8) - 1;
+
+            if (len == 7) {
+                if (ip >= in_end) return (0);
+                len += *ip++;
+            }
+            if (ip >= in_end) return (0);
+            ref -= *ip++;
+
+            len += 2;
+            if (op + len > out_end || ref < out_start) return (0);
+
+            // the source and destination can overlap, so this has to go byte-by-byte
+            do {
+                *op++ = *ref++;
+            } while (--len);
+        }
+    } // WHILE
+
+    return (op - out_start);
+}
+
+}
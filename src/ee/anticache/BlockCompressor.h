@@ -0,0 +1,87 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTOREBLOCKCOMPRESSOR_H
+#define HSTOREBLOCKCOMPRESSOR_H
+
+#include "common/types.h"
+
+#include <stdint.h>
+
+namespace voltdb {
+
+/**
+ * Compresses the serialized blocks of evicted tuples before they are written
+ * out to an AntiCacheDB and decompresses them when they are read back in.
+ * A compressed block starts with a small header that marks it as compressed.
+ * The first four bytes of an uncompressed block are always the number of
+ * tables in it, so the two can never be confused and blocks written without
+ * compression can still be read back in after it is enabled.
+ */
+class BlockCompressor {
+
+    public:
+        /**
+         * Compress the given block using the given codec. Returns a new buffer
+         * that the caller must delete and sets compressedSize to its length.
+         * Returns NULL if the block could not be made any smaller, in which
+         * case the original block should be written as-is.
+         */
+        static char* compress(AntiCacheCompressionType codec,
+                              const char* data, long size,
+                              long &compressedSize);
+
+        /**
+         * Returns true if the given block was written by compress()
+         */
+        static bool isCompressed(const char* data, long size);
+
+        /**
+         * Decompress a block that was written by compress(). Returns a new buffer
+         * that the caller must delete and sets uncompressedSize to its length.
+         */
+        static char* decompress(const char* data, long size, long &uncompressedSize);
+
+        /**
+         * Return the name of the given codec
+         */
+        static const char* getCodecName(AntiCacheCompressionType codec);
+
+        /**
+         * The LZF codec. These work on raw buffers without any block header.
+         * Returns the number of bytes written to the output buffer, or zero
+         * if it was too small.
+         */
+        static long lzfCompress(const char* in, long in_len, char* out, long out_len);
+        static long lzfDecompress(const char* in, long in_len, char* out, long out_len);
+
+    private:
+        // marker (4 bytes) + codec (1 byte) + uncompressed size (4 bytes)
+        static const int HEADER_SIZE = 9;
+
+}; // CLASS
+
+}
+#endif
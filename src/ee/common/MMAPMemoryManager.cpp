@@ -45,7 +45,8 @@
 
    MMAPMemoryManager::MMAPMemoryManager()
    : m_size(DEFAULT_MMAP_SIZE), m_allocated(0),
-   m_persistent(false), m_index(0)
+   m_persistent(false), m_index(0),
+   m_pageSize(0), m_dirtyPages(NULL), m_dirtyBytes(0), m_syncedBytes(0)
    {
      init();
    }
@@ -53,7 +54,8 @@
 
    MMAPMemoryManager::MMAPMemoryManager(size_t size, const std::string fileName, bool persistent)
    : m_size(size), m_allocated(0),
-   m_fileName(fileName), m_persistent(persistent), m_index(0)
+   m_fileName(fileName), m_persistent(persistent), m_index(0),
+   m_pageSize(0), m_dirtyPages(NULL), m_dirtyBytes(0), m_syncedBytes(0)
    {
      init();
    }
@@ -108,6 +110,17 @@
 
        // Can close file since mmap adds a reference to file implicitly
        close(MMAP_fd);
+
+       // Only file-backed mappings need to track which pages to write out
+       if (m_dirtyPages == NULL) {
+         m_pageSize = static_cast<size_t>(sysconf(_SC_PAGESIZE));
+         size_t numPages = (m_size + m_pageSize - 1) / m_pageSize;
+         m_dirtyPages = static_cast<volatile uint8_t*>(calloc(numPages, sizeof(uint8_t)));
+         if (m_dirtyPages == NULL) {
+           VOLT_ERROR("MMAP : initialization error : failed to allocate dirty page map");
+           throwFatalException("MMAP : initialization error : failed to allocate dirty page map");
+         }
+       }
      }
 
      //VOLT_TRACE("Init m_base      : %p ",m_base);
@@ -138,6 +151,11 @@
      m_base = NULL;
      m_allocated = 0;
 
+     if (m_dirtyPages != NULL) {
+       free(const_cast<uint8_t*>(m_dirtyPages));
+       m_dirtyPages = NULL;
+     }
+
      if (pthread_mutex_unlock(&m_mutex)) {
        VOLT_ERROR("Failed to unlock mutex in MMAPMemoryManager::~MemoryManager()\n");
        throwFatalException("Failed to unlock mutex.");
@@ -219,6 +237,51 @@
      }
    }
 
+   /** Ranged SYNC of the dirty pages **/
+   int64_t MMAPMemoryManager::syncDirty(){
+     if (m_dirtyPages == NULL) return (0);
+
+     // Only look at the pages that we have handed out
+     size_t numPages = (m_allocated + m_pageSize - 1) / m_pageSize;
+     size_t runStart = 0;
+     size_t runLength = 0;
+     int64_t synced = 0;
+
+     for (size_t page = 0; page < numPages; page++) {
+       // Clear the flag before we write the page out so that
+       // any change made after this point will mark it again
+       if (m_dirtyPages[page] != 0 && __sync_lock_test_and_set(&m_dirtyPages[page], 0) != 0) {
+         if (runLength == 0) runStart = page;
+         runLength++;
+         continue;
+       }
+       if (runLength > 0) {
+         syncRange(runStart, runLength);
+         synced += runLength * m_pageSize;
+         runLength = 0;
+       }
+     }
+     if (runLength > 0) {
+       syncRange(runStart, runLength);
+       synced += runLength * m_pageSize;
+     }
+
+     if (synced > 0) {
+       __sync_fetch_and_sub(&m_dirtyBytes, synced);
+       __sync_fetch_and_add(&m_syncedBytes, synced);
+     }
+     return (synced);
+   }
+
+   void MMAPMemoryManager::syncRange(size_t firstPage, size_t numPages){
+     char* start = static_cast<char*>(m_base) + (firstPage * m_pageSize);
+     int ret = msync(start, numPages * m_pageSize, MS_SYNC);
+     if(ret<0){
+       VOLT_ERROR("msync failed with error.");
+       throwFatalException("Failed to msync.");
+     }
+   }
+
    /** SYNC m_sync **/
    void MMAPMemoryManager::sync(){
      /** Only sync till m_allocated **/
@@ -28,6 +28,8 @@
 #include "common/debuglog.h"
 #include "common/FatalException.hpp"
 
+#include <cassert>
+#include <stdint.h>
 #include <iostream>
 #include <set>
 #include <string>
@@ -67,8 +69,44 @@ namespace voltdb {
         void sync();
         void async();
 
+        /**
+         * Mark the pages that the given range of memory falls on as dirty
+         * so that the next call to syncDirty() will write them out.
+         * This must be called after the memory has been modified.
+         */
+        inline void markDirty(const void* address, size_t length) {
+            if (m_dirtyPages == NULL || length == 0) return;
+            size_t offset = static_cast<const char*>(address) - static_cast<const char*>(m_base);
+            assert(offset + length <= m_size);
+            size_t first = offset / m_pageSize;
+            size_t last = (offset + length - 1) / m_pageSize;
+            for (size_t page = first; page <= last; page++) {
+                if (m_dirtyPages[page] == 0 &&
+                    __sync_bool_compare_and_swap(&m_dirtyPages[page], 0, 1)) {
+                    __sync_fetch_and_add(&m_dirtyBytes, static_cast<int64_t>(m_pageSize));
+                }
+            }
+        }
+
+        /**
+         * Write out all of the pages that have been marked as dirty.
+         * Contiguous dirty pages are written out with a single ranged msync.
+         * This is safe to call from a thread other than the one that is
+         * modifying the memory. Returns the number of bytes written out.
+         */
+        int64_t syncDirty();
+
+        inline int64_t getDirtyBytes() const {
+            return (m_dirtyBytes);
+        }
+
+        inline int64_t getSyncedBytes() const {
+            return (m_syncedBytes);
+        }
+
     private:
         void init();
+        void syncRange(size_t firstPage, size_t numPages);
         
         // Base Ptr to allocated memory
         void *m_base;
@@ -85,6 +123,12 @@ namespace voltdb {
         vector<pair<size_t,size_t> > m_metadata;
         size_t m_index;
 
+        // DIRTY PAGES :: One flag per page in the mapping
+        size_t m_pageSize;
+        volatile uint8_t *m_dirtyPages;
+        volatile int64_t m_dirtyBytes;
+        volatile int64_t m_syncedBytes;
+
         static pthread_mutex_t m_mutex;
 
     };
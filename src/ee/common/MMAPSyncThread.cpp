@@ -0,0 +1,181 @@
+ /* Copyright (C) 2013 by H-Store Project
+ * Brown University
+ * Carnegie Mellon University
+ * Massachusetts Institute of Technology
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <algorithm>
+#include <errno.h>
+#include <sys/time.h>
+
+#include "common/MMAPSyncThread.h"
+#include "common/debuglog.h"
+#include "common/FatalException.hpp"
+
+namespace voltdb {
+
+MMAPSyncThread::MMAPSyncThread(int64_t dirtyLimit, int64_t intervalMillis)
+    : m_dirtyLimit(dirtyLimit), m_intervalMillis(intervalMillis),
+      m_syncRequested(false), m_running(true), m_error(NULL)
+{
+    pthread_mutex_init(&m_managersMutex, NULL);
+    pthread_mutex_init(&m_signalMutex, NULL);
+    pthread_cond_init(&m_signal, NULL);
+
+    if (pthread_create(&m_thread, NULL, MMAPSyncThread::run, this) != 0) {
+        VOLT_ERROR("MMAP : failed to start sync thread");
+        throwFatalException("MMAP : failed to start sync thread");
+    }
+}
+
+MMAPSyncThread::~MMAPSyncThread() {
+    pthread_mutex_lock(&m_signalMutex);
+    m_running = false;
+    pthread_cond_signal(&m_signal);
+    pthread_mutex_unlock(&m_signalMutex);
+    pthread_join(m_thread, NULL);
+
+    // Make sure that everything is on disk before we go away
+    try {
+        syncManagers();
+    } catch (FatalException &e) {
+        VOLT_ERROR("MMAP : failed to write out dirty pages on shutdown : %s", e.m_reason.c_str());
+    }
+    delete m_error;
+
+    pthread_cond_destroy(&m_signal);
+    pthread_mutex_destroy(&m_signalMutex);
+    pthread_mutex_destroy(&m_managersMutex);
+}
+
+void MMAPSyncThread::addManager(MMAPMemoryManager *manager) {
+    pthread_mutex_lock(&m_managersMutex);
+    m_managers.push_back(manager);
+    pthread_mutex_unlock(&m_managersMutex);
+}
+
+void MMAPSyncThread::removeManager(MMAPMemoryManager *manager) {
+    // This waits for the background thread if it is in the middle of
+    // writing out this manager's pages
+    pthread_mutex_lock(&m_managersMutex);
+    m_managers.erase(std::remove(m_managers.begin(), m_managers.end(), manager), m_managers.end());
+    pthread_mutex_unlock(&m_managersMutex);
+}
+
+void MMAPSyncThread::checkError() {
+    pthread_mutex_lock(&m_signalMutex);
+    if (m_error != NULL) {
+        FatalException error(*m_error);
+        pthread_mutex_unlock(&m_signalMutex);
+        throw error;
+    }
+    pthread_mutex_unlock(&m_signalMutex);
+}
+
+void MMAPSyncThread::requestSync() {
+    checkError();
+    pthread_mutex_lock(&m_signalMutex);
+    m_syncRequested = true;
+    pthread_cond_signal(&m_signal);
+    pthread_mutex_unlock(&m_signalMutex);
+}
+
+int64_t MMAPSyncThread::syncNow() {
+    checkError();
+    return (syncManagers());
+}
+
+bool MMAPSyncThread::isOverDirtyLimit() const {
+    return (m_dirtyLimit > 0 && getDirtyBytes() > m_dirtyLimit);
+}
+
+int64_t MMAPSyncThread::getDirtyBytes() const {
+    // The list of managers only changes when tables are added or removed,
+    // which happens on the partition's thread, so it is safe to read here
+    int64_t dirty = 0;
+    for (std::vector<MMAPMemoryManager*>::const_iterator itr = m_managers.begin(); itr != m_managers.end(); ++itr) {
+        dirty += (*itr)->getDirtyBytes();
+    }
+    return (dirty);
+}
+
+int64_t MMAPSyncThread::getSyncedBytes() const {
+    int64_t synced = 0;
+    for (std::vector<MMAPMemoryManager*>::const_iterator itr = m_managers.begin(); itr != m_managers.end(); ++itr) {
+        synced += (*itr)->getSyncedBytes();
+    }
+    return (synced);
+}
+
+int64_t MMAPSyncThread::syncManagers() {
+    int64_t synced = 0;
+    pthread_mutex_lock(&m_managersMutex);
+    try {
+        for (std::vector<MMAPMemoryManager*>::iterator itr = m_managers.begin(); itr != m_managers.end(); ++itr) {
+            synced += (*itr)->syncDirty();
+        }
+    } catch (...) {
+        pthread_mutex_unlock(&m_managersMutex);
+        throw;
+    }
+    pthread_mutex_unlock(&m_managersMutex);
+    return (synced);
+}
+
+void* MMAPSyncThread::run(void *arg) {
+    MMAPSyncThread *self = static_cast<MMAPSyncThread*>(arg);
+    while (true) {
+        pthread_mutex_lock(&self->m_signalMutex);
+        if (self->m_running && self->m_syncRequested == false) {
+            // Wait until we are told to sync or until the interval has passed
+            struct timeval now;
+            gettimeofday(&now, NULL);
+            int64_t nsec = (now.tv_usec * 1000L) + (self->m_intervalMillis % 1000) * 1000000L;
+            struct timespec deadline;
+            deadline.tv_sec = now.tv_sec + (self->m_intervalMillis / 1000) + (nsec / 1000000000L);
+            deadline.tv_nsec = nsec % 1000000000L;
+            pthread_cond_timedwait(&self->m_signal, &self->m_signalMutex, &deadline);
+        }
+        bool running = self->m_running;
+        self->m_syncRequested = false;
+        pthread_mutex_unlock(&self->m_signalMutex);
+        if (running == false) break;
+
+        // Nothing catches exceptions on this thread, so we hold on to it
+        // and let the partition's thread throw it the next time it calls us
+        try {
+            int64_t synced = self->syncManagers();
+            if (synced > 0) {
+                VOLT_DEBUG("MMAP : wrote out %ld dirty bytes", (long)synced);
+            }
+        } catch (FatalException &e) {
+            VOLT_ERROR("MMAP : sync thread failed : %s", e.m_reason.c_str());
+            pthread_mutex_lock(&self->m_signalMutex);
+            self->m_error = new FatalException(e);
+            pthread_mutex_unlock(&self->m_signalMutex);
+            break;
+        }
+    }
+    return (NULL);
+}
+
+}
@@ -0,0 +1,111 @@
+ /* Copyright (C) 2013 by H-Store Project
+ * Brown University
+ * Carnegie Mellon University
+ * Massachusetts Institute of Technology
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+#ifndef _MMAPSYNCTHREAD_H_
+#define _MMAPSYNCTHREAD_H_
+
+#include "common/MMAPMemoryManager.h"
+#include "common/FatalException.hpp"
+
+#include <stdint.h>
+#include <pthread.h>
+#include <vector>
+
+namespace voltdb {
+
+    /**
+     * Background thread that writes out the dirty pages of a partition's
+     * MMAP'ed tables so that the partition's thread does not have to
+     * block on msync. The partition's thread only writes out pages itself
+     * when there are more dirty bytes than the configured limit.
+     * If the background thread fails to write out the pages, it stops
+     * and the error is thrown on the partition's thread the next time
+     * that it calls into us.
+     */
+    class MMAPSyncThread {
+    public:
+        MMAPSyncThread(int64_t dirtyLimit, int64_t intervalMillis);
+        ~MMAPSyncThread();
+
+        void addManager(MMAPMemoryManager *manager);
+        void removeManager(MMAPMemoryManager *manager);
+
+        /**
+         * Throw the FatalException that stopped the background
+         * thread, if there was one.
+         */
+        void checkError();
+
+        /**
+         * Wake up the background thread so that it writes out
+         * the dirty pages right away. This does not block.
+         */
+        void requestSync();
+
+        /**
+         * Write out the dirty pages from the calling thread. This
+         * blocks until everything that was dirty has been written out.
+         * Returns the number of bytes that were written out.
+         */
+        int64_t syncNow();
+
+        /**
+         * Returns true if there are more dirty bytes than we are allowed to have
+         */
+        bool isOverDirtyLimit() const;
+
+        int64_t getDirtyBytes() const;
+        int64_t getSyncedBytes() const;
+
+    private:
+        static void* run(void *arg);
+        int64_t syncManagers();
+
+        const int64_t m_dirtyLimit;
+        const int64_t m_intervalMillis;
+
+        // Protects the list of managers and makes sure that only
+        // one thread is writing them out at a time
+        pthread_mutex_t m_managersMutex;
+        std::vector<MMAPMemoryManager*> m_managers;
+
+        // Used to wake up the background thread
+        pthread_mutex_t m_signalMutex;
+        pthread_cond_t m_signal;
+        bool m_syncRequested;
+        bool m_running;
+
+        // The error that the background thread died with. Protected by m_signalMutex
+        FatalException *m_error;
+
+        pthread_t m_thread;
+
+        // no copy, no assignment
+        MMAPSyncThread(MMAPSyncThread const&);
+        MMAPSyncThread operator=(MMAPSyncThread const&);
+    };
+
+}
+
+#endif /* _MMAPSYNCTHREAD_H_ */
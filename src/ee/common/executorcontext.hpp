@@ -21,6 +21,7 @@
 #include "Topend.h"
 #include "common/UndoQuantum.h"
 #include "storage/ReadWriteTracker.h"
+#include "common/MMAPSyncThread.h"
 
 #ifdef ANTICACHE
 #include "anticache/AntiCacheDB.h"
@@ -32,6 +33,11 @@
 
 #endif
 
+#ifdef STORAGE_MMAP
+// How often the MMAP sync thread wakes up on its own
+#define MMAP_SYNC_INTERVAL_MS 1000
+#endif
+
 namespace voltdb {
     
     class ReadWriteTrackerManager;
@@ -60,6 +66,12 @@ namespace voltdb {
                 delete m_trackingManager;
             }
 
+            #ifdef STORAGE_MMAP
+            if (m_MMAPEnabled) {
+                delete m_MMAPSyncThread;
+            }
+            #endif
+
             #ifdef ANTICACHE
             if (m_antiCacheEnabled) {
                 //delete[] m_antiCacheDB;
@@ -83,6 +95,9 @@ namespace voltdb {
             m_antiCacheEnabled = false;
             m_trackingEnabled = false;
             m_MMAPEnabled = false;
+            #ifdef STORAGE_MMAP
+            m_MMAPSyncThread = NULL;
+            #endif
             m_ARIESEnabled = false;
             m_antiCacheDBs = 0;
         }
@@ -115,6 +130,14 @@ namespace voltdb {
         inline int64_t getMMAPSyncFrequency() const {
             return (m_MMAPSyncFrequency);
         }
+
+        /**
+         * Returns the background thread that writes out the
+         * dirty pages of this partition's MMAP'ed tables
+         */
+        inline MMAPSyncThread* getMMAPSyncThread() const {
+            return (m_MMAPSyncThread);
+        }
         #endif
 
         inline std::string getDBDir() const {
@@ -262,11 +285,12 @@ namespace voltdb {
          * The input parameter is the directory where our disk-based storage
          * will write out mmap'ed files for this partition
          */
-        void enableMMAP(std::string &dbDir, long mapSize, uint64_t syncFrequency) {
+        void enableMMAP(std::string &dbDir, long mapSize, uint64_t syncFrequency, int64_t dirtyLimit) {
             assert(m_MMAPEnabled == false);
             m_MMAPDir = dbDir;
             m_MMAPSize = mapSize;
             m_MMAPSyncFrequency = syncFrequency;
+            m_MMAPSyncThread = new MMAPSyncThread(dirtyLimit, MMAP_SYNC_INTERVAL_MS);
 
             m_MMAPEnabled = true;
         }
@@ -333,6 +357,7 @@ namespace voltdb {
         #ifdef STORAGE_MMAP
         long m_MMAPSize;
         int64_t m_MMAPSyncFrequency;
+        MMAPSyncThread *m_MMAPSyncThread;
         #endif
 
         #ifdef ARIES
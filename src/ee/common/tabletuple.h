@@ -337,6 +337,16 @@ public:
             uint32_t cold_time = 0;
             memcpy(m_data+TUPLE_HEADER_SIZE-4, &cold_time, 4);
         }
+
+        /**
+         * Set the timestamp to the given clock epoch. We only write to the
+         * tuple's header if it hasn't already been accessed in this epoch.
+         */
+        inline void touchTimeStamp(uint32_t epoch) {
+            if (getTimeStamp() != epoch) {
+                memcpy(m_data+TUPLE_HEADER_SIZE-4, &epoch, 4);
+            }
+        }
 #endif
 #endif
 
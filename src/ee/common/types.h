@@ -306,7 +306,8 @@ enum IndexLookupType {
 // ------------------------------------------------------------------
 enum TableStreamType {
    TABLE_STREAM_SNAPSHOT,
-   TABLE_STREAM_RECOVERY
+   TABLE_STREAM_RECOVERY,
+   TABLE_STREAM_CHECKPOINT
 };
 
 // ------------------------------------------------------------------
@@ -362,6 +363,35 @@ enum AntiCacheDBType {
     ANTICACHEDB_NVM = 2
 };
 
+// -----------------------------------------------------------------
+// AntiCache Tuple Tracking Types
+// -----------------------------------------------------------------
+enum AntiCacheTrackingType {
+    /*
+     * Stamp the tuple with the current cycle counter on every access
+     */
+    ANTICACHE_TRACKING_TIMESTAMP = 0,
+    /*
+     * Stamp the tuple with the eviction manager's clock epoch. The stamp is
+     * only written the first time that the tuple is accessed in an epoch.
+     */
+    ANTICACHE_TRACKING_CLOCK = 1
+};
+
+// -----------------------------------------------------------------
+// AntiCache Block Compression Types
+// -----------------------------------------------------------------
+enum AntiCacheCompressionType {
+    /*
+     * Write evicted blocks without compressing them
+     */
+    ANTICACHE_COMPRESSION_NONE = 0,
+    /*
+     * LZF (fast LZ77 variant)
+     */
+    ANTICACHE_COMPRESSION_LZF = 1
+};
+
 // ------------------------------------------------------------------
 // Utility functions.
 // -----------------------------------------------------------------
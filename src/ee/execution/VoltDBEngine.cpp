@@ -92,6 +92,8 @@
 #include "executors/executorutil.h"
 #include "storage/table.h"
 #include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
 #include "indexes/tableindex.h"
 #include "storage/constraintutil.h"
 #include "storage/persistenttable.h"
@@ -1339,19 +1341,21 @@ bool VoltDBEngine::activateTableStream(const CatalogId tableId, TableStreamType
 
     switch (streamType) {
     case TABLE_STREAM_SNAPSHOT:
-        VOLT_WARN("TableStreamType : TABLE_STREAM_SNAPSHOT for table %s ",
-                table->name().c_str())
+    case TABLE_STREAM_CHECKPOINT:
+        VOLT_WARN("TableStreamType : %d for table %s ",
+                streamType, table->name().c_str())
         ;
 
-        if (table->activateCopyOnWrite(&m_tupleSerializer, m_partitionId)) {
+        // keep track of snapshotting tables. a table already in cow mode
+        // can not be re-activated for cow mode. There is only one copy on
+        // write context per table, so a snapshot and a checkpoint can't
+        // stream the same table at the same time either.
+        if (m_snapshottingTables.find(tableId) != m_snapshottingTables.end()) {
             return false;
         }
 
-        // keep track of snapshotting tables. a table already in cow mode
-        // can not be re-activated for cow mode.
-        if (m_snapshottingTables.find(tableId) != m_snapshottingTables.end()) {
-            assert(false);
-            return true;
+        if (table->activateCopyOnWrite(&m_tupleSerializer, m_partitionId, streamType)) {
+            return false;
         }
 
         table->incrementRefcount();
@@ -1383,7 +1387,8 @@ int VoltDBEngine::tableStreamSerializeMore(ReferenceSerializeOutput *out,
         const CatalogId tableId, const TableStreamType streamType) {
 
     switch (streamType) {
-    case TABLE_STREAM_SNAPSHOT: {
+    case TABLE_STREAM_SNAPSHOT:
+    case TABLE_STREAM_CHECKPOINT: {
         // If a completed table is polled, return 0 bytes serialized. The
         // Java engine will always poll a fully serialized table one more
         // time (it doesn't see the hasMore return code).  Note that the
@@ -1393,7 +1398,11 @@ int VoltDBEngine::tableStreamSerializeMore(ReferenceSerializeOutput *out,
             return 0;
         }
 
+        // The table is being streamed out for somebody else
         PersistentTable *table = dynamic_cast<PersistentTable*>(pos->second);
+        if (table->getCopyOnWriteStreamType() != streamType) {
+            return -1;
+        }
         bool hasMore = table->serializeMore(out);
         if (!hasMore) {
             m_snapshottingTables.erase(tableId);
@@ -1880,6 +1889,95 @@ size_t VoltDBEngine::tableHashCode(int32_t tableId) {
     return table->hashCode();
 }
 
+bool VoltDBEngine::isTableModifiedSinceSnapshot(int32_t tableId) {
+    map<int32_t, Table*>::iterator it = m_tables.find(tableId);
+    if (it == m_tables.end()) {
+        throwFatalException(
+                "Tried to check the snapshot state of a table that doesn't exist with id %d\n",
+                tableId);
+    }
+
+    PersistentTable *table = dynamic_cast<PersistentTable*>(it->second);
+    if (table == NULL) {
+        // Only persistent tables are ever written out to snapshots
+        return true;
+    }
+    return table->isModifiedSinceSnapshot();
+}
+
+int64_t VoltDBEngine::getTableWriteVersion(int32_t tableId) {
+    map<int32_t, Table*>::iterator it = m_tables.find(tableId);
+    if (it == m_tables.end()) {
+        throwFatalException(
+                "Tried to get the write version of a table that doesn't exist with id %d\n",
+                tableId);
+    }
+
+    PersistentTable *table = dynamic_cast<PersistentTable*>(it->second);
+    if (table == NULL) {
+        // We don't track changes to anything else
+        return -1;
+    }
+    return table->getWriteVersion();
+}
+
+int VoltDBEngine::extractTuplesByHash(int32_t tableId, int32_t hash, int32_t partitionCount,
+                                      int32_t maxTuples, int64_t txnId, int64_t lastCommittedTxnId,
+                                      SerializeOutput *out) {
+    m_executorContext->setupForPlanFragments(getCurrentUndoQuantum(), txnId,
+            lastCommittedTxnId);
+
+    map<int32_t, Table*>::iterator it = m_tables.find(tableId);
+    if (it == m_tables.end()) {
+        throwFatalException(
+                "Tried to extract tuples from a table that doesn't exist with id %d\n",
+                tableId);
+    }
+    PersistentTable *table = dynamic_cast<PersistentTable*>(it->second);
+    if (table == NULL || table->partitionColumn() < 0) {
+        throwFatalException(
+                "Tried to extract tuples from a table that is not a partitioned persistent table id %d\n",
+                tableId);
+    }
+    const int partitionColumn = table->partitionColumn();
+
+#ifdef ANTICACHE
+    // Evicted tuples do not keep their partitioning column, so there is no way
+    // to tell which of them belong to this bucket. Refuse to extract anything
+    // rather than leave part of the bucket behind at this partition.
+    Table *evictedTable = table->getEvictedTable();
+    if (evictedTable != NULL && evictedTable->activeTupleCount() > 0) {
+        VOLT_WARN("Unable to extract hash bucket %d from table '%s' because it has %jd evicted tuples",
+                  hash, table->name().c_str(), (intmax_t)evictedTable->activeTupleCount());
+        return -1;
+    }
+#endif
+
+    int tempTableMemory = 0;
+    boost::scoped_ptr<TempTable> extracted(
+        TableFactory::getCopiedTempTable(table->databaseId(), table->name(), table, &tempTableMemory));
+
+    // Collect the matching tuples first so that we are not deleting
+    // from the table while we are still iterating over it
+    std::vector<char*> addresses;
+    TableTuple tuple(table->schema());
+    TableIterator iter(table);
+    while ((maxTuples <= 0 || addresses.size() < static_cast<size_t>(maxTuples)) && iter.next(tuple)) {
+        if (TheHashinator::hashinate(tuple.getNValue(partitionColumn), partitionCount) == hash) {
+            extracted->insertTuple(tuple);
+            addresses.push_back(tuple.address());
+        }
+    }
+
+    for (std::vector<char*>::iterator addr = addresses.begin(); addr != addresses.end(); ++addr) {
+        tuple.move(*addr);
+        table->deleteTuple(tuple, true);
+    }
+
+    extracted->serializeTo(*out);
+    return static_cast<int>(addresses.size());
+}
+
 // -------------------------------------------------
 // READ/WRITE SET TRACKING FUNCTIONS
 // -------------------------------------------------
@@ -1984,6 +2082,40 @@ void VoltDBEngine::antiCacheAddDB(std::string dbDir, AntiCacheDBType dbType, lon
     m_executorContext->addAntiCacheDB(dbDir, blockSize, dbType, maxSize);
 }
 
+void VoltDBEngine::antiCacheSetTracking(AntiCacheTrackingType trackingType) const {
+    VOLT_INFO("Setting Anti-Cache tuple tracking type %d at Partition %d", (int)trackingType, m_partitionId);
+    #ifndef ANTICACHE_TIMESTAMPS
+    if (trackingType != ANTICACHE_TRACKING_TIMESTAMP) {
+        throwFatalException("Anti-Cache tuple tracking type %d requires the EE to be compiled "
+                            "with ANTICACHE_TIMESTAMPS", (int)trackingType);
+    }
+    #endif
+    m_executorContext->getAntiCacheEvictionManager()->setTrackingType(trackingType);
+}
+
+void VoltDBEngine::antiCacheSetCompression(AntiCacheCompressionType compressionType) const {
+    VOLT_INFO("Setting Anti-Cache block compression type %d at Partition %d", (int)compressionType, m_partitionId);
+    m_executorContext->getAntiCacheEvictionManager()->setCompressionType(compressionType);
+}
+
+void VoltDBEngine::antiCacheSetMigrationPolicy(int32_t promoteThreshold, int32_t demoteFreeBlocks) const {
+    VOLT_INFO("Setting Anti-Cache migration policy [promoteThreshold=%d, demoteFreeBlocks=%d] at Partition %d",
+              promoteThreshold, demoteFreeBlocks, m_partitionId);
+    AntiCacheEvictionManager* eviction_manager = m_executorContext->getAntiCacheEvictionManager();
+    eviction_manager->setPromoteThreshold(promoteThreshold);
+    eviction_manager->setDemoteFreeBlocks(demoteFreeBlocks);
+}
+
+int32_t VoltDBEngine::antiCacheDemoteBlocks() {
+    AntiCacheEvictionManager* eviction_manager = m_executorContext->getAntiCacheEvictionManager();
+    // Promote first so that the demotions make room in the faster levels again
+    int32_t promoted = eviction_manager->promotePendingBlocks();
+    int32_t demoted = eviction_manager->demoteColdBlocks();
+    VOLT_DEBUG("Promoted %d and demoted %d anti-cache blocks at Partition %d",
+               promoted, demoted, m_partitionId);
+    return (promoted + demoted);
+}
+
 int VoltDBEngine::antiCacheReadBlocks(int32_t tableId, int numBlocks, int32_t blockIds[], int32_t tupleOffsets[]) {
     int retval = ENGINE_ERRORCODE_SUCCESS;
 
@@ -2110,6 +2242,88 @@ int VoltDBEngine::antiCacheMergeBlocks(int32_t tableId) {
     return (retval);
 }
 
+/**
+ * Look up the given keys in the table's primary key index and write out where
+ * any of the matching tuples that are evicted are stored. This allows the
+ * AntiCacheManager to read in their blocks before the txn that needs them starts.
+ * The output is the number of evicted tuples found, followed by their
+ * block ids and then their tuple offsets.
+ * @param tableId
+ * @param serializeIn A VoltTable with one row per key. The columns must be the
+ *                    same as the primary key's columns
+ * @return The number of evicted tuples that were found or -1 on error
+ */
+int VoltDBEngine::antiCacheProbeKeys(int32_t tableId, ReferenceSerializeInput &serializeIn) {
+    PersistentTable *table = dynamic_cast<PersistentTable*>(this->getTable(tableId));
+    if (table == NULL) {
+        throwFatalException("Invalid table id %d", tableId);
+    }
+    TableIndex *index = table->primaryKeyIndex();
+    if (index == NULL || table->getEvictedTable() == NULL) {
+        VOLT_DEBUG("Unable to probe table '%s' for evicted tuples", table->name().c_str());
+        m_resultOutput.writeInt(0);
+        return (0);
+    }
+
+    const TupleSchema *keySchema = index->getKeySchema();
+    int columnCount = keySchema->columnCount();
+    std::string *columnNames = new std::string[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+        std::ostringstream name;
+        name << "KEY" << i;
+        columnNames[i] = name.str();
+    }
+    int tempTableMemory = 0;
+    boost::scoped_ptr<TempTable> keys(
+        TableFactory::getTempTable(table->databaseId(), "ANTICACHE_PROBE",
+                                   TupleSchema::createTupleSchema(keySchema),
+                                   columnNames, &tempTableMemory));
+    delete [] columnNames;
+
+    int retval = 0;
+    std::vector<int32_t> blockIds;
+    std::vector<int32_t> tupleOffsets;
+    AntiCacheEvictionManager* eviction_manager = m_executorContext->getAntiCacheEvictionManager();
+    try {
+        keys->loadTuplesFrom(false, serializeIn);
+
+        // The keys have the same layout as the index's keys, so we
+        // can use them directly to search the index
+        TableTuple key(keys->schema());
+        TableTuple tuple(table->schema());
+        TableIterator iter(keys.get());
+        while (iter.next(key)) {
+            index->moveToKey(&key);
+            while (!(tuple = index->nextValueAtKey()).isNullTuple()) {
+                if (tuple.isEvicted() == false) continue;
+                int32_t blockId;
+                int32_t tupleOffset;
+                eviction_manager->getEvictedTupleLocation(&tuple, blockId, tupleOffset);
+                blockIds.push_back(blockId);
+                tupleOffsets.push_back(tupleOffset);
+            } // WHILE
+        } // WHILE
+
+        retval = static_cast<int>(blockIds.size());
+        VOLT_DEBUG("Found %d evicted tuples for %d keys in table '%s'",
+                   retval, (int)keys->activeTupleCount(), table->name().c_str());
+        m_resultOutput.writeInt(retval);
+        for (int i = 0; i < retval; i++) {
+            m_resultOutput.writeInt(blockIds[i]);
+        }
+        for (int i = 0; i < retval; i++) {
+            m_resultOutput.writeInt(tupleOffsets[i]);
+        }
+    } catch (SerializableEEException &e) {
+        VOLT_ERROR("antiCacheProbeKeys: Failed to probe table '%s'\n%s",
+                   table->name().c_str(), e.message().c_str());
+        resetReusedResultOutputBuffer();
+        e.serialize(getExceptionOutputSerializer());
+        retval = -1;
+    }
+    return (retval);
+}
+
 void VoltDBEngine::antiCacheResetEvictedTupleTracker() {
     // Anti-Cache Evicted Tuple Tracking
     if (m_executorContext->isAntiCacheEnabled()) {
@@ -2131,14 +2345,14 @@ void VoltDBEngine::antiCacheInitialize(std::string dbDir, AntiCacheDBType dbType
 // -------------------------------------------------
 
 #ifdef STORAGE_MMAP
-void VoltDBEngine::MMAPInitialize(std::string dbDir, long mapSize, long syncFrequency) const {
-    VOLT_INFO("Enabling Storage MMAP Feature at Partition %d: dir=%s / blockSize=%ld / syncFrequency=%ld ",
-            m_partitionId, dbDir.c_str(), mapSize, syncFrequency);
-    m_executorContext->enableMMAP(dbDir, mapSize, syncFrequency);
+void VoltDBEngine::MMAPInitialize(std::string dbDir, long mapSize, long syncFrequency, long dirtyLimit) const {
+    VOLT_INFO("Enabling Storage MMAP Feature at Partition %d: dir=%s / blockSize=%ld / syncFrequency=%ld / dirtyLimit=%ld ",
+            m_partitionId, dbDir.c_str(), mapSize, syncFrequency, dirtyLimit);
+    m_executorContext->enableMMAP(dbDir, mapSize, syncFrequency, dirtyLimit);
 }
 #else
 void VoltDBEngine::MMAPInitialize(std::string dbDir, long blockSize,
-        long syncFrequency) const {
+        long syncFrequency, long dirtyLimit) const {
     VOLT_ERROR("Storage MMAP feature was not enabled when compiling the EE");
 }
 #endif
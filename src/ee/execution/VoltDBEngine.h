@@ -57,6 +57,7 @@
 #include "common/ids.h"
 #include "common/Pool.hpp"
 #include "common/MMAPMemoryManager.h"
+#include "common/MMAPSyncThread.h"
 #include "common/serializeio.h"
 #include "common/types.h"
 #include "common/valuevector.h"
@@ -299,18 +300,23 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         #ifdef ANTICACHE
         void antiCacheAddDB(std::string dbDir, AntiCacheDBType dbType, long blockSize, long maxSize) const;
+        void antiCacheSetTracking(AntiCacheTrackingType trackingType) const;
+        void antiCacheSetCompression(AntiCacheCompressionType compressionType) const;
+        void antiCacheSetMigrationPolicy(int32_t promoteThreshold, int32_t demoteFreeBlocks) const;
+        int32_t antiCacheDemoteBlocks();
 
         int antiCacheReadBlocks(int32_t tableId, int numBlocks, int32_t blockIds[], int32_t tupleOffsets[]);
         int antiCacheEvictBlock(int32_t tableId, long blockSize, int numBlocks);
         int antiCacheEvictBlockInBatch(int32_t tableId, int32_t childTableId, long blockSize, int numBlocks);
         int antiCacheMergeBlocks(int32_t tableId);
+        int antiCacheProbeKeys(int32_t tableId, ReferenceSerializeInput &serializeIn);
         void antiCacheResetEvictedTupleTracker();
         #endif
 
         // -------------------------------------------------
         // STORAGE MMAP
         // -------------------------------------------------
-        void MMAPInitialize(std::string dbDir, long mapSize, long syncFrequency ) const;
+        void MMAPInitialize(std::string dbDir, long mapSize, long syncFrequency, long dirtyLimit) const;
 
 
         // ARIES
@@ -486,6 +492,29 @@ class __attribute__((visibility("default"))) VoltDBEngine {
          */
         size_t tableHashCode(int32_t tableId);
 
+        /**
+         * Returns true if the specified table has been changed since the
+         * last time a snapshot stream was activated for it
+         */
+        bool isTableModifiedSinceSnapshot(int32_t tableId);
+
+        /**
+         * Returns the current write version of the specified table.
+         * Returns -1 if the table's changes are not tracked.
+         */
+        int64_t getTableWriteVersion(int32_t tableId);
+
+        /**
+         * Remove up to maxTuples tuples from the given partitioned table whose
+         * partitioning column hashes to the given value and serialize them
+         * to the output. Used to migrate a hash bucket to another partition.
+         * Returns the number of tuples that were extracted, or -1 without
+         * extracting anything if the table has tuples that are evicted.
+         */
+        int extractTuplesByHash(int32_t tableId, int32_t hash, int32_t partitionCount,
+                                int32_t maxTuples, int64_t txnId, int64_t lastCommittedTxnId,
+                                SerializeOutput *out);
+
     protected:
         /*
          * Get the list of persistent table Ids by inspecting the catalog.
@@ -687,30 +716,21 @@ void VoltDBEngine::releaseUndoToken(int64_t undoToken){
   }
 
 #ifdef STORAGE_MMAP
-  if(m_executorContext->isMMAPEnabled()){    
-      for (std::map<int32_t, Table*>::iterator m_tables_itr = m_tables.begin() ; m_tables_itr != m_tables.end() ; ++m_tables_itr){
-          Table* table = m_tables_itr->second;
-
-          // Fix Group Commit Interval       
-          int64_t m_groupCommitInterval = m_executorContext->getMMAPSyncFrequency() ;
-          VOLT_WARN("Sync Frequency: %ld", m_groupCommitInterval);
-
-          if(m_currentUndoQuantum != NULL && m_currentUndoQuantum->getUndoToken() % m_groupCommitInterval == 0){
-              VOLT_WARN("Undo Token: %ld", m_currentUndoQuantum->getUndoToken());
-
-              if(table != NULL){
-                  //VOLT_WARN("Syncing Table %s",table->name().c_str());      
-                  /*Pool* pool = table->getPool();
-                  if(pool != NULL)
-                      MMAPMemoryManager* m_pool_manager = pool->getPoolManager();
-                  if(m_pool_manager != NULL)
-                      m_pool_manager->sync();*/
-
-                  MMAPMemoryManager* m_data_manager = table->getDataManager();
-                  if(m_data_manager != NULL)
-                      m_data_manager->sync();
-              }
-          }
+  // The sync thread writes out the dirty pages of our tables in the
+  // background. We only write them out ourselves if we have gotten too far
+  // ahead of it, so that we never have an unbounded amount of dirty data.
+  if (m_executorContext->isMMAPEnabled() && m_currentUndoQuantum != NULL) {
+      MMAPSyncThread* syncThread = m_executorContext->getMMAPSyncThread();
+      syncThread->checkError();
+      int64_t groupCommitInterval = m_executorContext->getMMAPSyncFrequency();
+      if (groupCommitInterval > 0 && m_currentUndoQuantum->getUndoToken() % groupCommitInterval == 0) {
+          VOLT_DEBUG("Requesting MMAP sync at undo token %ld", (long)m_currentUndoQuantum->getUndoToken());
+          syncThread->requestSync();
+      }
+      if (syncThread->isOverDirtyLimit()) {
+          VOLT_DEBUG("MMAP dirty bytes %ld are over the limit at partition %d",
+                     (long)syncThread->getDirtyBytes(), m_partitionId);
+          syncThread->syncNow();
       }
   }
 #endif
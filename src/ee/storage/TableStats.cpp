@@ -22,6 +22,9 @@
 #include "common/tabletuple.h"
 #include "storage/table.h"
 #include "storage/tablefactory.h"
+#ifdef ANTICACHE
+#include "anticache/BlockCompressor.h"
+#endif
 #include <vector>
 #include <string>
 
@@ -54,6 +57,19 @@ vector<string> TableStats::generateTableStatsColumnNames() {
     columnNames.push_back("ANTICACHE_TUPLES_READ");
     columnNames.push_back("ANTICACHE_BLOCKS_READ");
     columnNames.push_back("ANTICACHE_BYTES_READ");
+    
+    // COMPRESSION
+    columnNames.push_back("ANTICACHE_COMPRESSION");
+    columnNames.push_back("ANTICACHE_COMPRESSION_RATIO");
+    
+    // MIGRATION
+    columnNames.push_back("ANTICACHE_BLOCKS_PROMOTED");
+    columnNames.push_back("ANTICACHE_BLOCKS_DEMOTED");
+    #endif
+    
+    #ifdef STORAGE_MMAP
+    columnNames.push_back("MMAP_DIRTY_BYTES");
+    columnNames.push_back("MMAP_BYTES_SYNCED");
     #endif
     
     return columnNames;
@@ -118,6 +134,38 @@ void TableStats::populateTableStatsSchema(
     types.push_back(VALUE_TYPE_BIGINT);
     columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
     allowNull.push_back(false);
+    
+    // ANTICACHE_COMPRESSION
+    types.push_back(VALUE_TYPE_VARCHAR);
+    columnLengths.push_back(32);
+    allowNull.push_back(false);
+    
+    // ANTICACHE_COMPRESSION_RATIO
+    types.push_back(VALUE_TYPE_DOUBLE);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_DOUBLE));
+    allowNull.push_back(false);
+    
+    // ANTICACHE_BLOCKS_PROMOTED
+    types.push_back(VALUE_TYPE_INTEGER);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER));
+    allowNull.push_back(false);
+    
+    // ANTICACHE_BLOCKS_DEMOTED
+    types.push_back(VALUE_TYPE_INTEGER);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER));
+    allowNull.push_back(false);
+    #endif
+    
+    #ifdef STORAGE_MMAP
+    // MMAP_DIRTY_BYTES
+    types.push_back(VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    allowNull.push_back(false);
+    
+    // MMAP_BYTES_SYNCED
+    types.push_back(VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    allowNull.push_back(false);
     #endif
 }
 
@@ -167,6 +215,17 @@ TableStats::TableStats(Table* table)
     m_lastTuplesRead = 0;
     m_lastBlocksRead = 0;
     m_lastBytesRead = 0;
+    
+    m_lastBlockBytesUncompressed = 0;
+    m_lastBlockBytesCompressed = 0;
+    m_compressionType = ANTICACHE_COMPRESSION_NONE;
+    
+    m_lastBlocksPromoted = 0;
+    m_lastBlocksDemoted = 0;
+    #endif
+    
+    #ifdef STORAGE_MMAP
+    m_lastMMAPBytesSynced = 0;
     #endif
 }
 
@@ -190,6 +249,9 @@ void TableStats::configure(
     StatsSource::configure(name, hostId, hostname, siteId, partitionId, databaseId);
     m_tableName = ValueFactory::getStringValue(m_table->name());
     m_tableType = ValueFactory::getStringValue(m_table->tableType());
+    #ifdef ANTICACHE
+    m_compressionName = ValueFactory::getStringValue(BlockCompressor::getCodecName(m_compressionType));
+    #endif
 }
 
 /**
@@ -235,6 +297,27 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
     int32_t tuplesRead = m_table->getTuplesRead();
     int32_t blocksRead = m_table->getBlocksRead();
     int64_t bytesRead = m_table->getBytesRead();
+    
+    int64_t blockBytesUncompressed = m_table->getBlockBytesUncompressed();
+    int64_t blockBytesCompressed = m_table->getBlockBytesCompressed();
+    if (m_compressionType != m_table->getCompressionType()) {
+        m_compressionType = m_table->getCompressionType();
+        m_compressionName.free();
+        m_compressionName = ValueFactory::getStringValue(BlockCompressor::getCodecName(m_compressionType));
+    }
+    
+    int32_t blocksPromoted = m_table->getBlocksPromoted();
+    int32_t blocksDemoted = m_table->getBlocksDemoted();
+    #endif
+    
+    #ifdef STORAGE_MMAP
+    int64_t mmapDirtyBytes = 0;
+    int64_t mmapBytesSynced = 0;
+    MMAPMemoryManager* dataManager = m_table->getDataManager();
+    if (dataManager != NULL) {
+        mmapDirtyBytes = dataManager->getDirtyBytes();
+        mmapBytesSynced = dataManager->getSyncedBytes();
+    }
     #endif
 
     if (interval()) {
@@ -288,6 +371,28 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
         
         bytesRead = bytesRead - m_lastBytesRead;
         m_lastBytesRead = m_table->getBytesRead();
+        
+        // COMPRESSION
+        blockBytesUncompressed = blockBytesUncompressed - m_lastBlockBytesUncompressed;
+        m_lastBlockBytesUncompressed = m_table->getBlockBytesUncompressed();
+        
+        blockBytesCompressed = blockBytesCompressed - m_lastBlockBytesCompressed;
+        m_lastBlockBytesCompressed = m_table->getBlockBytesCompressed();
+        
+        // MIGRATION
+        blocksPromoted = blocksPromoted - m_lastBlocksPromoted;
+        m_lastBlocksPromoted = m_table->getBlocksPromoted();
+        
+        blocksDemoted = blocksDemoted - m_lastBlocksDemoted;
+        m_lastBlocksDemoted = m_table->getBlocksDemoted();
+        #endif
+        
+        #ifdef STORAGE_MMAP
+        // The dirty bytes are how far behind we are right now, so
+        // only the bytes synced are reported for the interval
+        int64_t totalBytesSynced = mmapBytesSynced;
+        mmapBytesSynced = mmapBytesSynced - m_lastMMAPBytesSynced;
+        m_lastMMAPBytesSynced = totalBytesSynced;
         #endif
     }
 
@@ -360,6 +465,30 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
     tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_BYTES_READ"],
                       ValueFactory::
                       getBigIntValue(static_cast<int64_t>(bytesRead)));
+    
+    // COMPRESSION
+    double compressionRatio = 1.0;
+    if (blockBytesCompressed > 0) {
+        compressionRatio = blockBytesUncompressed / static_cast<double>(blockBytesCompressed);
+    }
+    tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_COMPRESSION"], m_compressionName);
+    tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_COMPRESSION_RATIO"],
+                      ValueFactory::getDoubleValue(compressionRatio));
+    
+    // MIGRATION
+    tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_BLOCKS_PROMOTED"],
+                      ValueFactory::
+                      getIntegerValue(static_cast<int32_t>(blocksPromoted)));
+    tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_BLOCKS_DEMOTED"],
+                      ValueFactory::
+                      getIntegerValue(static_cast<int32_t>(blocksDemoted)));
+    #endif
+    
+    #ifdef STORAGE_MMAP
+    tuple->setNValue( StatsSource::m_columnName2Index["MMAP_DIRTY_BYTES"],
+                      ValueFactory::getBigIntValue(mmapDirtyBytes));
+    tuple->setNValue( StatsSource::m_columnName2Index["MMAP_BYTES_SYNCED"],
+                      ValueFactory::getBigIntValue(mmapBytesSynced));
     #endif
 }
 
@@ -377,4 +506,7 @@ void TableStats::populateSchema(
 TableStats::~TableStats() {
     m_tableName.free();
     m_tableType.free();
+    #ifdef ANTICACHE
+    m_compressionName.free();
+    #endif
 }
@@ -128,6 +128,20 @@ private:
     int32_t m_lastTuplesRead;
     int32_t m_lastBlocksRead;
     int64_t m_lastBytesRead;
+    
+    // COMPRESSION
+    int64_t m_lastBlockBytesUncompressed;
+    int64_t m_lastBlockBytesCompressed;
+    AntiCacheCompressionType m_compressionType;
+    voltdb::NValue m_compressionName;
+    
+    // MIGRATION
+    int32_t m_lastBlocksPromoted;
+    int32_t m_lastBlocksDemoted;
+    #endif
+    
+    #ifdef STORAGE_MMAP
+    int64_t m_lastMMAPBytesSynced;
     #endif
 };
 
@@ -97,6 +97,22 @@ namespace voltdb {
     const unsigned int DEFAULT_MMAP_SIZE = 256*1024*1024;
 
     m_data_manager = new MMAPMemoryManager(DEFAULT_MMAP_SIZE, m_executorContext->getDBDir()+"/"+name+"_Data", true); // backed by a file
+
+    #ifdef STORAGE_MMAP
+    if (m_executorContext->getMMAPSyncThread() != NULL) {
+      m_executorContext->getMMAPSyncThread()->addManager(m_data_manager);
+    }
+    #endif
+  }
+
+  MMAP_PersistentTable::~MMAP_PersistentTable() {
+    #ifdef STORAGE_MMAP
+    // The data manager is deleted by the Table destructor, so the
+    // sync thread has to stop using it before then
+    if (m_executorContext->getMMAPSyncThread() != NULL) {
+      m_executorContext->getMMAPSyncThread()->removeManager(m_data_manager);
+    }
+    #endif
   }
 
   inline void MMAP_PersistentTable::allocateNextBlock() {
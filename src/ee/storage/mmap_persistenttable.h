@@ -129,6 +129,8 @@ namespace voltdb {
     MMAP_PersistentTable();
     MMAP_PersistentTable(MMAP_PersistentTable const&);
     MMAP_PersistentTable operator=(MMAP_PersistentTable const&);
+
+    virtual ~MMAP_PersistentTable();
     
   protected:
     MMAP_PersistentTable(ExecutorContext *ctx, const std::string &name, bool exportEnabled);
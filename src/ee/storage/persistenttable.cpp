@@ -100,7 +100,9 @@ PersistentTable::PersistentTable(ExecutorContext *ctx, bool exportEnabled) :
     Table(TABLE_BLOCKSIZE,ctx->isMMAPEnabled()), m_executorContext(ctx), m_uniqueIndexes(NULL), m_uniqueIndexCount(0), m_allowNulls(NULL),
     m_indexes(NULL), m_indexCount(0), m_pkeyIndex(NULL), m_wrapper(NULL),
     m_tsSeqNo(0), stats_(this), m_exportEnabled(exportEnabled),
-    m_COWContext(NULL)
+    m_COWContext(NULL), m_COWStreamType(TABLE_STREAM_SNAPSHOT),
+    m_writeVersion(0), m_snapshotWriteVersion(-1),
+    m_pendingSnapshotWriteVersion(-1)
 {
 
 #ifdef ANTICACHE
@@ -127,7 +129,9 @@ PersistentTable::PersistentTable(ExecutorContext *ctx, const std::string name, b
     Table(TABLE_BLOCKSIZE,ctx->isMMAPEnabled()), m_executorContext(ctx), m_uniqueIndexes(NULL), m_uniqueIndexCount(0), m_allowNulls(NULL),
     m_indexes(NULL), m_indexCount(0), m_pkeyIndex(NULL), m_wrapper(NULL),
     m_tsSeqNo(0), stats_(this), m_exportEnabled(exportEnabled),
-    m_COWContext(NULL)
+    m_COWContext(NULL), m_COWStreamType(TABLE_STREAM_SNAPSHOT),
+    m_writeVersion(0), m_snapshotWriteVersion(-1),
+    m_pendingSnapshotWriteVersion(-1)
 {
 
 #ifdef ANTICACHE
@@ -312,6 +316,13 @@ void PersistentTable::setBytesWritten(int64_t bytesWritten)
     m_bytesWritten = bytesWritten;
 }
 
+void PersistentTable::recordBlockCompression(AntiCacheCompressionType codec, int64_t uncompressedSize, int64_t compressedSize)
+{
+    m_compressionType = codec;
+    m_blockBytesUncompressed += uncompressedSize;
+    m_blockBytesCompressed += compressedSize;
+}
+
 std::map<int32_t, int32_t> PersistentTable::getUnevictedBlockIDs()
 {
     return m_unevictedBlockIDs;
@@ -472,6 +483,8 @@ bool PersistentTable::insertTuple(TableTuple &source) {
                 voltdb::CONSTRAINT_TYPE_NOT_NULL);
     }
 
+    m_writeVersion++;
+
     //
     // First get the next free tuple
     // This will either give us one from the free slot list, or
@@ -501,6 +514,7 @@ bool PersistentTable::insertTuple(TableTuple &source) {
         m_tmpTarget1.setDirtyFalse();
     }
     m_tmpTarget1.isDirty();
+    markTupleDirty(m_tmpTarget1);
 
     if (!tryInsertOnAllIndexes(&m_tmpTarget1)) {
         // Careful to delete allocated objects
@@ -557,6 +571,10 @@ void PersistentTable::insertTupleForUndo(TableTuple &source, size_t wrapperOffse
 
     //VOLT_INFO("In insertTupleForUndo()."); 
 
+    // Rolling back a change is still a change for anybody that
+    // read this table while the change was visible
+    m_writeVersion++;
+
     // not null checks at first
     if (!checkNulls(source)) {
         throwFatalException("Failed to insert tuple into table %s for undo:"
@@ -593,6 +611,7 @@ void PersistentTable::insertTupleForUndo(TableTuple &source, size_t wrapperOffse
         m_tmpTarget1.setDirtyFalse();
     }
     m_tmpTarget1.isDirty();
+    markTupleDirty(m_tmpTarget1);
 
     if (!tryInsertOnAllIndexes(&m_tmpTarget1)) {
         deleteTupleStorage(m_tmpTarget1);
@@ -617,6 +636,7 @@ void PersistentTable::insertTupleForUndo(TableTuple &source, size_t wrapperOffse
  */
 bool PersistentTable::updateTuple(TableTuple &source, TableTuple &target, bool updatesIndexes) {
     size_t elMark = 0;
+    m_writeVersion++;
 
     /*
      * Create and register an undo action and then use the copy of
@@ -650,6 +670,7 @@ bool PersistentTable::updateTuple(TableTuple &source, TableTuple &target, bool u
 
     /** TODO : Not Using MMAP pool **/
     target.copyForPersistentUpdate(source, NULL);
+    markTupleDirty(target);
 
     ptuua->setNewTuple(target, pool);
 
@@ -725,6 +746,7 @@ bool PersistentTable::updateTuple(TableTuple &source, TableTuple &target, bool u
  */
 void PersistentTable::updateTupleForUndo(TableTuple &source, TableTuple &target,
         bool revertIndexes, size_t wrapperOffset) {
+    m_writeVersion++;
     if (m_schema->getUninlinedObjectColumnCount() != 0)
     {
         m_nonInlinedMemorySize -= target.getNonInlinedMemorySize();
@@ -750,6 +772,7 @@ void PersistentTable::updateTupleForUndo(TableTuple &source, TableTuple &target,
         target.setDirtyFalse();
     }
     target.isDirty();
+    markTupleDirty(target);
 
     //If the indexes were never updated there is no need to revert them.
     if (revertIndexes) {
@@ -775,6 +798,8 @@ bool PersistentTable::deleteTuple(TableTuple &target, bool deleteAllocatedString
     // The tempTuple is forever!
     assert(&target != &m_tempTuple);
 
+    m_writeVersion++;
+
 #ifdef ANTICACHE
 #ifndef ANTICACHE_TIMESTAMPS
     AntiCacheEvictionManager* eviction_manager = m_executorContext->getAntiCacheEvictionManager();
@@ -827,6 +852,7 @@ bool PersistentTable::deleteTuple(TableTuple &target, bool deleteAllocatedString
  * TODO remove duplication with regular delete. Also no view updates.
  */
 void PersistentTable::deleteTupleForUndo(voltdb::TableTuple &tupleCopy, size_t wrapperOffset) {
+    m_writeVersion++;
     TableTuple target = lookupTuple(tupleCopy);
     if (target.isNullTuple()) {
         throwFatalException("Failed to delete tuple from table %s:"
@@ -1068,6 +1094,9 @@ void PersistentTable::processLoadedTuple(bool allowExport, TableTuple &tuple) {
 
     //VOLT_INFO("in processLoadedTuple()."); 
 
+    m_writeVersion++;
+    markTupleDirty(tuple);
+
 #ifdef ANTICACHE
     AntiCacheEvictionManager* eviction_manager = m_executorContext->getAntiCacheEvictionManager();
     eviction_manager->updateTuple(this, &m_tmpTarget1, true); 
@@ -1167,13 +1196,23 @@ voltdb::TableStats* PersistentTable::getTableStats() {
 /**
  * Switch the table to copy on write mode. Returns true if the table was already in copy on write mode.
  */
-bool PersistentTable::activateCopyOnWrite(TupleSerializer *serializer, int32_t partitionId) {
+bool PersistentTable::activateCopyOnWrite(TupleSerializer *serializer, int32_t partitionId,
+                                          TableStreamType streamType) {
     if (m_COWContext != NULL) {
         return true;
     }
+    m_COWStreamType = streamType;
+    // Everything written after this point belongs to the next snapshot. The
+    // table only counts as snapshotted once all of its tuples have been
+    // serialized, so a snapshot that never finishes leaves it modified.
+    // Checkpoints are not part of the snapshot chain, so they leave it alone.
     if (m_tupleCount == 0) {
+        if (streamType == TABLE_STREAM_SNAPSHOT) {
+            m_snapshotWriteVersion = m_writeVersion;
+        }
         return false;
     }
+    m_pendingSnapshotWriteVersion = m_writeVersion;
     m_COWContext.reset(new CopyOnWriteContext( this, serializer, partitionId));
     return false;
 }
@@ -1191,6 +1230,9 @@ bool PersistentTable::serializeMore(ReferenceSerializeOutput *out) {
     const bool hasMore = m_COWContext->serializeMore(out);
     if (!hasMore) {
         m_COWContext.reset(NULL);
+        if (m_COWStreamType == TABLE_STREAM_SNAPSHOT) {
+            m_snapshotWriteVersion = m_pendingSnapshotWriteVersion;
+        }
     }
 
     return hasMore;
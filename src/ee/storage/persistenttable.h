@@ -212,8 +212,34 @@ class PersistentTable : public Table {
 
     /**
      * Switch the table to copy on write mode. Returns true if the table was already in copy on write mode.
+     * Only a TABLE_STREAM_SNAPSHOT stream marks the table as snapshotted once it is finished.
      */
-    bool activateCopyOnWrite(TupleSerializer *serializer, int32_t partitionId);
+    bool activateCopyOnWrite(TupleSerializer *serializer, int32_t partitionId, TableStreamType streamType);
+
+    /**
+     * The type of the stream that last switched this table to copy on write mode
+     */
+    TableStreamType getCopyOnWriteStreamType() const {
+        return m_COWStreamType;
+    }
+
+    /**
+     * Returns true if this table has been modified since the start of the last
+     * snapshot that serialized all of its tuples. Tables start out as modified
+     * so that the first snapshot always includes them.
+     */
+    bool isModifiedSinceSnapshot() const {
+        return m_writeVersion != m_snapshotWriteVersion;
+    }
+
+    /**
+     * Returns a counter that is incremented every time this table is changed,
+     * including when a change is rolled back. Two reads of the table that see
+     * the same version are guaranteed to see the same contents.
+     */
+    int64_t getWriteVersion() const {
+        return m_writeVersion;
+    }
 
     /**
      * Create a recovery stream for this table. Returns true if the table already has an active recovery stream
@@ -295,6 +321,7 @@ class PersistentTable : public Table {
     void setBlocksWritten(int32_t blocksWritten);
     int64_t getBytesWritten();
     void setBytesWritten(int64_t bytesWritten);
+    void recordBlockCompression(AntiCacheCompressionType codec, int64_t uncompressedSize, int64_t compressedSize);
     voltdb::TableTuple * getTempTarget1();
     void insertUnevictedBlockID(std::pair<int32_t,int32_t>);
     bool removeUnevictedBlockID(int32_t blockId);
@@ -416,6 +443,17 @@ protected:
     
     // Snapshot stuff
     boost::scoped_ptr<CopyOnWriteContext> m_COWContext;
+    TableStreamType m_COWStreamType;
+
+    // Incremented by every insert, update, delete and bulk load as
+    // well as by the undo actions for them. Never reset.
+    int64_t m_writeVersion;
+
+    // The write version of the table when the last completed snapshot
+    // activated copy on write mode, and the one for the snapshot that
+    // is still being serialized.
+    int64_t m_snapshotWriteVersion;
+    int64_t m_pendingSnapshotWriteVersion;
 
     //Recovery stuff
     boost::scoped_ptr<RecoveryContext> m_recoveryContext;
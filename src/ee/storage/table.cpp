@@ -97,6 +97,13 @@ Table::Table(int tableAllocationTargetSize) :
     m_tuplesRead = 0;
     m_blocksRead = 0;
     m_bytesRead = 0;
+    
+    m_compressionType = ANTICACHE_COMPRESSION_NONE;
+    m_blockBytesUncompressed = 0;
+    m_blockBytesCompressed = 0;
+    
+    m_blocksPromoted = 0;
+    m_blocksDemoted = 0;
     #endif
 }
 
@@ -136,6 +143,13 @@ Table::Table(int tableAllocationTargetSize, bool enableMMAP) :
     m_tuplesRead = 0;
     m_blocksRead = 0;
     m_bytesRead = 0;
+    
+    m_compressionType = ANTICACHE_COMPRESSION_NONE;
+    m_blockBytesUncompressed = 0;
+    m_blockBytesCompressed = 0;
+    
+    m_blocksPromoted = 0;
+    m_blocksDemoted = 0;
     #endif
 }
 
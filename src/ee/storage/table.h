@@ -221,6 +221,13 @@ public:
     inline int32_t getTuplesRead() const { return (m_tuplesRead); }
     inline int32_t getBlocksRead() const { return (m_blocksRead); }
     inline int64_t getBytesRead()  const { return (m_bytesRead); }
+    
+    inline AntiCacheCompressionType getCompressionType() const { return (m_compressionType); }
+    inline int64_t getBlockBytesUncompressed() const { return (m_blockBytesUncompressed); }
+    inline int64_t getBlockBytesCompressed() const { return (m_blockBytesCompressed); }
+    
+    inline int32_t getBlocksPromoted() const { return (m_blocksPromoted); }
+    inline int32_t getBlocksDemoted() const { return (m_blocksDemoted); }
     #endif
     
     int getTupleID(const char* tuple_address); 
@@ -371,6 +378,19 @@ protected:
      */
     void deleteTupleStorage(TableTuple &tuple);
 
+    /**
+     * Tell the MMAP'ed storage that the page with this tuple has been
+     * modified and needs to be written out. This must be called after
+     * the tuple's storage has been changed.
+     */
+    inline void markTupleDirty(const TableTuple &tuple) {
+        #ifdef STORAGE_MMAP
+        if (m_data_manager != NULL) {
+            m_data_manager->markDirty(tuple.address(), m_tupleLength);
+        }
+        #endif
+    }
+
     void initializeWithColumns(TupleSchema *schema, const std::string* columnNames, bool ownsTupleSchema);
     virtual void onSetColumns() {};
 
@@ -409,6 +429,19 @@ protected:
     int32_t m_tuplesRead;
     int32_t m_blocksRead;
     int64_t m_bytesRead;
+    
+    // COMPRESSION
+    // The codec used for the last block written for this table and the total
+    // size of the blocks before and after they were compressed
+    AntiCacheCompressionType m_compressionType;
+    int64_t m_blockBytesUncompressed;
+    int64_t m_blockBytesCompressed;
+    
+    // MIGRATION
+    // The number of this table's blocks that were moved up to a faster
+    // AntiCacheDB level or down to a slower one
+    int32_t m_blocksPromoted;
+    int32_t m_blocksDemoted;
 #endif
 
 #ifdef ANTICACHE_TIMESTAMPS_PRIME
@@ -591,6 +624,7 @@ inline void Table::deleteTupleStorage(TableTuple &tuple) {
 inline void Table::deleteTupleStorage(TableTuple &tuple) {
     tuple.setDeletedTrue(); // does NOT free strings
     tuple.setEvictedFalse();
+    markTupleDirty(tuple);
 
     // add to the free list
     m_tupleCount--;
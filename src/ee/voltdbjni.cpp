@@ -776,6 +776,49 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeSeria
     return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
 }
 
+/**
+ * Remove the tuples from a partitioned table whose partitioning column
+ * hashes to the given value and serialize them into the output buffer.
+ * @param engine_ptr the VoltDBEngine pointer
+ * @param table_id Id of the table to extract tuples from
+ * @return the number of tuples extracted or -1 on error
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeExtractTuplesByHash(
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint table_id,
+        jint hash,
+        jint partition_count,
+        jint max_tuples,
+        jlong txnId,
+        jlong lastCommittedTxnId,
+        jlong undoToken,
+        jobject output_buffer,
+        jint output_capacity) {
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    if (engine == NULL) {
+        VOLT_ERROR("The VoltDBEngine pointer is null!");
+        return -1;
+    }
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    try {
+        updateJNILogProxy(engine); //JNIEnv pointer can change between calls, must be updated
+        engine->setUndoToken(undoToken);
+        void* data = env->GetDirectBufferAddress(output_buffer);
+        ReferenceSerializeOutput out(data, output_capacity);
+        try {
+            return engine->extractTuplesByHash(table_id, hash, partition_count, max_tuples,
+                                               txnId, lastCommittedTxnId, &out);
+        } catch (SQLException e) {
+            throwFatalException("%s", e.message().c_str());
+        }
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return -1;
+}
+
 /*
  * Class:     org_voltdb_utils_DBBPool
  * Method:    getBufferAddress
@@ -1094,6 +1137,50 @@ SHAREDLIB_JNIEXPORT jlong JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeTabl
     return 0;
 }
 
+/*
+ * Class:     org_voltdb_jni_ExecutionEngine
+ * Method:    nativeIsTableModifiedSinceSnapshot
+ * Signature: (JI)Z
+ */
+SHAREDLIB_JNIEXPORT jboolean JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeIsTableModifiedSinceSnapshot
+  (JNIEnv *env, jobject obj, jlong engine_ptr, jint tableId) {
+    VOLT_DEBUG("nativeIsTableModifiedSinceSnapshot in C++ called");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    try {
+        try {
+            return engine->isTableModifiedSinceSnapshot(tableId);
+        } catch (SQLException e) {
+            throwFatalException("%s", e.message().c_str());
+        }
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return true;
+}
+
+/*
+ * Class:     org_voltdb_jni_ExecutionEngine
+ * Method:    nativeGetTableWriteVersion
+ * Signature: (JI)J
+ */
+SHAREDLIB_JNIEXPORT jlong JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeGetTableWriteVersion
+  (JNIEnv *env, jobject obj, jlong engine_ptr, jint tableId) {
+    VOLT_DEBUG("nativeGetTableWriteVersion in C++ called");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    try {
+        try {
+            return engine->getTableWriteVersion(tableId);
+        } catch (SQLException e) {
+            throwFatalException("%s", e.message().c_str());
+        }
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return -1;
+}
+
 /*
  * Class:     org_voltdb_jni_ExecutionEngine
  * Method:    nativeExportAction
@@ -1498,6 +1585,106 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiC
     return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
 }
 
+/**
+ * Change how the EE records tuple accesses for choosing what to evict
+ * @param pointer the VoltDBEngine pointer
+ * @param trackingType The AntiCacheTrackingType to use
+ * @return error code
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheSetTracking (
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint trackingType) {
+    VOLT_DEBUG("nativeAntiCacheSetTracking() start");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    if (engine == NULL) {
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+    }
+    try {
+        engine->antiCacheSetTracking(static_cast<AntiCacheTrackingType>(trackingType));
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
+}
+
+/**
+ * Change the codec used to compress evicted blocks
+ * @param pointer the VoltDBEngine pointer
+ * @param compressionType The AntiCacheCompressionType to use
+ * @return error code
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheSetCompression (
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint compressionType) {
+    VOLT_DEBUG("nativeAntiCacheSetCompression() start");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    if (engine == NULL) {
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+    }
+    try {
+        engine->antiCacheSetCompression(static_cast<AntiCacheCompressionType>(compressionType));
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
+}
+
+/**
+ * Configure how blocks are moved between the levels of a multi-level anti-cache
+ * @param pointer the VoltDBEngine pointer
+ * @param promoteThreshold The number of reads from a slower level before a block is promoted
+ * @param demoteFreeBlocks The number of free blocks to keep in each faster level
+ * @return error code
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheSetMigrationPolicy (
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint promoteThreshold,
+        jint demoteFreeBlocks) {
+    VOLT_DEBUG("nativeAntiCacheSetMigrationPolicy() start");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    if (engine == NULL) {
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+    }
+    try {
+        engine->antiCacheSetMigrationPolicy(promoteThreshold, demoteFreeBlocks);
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
+}
+
+/**
+ * Move cold blocks down to the slower levels of a multi-level anti-cache
+ * @param pointer the VoltDBEngine pointer
+ * @return the number of blocks that were moved
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheDemoteBlocks (
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr) {
+    VOLT_DEBUG("nativeAntiCacheDemoteBlocks() start");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    if (engine == NULL) {
+        return 0;
+    }
+    try {
+        return engine->antiCacheDemoteBlocks();
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return 0;
+}
+
 SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheReadBlocks (
         JNIEnv *env,
         jobject obj,
@@ -1612,6 +1799,41 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiC
     }
     return (retval);
 }
+
+/**
+ * Look up the given primary keys in a table and return the locations
+ * of any of the matching tuples that are evicted
+ * @param pointer the VoltDBEngine pointer
+ * @param tableId The table to probe
+ * @param serialized_keys A serialized VoltTable of the primary keys to look up
+ * @return the number of evicted tuples found or -1 on error
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheProbeKeys (
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint tableId,
+        jbyteArray serialized_keys) {
+
+    int retval = -1;
+    VOLT_DEBUG("nativeAntiCacheProbeKeys() start");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    if (engine == NULL) return (retval);
+
+    engine->resetReusedResultOutputBuffer();
+
+    jsize length = env->GetArrayLength(serialized_keys);
+    jbyte *bytes = env->GetByteArrayElements(serialized_keys, NULL);
+    ReferenceSerializeInput serialize_in(bytes, length);
+    try {
+        retval = engine->antiCacheProbeKeys(static_cast<int32_t>(tableId), serialize_in);
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    env->ReleaseByteArrayElements(serialized_keys, bytes, JNI_ABORT);
+    return (retval);
+}
 #endif // ANTICACHE
 
 
@@ -1632,7 +1854,8 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeMMAPI
         jlong engine_ptr,
         jstring dbDir,
         jlong mapSize,
-        jlong syncFrequency) {
+        jlong syncFrequency,
+        jlong dirtyLimit) {
 
     VOLT_DEBUG("nativeMMAPInitialize() start");
     VoltDBEngine *engine = castToEngine(engine_ptr);
@@ -1645,7 +1868,8 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeMMAPI
         std::string dbDirString(dbDirChars);
         env->ReleaseStringUTFChars(dbDir, dbDirChars);
 
-        engine->MMAPInitialize(dbDirString, static_cast<int64_t>(mapSize), static_cast<int64_t>(syncFrequency));
+        engine->MMAPInitialize(dbDirString, static_cast<int64_t>(mapSize), static_cast<int64_t>(syncFrequency),
+                               static_cast<int64_t>(dirtyLimit));
     } catch (FatalException e) {
         topend->crashVoltDB(e);
     }
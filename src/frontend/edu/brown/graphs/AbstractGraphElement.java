@@ -81,6 +81,20 @@ public abstract class AbstractGraphElement implements JSONSerializable, Comparab
         return this.element_id;
     }
     
+    /**
+     * Set the element id of this object when it is being deserialized.
+     * This makes sure that the next id that we hand out is greater than it.
+     * @param element_id
+     */
+    protected void setElementId(long element_id) {
+        this.element_id = element_id;
+        long next;
+        do {
+            next = NEXT_ELEMENT_ID.get();
+            if (next > element_id) break;
+        } while (NEXT_ELEMENT_ID.compareAndSet(next, element_id + 1) == false);
+    }
+    
 
     public Set<String> getAttributes(IGraph<?, ?> graph) {
         this.lazyAttributeAllocation();
@@ -209,8 +223,7 @@ public abstract class AbstractGraphElement implements JSONSerializable, Comparab
     
     @Override
     public void fromJSON(JSONObject object, Database catalog_db) throws JSONException {
-        this.element_id = object.getLong("ELEMENT_ID");
-        NEXT_ELEMENT_ID.set(this.element_id);
+        this.setElementId(object.getLong("ELEMENT_ID"));
         this.fromJSONObjectImpl(object, catalog_db);
     }
     
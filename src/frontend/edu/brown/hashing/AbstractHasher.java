@@ -38,11 +38,11 @@ public abstract class AbstractHasher implements JSONSerializable {
         return (this.multiValueHash(new Object[]{ val0, val1 }));
     }
     public int multiValueHash(int...values) {
-        Object o[] = new Object[values.length];
-        for (int i = 0; i < o.length; i++) {
-            o[i] = values[i];
-        }
-        return this.multiValueHash(o);
+        // This is the same as Arrays.deepHashCode() on the boxed values
+        // but without having to allocate them
+        assert(values.length > 0);
+        int combined = 31 * Arrays.hashCode(values);
+        return (this.hash(combined));
     }
     
     /**
@@ -82,6 +82,57 @@ public abstract class AbstractHasher implements JSONSerializable {
      */
     public abstract int hash(Object value, int num_partitions);
     
+    // -----------------------------------------------------------------
+    // PRIMITIVE INTERFACE
+    // -----------------------------------------------------------------
+    
+    /**
+     * Hash the given integer value using a specific partition count.
+     * This must return the same result as hash(Object, int) for the boxed value.
+     * @param value
+     * @param num_partitions
+     * @return
+     */
+    public abstract int hash(long value, int num_partitions);
+    
+    /**
+     * Hash the given string using a specific partition count.
+     * This must return the same result as hash(Object, int).
+     * @param value
+     * @param num_partitions
+     * @return
+     */
+    public abstract int hash(String value, int num_partitions);
+    
+    /**
+     * Hash the given UTF-8 encoded string using a specific partition count.
+     * This must return the same result as hash(String, int) for the decoded string.
+     * @param value
+     * @param num_partitions
+     * @return
+     */
+    public abstract int hash(byte value[], int num_partitions);
+    
+    /**
+     * Hash the given integer value based on the partition count.
+     * Use this instead of hash(Object) whenever the caller already knows
+     * that it has an integer so that the value does not need to be boxed.
+     * @param value
+     * @return
+     */
+    public int hash(long value) {
+        return (this.hash(value, this.num_partitions));
+    }
+    public int hash(int value) {
+        return (this.hash((long)value, this.num_partitions));
+    }
+    public int hash(String value) {
+        return (this.hash(value, this.num_partitions));
+    }
+    public int hash(byte value[]) {
+        return (this.hash(value, this.num_partitions));
+    }
+    
     // -----------------------------------------------------------------
     // SERIALIZATION
     // -----------------------------------------------------------------
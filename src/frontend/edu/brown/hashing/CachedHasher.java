@@ -1,11 +1,45 @@
 package edu.brown.hashing;
 
-import org.apache.commons.collections15.map.LRUMap;
 import org.voltdb.CatalogContext;
 
+/**
+ * DefaultHasher that remembers the partitions for recently hashed values.
+ * The cache is a fixed-size direct-mapped table, so a new value simply replaces
+ * whatever was in its slot. Integer values are stored without boxing them.
+ * Only lookups using this hasher's partition count are cached.
+ */
 public class CachedHasher extends DefaultHasher {
 
-    private final LRUMap<Object, Integer> cache = new LRUMap<Object, Integer>(2048);
+    /**
+     * The number of slots in each cache. Must be a power of two.
+     */
+    private static final int CACHE_SIZE = 2048;
+    private static final int CACHE_MASK = CACHE_SIZE - 1;
+
+    /**
+     * An entry is never modified once it is put into a slot. This
+     * allows multiple threads to share the cache without any locks.
+     */
+    private static final class LongEntry {
+        private final long value;
+        private final int partition;
+        private LongEntry(long value, int partition) {
+            this.value = value;
+            this.partition = partition;
+        }
+    } // CLASS
+
+    private static final class StringEntry {
+        private final String value;
+        private final int partition;
+        private StringEntry(String value, int partition) {
+            this.value = value;
+            this.partition = partition;
+        }
+    } // CLASS
+
+    private final LongEntry longCache[] = new LongEntry[CACHE_SIZE];
+    private final StringEntry stringCache[] = new StringEntry[CACHE_SIZE];
 
     /**
      * Constructor
@@ -19,16 +53,55 @@ public class CachedHasher extends DefaultHasher {
     @Override
     public void init(CatalogContext catalogDb) {
         super.init(catalogDb);
-        this.cache.clear();
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            this.longCache[i] = null;
+            this.stringCache[i] = null;
+        } // FOR
     }
-    
+
     @Override
     public int hash(Object value, int num_partitions) {
-        Integer hash = this.cache.get(value);
-        if (hash == null) {
-            hash = super.hash(value, num_partitions);
-            this.cache.put(value, hash);
+        if (value instanceof Long) {
+            return (this.hash(((Long)value).longValue(), num_partitions));
+        } else if (value instanceof Integer) {
+            return (this.hash(((Integer)value).longValue(), num_partitions));
+        } else if (value instanceof String) {
+            return (this.hash((String)value, num_partitions));
+        } else if (value instanceof Short) {
+            return (this.hash(((Short)value).longValue(), num_partitions));
+        } else if (value instanceof Byte) {
+            return (this.hash(((Byte)value).longValue(), num_partitions));
+        }
+        return (super.hash(value, num_partitions));
+    }
+
+    @Override
+    public int hash(long value, int num_partitions) {
+        if (num_partitions != this.num_partitions) {
+            return (super.hash(value, num_partitions));
+        }
+        int slot = (int)(value ^ (value >>> 32));
+        slot = (slot ^ (slot >>> 16)) & CACHE_MASK;
+        LongEntry entry = this.longCache[slot];
+        if (entry == null || entry.value != value) {
+            entry = new LongEntry(value, super.hash(value, num_partitions));
+            this.longCache[slot] = entry;
+        }
+        return (entry.partition);
+    }
+
+    @Override
+    public int hash(String value, int num_partitions) {
+        if (num_partitions != this.num_partitions) {
+            return (super.hash(value, num_partitions));
+        }
+        int slot = value.hashCode();
+        slot = (slot ^ (slot >>> 16)) & CACHE_MASK;
+        StringEntry entry = this.stringCache[slot];
+        if (entry == null || entry.value.equals(value) == false) {
+            entry = new StringEntry(value, super.hash(value, num_partitions));
+            this.stringCache[slot] = entry;
         }
-        return (hash.intValue());
+        return (entry.partition);
     }
 }
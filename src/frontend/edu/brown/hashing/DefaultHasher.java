@@ -61,6 +61,21 @@ public class DefaultHasher extends AbstractHasher {
         return TheHashinator.hashToPartition(value, num_partitions);
     }
     
+    @Override
+    public int hash(long value, int num_partitions) {
+        return TheHashinator.hashToPartition(value, num_partitions);
+    }
+    
+    @Override
+    public int hash(String value, int num_partitions) {
+        return TheHashinator.hashToPartition(value, num_partitions);
+    }
+    
+    @Override
+    public int hash(byte value[], int num_partitions) {
+        return TheHashinator.hashToPartition(value, num_partitions);
+    }
+    
     @Override
     public void toJSON(JSONStringer stringer) throws JSONException {
         // Nothing to do
@@ -17,66 +17,194 @@ import org.voltdb.catalog.Database;
 import edu.brown.utils.JSONUtil;
 
 /**
+ * Maps hash buckets to partitions. Any bucket that has not been explicitly
+ * mapped goes to the partition with the same id, so a new MappedHasher
+ * behaves exactly like the DefaultHasher until buckets are moved.
+ * The mapping can be changed while the system is running. Lookups always see
+ * either the complete old mapping or the complete new mapping.
  * @author pavlo
  */
 public class MappedHasher extends AbstractHasher {
-    
+
     public enum Members {
-        HASH_TO_PARTITON;
+        HASH_TO_PARTITION;
     }
-    
+
     /**
      * Value Hash -> Partition #
      */
     public final Map<Integer, Integer> hash_to_partition = new HashMap<Integer, Integer>();
 
+    /**
+     * Bucket -> Partition # lookup array that is used by hash().
+     * This array is never modified once it is published. Every update
+     * builds a new array and swaps it in.
+     */
+    private volatile int lookup[];
+
+    /**
+     * Incremented every time that the mapping is changed
+     */
+    private volatile long version = 0;
+
+    /**
+     * Changes made by transactions that have not finished yet
+     * TxnId -> (Hash -> New Partition #)
+     */
+    private final Map<Long, Map<Integer, Integer>> pending = new HashMap<Long, Map<Integer, Integer>>();
+
     /**
      * @param catalog_db
      * @param num_partitions
      */
     public MappedHasher(CatalogContext catalogContext, int num_partitions) {
         super(catalogContext, num_partitions);
+        this.rebuildLookup();
     }
-    
+
     @Override
     public void init(CatalogContext catalogDb) {
-        // TODO Auto-generated method stub
-        
+        // Nothing to do
     }
-    
+
     /**
      * Map a hash value to particular partition
      * @param hash
      * @param partition
      */
     public void map(int hash, int partition) {
-        this.hash_to_partition.put(hash, partition);
+        Map<Integer, Integer> changes = new HashMap<Integer, Integer>();
+        changes.put(hash, partition);
+        this.remap(changes);
+    }
+
+    /**
+     * Atomically move a set of hash buckets to new partitions.
+     * Concurrent calls to hash() will see either none or all of the changes.
+     * @param changes Hash -> New Partition #
+     */
+    public synchronized void remap(Map<Integer, Integer> changes) {
+        for (Map.Entry<Integer, Integer> e : changes.entrySet()) {
+            int hash = e.getKey().intValue();
+            int partition = e.getValue().intValue();
+            if (hash < 0 || hash >= this.num_partitions) {
+                throw new IllegalArgumentException("Invalid hash bucket " + hash);
+            }
+            if (partition < 0 || partition >= this.num_partitions) {
+                throw new IllegalArgumentException("Invalid partition " + partition + " for hash bucket " + hash);
+            }
+        } // FOR
+        this.hash_to_partition.putAll(changes);
+        this.rebuildLookup();
+    }
+
+    /**
+     * Record that the given txn wants to move a hash bucket to a new partition.
+     * The mapping is not changed until finishTransaction() is called for the txn.
+     * @param txn_id
+     * @param hash
+     * @param partition
+     */
+    public synchronized void stage(Long txn_id, int hash, int partition) {
+        if (hash < 0 || hash >= this.num_partitions) {
+            throw new IllegalArgumentException("Invalid hash bucket " + hash);
+        }
+        if (partition < 0 || partition >= this.num_partitions) {
+            throw new IllegalArgumentException("Invalid partition " + partition + " for hash bucket " + hash);
+        }
+        Map<Integer, Integer> changes = this.pending.get(txn_id);
+        if (changes == null) {
+            changes = new HashMap<Integer, Integer>();
+            this.pending.put(txn_id, changes);
+        }
+        changes.put(hash, partition);
+    }
+
+    /**
+     * Apply the changes that were staged by the given txn if it committed,
+     * otherwise throw them away. Returns true if the txn had staged changes.
+     * @param txn_id
+     * @param commit
+     */
+    public synchronized boolean finishTransaction(Long txn_id, boolean commit) {
+        Map<Integer, Integer> changes = this.pending.remove(txn_id);
+        if (changes == null) {
+            return (false);
+        }
+        if (commit) {
+            this.remap(changes);
+        }
+        return (true);
+    }
+
+    /**
+     * Return the partition that the given hash bucket is currently mapped to
+     * @param hash
+     */
+    public int getPartition(int hash) {
+        return (this.lookup[hash]);
+    }
+
+    /**
+     * Return the number of times that the mapping has been changed
+     */
+    public long getVersion() {
+        return (this.version);
+    }
+
+    private synchronized void rebuildLookup() {
+        int new_lookup[] = new int[this.num_partitions];
+        for (int i = 0; i < new_lookup.length; i++) {
+            Integer partition = this.hash_to_partition.get(i);
+            new_lookup[i] = (partition != null ? partition.intValue() : i);
+        } // FOR
+        this.lookup = new_lookup;
+        this.version++;
     }
 
     @Override
     public int hash(Object value) {
         return (this.hash(value, this.num_partitions));
     }
-    
+
     @Override
     public int hash(Object value, CatalogType catalogItem) {
         return (this.hash(value));
     }
-    
+
     @Override
     public int hash(Object value, int num_partitions) {
-        int hash = TheHashinator.hashToPartition(value, num_partitions);
-        assert(this.hash_to_partition.containsKey(hash));
-        return (this.hash_to_partition.get(hash));
+        return (this.lookup(TheHashinator.hashToPartition(value, num_partitions)));
+    }
+    
+    @Override
+    public int hash(long value, int num_partitions) {
+        return (this.lookup(TheHashinator.hashToPartition(value, num_partitions)));
     }
     
+    @Override
+    public int hash(String value, int num_partitions) {
+        return (this.lookup(TheHashinator.hashToPartition(value, num_partitions)));
+    }
+    
+    @Override
+    public int hash(byte value[], int num_partitions) {
+        return (this.lookup(TheHashinator.hashToPartition(value, num_partitions)));
+    }
+    
+    private int lookup(int hash) {
+        int snapshot[] = this.lookup;
+        return (hash < snapshot.length ? snapshot[hash] : hash);
+    }
+
     @Override
     public void toJSON(JSONStringer stringer) throws JSONException {
         JSONUtil.fieldsToJSON(stringer, this, MappedHasher.class, MappedHasher.Members.values());
     }
-    
+
     @Override
     public void fromJSON(JSONObject json_object, Database catalog_db) throws JSONException {
         JSONUtil.fieldsFromJSON(json_object, catalog_db, this, MappedHasher.class, MappedHasher.Members.values());
-    }    
+        this.rebuildLookup();
+    }
 }
@@ -11,7 +11,11 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -38,11 +42,15 @@ import edu.brown.catalog.CatalogUtil;
 import edu.brown.hstore.Hstoreservice.Status;
 import edu.brown.hstore.Hstoreservice.UnevictDataResponse;
 import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.internal.UtilityWorkMessage.AntiCacheProbeMessage;
+import edu.brown.hstore.internal.UtilityWorkMessage.AntiCacheDemoteMessage;
+import edu.brown.hstore.internal.UtilityWorkMessage.EvictionSliceMessage;
 import edu.brown.hstore.internal.UtilityWorkMessage.TableStatsRequestMessage;
 import edu.brown.hstore.txns.AbstractTransaction;
 import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.hstore.txns.RemoteTransaction;
 import edu.brown.hstore.util.AbstractProcessingRunnable;
+import edu.brown.hstore.util.AntiCachePrefetchPlanner;
 import edu.brown.interfaces.DebugContext;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
@@ -51,6 +59,7 @@ import edu.brown.utils.EventObservable;
 import edu.brown.utils.EventObserver;
 import edu.brown.utils.ExceptionHandlingRunnable;
 import edu.brown.utils.FileUtil;
+import edu.brown.utils.MathUtil;
 import edu.brown.utils.StringUtil;
 
 /**
@@ -103,6 +112,123 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         }
     }
 
+    // ----------------------------------------------------------------------------
+    // PARTITION BLOCK FETCHER
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Reads in the evicted blocks for a single partition. All of the requests that
+     * are waiting when the fetcher wakes up are handled together, so a block
+     * that more than one txn needs is only read in once. Each partition has its
+     * own fetcher, so a burst of reads at one partition does not hold up the others.
+     */
+    protected class BlockFetcher extends AbstractProcessingRunnable<QueueEntry> {
+        private final int partition;
+        private final List<QueueEntry> batch = new ArrayList<QueueEntry>();
+        
+        /**
+         * Table -> BlockId -> TupleOffsets
+         */
+        private final Map<Table, Map<Integer, Set<Integer>>> blocks = new LinkedHashMap<Table, Map<Integer, Set<Integer>>>();
+
+        public BlockFetcher(int partition) {
+            super(AntiCacheManager.this.hstore_site,
+                  String.format("%s%02d", HStoreConstants.THREAD_NAME_ANTICACHE, partition),
+                  new LinkedBlockingQueue<QueueEntry>(),
+                  false);
+            this.partition = partition;
+        }
+
+        protected void add(QueueEntry next) {
+            this.queue.offer(next);
+        }
+        
+        /**
+         * Combine the given requests into a single list of blocks to read for each table.
+         * A block id is repeated once for every different tuple offset that was requested
+         * from it, so that the EE gets every tuple that the txns are waiting for.
+         * Returns the number of blocks that were requested.
+         * @param entries
+         * @return
+         */
+        protected int coalesce(Collection<QueueEntry> entries) {
+            int requested = 0;
+            for (QueueEntry e : entries) {
+                Map<Integer, Set<Integer>> tableBlocks = this.blocks.get(e.catalog_tbl);
+                if (tableBlocks == null) {
+                    tableBlocks = new LinkedHashMap<Integer, Set<Integer>>();
+                    this.blocks.put(e.catalog_tbl, tableBlocks);
+                }
+                for (int i = 0; i < e.block_ids.length; i++) {
+                    Set<Integer> offsets = tableBlocks.get(e.block_ids[i]);
+                    if (offsets == null) {
+                        offsets = new LinkedHashSet<Integer>();
+                        tableBlocks.put(e.block_ids[i], offsets);
+                    }
+                    offsets.add(e.tuple_offsets[i]);
+                } // FOR
+                requested += e.block_ids.length;
+            } // FOR
+            return (requested);
+        }
+        
+        /**
+         * Returns the block ids and their tuple offsets to read for the given table
+         * @param catalog_tbl
+         * @return
+         */
+        protected Pair<int[], int[]> getBlocks(Table catalog_tbl) {
+            Map<Integer, Set<Integer>> tableBlocks = this.blocks.get(catalog_tbl);
+            if (tableBlocks == null) return (null);
+            int num_blocks = 0;
+            for (Set<Integer> offsets : tableBlocks.values()) {
+                num_blocks += offsets.size();
+            } // FOR
+            int block_ids[] = new int[num_blocks];
+            int tuple_offsets[] = new int[num_blocks];
+            int i = 0;
+            for (Entry<Integer, Set<Integer>> block : tableBlocks.entrySet()) {
+                for (Integer offset : block.getValue()) {
+                    block_ids[i] = block.getKey();
+                    tuple_offsets[i] = offset;
+                    i++;
+                } // FOR
+            } // FOR
+            return (Pair.of(block_ids, tuple_offsets));
+        }
+
+        @Override
+        protected void processingCallback(QueueEntry next) {
+            this.batch.add(next);
+            this.queue.drainTo(this.batch);
+            int requested = this.coalesce(this.batch);
+            
+            // Read in every block for each table with a single call
+            int fetched = 0;
+            for (Table catalog_tbl : this.blocks.keySet()) {
+                Pair<int[], int[]> tableBlocks = this.getBlocks(catalog_tbl);
+                fetched += tableBlocks.getFirst().length;
+                readBlocks(this.partition, catalog_tbl, tableBlocks.getFirst(), tableBlocks.getSecond());
+            } // FOR
+            if (debug.val)
+                LOG.debug(String.format("Read %d blocks for %d txns at partition %d [requested=%d]",
+                          fetched, this.batch.size(), this.partition, requested));
+            if (hstore_conf.site.anticache_profiling)
+                profilers[this.partition].coalesced_blocks += (requested - fetched);
+            
+            for (QueueEntry e : this.batch) {
+                requeueTransaction(e);
+            } // FOR
+            this.batch.clear();
+            this.blocks.clear();
+        }
+
+        @Override
+        protected void removeCallback(QueueEntry next) {
+            AntiCacheManager.this.removeCallback(next);
+        }
+    }
+
     // ----------------------------------------------------------------------------
     // INSTANCE MEMBERS
     // ----------------------------------------------------------------------------
@@ -118,17 +244,49 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
     protected boolean pendingStatsUpdates[];
 
     private final AntiCacheManagerProfiler profilers[];
+    
+    /**
+     * PartitionId -> BlockFetcher
+     * This will be null if each partition does not have its own fetcher
+     */
+    private final BlockFetcher blockFetchers[];
     private final AntiCacheEvictionPolicyType evictionDistributionPolicy;
     
+    /**
+     * Figures out what evicted keys a new txn will access so that we
+     * can read them in before it starts. Null if prefetching is disabled.
+     */
+    private final AntiCachePrefetchPlanner prefetchPlanner;
+    
     private final double UNEVICTION_RATIO_EMA_ALPHA = .1;
     private final double UNEVICTION_RATIO_CLUSTER_THRESHOLD = .1;
     private final double ACCESS_RATE_CLUSTER_THRESHOLD = .1;
 
+    /**
+     * How much longer an eviction slice gets for every 10% that the
+     * memory used is over the threshold, up to EVICTION_SLICE_MAX_SCALE.
+     */
+    private static final double EVICTION_SLICE_PRESSURE_GAIN = 10.0;
+    private static final double EVICTION_SLICE_MAX_SCALE = 4.0;
+
+    /**
+     * The amount of memory used at this site divided by the eviction threshold
+     * from the last time that we checked. This is read by the PartitionExecutors
+     * to figure out how long their eviction slices should be.
+     */
+    private volatile double memoryPressure = 0.0;
+
     /**
      * 
      */
     private final TableStatsRequestMessage statsMessage;
 
+    /**
+     * Tells a PartitionExecutor to move cold blocks down to the slower
+     * levels of a multilevel anti-cache
+     */
+    private final AntiCacheDemoteMessage demoteMessage = new AntiCacheDemoteMessage();
+
     /**
      * The amount of memory used at each local partition
      */
@@ -171,6 +329,11 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
                     if (hstore_conf.site.anticache_enable && checkEviction()) {
                         executeEviction();
                     }
+                    if (hstore_conf.site.anticache_enable_multilevel &&
+                        (hstore_conf.site.anticache_multilevel_free_blocks > 0 ||
+                         hstore_conf.site.anticache_multilevel_promote_threshold > 0)) {
+                        queueDemotions();
+                    }
                 } catch (Throwable ex) {
                     ex.printStackTrace();
                 }
@@ -247,6 +410,21 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         for (int partition : hstore_site.getLocalPartitionIds().values()) {
             this.profilers[partition] = new AntiCacheManagerProfiler();
         } // FOR
+        
+        if (hstore_conf.site.anticache_fetch_pool) {
+            this.blockFetchers = new BlockFetcher[num_partitions];
+            for (int partition : hstore_site.getLocalPartitionIds().values()) {
+                this.blockFetchers[partition] = new BlockFetcher(partition);
+            } // FOR
+        } else {
+            this.blockFetchers = null;
+        }
+
+        if (hstore_conf.site.anticache_prefetch) {
+            this.prefetchPlanner = new AntiCachePrefetchPlanner(catalogContext);
+        } else {
+            this.prefetchPlanner = null;
+        }
 
         this.statsMessage = new TableStatsRequestMessage(catalogContext.getDataTables());
         this.statsMessage.getObservable().addObserver(new EventObserver<VoltTable>() {
@@ -267,6 +445,21 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         return this.memoryMonitor;
     }
 
+    /**
+     * Returns the BlockFetchers for this site's partitions that need to be started
+     * in their own threads. This will be empty if the fetch pool is disabled.
+     * @return
+     */
+    public Collection<BlockFetcher> getBlockFetchers() {
+        Collection<BlockFetcher> fetchers = new ArrayList<BlockFetcher>();
+        if (this.blockFetchers != null) {
+            for (int partition : hstore_site.getLocalPartitionIds().values()) {
+                fetchers.add(this.blockFetchers[partition]);
+            } // FOR
+        }
+        return (fetchers);
+    }
+
     // ----------------------------------------------------------------------------
     // TRANSACTION PROCESSING
     // ----------------------------------------------------------------------------
@@ -285,9 +478,28 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         if (debug.val)
             LOG.debug("Processing " + next);
 
+        // If we have a fetcher for each partition, then we'll just hand off the request
+        // to it so that we don't block the requests for the other partitions
+        if (this.blockFetchers != null) {
+            this.blockFetchers[next.partition].add(next);
+            return;
+        }
+
+        this.readBlocks(next.partition, next.catalog_tbl, next.block_ids, next.tuple_offsets);
+        this.requeueTransaction(next);
+    }
+
+    /**
+     * Tell the EE at the given partition to read in the given evicted blocks 
+     * @param partition
+     * @param catalog_tbl
+     * @param block_ids
+     * @param tuple_offsets
+     */
+    private void readBlocks(int partition, Table catalog_tbl, int block_ids[], int tuple_offsets[]) {
         // We need to get the EE handle for the partition that this txn
         // needs to have read in some blocks from disk
-        PartitionExecutor executor = hstore_site.getPartitionExecutor(next.partition);
+        PartitionExecutor executor = hstore_site.getPartitionExecutor(partition);
         ExecutionEngine ee = executor.getExecutionEngine();
 
         // boolean merge_needed = true; 
@@ -299,30 +511,34 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         // know that all of the tuples that we need are there, we will requeue the txn,
         // which knows that it needs to tell the EE to merge in the results from this buffer
         // before it executes anything.
-        //
-        // TODO: We may want to create a HStoreConf option that allows to dispatch this
-        // request asynchronously per partition. For now we're just going to
-        // block the AntiCacheManager until each of the requests are finished
         if (hstore_conf.site.anticache_profiling) 
-            this.profilers[next.partition].retrieval_time.start();
+            this.profilers[partition].retrieval_time.start();
         try {
             if (debug.val)
                 LOG.debug(String.format("Asking EE to read in evicted blocks from table %s on partition %d: %s",
-                          next.catalog_tbl.getName(), next.partition, Arrays.toString(next.block_ids)));
+                          catalog_tbl.getName(), partition, Arrays.toString(block_ids)));
 
-            ee.antiCacheReadBlocks(next.catalog_tbl, next.block_ids, next.tuple_offsets);
+            ee.antiCacheReadBlocks(catalog_tbl, block_ids, tuple_offsets);
 
             if (debug.val)
                 LOG.debug(String.format("Finished reading blocks from partition %d",
-                          next.partition));
+                          partition));
         } catch (SerializableException ex) {
             LOG.info("Caught unexpected SerializableException while reading anti-cache block.", ex);
 
             // merge_needed = false; 
         } finally {
             if (hstore_conf.site.anticache_profiling) 
-                this.profilers[next.partition].retrieval_time.stopIfStarted();
+                this.profilers[partition].retrieval_time.stopIfStarted();
         }
+    }
+
+    /**
+     * Requeue the txn in the given QueueEntry now that its blocks have been read in
+     * @param next
+     */
+    private void requeueTransaction(QueueEntry next) {
+        ExecutionEngine ee = hstore_site.getPartitionExecutor(next.partition).getExecutionEngine();
 
         if (debug.val) LOG.debug("anticache block removal done");
         // Long oldTxnId = next.ts.getTransactionId();
@@ -432,6 +648,101 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         return (this.queue.offer(e));
     }
 
+    // ----------------------------------------------------------------------------
+    // EVICTED BLOCK PREFETCHING
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Check whether the given new single-partition txn will access any primary keys
+     * in evictable tables. If so, then we will have its base partition's 
+     * PartitionExecutor probe the EE for those keys. The txn will be queued 
+     * for initialization once we know that its evicted blocks (if any) are read in.
+     * This is a non-blocking call.
+     * @param ts
+     * @return true if the txn will be queued by the AntiCacheManager, otherwise
+     *         false if the caller needs to queue it itself
+     */
+    public boolean prefetch(LocalTransaction ts) {
+        if (this.prefetchPlanner == null || ts.isSysProc()) return (false);
+        int partition = ts.getBasePartition();
+        if (hstore_site.isLocalPartition(partition) == false) return (false);
+        
+        AntiCacheProbeMessage work = this.prefetchPlanner.plan(ts);
+        if (work == null) return (false);
+        
+        if (debug.val)
+            LOG.debug(String.format("%s - Probing %d evictable tables at partition %d before queuing",
+                      ts, work.getTables().length, partition));
+        hstore_site.getPartitionExecutor(partition).queueUtilityWork(work);
+        return (true);
+    }
+    
+    /**
+     * Probe the EE for the keys in the given AntiCacheProbeMessage.
+     * If any of them are evicted then the txn will be queued to have its blocks
+     * read in. Otherwise the txn is queued for initialization right away.
+     * <B>NOTE:</B> This must be invoked by the PartitionExecutor's thread.
+     * @param executor
+     * @param work
+     */
+    protected void probe(PartitionExecutor executor, AntiCacheProbeMessage work) {
+        LocalTransaction ts = work.getTransaction();
+        int partition = executor.getPartitionId();
+        ExecutionEngine ee = executor.getExecutionEngine();
+        Table tables[] = work.getTables();
+        VoltTable keys[] = work.getKeys();
+        
+        // The EE can only merge the blocks for one table per txn, so we stop
+        // at the first table with evicted keys. If the txn touches other
+        // evicted data, then it will get restarted like before.
+        Table catalog_tbl = null;
+        Pair<int[], int[]> evicted = null;
+        if (hstore_conf.site.anticache_profiling) this.profilers[partition].probe_time.start();
+        try {
+            for (int i = 0; i < tables.length; i++) {
+                evicted = ee.antiCacheProbeKeys(tables[i], keys[i]);
+                if (evicted != null) {
+                    catalog_tbl = tables[i];
+                    break;
+                }
+            } // FOR
+        } catch (Throwable ex) {
+            // If the probe fails, then the txn will just find its evicted data on its own
+            LOG.warn(String.format("%s - Failed to probe for evicted keys at partition %d", ts, partition), ex);
+            evicted = null;
+        } finally {
+            if (hstore_conf.site.anticache_profiling) this.profilers[partition].probe_time.stopIfStarted();
+        }
+        
+        if (evicted == null) {
+            hstore_site.transactionInit(ts);
+            return;
+        }
+        
+        // Only read each block in once
+        int all_block_ids[] = evicted.getFirst();
+        int all_tuple_offsets[] = evicted.getSecond();
+        Set<Integer> seen = new HashSet<Integer>();
+        int block_ids[] = new int[all_block_ids.length];
+        int tuple_offsets[] = new int[all_tuple_offsets.length];
+        int num_blocks = 0;
+        for (int i = 0; i < all_block_ids.length; i++) {
+            if (seen.add(all_block_ids[i])) {
+                block_ids[num_blocks] = all_block_ids[i];
+                tuple_offsets[num_blocks] = all_tuple_offsets[i];
+                num_blocks++;
+            }
+        } // FOR
+        block_ids = Arrays.copyOf(block_ids, num_blocks);
+        tuple_offsets = Arrays.copyOf(tuple_offsets, num_blocks);
+        
+        if (debug.val)
+            LOG.debug(String.format("%s - Prefetching %d evicted blocks from %s at partition %d",
+                      ts, num_blocks, catalog_tbl.getName(), partition));
+        if (hstore_conf.site.anticache_profiling) this.profilers[partition].prefetched_txns++;
+        this.queue.offer(new QueueEntry(ts, partition, catalog_tbl, block_ids, tuple_offsets));
+    }
+    
     // ----------------------------------------------------------------------------
     // EVICTION INITIATION
     // ----------------------------------------------------------------------------
@@ -443,6 +754,8 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         long totalSizeKb = 0;
         long totalBlocksEvicted = 0;
         long totalBlocksFetched = 0;
+        long totalBlocksPromoted = 0;
+        long totalBlocksDemoted = 0;
         long totalEvictableSizeKb = 0;
         long totalIndexKb = 0;
 
@@ -455,6 +768,8 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
             totalIndexKb += stats.indexes;
             totalBlocksEvicted += stats.blocksEvicted;
             totalBlocksFetched += stats.blocksFetched;
+            totalBlocksPromoted += stats.blocksPromoted;
+            totalBlocksDemoted += stats.blocksDemoted;
             for (Stats tstats : stats.getTableStats()) {
                 totalEvictableSizeKb += tstats.sizeKb;// - tstats.indexes;
             }
@@ -463,6 +778,9 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         long totalDataSize = (int)(totalSizeKb / 1024);
         long totalEvictedMB = ((totalBlocksEvicted * hstore_conf.site.anticache_block_size) / 1024 / 1024); 
         long totalActiveDataSize = totalDataSize - totalEvictedMB; 
+        if (hstore_conf.site.anticache_threshold_mb > 0) {
+            this.memoryPressure = totalDataSize / (double)hstore_conf.site.anticache_threshold_mb;
+        }
 
         LOG.info("Current Memory Usage: " + totalDataSize + " / " +
                 hstore_conf.site.anticache_threshold_mb + " MB");
@@ -471,6 +789,10 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         LOG.info("Index memory: " + totalIndexKb);
         LOG.info("Blocks Currently Evicted: " + totalBlocksEvicted);
         LOG.info("Total Blocks Fetched: " + totalBlocksFetched);
+        if (hstore_conf.site.anticache_enable_multilevel) {
+            LOG.info("Total Blocks Promoted: " + totalBlocksPromoted);
+            LOG.info("Total Blocks Demoted: " + totalBlocksDemoted);
+        }
         LOG.info("Total Evictable Kb: " + totalEvictableSizeKb);
         LOG.info("Partitions Evicting: " + this.pendingEvictions);
 
@@ -522,6 +844,11 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
             stats.setEvicted();
         }
 
+        if (hstore_conf.site.anticache_eviction_slice) {
+            this.queueEvictionSlices(distribution);
+            return;
+        }
+
         String procName = VoltSystemProcedure.procCallName(EvictTuples.class);
 
         for (int partition : hstore_site.getLocalPartitionIds().values()) {
@@ -564,6 +891,90 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         } 
     }
 
+    /**
+     * Queue an EvictionSliceMessage at each of our local partitions for their share of
+     * the blocks that we need to evict. Each PartitionExecutor will then evict them a
+     * few at a time in between its txns instead of all at once in a sysproc.
+     * @param distribution
+     */
+    protected void queueEvictionSlices(Map<Integer, Map<String, Integer>> distribution) {
+        CatalogContext catalogContext = hstore_site.getCatalogContext();
+        for (int partition : hstore_site.getLocalPartitionIds().values()) {
+            Map<String, Integer> pdist = distribution.get(partition);
+            if (pdist == null || pdist.isEmpty()) continue;
+
+            List<Table> tables = new ArrayList<Table>();
+            List<Table> childTables = new ArrayList<Table>();
+            List<Integer> numBlocks = new ArrayList<Integer>();
+            for (Entry<String, Integer> e : pdist.entrySet()) {
+                if (e.getValue() <= 0) continue;
+                Table catalogTable = catalogContext.getTableByName(e.getKey());
+                Table childTable = null;
+                if (hstore_conf.site.anticache_batching) {
+                    String children[] = CatalogUtil.getChildTables(catalogContext.database, catalogTable);
+                    if (children.length > 0) childTable = catalogContext.getTableByName(children[0]);
+                }
+                tables.add(catalogTable);
+                childTables.add(childTable);
+                numBlocks.add(e.getValue());
+            } // FOR
+            if (tables.isEmpty()) continue;
+
+            int blocks[] = new int[numBlocks.size()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = numBlocks.get(i);
+            } // FOR
+            EvictionSliceMessage work = new EvictionSliceMessage(tables.toArray(new Table[tables.size()]),
+                                                                 childTables.toArray(new Table[childTables.size()]),
+                                                                 blocks);
+            if (debug.val)
+                LOG.debug(String.format("Queuing %d eviction blocks at partition %d",
+                          MathUtil.sum(blocks), partition));
+            this.pendingEvictions++;
+            hstore_site.getPartitionExecutor(partition).queueUtilityWork(work);
+        } // FOR
+    }
+
+    /**
+     * Queue an AntiCacheDemoteMessage at each of our local partitions so that they
+     * promote the blocks that were read often enough from the slower anti-cache levels
+     * and move the least recently used blocks in their faster levels down to the slower
+     * ones in between txns. This way an eviction or a promotion doesn't have to migrate
+     * a block first to make room.
+     */
+    protected void queueDemotions() {
+        for (int partition : hstore_site.getLocalPartitionIds().values()) {
+            hstore_site.getPartitionExecutor(partition).queueUtilityWork(this.demoteMessage);
+        } // FOR
+    }
+
+    /**
+     * Returns the amount of time (in nanoseconds) that a PartitionExecutor should
+     * spend evicting blocks before it goes back to its txns. The further that
+     * we are over the eviction threshold, the longer the slice gets.
+     */
+    public long getEvictionSliceBudget() {
+        double scale = 1.0 + Math.max(0.0, this.memoryPressure - 1.0) * EVICTION_SLICE_PRESSURE_GAIN;
+        scale = Math.min(scale, EVICTION_SLICE_MAX_SCALE);
+        return ((long)(hstore_conf.site.anticache_eviction_slice_us * scale * 1000l));
+    }
+
+    /**
+     * Invoked by a PartitionExecutor once it has evicted all of the blocks
+     * in the given EvictionSliceMessage.
+     * @param partition
+     * @param work
+     */
+    public void evictionSlicesFinished(int partition, EvictionSliceMessage work) {
+        LOG.info(String.format("Eviction finished for Partition %02d " +
+                 "[tuples=%d, blocks=%d, bytes=%d, time=%.1f sec]",
+                 partition, work.getTuplesEvicted(), work.getBlocksEvicted(), work.getBytesEvicted(),
+                 (System.currentTimeMillis() - work.getStartTimestamp()) / 1000d));
+        synchronized(this) {
+            this.pendingEvictions--;
+        };
+    }
+
     protected Map<Integer, Map<String, Integer>> getEvictionDistribution(long blocksToEvict) {
         Map<Integer, Map<String, Integer>> distribution = new HashMap<Integer, Map<String, Integer>>();
         for (int partition : hstore_site.getLocalPartitionIds()) {
@@ -790,13 +1201,16 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         }
 
         public void update(String table, long sizeKb, long blocksEvicted,
-                long blocksFetched, long blocksWritten, long accesses, long indexes){
+                long blocksFetched, long blocksWritten, long accesses, long indexes,
+                long blocksPromoted, long blocksDemoted){
             this.sizeKb += sizeKb;
             this.blocksEvicted += blocksEvicted;
             this.blocksFetched += blocksFetched;
             this.blocksWritten += blocksWritten;
             this.accesses += accesses;
             this.indexes += indexes;
+            this.blocksPromoted += blocksPromoted;
+            this.blocksDemoted += blocksDemoted;
             if (this.tables.containsKey(table)) {
                 Stats tableStats = this.tables.get(table);
                 tableStats.sizeKb = sizeKb;
@@ -805,6 +1219,8 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
                 tableStats.blocksWritten = blocksWritten;
                 tableStats.accesses = accesses;
                 tableStats.indexes = indexes;
+                tableStats.blocksPromoted = blocksPromoted;
+                tableStats.blocksDemoted = blocksDemoted;
             }
         }
         
@@ -854,6 +1270,9 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         public long evictionAccesses = 0;
         public double unevictionRatio = 0;
         public long indexes = 0;
+        // Blocks moved between the levels of a multilevel anti-cache
+        public long blocksPromoted = 0;
+        public long blocksDemoted = 0;
         
         public void reset() {
             sizeKb = 0;
@@ -862,6 +1281,8 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
             blocksWritten = 0;
             accesses = 0;
             indexes = 0;
+            blocksPromoted = 0;
+            blocksDemoted = 0;
         }
     }
 
@@ -896,7 +1317,10 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
                 long blocksFetched = vt.getLong("ANTICACHE_BLOCKS_READ");
                 long blocksWritten = vt.getLong("ANTICACHE_BLOCKS_WRITTEN");
                 long accesses = vt.getLong("TUPLE_ACCESSES");
-                stats.update(table, sizeKb, blocksEvicted, blocksFetched, blocksWritten, accesses, indexes);
+                long blocksPromoted = vt.getLong("ANTICACHE_BLOCKS_PROMOTED");
+                long blocksDemoted = vt.getLong("ANTICACHE_BLOCKS_DEMOTED");
+                stats.update(table, sizeKb, blocksEvicted, blocksFetched, blocksWritten, accesses, indexes,
+                             blocksPromoted, blocksDemoted);
             } while(vt.advanceRow());
 
             //LOG.info(String.format("Tuple Mem: %d; String Mem: %d\n", tupleMem, stringMem));
@@ -855,7 +855,9 @@ public class BatchPlanner {
                 plan.frag_list[stmt_index] = this.sorted_multip_fragments[stmt_index];
 
                 // Always mark that we are touching these partitions
-                touched_partitions.put(stmt_all_partitions.values());
+                for (int p = stmt_all_partitions.firstPartition(); p != PartitionSet.END; p = stmt_all_partitions.nextPartition(p)) {
+                    touched_partitions.put(p);
+                } // FOR
 
                 // Note that will want to update is_singlePartitioned here for non-readonly replicated
                 // querys when we have a one partition cluster because those queries don't have
@@ -1012,7 +1014,9 @@ public class BatchPlanner {
         // 2013-05-14: I feel like that we could probably cache this somehow...
         for (PlanVertex v : plan.graph.sorted_vertices) {
             int stmt_index = v.stmt_index;
-            for (int partition : plan.frag_partitions[stmt_index].get(v.catalog_frag).values()) {
+            PartitionSet f_partitions = plan.frag_partitions[stmt_index].get(v.catalog_frag);
+            for (int partition = f_partitions.firstPartition(); partition != PartitionSet.END;
+                 partition = f_partitions.nextPartition(partition)) {
                 if (plan.rounds[v.round][partition] == null) {
                     plan.rounds[v.round][partition] = new ArrayList<PlanVertex>();
                 }
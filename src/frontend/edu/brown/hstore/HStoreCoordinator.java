@@ -1046,10 +1046,12 @@ public class HStoreCoordinator implements Shutdownable {
         // SLOW PATH: Since we have to go over the network, we have to use our trusty ol'
         // TransactionPrepareHandler to route the request to proper sites.
         else {
-            TransactionPrepareRequest request = TransactionPrepareRequest.newBuilder()
-                                                            .setTransactionId(ts.getTransactionId())
-                                                            .addAllPartitions(partitions)
-                                                            .build();
+            TransactionPrepareRequest.Builder builder = TransactionPrepareRequest.newBuilder()
+                                                            .setTransactionId(ts.getTransactionId());
+            for (int p = partitions.firstPartition(); p != PartitionSet.END; p = partitions.nextPartition(p)) {
+                builder.addPartitions(p);
+            } // FOR
+            TransactionPrepareRequest request = builder.build();
             this.transactionPrepare_handler.sendMessages(ts, request, callback, partitions);
         }
     }
@@ -1082,11 +1084,13 @@ public class HStoreCoordinator implements Shutdownable {
         // SLOW PATH: Since we have to go over the network, we have to use our trusty ol'
         // TransactionFinishHandler to route the request to proper sites.
         else {
-            TransactionFinishRequest request = TransactionFinishRequest.newBuilder()
+            TransactionFinishRequest.Builder builder = TransactionFinishRequest.newBuilder()
                                                             .setTransactionId(ts.getTransactionId())
-                                                            .setStatus(status)
-                                                            .addAllPartitions(partitions)
-                                                            .build();
+                                                            .setStatus(status);
+            for (int p = partitions.firstPartition(); p != PartitionSet.END; p = partitions.nextPartition(p)) {
+                builder.addPartitions(p);
+            } // FOR
+            TransactionFinishRequest request = builder.build();
             this.transactionFinish_handler.sendMessages(ts, request, callback, partitions);
         }
     }
@@ -26,6 +26,7 @@
 package edu.brown.hstore;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.sql.Timestamp;
@@ -52,6 +53,7 @@ import org.voltdb.CatalogContext;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.MemoryStats;
 import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
 import org.voltdb.ProcedureProfiler;
 import org.voltdb.StatsAgent;
 import org.voltdb.StatsSource;
@@ -90,6 +92,7 @@ import com.google.protobuf.RpcCallback;
 
 import edu.brown.catalog.CatalogUtil;
 import edu.brown.hashing.AbstractHasher;
+import edu.brown.hashing.MappedHasher;
 import edu.brown.hstore.ClientInterface.ClientInputHandler;
 import edu.brown.hstore.HStoreThreadManager.ThreadGroupType;
 import edu.brown.hstore.Hstoreservice.QueryEstimate;
@@ -111,11 +114,13 @@ import edu.brown.hstore.stats.AntiCacheManagerProfilerStats;
 import edu.brown.hstore.stats.BatchPlannerProfilerStats;
 import edu.brown.hstore.stats.MarkovEstimatorProfilerStats;
 import edu.brown.hstore.stats.PartitionExecutorProfilerStats;
+import edu.brown.hstore.stats.QueryCacheStats;
 import edu.brown.hstore.stats.SiteProfilerStats;
 import edu.brown.hstore.stats.SpecExecProfilerStats;
 import edu.brown.hstore.stats.TransactionCounterStats;
 import edu.brown.hstore.stats.TransactionProfilerStats;
 import edu.brown.hstore.stats.TransactionQueueManagerProfilerStats;
+import edu.brown.hstore.stats.TransactionTracerStats;
 import edu.brown.hstore.txns.AbstractTransaction;
 import edu.brown.hstore.txns.DependencyTracker;
 import edu.brown.hstore.txns.LocalTransaction;
@@ -132,6 +137,8 @@ import edu.brown.logging.RingBufferAppender;
 import edu.brown.markov.EstimationThresholds;
 import edu.brown.plannodes.PlanNodeUtil;
 import edu.brown.profilers.HStoreSiteProfiler;
+import edu.brown.profilers.TransactionTracer;
+import edu.brown.profilers.TransactionTracer.Phase;
 import edu.brown.statistics.FastIntHistogram;
 import edu.brown.utils.ClassUtil;
 import edu.brown.utils.CollectionUtil;
@@ -210,6 +217,12 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
      * @see HStoreConf.site.txn_partition_id_managers
      */
     private final TransactionIdManager txnIdManagers[];
+    
+    /**
+     * ProcedureId -> Whether the procedure can skip the lock queue and read stale data
+     * @see HStoreConf.site.txn_stale_reads
+     */
+    private final boolean staleReadProcedures[];
 
     /**
      * The TransactionInitializer is used to figure out what txns will do
@@ -256,6 +269,12 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     private TransactionProfilerStats txnProfilerStats;
     private MemoryStats memoryStats;
     
+    /**
+     * Lightweight transaction lifecycle tracer
+     * This will be null if txn tracing is disabled.
+     */
+    private final TransactionTracer txnTracer;
+    
     // ----------------------------------------------------------------------------
     // NETWORKING STUFF
     // ----------------------------------------------------------------------------
@@ -474,6 +493,12 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         this.site_id = this.catalog_site.getId();
         this.site_name = HStoreThreadManager.getThreadName(this.site_id, null);
         
+        if (hstore_conf.site.txn_tracing) {
+            this.txnTracer = new TransactionTracer(this.site_id, hstore_conf.site.txn_tracing_buffer_size);
+        } else {
+            this.txnTracer = null;
+        }
+        
         final int num_partitions = this.catalogContext.numberOfPartitions;
         this.local_partitions.addAll(CatalogUtil.getLocalPartitionIds(catalog_site));
         int num_local_partitions = this.local_partitions.size();
@@ -597,6 +622,24 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             };
         }
         
+        // Stale Read Procedures
+        this.staleReadProcedures = new boolean[this.catalogContext.procedures.size()+1];
+        if (hstore_conf.site.txn_stale_reads) {
+            for (Procedure catalog_proc : this.catalogContext.procedures) {
+                if (catalog_proc.getSystemproc() || catalog_proc.getReadonly() == false ||
+                    catalog_proc.getSinglepartition() == false || catalog_proc.getHasjava() == false) continue;
+                try {
+                    Class<?> procClass = Class.forName(catalog_proc.getClassname());
+                    ProcInfo info = procClass.getAnnotation(ProcInfo.class);
+                    this.staleReadProcedures[catalog_proc.getId()] = (info != null && info.allowStaleReads());
+                } catch (ClassNotFoundException ex) {
+                    LOG.warn("Failed to load procedure class " + catalog_proc.getClassname(), ex);
+                }
+                if (debug.val && this.staleReadProcedures[catalog_proc.getId()])
+                    LOG.debug(String.format("Enabled stale reads for %s", catalog_proc.getName()));
+            } // FOR
+        }
+        
         // Command Logger
         if (hstore_conf.site.commandlog_enable) {
             // It would be nice if we could come up with a unique name for this
@@ -717,6 +760,13 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             t.setDaemon(true);
             t.setUncaughtExceptionHandler(this.exceptionHandler);
             t.start();
+            
+            for (AntiCacheManager.BlockFetcher fetcher : this.anticacheManager.getBlockFetchers()) {
+                t = new Thread(auxGroup, fetcher);
+                t.setDaemon(true);
+                t.setUncaughtExceptionHandler(this.exceptionHandler);
+                t.start();
+            } // FOR
         }
         
         // TransactionPreProcessors
@@ -777,6 +827,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             this.txn_profiler_dumper = new TransactionProfilerDumper(csvFile);
             LOG.info(String.format("Transaction profile data will be written to '%s'", csvFile));
         }
+        if (this.txnTracer != null && hstore_conf.site.txn_tracing_dump) {
+            LOG.info(String.format("Transaction trace events will be written to '%s'", this.getTransactionTraceFile()));
+        }
         
         // Add in our shutdown hook
         // Runtime.getRuntime().addShutdownHook(new Thread(new ShutdownHook()));
@@ -864,6 +917,10 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         this.txnProfilerStats = new TransactionProfilerStats(this.catalogContext);
         this.statsAgent.registerStatsSource(SysProcSelector.TXNPROFILER, 0, this.txnProfilerStats);
         
+        // TXN TRACER
+        statsSource = new TransactionTracerStats(this.txnTracer);
+        this.statsAgent.registerStatsSource(SysProcSelector.TXNTRACE, 0, statsSource);
+        
         // MEMORY
         this.memoryStats = new MemoryStats();
         this.statsAgent.registerStatsSource(SysProcSelector.MEMORY, 0, this.memoryStats);
@@ -900,6 +957,10 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         statsSource = new BatchPlannerProfilerStats(this, this.catalogContext);
         this.statsAgent.registerStatsSource(SysProcSelector.PLANNERPROFILER, 0, statsSource);
         
+        // QUERY CACHE
+        statsSource = new QueryCacheStats(this);
+        this.statsAgent.registerStatsSource(SysProcSelector.QUERYCACHE, 0, statsSource);
+        
     }
     
     // -------------------------------
@@ -1081,7 +1142,21 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
                 LOG.warn("There are no tables marked as evictable. Disabling anti-cache monitoring");
             }
         }
-        
+
+        // ARIES Checkpoints
+        if (hstore_conf.site.aries && hstore_conf.site.aries_forward_only == false &&
+            hstore_conf.site.aries_checkpoint_interval > 0) {
+            this.threadManager.schedulePeriodicWork(new ExceptionHandlingRunnable() {
+                @Override
+                public void runImpl() {
+                    for (int p : HStoreSite.this.local_partitions.values()) {
+                        HStoreSite.this.executors[p].queueAriesCheckpoint();
+                    } // FOR
+                }
+            }, hstore_conf.site.aries_checkpoint_interval,
+               hstore_conf.site.aries_checkpoint_interval, TimeUnit.MILLISECONDS);
+        }
+
         // small stats samples
         this.threadManager.schedulePeriodicWork(new ExceptionHandlingRunnable() {
             @Override
@@ -1231,7 +1306,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
      * @return
      */
     public boolean allLocalPartitions(PartitionSet partitions) {
-        for (int p : partitions.values()) {
+        for (int p = partitions.firstPartition(); p != PartitionSet.END; p = partitions.nextPartition(p)) {
             if (this.local_partition_offsets[p] == -1) {
                 return (false);
             }
@@ -1330,6 +1405,13 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     public HStoreSiteProfiler getProfiler() {
         return (this.profiler);
     }
+    /**
+     * Returns the TransactionTracer for this site.
+     * This will be null if ${site.txn_tracing} is disabled.
+     */
+    public TransactionTracer getTransactionTracer() {
+        return (this.txnTracer);
+    }
     public DBBPool getBufferPool() {
         return (this.buffer_pool);
     }
@@ -1665,6 +1747,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         }
         if (this.anticacheManager != null) {
             this.anticacheManager.prepareShutdown(error);
+            for (AntiCacheManager.BlockFetcher fetcher : this.anticacheManager.getBlockFetchers()) {
+                fetcher.prepareShutdown(error);
+            } // FOR
         }
         for (TransactionCleaner t : this.txnCleaners) {
             t.prepareShutdown(error);
@@ -1715,6 +1800,38 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
 //        LOG.info("Waiting to be Deleted Transactions:\n" + sb);
     }
     
+    private File getTransactionTraceFile() {
+        return new File(hstore_conf.global.log_dir +
+                        File.separator +
+                        this.getSiteName().toLowerCase() +
+                        "-trace.json");
+    }
+    
+    /**
+     * Write the TransactionTracer's most recent events out to a file
+     * in the Chrome trace event format.
+     */
+    private void writeTransactionTrace() {
+        File traceFile = this.getTransactionTraceFile();
+        FileWriter out = null;
+        try {
+            if (traceFile.getParentFile() != null) FileUtil.makeDirIfNotExists(traceFile.getParentFile());
+            out = new FileWriter(traceFile);
+            this.txnTracer.writeChromeTrace(out);
+            LOG.info(String.format("Wrote transaction trace events to '%s'", traceFile));
+        } catch (IOException ex) {
+            LOG.warn("Failed to write transaction trace events to " + traceFile, ex);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                    // Ignore
+                }
+            }
+        }
+    }
+    
     /**
      * Perform shutdown operations for this HStoreSiteNode
      */
@@ -1732,6 +1849,11 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         // Stop the monitor thread
         if (this.status_monitor != null) this.status_monitor.shutdown();
         
+        // Dump out the txn trace events
+        if (this.txnTracer != null && hstore_conf.site.txn_tracing_dump) {
+            this.writeTransactionTrace();
+        }
+        
         // Kill the queue manager
         this.txnQueueManager.shutdown();
         
@@ -1743,6 +1865,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         }
         if (this.anticacheManager != null) {
             this.anticacheManager.shutdown();
+            for (AntiCacheManager.BlockFetcher fetcher : this.anticacheManager.getBlockFetchers()) {
+                fetcher.shutdown();
+            } // FOR
         }
         for (TransactionCleaner t : this.txnCleaners) {
             t.shutdown();
@@ -2136,8 +2261,31 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
                       ts, (ts.isPredictSinglePartition() ? "single-partition" : "distributed"), 
                       ts.getBasePartition(), ts.getClientHandle()));
         
+        if (this.txnTracer != null) {
+            ts.setTraceTimestamp(this.txnTracer.record(ts.getTransactionId(), Phase.INIT, ts.getTraceTimestamp()));
+        }
+        
         if (ts.isPredictSinglePartition()) {
-            this.transactionInit(ts);
+            if (hstore_conf.site.txn_stale_reads && this.canSkipLockQueue(ts)) {
+                if (debug.val)
+                    LOG.debug(String.format("%s - Skipping lock queue for partition %d to execute as a stale read",
+                              ts, ts.getBasePartition()));
+                int base_partition = ts.getBasePartition();
+                ts.markStaleRead();
+                ts.getInitCallback().run(base_partition);
+                ts.markReleased(base_partition);
+                this.transactionStart(ts);
+            }
+            // Check whether we need to read in any evicted blocks for this txn before
+            // it gets queued. The AntiCacheManager will queue it when it's ready.
+            else if (this.anticacheManager != null && ts.getRestartCounter() == 0 &&
+                     this.anticacheManager.prefetch(ts)) {
+                if (debug.val)
+                    LOG.debug(String.format("%s - Waiting for evicted key probe at partition %d",
+                              ts, ts.getBasePartition()));
+            } else {
+                this.transactionInit(ts);
+            }
         }
         else {
             LocalInitQueueCallback initCallback = (LocalInitQueueCallback)ts.getInitCallback();
@@ -2145,6 +2293,29 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         }
     }
     
+    /**
+     * Returns true if the given single-partition transaction is allowed to skip its
+     * partition's lock queue. The txn's procedure must be read-only and marked with
+     * allowStaleReads, and the oldest txn that it would be jumping ahead of in the
+     * lock queue must not have been waiting longer than the max lag.
+     * The PartitionExecutor runs these txns in between the txns that it gets from
+     * its lock queue, so they never change the partition's txn id order.
+     * @param ts
+     * @return
+     */
+    private boolean canSkipLockQueue(LocalTransaction ts) {
+        if (ts.isPredictReadOnly() == false || ts.isSysProc()) return (false);
+        int procId = ts.getProcedure().getId();
+        if (procId >= this.staleReadProcedures.length || this.staleReadProcedures[procId] == false) return (false);
+        
+        // If there is nothing waiting in the lock queue, then there is
+        // nothing to gain by skipping it
+        Long oldestTxnId = this.txnQueueManager.getLockQueue(ts.getBasePartition()).getOldestTransactionId();
+        if (oldestTxnId == null) return (false);
+        long lag = EstTime.currentTimeMillis() - TransactionIdManager.getTimestampFromTransactionId(oldestTxnId.longValue());
+        return (lag <= hstore_conf.site.txn_stale_reads_max_lag);
+    }
+    
     /**
      * Queue the given transaction to be initialized in the local TransactionQueueManager.
      * This is a non-blocking call.
@@ -2322,6 +2493,12 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         // XXX: Why is this needed?
         ts.setStatus(status);
         
+        // Hash bucket migrations only change where txns are routed once they
+        // have committed. This has to happen before any partition is released.
+        if (this.hasher instanceof MappedHasher) {
+            ((MappedHasher)this.hasher).finishTransaction(txn_id, (status == Status.OK));
+        }
+        
         // We only need to do this for distributed transactions, because all single-partition
         // transactions will commit/abort immediately
         if (ts.isPredictSinglePartition() == false) {
@@ -2763,6 +2940,16 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         if (hstore_conf.site.txn_profiling && ts.profiler != null) ts.profiler.startPostClient();
         boolean sendResponse = true;
         
+        // The txn's TWOPC phase started when it finished executing at its base partition.
+        // We don't record it for single-partition txns since they don't do a 2PC.
+        if (this.txnTracer != null && ts.getTraceTimestamp() != 0) {
+            if (ts.isPredictSinglePartition()) {
+                ts.setTraceTimestamp(TransactionTracer.getTime());
+            } else {
+                ts.setTraceTimestamp(this.txnTracer.record(ts.getTransactionId(), Phase.TWOPC, ts.getTraceTimestamp()));
+            }
+        }
+        
         // We have to send this txn to the CommandLog if all of the following are true:
         //  (1) We have a CommandLogWriter
         //  (2) The txn completed successfully
@@ -2773,6 +2960,11 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         
         if (this.commandLogger != null && status == Status.OK && ts.isSysProc() == false) {
             sendResponse = this.commandLogger.appendToLog(ts, cresponse);
+            // If we're using group commit, then the CommandLogWriter will record
+            // the COMMITLOG phase once the txn is written out to disk
+            if (sendResponse && this.txnTracer != null) {
+                ts.setTraceTimestamp(this.txnTracer.record(ts.getTransactionId(), Phase.COMMITLOG, ts.getTraceTimestamp()));
+            }
         }
 
         if (sendResponse) {
@@ -2789,6 +2981,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
                                   ts.getInitiateTime(),
                                   ts.getRestartCounter());
             }
+            if (this.txnTracer != null) {
+                this.txnTracer.record(ts.getTransactionId(), Phase.RESPONSE, ts.getTraceTimestamp());
+            }
         } else if (debug.val) { 
             LOG.debug(String.format("%s - Holding the ClientResponse until logged to disk", ts));
         }
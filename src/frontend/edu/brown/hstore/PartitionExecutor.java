@@ -58,11 +58,13 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.TreeSet;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
+import org.voltdb.AriesCheckpointer;
 import org.voltdb.AriesLog;
 import org.voltdb.BackendTarget;
 import org.voltdb.CatalogContext;
@@ -102,7 +104,10 @@ import org.voltdb.jni.ExecutionEngineJNI;
 import org.voltdb.jni.MockExecutionEngine;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializer;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
+import org.voltdb.types.AntiCacheTrackingType;
+import org.voltdb.types.QueryCacheEvictionPolicyType;
 import org.voltdb.types.SpecExecSchedulerPolicyType;
 import org.voltdb.types.SpeculationConflictCheckerType;
 import org.voltdb.types.SpeculationType;
@@ -144,6 +149,10 @@ import edu.brown.hstore.internal.PrepareTxnMessage;
 import edu.brown.hstore.internal.SetDistributedTxnMessage;
 import edu.brown.hstore.internal.StartTxnMessage;
 import edu.brown.hstore.internal.UtilityWorkMessage;
+import edu.brown.hstore.internal.UtilityWorkMessage.AntiCacheDemoteMessage;
+import edu.brown.hstore.internal.UtilityWorkMessage.AntiCacheProbeMessage;
+import edu.brown.hstore.internal.UtilityWorkMessage.AriesCheckpointMessage;
+import edu.brown.hstore.internal.UtilityWorkMessage.EvictionSliceMessage;
 import edu.brown.hstore.internal.UtilityWorkMessage.TableStatsRequestMessage;
 import edu.brown.hstore.internal.UtilityWorkMessage.UpdateMemoryMessage;
 import edu.brown.hstore.internal.WorkFragmentMessage;
@@ -162,6 +171,7 @@ import edu.brown.hstore.txns.RemoteTransaction;
 import edu.brown.hstore.util.ArrayCache.IntArrayCache;
 import edu.brown.hstore.util.ArrayCache.LongArrayCache;
 import edu.brown.hstore.util.ParameterSetArrayCache;
+import edu.brown.hstore.util.QueryCache;
 import edu.brown.hstore.util.TransactionCounter;
 import edu.brown.hstore.util.TransactionUndoTokenComparator;
 import edu.brown.hstore.util.TransactionWorkRequestBuilder;
@@ -171,7 +181,11 @@ import edu.brown.interfaces.Shutdownable;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.markov.EstimationThresholds;
+import edu.brown.profilers.AntiCacheManagerProfiler;
+import edu.brown.profilers.AntiCacheManagerProfiler.EvictionHistory;
 import edu.brown.profilers.PartitionExecutorProfiler;
+import edu.brown.profilers.TransactionTracer;
+import edu.brown.profilers.TransactionTracer.Phase;
 import edu.brown.protorpc.NullCallback;
 import edu.brown.statistics.FastIntHistogram;
 import edu.brown.utils.ClassUtil;
@@ -204,6 +218,11 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
     private static final UtilityWorkMessage UTIL_WORK_MSG = new UtilityWorkMessage();
     private static final UpdateMemoryMessage STATS_WORK_MSG = new UpdateMemoryMessage();
     
+    /**
+     * The number of per-transaction results that the QueryCache will hold
+     */
+    private static final int QUERY_CACHE_TXN_BUFFER_SIZE = 100;
+    
     // ----------------------------------------------------------------------------
     // INTERNAL EXECUTION STATE
     // ----------------------------------------------------------------------------
@@ -302,6 +321,13 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
     private TransactionQueueManager queueManager;
     private PartitionLockQueue lockQueue;
     private DependencyTracker depTracker;
+    private TransactionTracer txnTracer;
+    
+    /**
+     * Cached results of read-only queries on replicated tables.
+     * This will be null if ${site.exec_query_cache} is disabled.
+     */
+    private QueryCache queryCache;
     
     // ----------------------------------------------------------------------------
     // Work Queue
@@ -316,6 +342,15 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
      */
     private final PartitionMessageQueue work_queue;
     
+    /**
+     * Read-only txns that skipped this partition's lock queue.
+     * These are not part of the partition's txn id order, so we only execute them
+     * in between the txns that we get from the lock queue. Each one sees the database
+     * as of the last txn that we committed.
+     * @see HStoreConf.site.txn_stale_reads
+     */
+    private final Queue<LocalTransaction> staleReadQueue = new ConcurrentLinkedQueue<LocalTransaction>();
+    
     // ----------------------------------------------------------------------------
     // Internal Execution State
     // ----------------------------------------------------------------------------
@@ -352,6 +387,13 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
      */
     private final List<InternalMessage> currentBlockedTxns = new ArrayList<InternalMessage>();
 
+    /**
+     * Utility work that we put aside because there was a dtxn running
+     * at this partition (e.g., anti-cache evictions or ARIES checkpoints).
+     * It is put back in our work queue once the dtxn is finished.
+     */
+    private final List<InternalMessage> deferredUtilityWork = new ArrayList<InternalMessage>();
+
     /**
      * The current ExecutionMode. This defines when transactions are allowed to execute
      * and whether they can return their results to the client immediately or whether they
@@ -707,6 +749,8 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
 
     private final SystemProcedureContext m_systemProcedureContext = new SystemProcedureContext();
     private AriesLog m_ariesLog ;
+    private AriesCheckpointer m_ariesCheckpointer = null;
+    private final AriesCheckpointMessage m_ariesCheckpointMsg = new AriesCheckpointMessage();
 
     public SystemProcedureExecutionContext getSystemProcedureExecutionContext(){
 	return m_systemProcedureContext;
@@ -847,7 +891,25 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                         
                             }
                         }
-                    }      
+                    }
+                    AntiCacheTrackingType trackingType = AntiCacheTrackingType.get(hstore_conf.site.anticache_tracking);
+                    if (trackingType == null) {
+                        LOG.warn(String.format("Unexpected anti-cache tracking type '%s'. Using %s",
+                                 hstore_conf.site.anticache_tracking, AntiCacheTrackingType.TIMESTAMP));
+                        trackingType = AntiCacheTrackingType.TIMESTAMP;
+                    }
+                    eeTemp.antiCacheSetTracking(trackingType);
+                    AntiCacheCompressionType compressionType = AntiCacheCompressionType.get(hstore_conf.site.anticache_compression);
+                    if (compressionType == null) {
+                        LOG.warn(String.format("Unexpected anti-cache compression type '%s'. Using %s",
+                                 hstore_conf.site.anticache_compression, AntiCacheCompressionType.NONE));
+                        compressionType = AntiCacheCompressionType.NONE;
+                    }
+                    eeTemp.antiCacheSetCompression(compressionType);
+                    if (hstore_conf.site.anticache_enable_multilevel) {
+                        eeTemp.antiCacheSetMigrationPolicy(hstore_conf.site.anticache_multilevel_promote_threshold,
+                                                           hstore_conf.site.anticache_multilevel_free_blocks);
+                    }
                 }
                 
                 // Initialize STORAGE_MMAP
@@ -855,7 +917,8 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                     File dbFile = getMMAPDir(this);
                     long mapSize = hstore_conf.site.storage_mmap_file_size;
                     long syncFrequency = hstore_conf.site.storage_mmap_sync_frequency;
-                    eeTemp.MMAPInitialize(dbFile, mapSize, syncFrequency);
+                    long dirtyLimit = hstore_conf.site.storage_mmap_dirty_limit;
+                    eeTemp.MMAPInitialize(dbFile, mapSize, syncFrequency, dirtyLimit);
                 }
                 
                 // Initialize ARIES
@@ -863,6 +926,15 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                     File dbFile = getARIESDir(this);
                     File logFile = getARIESFile(this);
                     eeTemp.ARIESInitialize(dbFile, logFile);
+                    
+                    if (hstore_conf.site.aries_forward_only == false && hstore_conf.site.aries_checkpoint_interval > 0) {
+                        this.m_ariesCheckpointer = new AriesCheckpointer(this.partitionId, dbFile, logFile, new Runnable() {
+                            @Override
+                            public void run() {
+                                queueAriesCheckpoint();
+                            }
+                        });
+                    }
                 }                            
                 
                 // Important: This has to be called *after* we initialize the anti-cache
@@ -924,6 +996,18 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         this.thresholds = hstore_site.getThresholds();
         this.queueManager = hstore_site.getTransactionQueueManager();
         this.lockQueue = this.queueManager.getLockQueue(this.partitionId);
+        this.txnTracer = hstore_site.getTransactionTracer();
+        
+        if (hstore_conf.site.exec_query_cache) {
+            QueryCacheEvictionPolicyType policy = QueryCacheEvictionPolicyType.get(hstore_conf.site.exec_query_cache_policy);
+            if (policy == null) {
+                throw new RuntimeException("Invalid query cache eviction policy '" +
+                                           hstore_conf.site.exec_query_cache_policy + "'");
+            }
+            this.queryCache = new QueryCache(QUERY_CACHE_TXN_BUFFER_SIZE,
+                                             hstore_conf.site.exec_query_cache_size * 1048576l,
+                                             policy);
+        }
         
         if (hstore_conf.site.exec_deferrable_queries) {
             tmp_def_txn = new LocalTransaction(hstore_site);
@@ -1061,9 +1145,23 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         if (this.hstore_conf.site.aries && this.hstore_conf.site.aries_forward_only == false) {
             // long logReadStartTime = System.currentTimeMillis();
 
+            // Load the last checkpoint first so that we only have to replay
+            // what was logged after it started
+            long replayOffset = 0;
+            if (m_ariesCheckpointer != null) {
+                try {
+                    AriesCheckpointer.Checkpoint checkpoint = m_ariesCheckpointer.recover(ee, catalogContext.database);
+                    if (checkpoint != null) replayOffset = checkpoint.logOffset;
+                } catch (IOException ex) {
+                    String msg = "Failed to load ARIES checkpoint at partition " + this.partitionId;
+                    throw new ServerFaultException(msg, ex);
+                }
+            }
+
             // define an array so that we can pass to native code by reference
             long size[] = new long[1];
             long ariesReplayPointer = readAriesLogForReplay(size);
+            replayOffset = Math.min(replayOffset, size[0]);
 
             // LOG.info("ARIES : replay pointer address: " +
             // ariesReplayPointer);
@@ -1075,7 +1173,7 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
 
             long ariesStartTime = System.currentTimeMillis();
 
-            m_ariesLog.setPointerToReplayLog(ariesReplayPointer, size[0]);
+            m_ariesLog.setPointerToReplayLog(ariesReplayPointer + replayOffset, size[0] - replayOffset);
             m_ariesLog.setTxnIdToBeginReplay(txnIdToBeginReplay);
 
             waitForAriesRecoveryCompletion();
@@ -1159,11 +1257,22 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                 if (this.currentDtxn == null) {
                     this.tick();
                     
-                    if (hstore_conf.site.exec_profiling) profiler.poll_time.start();
-                    try {
-                        nextTxn = this.queueManager.checkLockQueue(this.partitionId); // NON-BLOCKING
-                    } finally {
-                        if (hstore_conf.site.exec_profiling) profiler.poll_time.stopIfStarted();
+                    if (this.deferredUtilityWork.isEmpty() == false) {
+                        this.work_queue.addAll(this.deferredUtilityWork);
+                        this.deferredUtilityWork.clear();
+                    }
+                    
+                    // Txns from the lock queue go ahead of stale reads, unless
+                    // the stale read has been waiting too long
+                    nextWork = this.pollStaleRead(false);
+                    if (nextWork == null) {
+                        if (hstore_conf.site.exec_profiling) profiler.poll_time.start();
+                        try {
+                            nextTxn = this.queueManager.checkLockQueue(this.partitionId); // NON-BLOCKING
+                        } finally {
+                            if (hstore_conf.site.exec_profiling) profiler.poll_time.stopIfStarted();
+                        }
+                        if (nextTxn == null) nextWork = this.pollStaleRead(true);
                     }
                     
                     // If we get something back here, then it should become our current transaction.
@@ -1283,11 +1392,35 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                          txnDebug));
             }
             
+            if (this.m_ariesCheckpointer != null) this.m_ariesCheckpointer.shutdown();
+            
             // Release the shutdown latch in case anybody waiting for us
             this.shutdown_latch.release();
         }
     }
     
+    /**
+     * Return the StartTxnMessage for the next stale read txn that we can execute.
+     * This must only be called when there is no distributed txn at this partition.
+     * If force is false, then we will only return a txn that has been waiting
+     * for longer than the max stale read lag.
+     * @param force
+     * @return
+     */
+    private StartTxnMessage pollStaleRead(boolean force) {
+        LocalTransaction ts = this.staleReadQueue.peek();
+        if (ts == null) return (null);
+        if (force == false &&
+            EstTime.currentTimeMillis() - ts.getInitiateTime() < hstore_conf.site.txn_stale_reads_max_lag) {
+            return (null);
+        }
+        ts = this.staleReadQueue.poll();
+        if (debug.val)
+            LOG.debug(String.format("%s - Executing stale read at partition %d after txn #%d",
+                      ts, this.partitionId, this.lastCommittedTxnId));
+        return (ts.getStartTxnMessage());
+    }
+    
     /**
      * Special function that allows us to do some utility work while 
      * we are waiting for a response or something real to do.
@@ -1414,6 +1547,22 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                 //LOG.info(String.format("Notified ovserver at partition %d", results[0].getLong("PARTITION_ID")));
                 stats_work.getObservable().notifyObservers(results[0]);
             }
+            // ANTI-CACHE EVICTED KEY PROBE
+            else if (work instanceof AntiCacheProbeMessage) {
+                hstore_site.getAntiCacheManager().probe(this, (AntiCacheProbeMessage)work);
+            }
+            // ANTI-CACHE EVICTION SLICE
+            else if (work instanceof EvictionSliceMessage) {
+                this.evictionSlice((EvictionSliceMessage)work);
+            }
+            // ANTI-CACHE BLOCK DEMOTION
+            else if (work instanceof AntiCacheDemoteMessage) {
+                this.antiCacheDemote((AntiCacheDemoteMessage)work);
+            }
+            // ARIES CHECKPOINT
+            else if (work instanceof AriesCheckpointMessage) {
+                this.ariesCheckpoint((AriesCheckpointMessage)work);
+            }
             else {
                 // IGNORE
             }
@@ -1628,6 +1777,13 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
     public final PartitionExecutorProfiler getProfiler() {
         return profiler;
     }
+    /**
+     * Returns the QueryCache for this partition.
+     * This will be null if ${site.exec_query_cache} is disabled.
+     */
+    public final QueryCache getQueryCache() {
+        return (this.queryCache);
+    }
     
     // ----------------------------------------------------------------------------
     // VOLT PROCEDURE HELPER METHODS
@@ -1718,6 +1874,142 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         
     
     
+    /**
+     * Evict blocks for the given EvictionSliceMessage until we run out of
+     * time for this slice. If there are still blocks left to evict, then
+     * the message goes to the back of our work queue so that any txns that
+     * showed up in the meantime get to go first. We won't evict anything
+     * while there is a dtxn running at this partition.
+     * @param work
+     */
+    private void evictionSlice(EvictionSliceMessage work) {
+        if (this.currentDtxn != null) {
+            if (debug.val)
+                LOG.debug(String.format("%s - Deferring eviction at partition %d until dtxn is finished",
+                          this.currentDtxn, this.partitionId));
+            this.deferredUtilityWork.add(work);
+            return;
+        }
+        AntiCacheManager anticache = hstore_site.getAntiCacheManager();
+        long blockSize = hstore_conf.site.anticache_block_size;
+        long budget = anticache.getEvictionSliceBudget();
+        
+        // PROFILER
+        AntiCacheManagerProfiler profiler = null;
+        if (hstore_conf.site.anticache_profiling) {
+            profiler = anticache.getDebugContext().getProfiler(this.partitionId);
+            profiler.eviction_time.start();
+        }
+        work.markStarted(System.currentTimeMillis());
+        
+        long start = System.nanoTime();
+        int ctr = 0;
+        try {
+            // We always evict at least one block so that we make progress
+            // even if the EE is slower than our budget
+            do {
+                int offset = work.nextTable();
+                if (offset < 0) break;
+                Table catalog_tbl = work.getTable(offset);
+                Table child_tbl = work.getChildTable(offset);
+                VoltTable vt = null;
+                if (child_tbl != null) {
+                    vt = this.ee.antiCacheEvictBlockInBatch(catalog_tbl, child_tbl, blockSize, 1);
+                } else {
+                    vt = this.ee.antiCacheEvictBlock(catalog_tbl, blockSize, 1);
+                }
+                if (vt.advanceRow()) {
+                    work.addEvicted(offset,
+                                    vt.getLong("ANTICACHE_TUPLES_EVICTED"),
+                                    vt.getLong("ANTICACHE_BLOCKS_EVICTED"),
+                                    vt.getLong("ANTICACHE_BYTES_EVICTED"));
+                } else {
+                    work.addEvicted(offset, 0, 0, 0);
+                }
+                ctr++;
+            } while (System.nanoTime() - start < budget);
+        } catch (RuntimeException ex) {
+            LOG.error(String.format("Unexpected error when evicting blocks at partition %d", this.partitionId), ex);
+            work.cancel();
+        } finally {
+            if (profiler != null) profiler.eviction_time.stopIfStarted();
+        }
+        if (debug.val)
+            LOG.debug(String.format("Evicted %d blocks at partition %d in %.2f us [budget=%.2f us]",
+                      ctr, this.partitionId, (System.nanoTime() - start) / 1000d, budget / 1000d));
+        
+        if (work.hasRemaining()) {
+            this.queueUtilityWork(work);
+        } else {
+            if (profiler != null) {
+                EvictionHistory eh = new EvictionHistory(work.getStartTimestamp(),
+                                                         System.currentTimeMillis(),
+                                                         work.getTuplesEvicted(),
+                                                         work.getBlocksEvicted(),
+                                                         work.getBytesEvicted());
+                profiler.eviction_history.add(eh);
+            }
+            anticache.evictionSlicesFinished(this.partitionId, work);
+        }
+    }
+    
+    /**
+     * Move the blocks that were queued for promotion up to the faster levels
+     * of the anti-cache and cold blocks down to the slower levels. Like
+     * evictions, this changes where the evicted tuples point to, so we
+     * won't do it while there is a dtxn running at this partition.
+     * @param work
+     */
+    private void antiCacheDemote(AntiCacheDemoteMessage work) {
+        if (this.currentDtxn != null) {
+            if (debug.val)
+                LOG.debug(String.format("%s - Deferring anti-cache demotion at partition %d until dtxn is finished",
+                          this.currentDtxn, this.partitionId));
+            this.deferredUtilityWork.add(work);
+            return;
+        }
+        try {
+            int moved = this.ee.antiCacheDemoteBlocks();
+            if (debug.val && moved > 0)
+                LOG.debug(String.format("Migrated %d anti-cache blocks at partition %d", moved, this.partitionId));
+        } catch (RuntimeException ex) {
+            LOG.error(String.format("Unexpected error when demoting blocks at partition %d", this.partitionId), ex);
+        }
+    }
+    
+    /**
+     * Start a new ARIES checkpoint at this partition or do more work for
+     * the one that is already running. A new checkpoint can only be started
+     * when there isn't a dtxn running at this partition. Checkpoints and
+     * snapshots use the same copy-on-write streams, so we also skip this
+     * checkpoint if a snapshot is running and wait for the next one.
+     * @param work
+     */
+    private void ariesCheckpoint(AriesCheckpointMessage work) {
+        if (this.m_ariesCheckpointer == null) return;
+        if (this.m_ariesCheckpointer.isActive() == false) {
+            if (this.currentDtxn != null) {
+                if (debug.val)
+                    LOG.debug(String.format("%s - Deferring ARIES checkpoint at partition %d until dtxn is finished",
+                              this.currentDtxn, this.partitionId));
+                this.deferredUtilityWork.add(work);
+                return;
+            }
+            if (m_snapshotter != null && m_snapshotter.isActive()) {
+                if (debug.val)
+                    LOG.debug(String.format("Skipping ARIES checkpoint at partition %d because a snapshot is running",
+                              this.partitionId));
+                return;
+            }
+            if (this.m_ariesCheckpointer.start(this.ee, this.catalogContext.database, this.lastCommittedTxnId) == false) {
+                return;
+            }
+        }
+        if (this.m_ariesCheckpointer.doWork(this.ee)) {
+            this.queueUtilityWork(work);
+        }
+    }
+    
     private void updateMemoryStats(long time) {
         if (trace.val)
             LOG.trace("Updating memory stats for partition " + this.partitionId);
@@ -2230,6 +2522,16 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         if (hstore_conf.site.specexec_enable) this.specExecScheduler.interruptSearch(work);
     }
 
+    /**
+     * Tell this partition to start an ARIES checkpoint or to keep
+     * working on the one that is in progress.
+     */
+    public void queueAriesCheckpoint() {
+        if (this.m_ariesCheckpointer != null) {
+            this.queueUtilityWork(this.m_ariesCheckpointMsg);
+        }
+    }
+    
     /**
      * Add a new work message to our utility queue 
      * @param work
@@ -2309,6 +2611,15 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
             return (false);
         }
         
+        // Stale reads do not get a place in the work queue because they
+        // have to wait until there is no other txn running at this partition
+        if (ts.isStaleRead()) {
+            if (debug.val)
+                LOG.debug(String.format("%s - Queuing stale read on partition %d [queueSize=%d]",
+                          ts, this.partitionId, this.staleReadQueue.size()));
+            return (this.staleReadQueue.offer(ts));
+        }
+        
         StartTxnMessage work = ts.getStartTxnMessage();
         if (debug.val)
             LOG.debug(String.format("Queuing %s for '%s' request on partition %d " +
@@ -2503,6 +2814,9 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                 // HACK: If we are currently under DISABLED mode when we get this, then we just 
                 // need to block the transaction and return back to the queue. This is easier than 
                 // having to set all sorts of crazy locks
+                assert(ts.isStaleRead() == false) :
+                    String.format("Trying to execute stale read %s while %s is running at partition %d",
+                                  ts, this.currentDtxn, this.partitionId);
                 if (this.currentExecMode == ExecutionMode.DISABLED || hstore_conf.site.specexec_enable == false) {
                     if (debug.val)
                         LOG.debug(String.format("%s - Blocking single-partition %s until dtxn finishes [mode=%s]",
@@ -2522,6 +2836,9 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         if (hstore_conf.site.txn_profiling && ts.profiler != null) {
             ts.profiler.startExec();
         }
+        if (this.txnTracer != null) {
+            ts.setTraceTimestamp(this.txnTracer.record(ts.getTransactionId(), Phase.QUEUE, ts.getTraceTimestamp()));
+        }
         if (hstore_conf.site.exec_profiling) this.profiler.numTransactions++;
         
         // Make sure the dependency tracker knows about us
@@ -2565,6 +2882,9 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
             this.currentVoltProc = previous;
             this.finishVoltProcedure(volt_proc);
             if (hstore_conf.site.txn_profiling && ts.profiler != null) ts.profiler.startPost();
+            if (this.txnTracer != null) {
+                ts.setTraceTimestamp(this.txnTracer.record(ts.getTransactionId(), Phase.EXEC, ts.getTraceTimestamp()));
+            }
             
 //            if (cresponse.getStatus() == Status.ABORT_UNEXPECTED) {
 //                cresponse.getException().printStackTrace();
@@ -3268,6 +3588,30 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
             ts.markExecutedWork(this.partitionId);
         }
         
+        // Check whether we can get all of the results from the QueryCache without
+        // going down into the EE. We only do this for read-only batches on replicated
+        // tables where every fragment has its own results.
+        long queryCacheVersions[][] = null;
+        if (this.queryCache != null && readonly && speculative == false) {
+            queryCacheVersions = this.getQueryCacheVersions(batchSize, fragmentIds, input_depIds);
+            if (queryCacheVersions != null) {
+                VoltTable cached[] = new VoltTable[batchSize];
+                int hits = 0;
+                for (int i = 0; i < batchSize; i++) {
+                    cached[i] = this.queryCache.getGlobalResult(fragmentIds[i], this.partitionId,
+                                                                parameterSets[i], queryCacheVersions[i]);
+                    if (cached[i] == null) break;
+                    hits++;
+                } // FOR
+                if (hits == batchSize) {
+                    if (debug.val)
+                        LOG.debug(String.format("%s - Using cached results for fragments %s at partition %d",
+                                  ts, Arrays.toString(fragmentIds), this.partitionId));
+                    return (new DependencySet(Arrays.copyOf(output_depIds, batchSize), cached));
+                }
+            }
+        }
+        
         DependencySet result = null;
         boolean needs_profiling = false;
         if (ts.isExecLocal(this.partitionId)) {
@@ -3333,9 +3677,49 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
             }
         }
         // *********************************** DEBUG ***********************************
+        
+        // The fragments were read-only, so the table versions that we
+        // grabbed before executing them are still the right ones.
+        if (queryCacheVersions != null && result != null) {
+            for (int i = 0; i < batchSize; i++) {
+                for (int j = 0; j < result.depIds.length; j++) {
+                    if (result.depIds[j] == output_depIds[i]) {
+                        this.queryCache.addGlobalResult(fragmentIds[i], this.partitionId, parameterSets[i],
+                                                        queryCacheVersions[i], result.dependencies[j]);
+                        break;
+                    }
+                } // FOR
+            } // FOR
+        }
         return (result);
     }
     
+    /**
+     * Returns the current write versions of the tables read by each of the given fragments
+     * if all of their results can be stored in the QueryCache. Otherwise returns null.
+     * A fragment's results can only be cached if it is read-only, does not have any input
+     * dependencies, and only reads replicated tables whose changes are tracked by the EE.
+     * @param batchSize
+     * @param fragmentIds
+     * @param input_depIds
+     * @return
+     */
+    private long[][] getQueryCacheVersions(int batchSize, long fragmentIds[], int input_depIds[]) {
+        long versions[][] = new long[batchSize][];
+        for (int i = 0; i < batchSize; i++) {
+            if (input_depIds[i] != HStoreConstants.NULL_DEPENDENCY_ID) return (null);
+            int tableIds[] = catalogContext.getReadTableIds(Long.valueOf(fragmentIds[i]));
+            if (tableIds == null || tableIds.length == 0) return (null);
+            versions[i] = new long[tableIds.length];
+            for (int t = 0; t < tableIds.length; t++) {
+                if (catalogContext.getTableById(tableIds[t]).getIsreplicated() == false) return (null);
+                versions[i][t] = this.ee.getTableWriteVersion(tableIds[t]);
+                if (versions[i][t] < 0) return (null);
+            } // FOR
+        } // FOR
+        return (versions);
+    }
+    
     /**
      * Load a VoltTable directly into the EE at this partition.
      * <B>NOTE:</B> This should only be invoked by a system stored procedure.
@@ -3367,6 +3751,28 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                           allowELT != 0);
     }
 
+    /**
+     * Remove up to limit tuples from the given table at this partition whose
+     * partitioning column hashes to the given bucket and return them.
+     * <B>NOTE:</B> This should only be invoked by a system stored procedure.
+     * @param ts
+     * @param table
+     * @param hash
+     * @param numBuckets
+     * @param limit
+     * @return
+     */
+    public VoltTable extractTuplesByHash(AbstractTransaction ts, Table table, int hash, int numBuckets, int limit) {
+        if (debug.val)
+            LOG.debug(String.format("Extracting up to %d row(s) for hash bucket %d from %s [txnId=%d]",
+                      limit, hash, table.getName(), ts.getTransactionId()));
+        ts.markExecutedWork(this.partitionId);
+        return this.ee.extractTuplesByHash(table.getRelativeIndex(), hash, numBuckets, limit,
+                                           ts.getTransactionId(),
+                                           this.lastCommittedTxnId.longValue(),
+                                           ts.getLastUndoToken(this.partitionId));
+    }
+
     /**
      * Load a VoltTable directly into the EE at this partition.
      * <B>NOTE:</B> This should only be used for testing
@@ -3859,7 +4265,8 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         // be stuck waiting for a finish request that will never come!
         DonePartitionsNotification notify = new DonePartitionsNotification();
         LocalPrepareCallback callback = null;
-        for (int partition : estDonePartitions.values()) {
+        for (int partition = estDonePartitions.firstPartition(); partition != PartitionSet.END;
+                 partition = estDonePartitions.nextPartition(partition)) {
             // Only mark the txn done at this partition if the Estimate says we were done
             // with it after executing this batch and it's a partition that we've locked.
             if (donePartitions.contains(partition) || touchedPartitions.contains(partition) == false)
@@ -4712,7 +5119,13 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         }
         
         // We always need to do the following things regardless if we hit up the EE or not
-        if (commit) this.lastCommittedTxnId = ts.getTransactionId();
+        // A stale read is serialized right after the last txn that we committed,
+        // so it must not move the last committed txn id. Speculative txns can also
+        // finish out of order, so we never let this go backwards.
+        if (commit && (ts instanceof LocalTransaction && ((LocalTransaction)ts).isStaleRead()) == false &&
+                this.lastCommittedTxnId.compareTo(ts.getTransactionId()) < 0) {
+            this.lastCommittedTxnId = ts.getTransactionId();
+        }
         
         if (trace.val)
             LOG.trace(String.format("%s - Telling queue manager that txn is finished at partition %d",
@@ -5199,6 +5612,11 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
      * until the syncing and closing of snapshot data targets has completed.
      */
     public void initiateSnapshots(Deque<SnapshotTableTask> tasks) {
+        // A snapshot can't wait for a checkpoint to give up the copy-on-write
+        // streams, so we throw away the checkpoint and take another one later
+        if (this.m_ariesCheckpointer != null) {
+            this.m_ariesCheckpointer.cancel(ee);
+        }
         m_snapshotter.initiateSnapshots(ee, tasks);
     }
 
@@ -5362,6 +5780,9 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         public int getWorkQueueSize() {
             return (PartitionExecutor.this.work_queue.size());
         }
+        public int getStaleReadQueueSize() {
+            return (PartitionExecutor.this.staleReadQueue.size());
+        }
         public void updateMemory() {
             PartitionExecutor.this.updateMemoryStats(EstTime.currentTimeMillis());
         }
@@ -133,6 +133,16 @@ public class PartitionLockQueue extends ThrottlingQueue<AbstractTransaction> {
         return (this.lastTxnPopped);
     }
     
+    /**
+     * Return the id of the oldest transaction waiting in this queue, regardless
+     * of whether it is ready to be released yet. Returns null if the queue is empty.
+     * It is safe to call this from any thread.
+     */
+    public Long getOldestTransactionId() {
+        AbstractTransaction ts = super.peek();
+        return (ts != null ? ts.getTransactionId() : null);
+    }
+    
     // ----------------------------------------------------------------------------
     // POLL/TAKE METHODS
     // ----------------------------------------------------------------------------
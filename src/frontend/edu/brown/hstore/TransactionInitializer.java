@@ -56,6 +56,7 @@ import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.markov.EstimationThresholds;
 import edu.brown.profilers.ProfileMeasurement;
 import edu.brown.profilers.TransactionProfiler;
+import edu.brown.profilers.TransactionTracer;
 import edu.brown.utils.EventObservable;
 import edu.brown.utils.PartitionEstimator;
 import edu.brown.utils.PartitionSet;
@@ -91,6 +92,7 @@ public class TransactionInitializer {
     private final TransactionEstimator t_estimators[];
     private final TransactionIdManager txnIdManagers[];
     private final Random rng = new Random();
+    private final TransactionTracer txnTracer;
     private EstimationThresholds thresholds;
     
     /**
@@ -121,6 +123,7 @@ public class TransactionInitializer {
         this.local_partitions = hstore_site.getLocalPartitionIds();
         this.catalogContext = hstore_site.getCatalogContext();
         this.inflight_txns = hstore_site.getInflightTxns();
+        this.txnTracer = hstore_site.getTransactionTracer();
         
         this.thresholds = hstore_site.getThresholds();
         this.p_estimator = hstore_site.getPartitionEstimator();
@@ -350,6 +353,9 @@ public class TransactionInitializer {
         else if (new_ts.profiler != null) {
             new_ts.profiler.disableProfiling();
         }
+        if (this.txnTracer != null && orig_ts.isSysProc() == false) {
+            new_ts.setTraceTimestamp(TransactionTracer.getTime());
+        }
         
         Long new_txn_id = this.registerTransaction(new_ts, base_partition);
         new_ts.init(new_txn_id,
@@ -492,7 +498,7 @@ public class TransactionInitializer {
      */
     protected Long registerTransaction(AbstractTransaction ts, int base_partition) {
         TransactionIdManager idManager = this.txnIdManagers[base_partition]; 
-        Long txn_id = idManager.getNextUniqueTransactionId();
+        long txn_id = idManager.getNextUniqueTransactionId();
         
         // For some odd reason we sometimes get duplicate transaction ids from the VoltDB id generator
         // So we'll just double check to make sure that it's unique, and if not, we'll just ask for a new one
@@ -500,8 +506,8 @@ public class TransactionInitializer {
         if (dupe != null) {
             // HACK!
             this.inflight_txns.put(txn_id, dupe);
-            Long new_txn_id = idManager.getNextUniqueTransactionId();
-            if (new_txn_id.equals(txn_id)) {
+            long new_txn_id = idManager.getNextUniqueTransactionId();
+            if (new_txn_id == txn_id) {
                 String msg = "Duplicate transaction id #" + txn_id;
                 LOG.fatal("ORIG TRANSACTION:\n" + dupe);
                 LOG.fatal("NEW TRANSACTION:\n" + ts);
@@ -593,6 +599,9 @@ public class TransactionInitializer {
             boolean ret = this.setupTransactionProfiler(ts, this.isSysProc[procId]);
             if (trace.val && ret) LOG.trace("Enabling profiling for new txn " + ts);
         }
+        if (this.txnTracer != null && this.isSysProc[procId] == false) {
+            ts.setTraceTimestamp(TransactionTracer.getTime());
+        }
         
         // -------------------------------
         // SYSTEM PROCEDURES
@@ -76,7 +76,7 @@ public class RemotePrepareCallback extends PartitionCountingCallback<RemoteTrans
             // transaction is kaput at this HStoreSite.
             this.builder.clearPartitions();
             PartitionSet partitions = this.getPartitions();
-            for (int partition : partitions.values()) {
+            for (int partition = partitions.firstPartition(); partition != PartitionSet.END; partition = partitions.nextPartition(partition)) {
                 assert(this.hstore_site.isLocalPartition(partition));
                 this.builder.addPartitions(partition);
             } // FOR
@@ -57,6 +57,8 @@ import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.profilers.CommandLogWriterProfiler;
 import edu.brown.profilers.ProfileMeasurementUtil;
+import edu.brown.profilers.TransactionTracer;
+import edu.brown.profilers.TransactionTracer.Phase;
 import edu.brown.utils.ExceptionHandlingRunnable;
 import edu.brown.utils.StringUtil;
 
@@ -89,12 +91,14 @@ public class CommandLogWriter extends ExceptionHandlingRunnable implements Shutd
         protected RpcCallback<ClientResponseImpl> clientCallback;
         protected long initiateTime;
         protected int restartCounter;
+        protected long traceTimestamp;
 
         public LogEntry init(LocalTransaction ts, ClientResponseImpl cresponse) {
             this.cresponse = cresponse;
             this.clientCallback = ts.getClientCallback();
             this.initiateTime = ts.getInitiateTime();
             this.restartCounter = ts.getRestartCounter();
+            this.traceTimestamp = ts.getTraceTimestamp();
             return super.init(ts);
         }
 
@@ -105,6 +109,7 @@ public class CommandLogWriter extends ExceptionHandlingRunnable implements Shutd
             this.clientCallback = null;
             this.initiateTime = -1;
             this.restartCounter = -1;
+            this.traceTimestamp = 0;
         }
     }
 
@@ -204,6 +209,7 @@ public class CommandLogWriter extends ExceptionHandlingRunnable implements Shutd
     private CircularLogEntryBuffer entriesFlushing[];
 
     private CommandLogWriterProfiler profiler;
+    private final TransactionTracer txnTracer;
 
     /**
      * Constructor
@@ -216,6 +222,7 @@ public class CommandLogWriter extends ExceptionHandlingRunnable implements Shutd
         this.hstore_conf = hstore_site.getHStoreConf();
         this.catalogContext = hstore_site.getCatalogContext();
         this.outputFile = outputFile;
+        this.txnTracer = hstore_site.getTransactionTracer();
         this.singletonSerializer = new FastSerializer(true, true);
         // this.group_commit_size = Math.max(1,
         // hstore_conf.site.exec_command_logging_group_commit); //Group commit
@@ -520,11 +527,18 @@ public class CommandLogWriter extends ExceptionHandlingRunnable implements Shutd
                 for (int j = 0, size = buffer.size(); j < size; j++) {
                     WriterLogEntry entry = buffer.buffer[(start + j) % buffer.buffer.length];
                     if (entry.isInitialized()) {
+                        long traceTimestamp = 0;
+                        if (this.txnTracer != null) {
+                            traceTimestamp = this.txnTracer.record(entry.getTransactionId(), Phase.COMMITLOG, entry.traceTimestamp);
+                        }
                         if (this.usePostProcessor) {
                             hstore_site.responseQueue(entry.cresponse, entry.clientCallback, entry.initiateTime, entry.restartCounter);
                         } else {
                             hstore_site.responseSend(entry.cresponse, entry.clientCallback, entry.initiateTime, entry.restartCounter);
                         }
+                        if (this.txnTracer != null) {
+                            this.txnTracer.record(entry.getTransactionId(), Phase.RESPONSE, traceTimestamp);
+                        }
                     } else {
                         LOG.warn("Unexpected unintialized " + entry.getClass().getSimpleName());
                     }
@@ -456,6 +456,43 @@ public final class HStoreConf {
             experimental=true
         )
         public boolean exec_readwrite_tracking;
+        
+        @ConfigProperty(
+            description="If this parameter is enabled, then the PartitionExecutor will generate a class " +
+                        "for each stored procedure that calls its run() method directly instead of using " +
+                        "reflection. This requires that the HStoreSite runs on a JDK so that the generated " +
+                        "code can be compiled. If it cannot, then the procedures will use reflection.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean exec_generated_invokers;
+        
+        @ConfigProperty(
+            description="If this parameter is enabled, then each PartitionExecutor will cache the results " +
+                        "of read-only queries that only access replicated tables and reuse them for " +
+                        "other transactions. A cached result is discarded as soon as the ExecutionEngine " +
+                        "reports that one of the tables that it read has been modified. " +
+                        "See ${site.exec_query_cache_size} and ${site.exec_query_cache_policy}.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean exec_query_cache;
+        
+        @ConfigProperty(
+            description="The maximum amount of off-heap memory (in MB) that each PartitionExecutor's " +
+                        "query cache is allowed to use for cached results.",
+            defaultInt=16,
+            experimental=true
+        )
+        public int exec_query_cache_size;
+        
+        @ConfigProperty(
+            description="How the query cache picks which cached results to evict when it is full.",
+            defaultString="LFU",
+            experimental=true,
+            enumOptions="org.voltdb.types.QueryCacheEvictionPolicyType"
+        )
+        public String exec_query_cache_policy;
 
         // ----------------------------------------------------------------------------
         // Speculative Execution Options
@@ -678,6 +715,28 @@ public final class HStoreConf {
         )
         public String anticache_multilevel_dirs;
 
+        @ConfigProperty(
+            description="The number of times that a block of evicted tuples has to be read from a slower " +
+                        "level of a multilevel anti-cache before it is moved up to the next faster level. " +
+                        "This only applies to the tuple-merge strategy. With the block-merge strategy every " +
+                        "block is only read once, so blocks are never promoted and only " +
+                        "${site.anticache_multilevel_free_blocks} keeps room in the faster levels. " +
+                        "Set this to zero to leave blocks in the level that they were migrated to.",
+            defaultInt=2,
+            experimental=true
+        )
+        public int anticache_multilevel_promote_threshold;
+
+        @ConfigProperty(
+            description="The number of free blocks that each PartitionExecutor keeps in every level of a " +
+                        "multilevel anti-cache except the last one. The least recently used blocks are " +
+                        "moved down to the next level in between txns whenever a level has fewer free " +
+                        "blocks than this. Set this to zero to only move blocks when a level is full.",
+            defaultInt=4,
+            experimental=true
+        )
+        public int anticache_multilevel_free_blocks;
+
         @ConfigProperty(
             description="The size (in bytes) for the anti-cache's blocks on disk.",
             //defaultLong=262144, // 256kb
@@ -686,6 +745,16 @@ public final class HStoreConf {
         )
         public long anticache_block_size;
         
+        @ConfigProperty(
+            description="The codec used to compress each block of evicted tuples before it is written " +
+                        "out to the anti-cache database. Blocks that can't be made any smaller are " +
+                        "written uncompressed. The ratio for each table is reported in the TABLE statistics.",
+            defaultString="NONE",
+            experimental=true,
+            enumOptions="org.voltdb.types.AntiCacheCompressionType"
+        )
+        public String anticache_compression;
+        
         @ConfigProperty(
             description="Reset the anti-cache database directory for each partition when " +
                         "the HStoreSite is started.",
@@ -722,7 +791,28 @@ public final class HStoreConf {
                 experimental=true
         )
         public int anticache_blocks_per_eviction;
-        
+
+        @ConfigProperty(
+                description="If enabled, then the AntiCacheManager will not invoke a sysproc that evicts all of " +
+                            "a partition's blocks at once. Instead each PartitionExecutor evicts its share one " +
+                            "block at a time in short slices that are interleaved with its txns. " +
+                            "See ${site.anticache_eviction_slice_us}.",
+                defaultBoolean=false,
+                experimental=true
+        )
+        public boolean anticache_eviction_slice;
+
+        @ConfigProperty(
+                description="The base amount of time (in microseconds) that a PartitionExecutor will spend " +
+                            "evicting blocks in a single slice before it goes back to executing txns. " +
+                            "The AntiCacheManager makes the slices longer the further that the amount of " +
+                            "memory used is over ${site.anticache_threshold_mb}. A slice always evicts " +
+                            "at least one block.",
+                defaultInt=500,
+                experimental=true
+        )
+        public int anticache_eviction_slice_us;
+
         @ConfigProperty(
                 description="Policy specifying how to distribute eviction load over partitions and tables.",
                 defaultString="UNEVICTION_RATIO",
@@ -737,6 +827,27 @@ public final class HStoreConf {
         	    experimental=false
         )
         public boolean anticache_batching;
+        
+        @ConfigProperty(
+            description="Before a new single-partition transaction is queued, use the ParameterMappings " +
+                        "to figure out which primary keys in evictable tables it will access and probe " +
+                        "the EE for them. If any of them are evicted, then the AntiCacheManager will " +
+                        "read in their blocks before the transaction acquires its partition lock " +
+                        "instead of having to abort and restart it when it touches them.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean anticache_prefetch;
+        
+        @ConfigProperty(
+            description="Give each partition its own thread for reading in evicted blocks instead of " +
+                        "having a single AntiCacheManager thread serve every partition. Each thread reads in " +
+                        "all of the blocks that are requested while it was busy at once, so a block that " +
+                        "multiple transactions are waiting for is only read once.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean anticache_fetch_pool;
 
         @ConfigProperty(
                 description="Type of database for the highest level eviction",
@@ -762,6 +873,17 @@ public final class HStoreConf {
         )
         public boolean anticache_timestamps_prime;
         
+        @ConfigProperty(
+            description="How the EE records that a tuple was accessed when ${site.anticache_timestamps} " +
+                        "is enabled. TIMESTAMP writes the current time into the tuple on every access. " +
+                        "CLOCK only writes the current eviction epoch into the tuple the first time " +
+                        "that it is accessed after each eviction. Both pick their victims by sampling.",
+            defaultString="TIMESTAMP",
+            experimental=true,
+            enumOptions="org.voltdb.types.AntiCacheTrackingType"
+        )
+        public String anticache_tracking;
+        
         // ----------------------------------------------------------------------------
         // Storage MMAP Options
         // ----------------------------------------------------------------------------
@@ -797,11 +919,23 @@ public final class HStoreConf {
         public boolean storage_mmap_reset;
         
         @ConfigProperty(
-            description="Frequency with which changes are synced via msync with memory",
+            description="Frequency with which changes are synced via msync with memory. " +
+                        "Every time that this many txns have committed at a partition, the EE " +
+                        "wakes up its background thread to write out the dirty pages.",
             defaultLong=100000,
             experimental=true
         )
         public long storage_mmap_sync_frequency; 
+        
+        @ConfigProperty(
+            description="The maximum number of bytes of dirty pages in a partition's mmap files that " +
+                        "have not been written out yet. If the background thread falls behind this much, " +
+                        "then the partition will write them out itself before it commits the next txn. " +
+                        "Set this to zero to never block the partition.",
+            defaultLong=67108864, // 64MB
+            experimental=true
+        )
+        public long storage_mmap_dirty_limit;
 
         // ----------------------------------------------------------------------------
         // ARIES Physical Recovery Options
@@ -836,7 +970,18 @@ public final class HStoreConf {
                 experimental=true
         )
         public boolean aries_reset;
-        
+
+        @ConfigProperty(
+                description="How often in milliseconds each partition will write out a fuzzy checkpoint " +
+                            "of its tables so that the ARIES log before the checkpoint can be discarded. " +
+                            "Recovery then only has to load the last checkpoint and replay the log after it. " +
+                            "Set this to zero to disable checkpoints. " +
+                            "This is only used if ${site.aries} is enabled and ${site.aries_forward_only} is disabled.",
+                defaultInt=60000,
+                experimental=true
+        )
+        public int aries_checkpoint_interval;
+
         // ----------------------------------------------------------------------------
         //  Logical Recovery Options
         // ----------------------------------------------------------------------------
@@ -870,7 +1015,44 @@ public final class HStoreConf {
                 experimental=true
             )
             public int snapshot_interval;
-        
+
+        @ConfigProperty(
+                description="Compress each snapshot chunk with Snappy before it is written to disk. " +
+                            "Compressed snapshot files are marked in their header so that restore " +
+                            "can still read uncompressed files written by older versions.",
+                defaultBoolean=false,
+                experimental=true
+        )
+        public boolean snapshot_compression;
+
+        @ConfigProperty(
+                description="The number of threads used to compress and write snapshot chunks. " +
+                            "Each snapshot file is assigned to a single thread so that its chunks are " +
+                            "written in order, while different files are written in parallel.",
+                defaultInt=2,
+                experimental=true
+        )
+        public int snapshot_writer_threads;
+
+        @ConfigProperty(
+                description="Only write out the tables that have been modified since the previous " +
+                            "snapshot in the same directory. Each incremental snapshot records the " +
+                            "nonce of the snapshot that it was based on so that restore can pull any " +
+                            "unchanged tables from earlier snapshots in the chain.",
+                defaultBoolean=false,
+                experimental=true
+        )
+        public boolean snapshot_incremental;
+
+        @ConfigProperty(
+                description="The maximum number of incremental snapshots that can be taken in a row " +
+                            "before a full snapshot is forced. This bounds the number of files that " +
+                            "restore needs to walk through. Only used with ${site.snapshot_incremental}.",
+                defaultInt=10,
+                experimental=true
+        )
+        public int snapshot_incremental_chain;
+
         // ----------------------------------------------------------------------------
         // MapReduce Options
         // ----------------------------------------------------------------------------
@@ -995,6 +1177,37 @@ public final class HStoreConf {
             experimental=false
         )
         public boolean txn_profiling_dump;
+
+        @ConfigProperty(
+            description="Enable lightweight transaction lifecycle tracing. This records how long each " +
+                        "transaction spends in its init, queue, execution, two-phase commit, command log, " +
+                        "and response phases into per-thread latency histograms. Unlike ${site.txn_profiling}, " +
+                        "this is cheap enough to always leave on. The p50/p99/p999 latencies for each " +
+                        "phase can be retrieved using the @Statistics sysproc with the TXNTRACE selector.",
+            defaultBoolean=true,
+            experimental=false
+        )
+        public boolean txn_tracing;
+
+        @ConfigProperty(
+            description="The number of the most recent trace events that each thread will keep in memory " +
+                        "when ${site.txn_tracing} is enabled. These are the events that are written out " +
+                        "out by ${site.txn_tracing_dump}.",
+            defaultInt=8192,
+            experimental=false
+        )
+        public int txn_tracing_buffer_size;
+
+        @ConfigProperty(
+            description="If this is set to true, then each HStoreSite will write out the most recent " +
+                        "transaction trace events to a JSON file in the Chrome trace event format on " +
+                        "its local filesystem when it shuts down. The file can be loaded in chrome://tracing. " +
+                        "Check the site log for the output name of each file. " +
+                        "Note that the the ${site.txn_tracing} parameter must also be enabled.",
+            defaultBoolean=false,
+            experimental=false
+        )
+        public boolean txn_tracing_dump;
         
         @ConfigProperty(
             description="Enable transaction execution mode counting. This will cause the HStoreSite to keep " +
@@ -1022,6 +1235,27 @@ public final class HStoreConf {
         )
         public int txn_restart_limit;
         
+        @ConfigProperty(
+            description="If set to true, then read-only single-partition procedures that are marked " +
+                        "with allowStaleReads in their ProcInfo annotation will skip their partition's " +
+                        "lock queue and be queued directly for execution. These transactions may not " +
+                        "see the changes made by write transactions that are still waiting in the lock queue.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean txn_stale_reads;
+        
+        @ConfigProperty(
+            description="The maximum amount of time in milliseconds that a stale read transaction is " +
+                        "allowed to fall behind. If the oldest transaction waiting in the partition's lock " +
+                        "queue has been waiting longer than this, then the read-only transaction will " +
+                        "go through the lock queue like any other transaction. " +
+                        "See ${site.txn_stale_reads}.",
+            defaultInt=100,
+            experimental=true
+        )
+        public int txn_stale_reads_max_lag;
+        
         @ConfigProperty(
             description="", // TODO
             defaultInt=10,
@@ -1528,6 +1762,27 @@ public final class HStoreConf {
         )
         public int txnrate;
         
+        @ConfigProperty(
+            description="If enabled, then each client thread will submit txns on a fixed arrival schedule " +
+                        "of ${client.txnrate} txns per second, regardless of how long the previous txns " +
+                        "took to complete or whether the client was blocked on backpressure. The latency " +
+                        "of each txn is measured from the time that it was scheduled to be sent, so delayed " +
+                        "txns are not left out of the latency percentiles. " +
+                        "Note that ${client.txnrate} must be greater than zero.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean openloop;
+        
+        @ConfigProperty(
+            description="The distribution of the inter-arrival times of txns when ${client.openloop} is enabled. " +
+                        "If set to 'uniform', then txns are sent at a fixed interval. If set to 'poisson', then " +
+                        "the intervals are exponentially distributed with the same mean.",
+            defaultString="uniform",
+            experimental=true
+        )
+        public String openloop_distribution;
+        
         @ConfigProperty(
             description="", // TODO
             defaultNull=true,
@@ -1634,6 +1889,18 @@ public final class HStoreConf {
         )
         public boolean blocking_loader;
 
+        @ConfigProperty(
+            description="When this parameter is enabled, the benchmark's loaders will split each batch of " +
+                        "tuples for a partitioned table by partition before sending it to the cluster. Each " +
+                        "partition's tuples are then loaded with a separate single-partition transaction " +
+                        "(@LoadPartitionTable) so that all of the partitions can load their data in parallel. " +
+                        "Replicated tables and tables with a vertical partition are still loaded with " +
+                        "a distributed transaction.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean partitioned_loader;
+
         @ConfigProperty(
             description="The scaling factor determines how large to make the target benchmark's data set. " +
                         "A scalefactor greater than one makes the data set larger, while less than one " +
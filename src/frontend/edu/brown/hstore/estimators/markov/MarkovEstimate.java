@@ -239,7 +239,7 @@ public class MarkovEstimate implements Poolable, DynamicTransactionEstimate {
     }
     
     protected void incrementTouchedCounter(PartitionSet partitions) {
-        for (int partition : partitions) {
+        for (int partition = partitions.firstPartition(); partition != PartitionSet.END; partition = partitions.nextPartition(partition)) {
             this.touched.put(partition);
         } // FOR
     }
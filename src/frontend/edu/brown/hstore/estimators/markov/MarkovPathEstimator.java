@@ -29,6 +29,7 @@ import edu.brown.mappings.ParameterMapping;
 import edu.brown.mappings.ParameterMappingsSet;
 import edu.brown.markov.MarkovEdge;
 import edu.brown.markov.MarkovGraph;
+import edu.brown.markov.MarkovGraphSnapshot;
 import edu.brown.markov.MarkovVertex;
 import edu.brown.pools.TypedPoolableObjectFactory;
 import edu.brown.utils.CollectionUtil;
@@ -229,6 +230,21 @@ public class MarkovPathEstimator extends VertexTreeWalker<MarkovVertex, MarkovEd
 //        if (element.isAbortVertex() || element.isCommitVertex()) {
 //            return;
 //        }
+        MarkovGraph markov = (MarkovGraph)this.getGraph();
+        
+        // Use the MarkovGraph's snapshot if the current vertex is in it. We can only
+        // do this if we're not allowed to modify the graph as we go along.
+        if (this.learning_enabled == false) {
+            MarkovGraphSnapshot snapshot = markov.getSnapshot();
+            int element_idx = snapshot.indexOf(element);
+            if (element_idx != -1) {
+                this.populate_children(children, element, snapshot, element_idx);
+                return;
+            }
+            if (debug.val)
+                LOG.debug(String.format("%s is not in the snapshot for %s. Using the MarkovGraph",
+                          element, markov));
+        }
         
         // Initialize temporary data
         this.candidate_edges.clear();
@@ -238,7 +254,6 @@ public class MarkovPathEstimator extends VertexTreeWalker<MarkovVertex, MarkovEd
         if (trace.val) LOG.trace("Current Vertex: " + element);
         Statement cur_catalog_stmt = element.getCatalogItem();
         int cur_catalog_stmt_index = element.getQueryCounter();
-        MarkovGraph markov = (MarkovGraph)this.getGraph();
         
         // At our current vertex we need to gather all of our neighbors
         // and get unique Statements that we could be executing next
@@ -287,116 +302,10 @@ public class MarkovPathEstimator extends VertexTreeWalker<MarkovVertex, MarkovEd
             Integer catalog_stmt_index = cstmt.counter;
             if (debug.val) LOG.debug("Examining " + cstmt);
             
-            // Get the mapping objects (if any) for next
-            // This is the only way we can predict what partitions we will touch
-            Map<StmtParameter, SortedSet<ParameterMapping>> stmtMappings = this.allMappings.get(catalog_stmt, catalog_stmt_index);
-            if (stmtMappings == null) {
-                if (debug.val) {
-                    LOG.warn("No parameter mappings for " + catalog_stmt);
-                    if (trace.val) LOG.trace(this.allMappings.debug(catalog_stmt));
-                }
-                continue;
-            }
-            
-            // Go through the StmtParameters and map values from ProcParameters
-            StmtParameter stmt_params[] = catalog_stmt.getParameters().values();
-            Object stmt_args[] = new Object[stmt_params.length]; // this.getStatementParamsArray(catalog_stmt);
-            boolean stmt_args_set = false;
+            boolean stmt_args_set = this.calculateStatementPartitions(catalog_stmt, catalog_stmt_index);
+            if (this.isStopped()) return;
             
-            // XXX: This method may return null because it's being used for other
-            // purposes in the BatchPlanner.
-            int stmt_args_offsets[] = this.p_estimator.getStatementEstimationParameters(catalog_stmt);
-            if (stmt_args_offsets == null) {
-                stmt_args_offsets = new int[stmt_args.length];
-                for (int i = 0; i < stmt_args.length; i++)
-                    stmt_args_offsets[i] = i;
-            }
-            assert(stmt_args_offsets != null) :
-                "Unexpected null StmtParameter offsets for " + catalog_stmt.fullName();
-            for (int offset : stmt_args_offsets) {
-                StmtParameter catalog_stmt_param = stmt_params[offset];
-                assert(catalog_stmt_param != null);
-                if (trace.val)
-                    LOG.trace("Retrieving ParameterMappings for " + catalog_stmt_param.fullName());
-                
-                Collection<ParameterMapping> mappings = stmtMappings.get(catalog_stmt_param);
-                if (mappings == null || mappings.isEmpty()) {
-                    if (trace.val)
-                        LOG.trace("No parameter mappings exists for " + catalog_stmt_param.fullName());
-                    continue;
-                }
-                if (debug.val)
-                    LOG.debug("Found " + mappings.size() + " mapping(s) for " + catalog_stmt_param.fullName());
-        
-                // Special Case:
-                // If the number of possible Statements we could execute next is greater than one,
-                // then we need to prune our list by removing those Statements who have a StmtParameter
-                // that are correlated to a ProcParameter that doesn't exist (such as referencing an
-                // array element that is greater than the size of that current array)
-                // TODO: For now we are just going always pick the first mapping 
-                // that comes back. Is there any choice that we would need to make in order
-                // to have a better prediction about what the transaction might do?
-                if (debug.val && mappings.size() > 1) {
-                    LOG.warn("Multiple parameter mappings for " + catalog_stmt_param.fullName());
-                    if (trace.val) {
-                        int ctr = 0;
-                        for (ParameterMapping m : mappings) {
-                            LOG.trace("[" + (ctr++) + "] Mapping: " + m);
-                        } // FOR
-                    }
-                }
-                for (ParameterMapping m : mappings) {
-                    if (trace.val) LOG.trace("Mapping: " + m);
-                    ProcParameter catalog_proc_param = m.getProcParameter();
-                    if (catalog_proc_param.getIsarray()) {
-                        Object proc_inner_args[] = (Object[])procParams[m.getProcParameter().getIndex()];
-                        if (trace.val)
-                            LOG.trace(CatalogUtil.getDisplayName(m.getProcParameter(), true) + " is an array: " + 
-                                      Arrays.toString(proc_inner_args));
-                        
-                        // TODO: If this Mapping references an array element that is not available for this
-                        // current transaction, should we just skip this mapping or skip the entire query?
-                        if (proc_inner_args.length <= m.getProcParameterIndex()) {
-                            if (trace.val)
-                                LOG.trace("Unable to map parameters: " +
-                                          "proc_inner_args.length[" + proc_inner_args.length + "] <= " +
-                                          "c.getProcParameterIndex[" + m.getProcParameterIndex() + "]"); 
-                            continue;
-                        }
-                        stmt_args[offset] = proc_inner_args[m.getProcParameterIndex()];
-                        stmt_args_set = true;
-                        if (trace.val)
-                            LOG.trace("Mapped " + CatalogUtil.getDisplayName(m.getProcParameter()) + "[" + m.getProcParameterIndex() + "] to " +
-                                      CatalogUtil.getDisplayName(catalog_stmt_param) + " [value=" + stmt_args[offset] + "]");
-                    } else {
-                        stmt_args[offset] = procParams[m.getProcParameter().getIndex()];
-                        stmt_args_set = true;
-                        if (trace.val)
-                            LOG.trace("Mapped " + CatalogUtil.getDisplayName(m.getProcParameter()) + " to " +
-                                      CatalogUtil.getDisplayName(catalog_stmt_param) + " [value=" + stmt_args[offset] + "]"); 
-                    }
-                    break;
-                } // FOR (Mapping)
-            } // FOR (StmtParameter)
-                
-            // If we set any of the stmt_args in the previous step, then we can throw it
-            // to our good old friend the PartitionEstimator and see whether we can figure
-            // things out for this Statement
             if (stmt_args_set) {
-                if (trace.val)
-                    LOG.trace("Mapped StmtParameters: " + Arrays.toString(stmt_args));
-                this.stmt_partitions.clear();
-                try {
-                    this.p_estimator.getAllPartitions(this.stmt_partitions, catalog_stmt, stmt_args, this.base_partition);
-                } catch (Exception ex) {
-                    String msg = "Failed to calculate partitions for " + catalog_stmt + " using parameters " + Arrays.toString(stmt_args);
-                    LOG.error(msg, ex);
-                    this.stop();
-                    return;
-                }
-                if (trace.val)
-                    LOG.trace("Estimated Partitions for " + catalog_stmt + ": " + this.stmt_partitions);
-                
                 // Now for this given list of partitions, find a Vertex in our next set
                 // that has the same partitions
                 if (this.stmt_partitions.isEmpty() == false) {
@@ -549,6 +458,249 @@ public class MarkovPathEstimator extends VertexTreeWalker<MarkovVertex, MarkovEd
         }
     }
     
+    /**
+     * Same as populate_children() but it only uses the primitive arrays in the
+     * MarkovGraphSnapshot instead of walking through the MarkovGraph.
+     * Since the successors in the snapshot are sorted by their edge probability,
+     * the best candidate is always the one with the lowest offset. 
+     * @param children
+     * @param element
+     * @param snapshot
+     * @param element_idx
+     */
+    private void populate_children(Children<MarkovVertex> children, MarkovVertex element,
+                                   MarkovGraphSnapshot snapshot, int element_idx) {
+        this.past_partitions.addAll(element.getPartitions());
+        if (trace.val) LOG.trace("Current Vertex: " + element);
+        
+        final int start = snapshot.getSuccessorStart(element_idx);
+        final int end = snapshot.getSuccessorEnd(element_idx);
+        if (start == end) {
+            if (debug.val) LOG.debug("No succesors were found for " + element + ". Halting traversal");
+            return;
+        }
+        
+        int best_edge = -1;
+        int num_candidates = 0;
+        int num_statements = 0;
+        double total_probability = 0.0;
+        for (int edge = start; edge < end; edge++) {
+            int next_idx = snapshot.getSuccessor(edge);
+            
+            // COMMIT/ABORT are always candidates
+            if (snapshot.isQueryVertex(next_idx) == false) {
+                if (best_edge == -1) best_edge = edge;
+                num_candidates++;
+                total_probability += snapshot.getProbability(edge);
+                continue;
+            }
+            
+            // Skip this vertex if we have already examined another vertex for
+            // the same Statement+StatementIndex pair
+            Statement catalog_stmt = snapshot.getStatement(next_idx);
+            int catalog_stmt_index = snapshot.getQueryCounter(next_idx);
+            boolean seen = false;
+            for (int prev = start; prev < edge; prev++) {
+                int prev_idx = snapshot.getSuccessor(prev);
+                if (snapshot.isQueryVertex(prev_idx) &&
+                    snapshot.getQueryCounter(prev_idx) == catalog_stmt_index &&
+                    snapshot.getStatement(prev_idx) == catalog_stmt) {
+                    seen = true;
+                    break;
+                }
+            } // FOR
+            if (seen) continue;
+            num_statements++;
+            
+            boolean stmt_args_set = this.calculateStatementPartitions(catalog_stmt, catalog_stmt_index);
+            if (this.isStopped()) return;
+            if (stmt_args_set == false || this.stmt_partitions.isEmpty()) continue;
+            
+            // Now for this given list of partitions, find a vertex in our next set
+            // that has the same partitions. None of the vertices before this one
+            // are for the same Statement, so we can start here.
+            for (int next_edge = edge; next_edge < end; next_edge++) {
+                if (snapshot.isEqual(snapshot.getSuccessor(next_edge), catalog_stmt, this.stmt_partitions,
+                                     this.past_partitions, catalog_stmt_index, true)) {
+                    if (best_edge == -1 || next_edge < best_edge) best_edge = next_edge;
+                    num_candidates++;
+                    total_probability += snapshot.getProbability(next_edge);
+                    break;
+                }
+            } // FOR
+        } // FOR
+        
+        // If we don't have any candidate edges and the FORCE TRAVERSAL flag is set, then we'll just
+        // grab all of the edges from our current vertex
+        boolean was_forced = false;
+        if (num_candidates == 0 && this.force_traversal) {
+            if (trace.val)
+                LOG.trace("No candidate edges were found. Force travesal flag is set to true, so taking all");
+            best_edge = start;
+            num_candidates = end - start;
+            total_probability = 0.0;
+            for (int edge = start; edge < end; edge++) {
+                total_probability += snapshot.getProbability(edge);
+            } // FOR
+            was_forced = true;
+        }
+        if (num_candidates == 0) {
+            if (trace.val) LOG.trace("No matching children found. We have to stop...");
+            return;
+        }
+        
+        MarkovVertex next_vertex = snapshot.getVertex(snapshot.getSuccessor(best_edge));
+        children.addAfter(next_vertex);
+        if (was_forced) {
+            if (this.forced_vertices == null) this.forced_vertices = new HashSet<MarkovVertex>();
+            this.forced_vertices.add(next_vertex);
+        }
+        
+        // If there was only one next Statement that we could possibly execute here,
+        // and if our ParameterMappings allowed us to know exactly what path we took,
+        // then we don't need to compute the confidence based on the candidate edges.
+        // Otherwise, our confidence is based on the total sum of the probabilities for all of the
+        // edges that we could have taken in comparison to the one that we did take.
+        if (was_forced || num_statements != 1 || num_candidates != 1) {
+            this.estimate.confidence *= snapshot.getProbability(best_edge) / total_probability;
+            if (debug.val) LOG.debug("TOTAL:    " + total_probability);
+        }
+        
+        // Update our list of partitions touched by this transaction
+        MarkovPathEstimator.populateProbabilities(this.estimate, next_vertex);
+        
+        if (debug.val) {
+            LOG.debug(String.format("#%02d SELECTED: %s [confidence=%f, candidates=%d]",
+                      this.getDepth(), next_vertex, this.estimate.confidence, num_candidates));
+            LOG.debug(StringUtil.repeat("-", 150));
+        }
+    }
+    
+    /**
+     * Use the ParameterMappings to figure out the values of the given Statement's
+     * parameters from the txn's ProcParameters, and then have the PartitionEstimator
+     * compute what partitions it will touch. The partitions are stored in stmt_partitions.
+     * Returns false if we were not able to map any of the parameters or if the
+     * PartitionEstimator failed (in which case the traversal is stopped).
+     * @param catalog_stmt
+     * @param catalog_stmt_index
+     * @return
+     */
+    private boolean calculateStatementPartitions(Statement catalog_stmt, int catalog_stmt_index) {
+        // Get the mapping objects (if any) for next
+        // This is the only way we can predict what partitions we will touch
+        Map<StmtParameter, SortedSet<ParameterMapping>> stmtMappings = this.allMappings.get(catalog_stmt, catalog_stmt_index);
+        if (stmtMappings == null) {
+            if (debug.val) {
+                LOG.warn("No parameter mappings for " + catalog_stmt);
+                if (trace.val) LOG.trace(this.allMappings.debug(catalog_stmt));
+            }
+            return (false);
+        }
+        
+        // Go through the StmtParameters and map values from ProcParameters
+        StmtParameter stmt_params[] = catalog_stmt.getParameters().values();
+        Object stmt_args[] = new Object[stmt_params.length]; // this.getStatementParamsArray(catalog_stmt);
+        boolean stmt_args_set = false;
+        
+        // XXX: This method may return null because it's being used for other
+        // purposes in the BatchPlanner.
+        int stmt_args_offsets[] = this.p_estimator.getStatementEstimationParameters(catalog_stmt);
+        if (stmt_args_offsets == null) {
+            stmt_args_offsets = new int[stmt_args.length];
+            for (int i = 0; i < stmt_args.length; i++)
+                stmt_args_offsets[i] = i;
+        }
+        assert(stmt_args_offsets != null) :
+            "Unexpected null StmtParameter offsets for " + catalog_stmt.fullName();
+        for (int offset : stmt_args_offsets) {
+            StmtParameter catalog_stmt_param = stmt_params[offset];
+            assert(catalog_stmt_param != null);
+            if (trace.val)
+                LOG.trace("Retrieving ParameterMappings for " + catalog_stmt_param.fullName());
+            
+            Collection<ParameterMapping> mappings = stmtMappings.get(catalog_stmt_param);
+            if (mappings == null || mappings.isEmpty()) {
+                if (trace.val)
+                    LOG.trace("No parameter mappings exists for " + catalog_stmt_param.fullName());
+                continue;
+            }
+            if (debug.val)
+                LOG.debug("Found " + mappings.size() + " mapping(s) for " + catalog_stmt_param.fullName());
+    
+            // Special Case:
+            // If the number of possible Statements we could execute next is greater than one,
+            // then we need to prune our list by removing those Statements who have a StmtParameter
+            // that are correlated to a ProcParameter that doesn't exist (such as referencing an
+            // array element that is greater than the size of that current array)
+            // TODO: For now we are just going always pick the first mapping 
+            // that comes back. Is there any choice that we would need to make in order
+            // to have a better prediction about what the transaction might do?
+            if (debug.val && mappings.size() > 1) {
+                LOG.warn("Multiple parameter mappings for " + catalog_stmt_param.fullName());
+                if (trace.val) {
+                    int ctr = 0;
+                    for (ParameterMapping m : mappings) {
+                        LOG.trace("[" + (ctr++) + "] Mapping: " + m);
+                    } // FOR
+                }
+            }
+            for (ParameterMapping m : mappings) {
+                if (trace.val) LOG.trace("Mapping: " + m);
+                ProcParameter catalog_proc_param = m.getProcParameter();
+                if (catalog_proc_param.getIsarray()) {
+                    Object proc_inner_args[] = (Object[])procParams[m.getProcParameter().getIndex()];
+                    if (trace.val)
+                        LOG.trace(CatalogUtil.getDisplayName(m.getProcParameter(), true) + " is an array: " + 
+                                  Arrays.toString(proc_inner_args));
+                    
+                    // TODO: If this Mapping references an array element that is not available for this
+                    // current transaction, should we just skip this mapping or skip the entire query?
+                    if (proc_inner_args.length <= m.getProcParameterIndex()) {
+                        if (trace.val)
+                            LOG.trace("Unable to map parameters: " +
+                                      "proc_inner_args.length[" + proc_inner_args.length + "] <= " +
+                                      "c.getProcParameterIndex[" + m.getProcParameterIndex() + "]"); 
+                        continue;
+                    }
+                    stmt_args[offset] = proc_inner_args[m.getProcParameterIndex()];
+                    stmt_args_set = true;
+                    if (trace.val)
+                        LOG.trace("Mapped " + CatalogUtil.getDisplayName(m.getProcParameter()) + "[" + m.getProcParameterIndex() + "] to " +
+                                  CatalogUtil.getDisplayName(catalog_stmt_param) + " [value=" + stmt_args[offset] + "]");
+                } else {
+                    stmt_args[offset] = procParams[m.getProcParameter().getIndex()];
+                    stmt_args_set = true;
+                    if (trace.val)
+                        LOG.trace("Mapped " + CatalogUtil.getDisplayName(m.getProcParameter()) + " to " +
+                                  CatalogUtil.getDisplayName(catalog_stmt_param) + " [value=" + stmt_args[offset] + "]"); 
+                }
+                break;
+            } // FOR (Mapping)
+        } // FOR (StmtParameter)
+        
+        // If we set any of the stmt_args in the previous step, then we can throw it
+        // to our good old friend the PartitionEstimator and see whether we can figure
+        // things out for this Statement
+        if (stmt_args_set == false) {
+            return (false);
+        }
+        if (trace.val)
+            LOG.trace("Mapped StmtParameters: " + Arrays.toString(stmt_args));
+        this.stmt_partitions.clear();
+        try {
+            this.p_estimator.getAllPartitions(this.stmt_partitions, catalog_stmt, stmt_args, this.base_partition);
+        } catch (Exception ex) {
+            String msg = "Failed to calculate partitions for " + catalog_stmt + " using parameters " + Arrays.toString(stmt_args);
+            LOG.error(msg, ex);
+            this.stop();
+            return (false);
+        }
+        if (trace.val)
+            LOG.trace("Estimated Partitions for " + catalog_stmt + ": " + this.stmt_partitions);
+        return (true);
+    }
+    
     @Override
     protected void callback(MarkovVertex v) {
         this.estimate.path.add(v);
@@ -584,7 +736,7 @@ public class MarkovPathEstimator extends VertexTreeWalker<MarkovVertex, MarkovEd
         Statement catalog_stmt = vertex.getCatalogItem();
         PartitionSet partitions = vertex.getPartitions();
         boolean readQuery = (catalog_stmt.getQuerytype() == QueryType.SELECT.getValue());
-        for (int partition : partitions.values()) {
+        for (int partition = partitions.firstPartition(); partition != PartitionSet.END; partition = partitions.nextPartition(partition)) {
             if (estimate.isDoneProbabilitySet(partition) == false) {
                 estimate.setDoneProbability(partition, vertex.getDoneProbability(partition));
             }
@@ -77,7 +77,7 @@ public abstract class AbstractTransactionHandler<T extends GeneratedMessage, U e
             LOG.debug(String.format("Sending %s to %d partitions for %s",
                                     request.getClass().getSimpleName(),  partitions.size(), ts));
         
-        for (int partition : partitions.values()) {
+        for (int partition = partitions.firstPartition(); partition != PartitionSet.END; partition = partitions.nextPartition(partition)) {
             int dest_site_id = this.catalogContext.getSiteIdForPartitionId(partition);
 
             // Skip this HStoreSite if we're already sent it a message 
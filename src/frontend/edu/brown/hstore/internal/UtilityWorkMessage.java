@@ -5,6 +5,7 @@ import java.util.Collection;
 import org.voltdb.VoltTable;
 import org.voltdb.catalog.Table;
 
+import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.utils.EventObservable;
 
 /**
@@ -51,5 +52,158 @@ public class UtilityWorkMessage extends InternalMessage {
        }
 
    }
-    
+   
+   /**
+    * Anti-Cache Evicted Key Probe
+    * Look up primary keys that a txn is going to access before it is
+    * queued so that we can start reading in any of them that are evicted.
+    */
+   public static class AntiCacheProbeMessage extends UtilityWorkMessage {
+       
+       private final LocalTransaction ts;
+       private final Table tables[];
+       private final VoltTable keys[];
+       
+       public AntiCacheProbeMessage(LocalTransaction ts, Table tables[], VoltTable keys[]) {
+           assert(tables.length == keys.length);
+           this.ts = ts;
+           this.tables = tables;
+           this.keys = keys;
+       }
+       
+       public LocalTransaction getTransaction() {
+           return (this.ts);
+       }
+       
+       public Table[] getTables() {
+           return (this.tables);
+       }
+       
+       public VoltTable[] getKeys() {
+           return (this.keys);
+       }
+   }
+
+   /**
+    * Anti-Cache Eviction Slice
+    * The blocks that a partition still has to evict. The PartitionExecutor
+    * evicts some of them each time that it gets this message and then puts
+    * it back in its queue until there is nothing left.
+    * This is only ever modified by the PartitionExecutor's thread.
+    */
+   public static class EvictionSliceMessage extends UtilityWorkMessage {
+
+       private final Table tables[];
+       private final Table childTables[];
+       private final int remaining[];
+       private int next = 0;
+
+       private long startTimestamp = -1;
+       private long tuplesEvicted = 0;
+       private long blocksEvicted = 0;
+       private long bytesEvicted = 0;
+
+       public EvictionSliceMessage(Table tables[], Table childTables[], int numBlocks[]) {
+           assert(tables.length == childTables.length);
+           assert(tables.length == numBlocks.length);
+           this.tables = tables;
+           this.childTables = childTables;
+           this.remaining = numBlocks.clone();
+       }
+
+       /**
+        * Returns true if there are still blocks left to evict
+        */
+       public boolean hasRemaining() {
+           for (int i = 0; i < this.remaining.length; i++) {
+               if (this.remaining[i] > 0) return (true);
+           } // FOR
+           return (false);
+       }
+
+       /**
+        * Returns the offset of the next table that we should evict a block from.
+        * We go round-robin over the tables so that a slice that runs out of time
+        * doesn't leave all of the work for the last table.
+        * Returns -1 if there is nothing left to evict.
+        */
+       public int nextTable() {
+           for (int i = 0; i < this.remaining.length; i++) {
+               int offset = (this.next + i) % this.remaining.length;
+               if (this.remaining[offset] > 0) {
+                   this.next = offset + 1;
+                   return (offset);
+               }
+           } // FOR
+           return (-1);
+       }
+
+       public Table getTable(int offset) {
+           return (this.tables[offset]);
+       }
+
+       /**
+        * Returns the child table that should be evicted together with
+        * the given table. This will be null if there isn't one.
+        */
+       public Table getChildTable(int offset) {
+           return (this.childTables[offset]);
+       }
+
+       /**
+        * Record what we evicted from the table at the given offset. If the EE
+        * didn't evict anything, then the table has nothing left that can be evicted.
+        */
+       public void addEvicted(int offset, long tuples, long blocks, long bytes) {
+           this.remaining[offset] = (blocks > 0 ? this.remaining[offset] - 1 : 0);
+           this.tuplesEvicted += tuples;
+           this.blocksEvicted += blocks;
+           this.bytesEvicted += bytes;
+       }
+
+       /**
+        * Mark this eviction as not having any more work to do
+        */
+       public void cancel() {
+           for (int i = 0; i < this.remaining.length; i++) {
+               this.remaining[i] = 0;
+           } // FOR
+       }
+
+       public void markStarted(long timestamp) {
+           if (this.startTimestamp < 0) this.startTimestamp = timestamp;
+       }
+       public long getStartTimestamp() {
+           return (this.startTimestamp);
+       }
+       public long getTuplesEvicted() {
+           return (this.tuplesEvicted);
+       }
+       public long getBlocksEvicted() {
+           return (this.blocksEvicted);
+       }
+       public long getBytesEvicted() {
+           return (this.bytesEvicted);
+       }
+   }
+
+   /**
+    * Anti-Cache Block Demotion
+    * Move the least recently used blocks in the faster levels of a multilevel
+    * anti-cache down to the slower ones so that there is room for evictions
+    * and promotions.
+    */
+   public static class AntiCacheDemoteMessage extends UtilityWorkMessage {
+
+   }
+
+   /**
+    * ARIES Checkpoint
+    * Start a new checkpoint at the partition or do more work
+    * for the one that is already in progress.
+    */
+   public static class AriesCheckpointMessage extends UtilityWorkMessage {
+
+   }
+
 }
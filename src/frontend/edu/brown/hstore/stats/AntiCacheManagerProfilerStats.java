@@ -62,6 +62,8 @@ public class AntiCacheManagerProfilerStats extends StatsSource {
         assert(profiler != null);
         
         columns.add(new VoltTable.ColumnInfo("RESTARTED_TXNS", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("PREFETCHED_TXNS", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("COALESCED_BLOCKS", VoltType.INTEGER));
         for (ProfileMeasurement pm : profiler.getProfileMeasurements()) {
             String name = pm.getName().toUpperCase();
             columns.add(new VoltTable.ColumnInfo(name, VoltType.BIGINT));
@@ -78,6 +80,8 @@ public class AntiCacheManagerProfilerStats extends StatsSource {
         int offset = this.columnNameToIndex.get("PARTITION");
         rowValues[offset++] = partition;
         rowValues[offset++] = profiler.restarted_txns;
+        rowValues[offset++] = profiler.prefetched_txns;
+        rowValues[offset++] = profiler.coalesced_blocks;
         
         for (ProfileMeasurement pm : profiler.getProfileMeasurements()) {
             rowValues[offset++] = pm.getTotalThinkTime();
@@ -0,0 +1,92 @@
+package edu.brown.hstore.stats;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.StatsSource;
+import org.voltdb.SysProcSelector;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+import edu.brown.hstore.HStoreSite;
+import edu.brown.hstore.util.QueryCache;
+
+/**
+ * Hit ratio and off-heap memory usage of the global QueryCache
+ * at each of the local partitions.
+ */
+public class QueryCacheStats extends StatsSource {
+
+    private final HStoreSite hstore_site;
+
+    public QueryCacheStats(HStoreSite hstore_site) {
+        super(SysProcSelector.QUERYCACHE.name(), false);
+        this.hstore_site = hstore_site;
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        final Iterator<Integer> it = hstore_site.getLocalPartitionIds().iterator();
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+            @Override
+            public Object next() {
+                return it.next();
+            }
+            @Override
+            public void remove() {
+                it.remove();
+            }
+        };
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("PARTITION", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("POLICY", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("ENTRIES", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("BYTES_USED", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("BYTES_MAX", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("HITS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("MISSES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("HIT_RATIO", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("EVICTIONS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("INVALIDATIONS", VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        Integer partition = (Integer)rowKey;
+        QueryCache cache = hstore_site.getPartitionExecutor(partition).getQueryCache();
+        
+        int offset = columnNameToIndex.get("PARTITION");
+        rowValues[offset++] = partition;
+        if (cache != null) {
+            rowValues[offset++] = cache.getGlobalPolicy().name();
+            rowValues[offset++] = cache.getGlobalEntryCount();
+            rowValues[offset++] = cache.getGlobalBytes();
+            rowValues[offset++] = cache.getGlobalMaxBytes();
+            rowValues[offset++] = cache.getGlobalHits();
+            rowValues[offset++] = cache.getGlobalMisses();
+            rowValues[offset++] = cache.getGlobalHitRatio();
+            rowValues[offset++] = cache.getGlobalEvictions();
+            rowValues[offset++] = cache.getGlobalInvalidations();
+        } else {
+            rowValues[offset++] = null;
+            rowValues[offset++] = 0;
+            rowValues[offset++] = 0l;
+            rowValues[offset++] = 0l;
+            rowValues[offset++] = 0l;
+            rowValues[offset++] = 0l;
+            rowValues[offset++] = 0d;
+            rowValues[offset++] = 0l;
+            rowValues[offset++] = 0l;
+        }
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
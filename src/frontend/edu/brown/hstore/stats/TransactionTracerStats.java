@@ -0,0 +1,67 @@
+package edu.brown.hstore.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.voltdb.StatsSource;
+import org.voltdb.SysProcSelector;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+import edu.brown.profilers.TransactionTracer;
+import edu.brown.profilers.TransactionTracer.Phase;
+import edu.brown.statistics.LatencyHistogram;
+
+/**
+ * Latency percentiles for each phase of the transaction lifecycle
+ * that are collected by the TransactionTracer.
+ * All of the times are in nanoseconds.
+ * If tracing is disabled, then there are no rows.
+ */
+public class TransactionTracerStats extends StatsSource {
+
+    private final TransactionTracer tracer;
+
+    public TransactionTracerStats(TransactionTracer tracer) {
+        super(SysProcSelector.TXNTRACE.name(), false);
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        if (this.tracer == null) {
+            return new ArrayList<Object>().iterator();
+        }
+        return new ArrayList<Object>(Arrays.asList(Phase.values())).iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("PHASE", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("COUNT", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("AVG", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("MIN", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("P50", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("P99", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("P999", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("MAX", VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        Phase phase = (Phase)rowKey;
+        LatencyHistogram h = this.tracer.getHistogram(phase);
+        rowValues[columnNameToIndex.get("PHASE")] = phase.name();
+        rowValues[columnNameToIndex.get("COUNT")] = h.getCount();
+        rowValues[columnNameToIndex.get("AVG")] = h.getMean();
+        rowValues[columnNameToIndex.get("MIN")] = h.getMin();
+        rowValues[columnNameToIndex.get("P50")] = h.getValueAtPercentile(50);
+        rowValues[columnNameToIndex.get("P99")] = h.getValueAtPercentile(99);
+        rowValues[columnNameToIndex.get("P999")] = h.getValueAtPercentile(99.9);
+        rowValues[columnNameToIndex.get("MAX")] = h.getMax();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
@@ -129,12 +129,24 @@ public class LocalTransaction extends AbstractTransaction {
      */
     private boolean log_enabled = false;
     
+    /**
+     * If set to true, then this read-only txn skipped its base partition's
+     * lock queue. It is not part of the partition's txn id order.
+     */
+    private boolean stale_read = false;
+    
     /**
      * The timestamp (from EstTime) that our transaction showed up
      * at this HStoreSite
      */
     private long initiateTime;
     
+    /**
+     * The timestamp (from TransactionTracer) that the txn's current
+     * lifecycle phase started. Zero if the txn is not being traced.
+     */
+    private long traceTimestamp;
+    
     /**
      * This is where we will store all of the special state information for distributed txns
      */
@@ -343,6 +355,7 @@ public class LocalTransaction extends AbstractTransaction {
         this.client_callback = null;
         this.init_callback.finish();
         this.initiateTime = 0;
+        this.traceTimestamp = 0;
         this.cresponse = null;
         
         this.exec_controlCode = false;
@@ -354,6 +367,7 @@ public class LocalTransaction extends AbstractTransaction {
 
         this.anticache_table = null;
         this.log_enabled = false;
+        this.stale_read = false;
         this.needs_restart = false;
         
         if (this.profiler != null) this.profiler.finish();
@@ -647,6 +661,13 @@ public class LocalTransaction extends AbstractTransaction {
         return (this.initiateTime);
     }
     
+    public long getTraceTimestamp() {
+        return (this.traceTimestamp);
+    }
+    public void setTraceTimestamp(long timestamp) {
+        this.traceTimestamp = timestamp;
+    }
+    
     public final int getCurrentBatchSize() {
         return (this.batch_size);
     }
@@ -785,6 +806,29 @@ public class LocalTransaction extends AbstractTransaction {
         return (this.log_enabled);
     }
     
+    // ----------------------------------------------------------------------------
+    // STALE READS
+    // ----------------------------------------------------------------------------
+    
+    /**
+     * Mark this txn as a stale read that skipped its base partition's lock queue
+     */
+    public void markStaleRead() {
+        assert(this.isPredictReadOnly()) :
+            "Trying to mark non-read-only " + this + " as a stale read";
+        this.stale_read = true;
+    }
+    
+    /**
+     * Returns true if this txn is a stale read that skipped its base partition's
+     * lock queue. The PartitionExecutor serializes it right after the last txn
+     * that it committed instead of at this txn's id.
+     * @return
+     */
+    public boolean isStaleRead() {
+        return (this.stale_read);
+    }
+    
     // ----------------------------------------------------------------------------
     // MAP REDUCE
     // ----------------------------------------------------------------------------
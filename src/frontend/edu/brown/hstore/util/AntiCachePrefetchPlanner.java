@@ -0,0 +1,238 @@
+package edu.brown.hstore.util;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+import org.apache.log4j.Logger;
+import org.voltdb.CatalogContext;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.ProcParameter;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.StmtParameter;
+import org.voltdb.catalog.Table;
+
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.hstore.internal.UtilityWorkMessage.AntiCacheProbeMessage;
+import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.mappings.ParameterMapping;
+
+/**
+ * Figures out which evictable tables' primary keys a transaction will access
+ * before it starts running. We use the ParameterMappings to find the Statements
+ * whose input parameters cover all of the primary key columns of an evictable table.
+ * The values for those keys can then be taken directly from the txn's
+ * ProcParameters and probed in the EE so that the AntiCacheManager can start
+ * reading in any evicted blocks before the txn gets the partition's lock.
+ */
+public class AntiCachePrefetchPlanner {
+    private static final Logger LOG = Logger.getLogger(AntiCachePrefetchPlanner.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    /**
+     * The lookup of one table's primary key using a Procedure's input parameters.
+     */
+    protected static class KeyProbe {
+        final Table catalog_tbl;
+        final VoltTable.ColumnInfo columns[];
+        final int proc_params[];
+        final int proc_param_offsets[];
+        final boolean is_array[];
+
+        KeyProbe(Table catalog_tbl, List<Column> pkey_cols, List<ParameterMapping> mappings) {
+            this.catalog_tbl = catalog_tbl;
+            int num_cols = pkey_cols.size();
+            this.columns = new VoltTable.ColumnInfo[num_cols];
+            this.proc_params = new int[num_cols];
+            this.proc_param_offsets = new int[num_cols];
+            this.is_array = new boolean[num_cols];
+            for (int i = 0; i < num_cols; i++) {
+                Column catalog_col = pkey_cols.get(i);
+                ParameterMapping pm = mappings.get(i);
+                ProcParameter catalog_param = pm.getProcParameter();
+                this.columns[i] = new VoltTable.ColumnInfo(catalog_col.getName(),
+                                                           VoltType.get(catalog_col.getType()));
+                this.proc_params[i] = catalog_param.getIndex();
+                this.proc_param_offsets[i] = (pm.hasProcParameterIndex() ? pm.getProcParameterIndex() : -1);
+                this.is_array[i] = (catalog_param.getIsarray() && pm.hasProcParameterIndex() == false);
+            } // FOR
+        }
+
+        /**
+         * Build the VoltTable of the keys for this probe using the txn's
+         * input parameters. Array parameters without an offset produce one key
+         * for each of their elements. Returns null if the keys can't be built.
+         */
+        VoltTable getKeys(Object params[]) {
+            int num_rows = 1;
+            for (int i = 0; i < this.proc_params.length; i++) {
+                if (this.is_array[i]) {
+                    Object param = params[this.proc_params[i]];
+                    if (param == null || param.getClass().isArray() == false) return (null);
+                    num_rows = Math.max(num_rows, Array.getLength(param));
+                }
+            } // FOR
+
+            VoltTable keys = new VoltTable(this.columns);
+            Object row[] = new Object[this.columns.length];
+            for (int r = 0; r < num_rows; r++) {
+                for (int i = 0; i < this.proc_params.length; i++) {
+                    Object param = params[this.proc_params[i]];
+                    int offset = (this.is_array[i] ? r : this.proc_param_offsets[i]);
+                    if (offset >= 0) {
+                        if (param == null || param.getClass().isArray() == false) return (null);
+                        if (offset >= Array.getLength(param)) return (null);
+                        param = Array.get(param, offset);
+                    }
+                    if (param == null) return (null);
+                    row[i] = param;
+                } // FOR
+                keys.addRow(row);
+            } // FOR
+            return (keys);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(this.catalog_tbl.getName()).append("[");
+            for (int i = 0; i < this.columns.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(this.columns[i].getName()).append("=ProcParameter#").append(this.proc_params[i]);
+                if (this.proc_param_offsets[i] >= 0) sb.append("[").append(this.proc_param_offsets[i]).append("]");
+                else if (this.is_array[i]) sb.append("[*]");
+            } // FOR
+            return (sb.append("]").toString());
+        }
+    } // CLASS
+
+    /**
+     * ProcedureId -> KeyProbes
+     */
+    private final KeyProbe probes[][];
+
+    /**
+     * Constructor
+     * @param catalogContext
+     */
+    public AntiCachePrefetchPlanner(CatalogContext catalogContext) {
+        int max_id = 0;
+        for (Procedure catalog_proc : catalogContext.procedures.values()) {
+            max_id = Math.max(max_id, catalog_proc.getId());
+        } // FOR
+        this.probes = new KeyProbe[max_id + 1][];
+
+        if (catalogContext.paramMappings == null) {
+            LOG.warn("Unable to prefetch evicted blocks without a ParameterMappingSet");
+            return;
+        }
+        Collection<Table> evictable = catalogContext.getEvictableTables();
+        int probe_ctr = 0;
+        for (Procedure catalog_proc : catalogContext.procedures.values()) {
+            if (catalog_proc.getSystemproc() || catalog_proc.getMapreduce()) continue;
+            List<KeyProbe> procProbes = this.createProbes(catalogContext, catalog_proc, evictable);
+            if (procProbes.isEmpty() == false) {
+                this.probes[catalog_proc.getId()] = procProbes.toArray(new KeyProbe[procProbes.size()]);
+                probe_ctr += procProbes.size();
+                if (debug.val)
+                    LOG.debug(String.format("%s Evicted Key Probes: %s", catalog_proc.getName(), procProbes));
+            }
+        } // FOR
+        if (debug.val)
+            LOG.debug(String.format("Initialized %s with %d key probes", this.getClass().getSimpleName(), probe_ctr));
+    }
+
+    private List<KeyProbe> createProbes(CatalogContext catalogContext, Procedure catalog_proc, Collection<Table> evictable) {
+        List<KeyProbe> procProbes = new ArrayList<KeyProbe>();
+        Set<String> seen = new HashSet<String>();
+        for (Statement catalog_stmt : catalog_proc.getStatements().values()) {
+            // We only look at the first invocation of each Statement
+            Map<StmtParameter, SortedSet<ParameterMapping>> stmtMappings = catalogContext.paramMappings.get(catalog_stmt, 0);
+            if (stmtMappings == null || stmtMappings.isEmpty()) continue;
+
+            for (Table catalog_tbl : CatalogUtil.getReferencedTables(catalog_stmt)) {
+                if (evictable.contains(catalog_tbl) == false) continue;
+                List<Column> pkey_cols = new ArrayList<Column>(CatalogUtil.getPrimaryKeyColumns(catalog_tbl));
+                if (pkey_cols.isEmpty()) continue;
+
+                // Every primary key column has to be mapped to a ProcParameter
+                List<ParameterMapping> mappings = new ArrayList<ParameterMapping>();
+                for (Column catalog_col : pkey_cols) {
+                    ParameterMapping match = null;
+                    for (SortedSet<ParameterMapping> pms : stmtMappings.values()) {
+                        for (ParameterMapping pm : pms) {
+                            if (catalog_col.equals(pm.getColumn()) && pm.getProcParameter() != null) {
+                                match = pm;
+                                break;
+                            }
+                        } // FOR
+                        if (match != null) break;
+                    } // FOR
+                    if (match == null) break;
+                    mappings.add(match);
+                } // FOR
+                if (mappings.size() != pkey_cols.size()) continue;
+
+                KeyProbe probe = new KeyProbe(catalog_tbl, pkey_cols, mappings);
+                if (seen.add(probe.toString())) procProbes.add(probe);
+            } // FOR (table)
+        } // FOR (stmt)
+        return (procProbes);
+    }
+
+    /**
+     * Returns true if we know how to probe for evicted keys for the given Procedure
+     * @param catalog_proc
+     * @return
+     */
+    public boolean hasProbes(Procedure catalog_proc) {
+        int procId = catalog_proc.getId();
+        return (procId < this.probes.length && this.probes[procId] != null);
+    }
+
+    /**
+     * Create the AntiCacheProbeMessage with the primary keys that the given txn
+     * will access in evictable tables. Returns null if there is nothing to probe.
+     * @param ts
+     * @return
+     */
+    public AntiCacheProbeMessage plan(LocalTransaction ts) {
+        if (this.hasProbes(ts.getProcedure()) == false) return (null);
+        KeyProbe procProbes[] = this.probes[ts.getProcedure().getId()];
+        Object params[] = ts.getProcedureParameters().toArray();
+
+        List<Table> tables = new ArrayList<Table>();
+        List<VoltTable> keys = new ArrayList<VoltTable>();
+        for (KeyProbe probe : procProbes) {
+            VoltTable vt = null;
+            try {
+                vt = probe.getKeys(params);
+            } catch (Exception ex) {
+                // The parameters might not be the type that the column wants.
+                // We'll just let the txn find out on its own
+                if (debug.val)
+                    LOG.debug(String.format("%s - Failed to create keys for %s", ts, probe), ex);
+            }
+            if (vt == null || vt.getRowCount() == 0) continue;
+            tables.add(probe.catalog_tbl);
+            keys.add(vt);
+        } // FOR
+        if (tables.isEmpty()) return (null);
+        return (new AntiCacheProbeMessage(ts,
+                                          tables.toArray(new Table[tables.size()]),
+                                          keys.toArray(new VoltTable[keys.size()])));
+    }
+}
@@ -0,0 +1,26 @@
+package edu.brown.hstore.util;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.voltdb.VoltProcedure;
+
+/**
+ * Calls the run() method of a VoltProcedure without going through reflection.
+ * Implementations are generated for each procedure class by ProcedureInvokerGenerator.
+ * @see ProcedureInvokerGenerator
+ */
+public interface ProcedureInvoker {
+
+    /**
+     * Invoke the procedure's run() method with the given parameters.
+     * The parameters must already be compatible with the run() method's signature.
+     * Like Method.invoke(), any exception thrown by run() is wrapped in an
+     * InvocationTargetException.
+     * @param volt_proc
+     * @param params
+     * @return the value returned by run(), or null if it is void
+     * @throws InvocationTargetException
+     */
+    public Object invoke(VoltProcedure volt_proc, Object params[]) throws InvocationTargetException;
+
+}
@@ -0,0 +1,301 @@
+package edu.brown.hstore.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.log4j.Logger;
+import org.voltdb.VoltProcedure;
+import org.voltdb.catalog.Procedure;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+
+/**
+ * Generates a ProcedureInvoker class for a VoltProcedure that calls its run()
+ * method directly with the parameters cast to their declared types. This lets the
+ * JIT inline the call instead of going through Method.invoke() on every transaction.
+ * <p>
+ * The invoker's source code is generated and then compiled in memory with the
+ * system Java compiler. If there is no compiler available (e.g., we are running on
+ * a JRE) or the compilation fails, then getInvoker() will return null and the
+ * VoltProcedure will continue to use reflection.
+ */
+public abstract class ProcedureInvokerGenerator {
+    private static final Logger LOG = Logger.getLogger(ProcedureInvokerGenerator.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    public static final String CLASSNAME_SUFFIX = "$GeneratedInvoker";
+
+    /**
+     * Procedure Class -> ProcedureInvoker
+     * A null value means that we failed to generate an invoker for that class
+     * and should not try again.
+     */
+    private static final Map<Class<?>, ProcedureInvoker> CACHE = new HashMap<Class<?>, ProcedureInvoker>();
+
+    /**
+     * Returns the ProcedureInvoker for the given Procedure, or null if one could not be generated.
+     * Invokers are only generated for regular Java stored procedures. System procedures
+     * and map/reduce procedures always use reflection.
+     * @param catalog_proc
+     * @param proc_class
+     * @return
+     */
+    public static ProcedureInvoker getInvoker(Procedure catalog_proc, Class<? extends VoltProcedure> proc_class) {
+        if (catalog_proc.getHasjava() == false ||
+            catalog_proc.getSystemproc() ||
+            catalog_proc.getMapreduce()) {
+            return (null);
+        }
+        return (getInvoker(proc_class));
+    }
+
+    /**
+     * Returns the ProcedureInvoker for the given VoltProcedure class, or null if one could not be generated.
+     * @param proc_class
+     * @return
+     */
+    public static synchronized ProcedureInvoker getInvoker(Class<? extends VoltProcedure> proc_class) {
+        if (CACHE.containsKey(proc_class)) {
+            return (CACHE.get(proc_class));
+        }
+        ProcedureInvoker invoker = null;
+        try {
+            invoker = generate(proc_class);
+        } catch (Throwable ex) {
+            LOG.warn(String.format("Failed to generate %s for %s. Falling back to reflection",
+                     ProcedureInvoker.class.getSimpleName(), proc_class.getName()), ex);
+        }
+        CACHE.put(proc_class, invoker);
+        return (invoker);
+    }
+
+    /**
+     * Returns the public run() method for the given procedure class.
+     * This uses the same rules as VoltProcedure.init().
+     * @param proc_class
+     * @return
+     */
+    protected static Method getRunMethod(Class<?> proc_class) {
+        Method run = null;
+        for (Method m : proc_class.getMethods()) {
+            if (m.getName().equals("run")) {
+                run = m;
+                break;
+            }
+        } // FOR
+        return (run);
+    }
+
+    private static ProcedureInvoker generate(Class<? extends VoltProcedure> proc_class) throws Exception {
+        Method run = getRunMethod(proc_class);
+        if (run == null) {
+            LOG.warn("Unable to find run() method in " + proc_class.getName());
+            return (null);
+        }
+        if (Modifier.isPublic(proc_class.getModifiers()) == false || proc_class.getCanonicalName() == null) {
+            if (debug.val)
+                LOG.debug(String.format("Unable to generate invoker for non-public class %s", proc_class.getName()));
+            return (null);
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            LOG.warn(String.format("No Java compiler is available. Unable to generate %s for %s",
+                     ProcedureInvoker.class.getSimpleName(), proc_class.getName()));
+            return (null);
+        }
+
+        String packageName = (proc_class.getPackage() != null ? proc_class.getPackage().getName() : "");
+        String simpleName = proc_class.getName().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        simpleName = simpleName.replace('$', '_') + CLASSNAME_SUFFIX;
+        String className = (packageName.isEmpty() ? "" : packageName + ".") + simpleName;
+        String source = generateSource(packageName, simpleName, proc_class, run);
+        if (trace.val)
+            LOG.trace(String.format("Generated source for %s:\n%s", className, source));
+
+        byte bytes[] = compile(compiler, className, source);
+        if (bytes == null) return (null);
+
+        InvokerClassLoader loader = new InvokerClassLoader(proc_class.getClassLoader());
+        Class<?> invoker_class = loader.define(className, bytes);
+        ProcedureInvoker invoker = (ProcedureInvoker)invoker_class.newInstance();
+        if (debug.val)
+            LOG.debug(String.format("Generated %s for %s", invoker_class.getName(), proc_class.getName()));
+        return (invoker);
+    }
+
+    /**
+     * Generate the source code for the ProcedureInvoker implementation of the given procedure.
+     * @param packageName
+     * @param simpleName
+     * @param proc_class
+     * @param run
+     * @return
+     */
+    protected static String generateSource(String packageName, String simpleName, Class<?> proc_class, Method run) {
+        Class<?> paramTypes[] = run.getParameterTypes();
+        Class<?> returnType = run.getReturnType();
+
+        StringBuilder sb = new StringBuilder();
+        if (packageName.isEmpty() == false) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("public final class ").append(simpleName)
+          .append(" implements ").append(ProcedureInvoker.class.getCanonicalName()).append(" {\n")
+          .append("    public Object invoke(").append(VoltProcedure.class.getCanonicalName())
+          .append(" volt_proc, Object params[]) throws java.lang.reflect.InvocationTargetException {\n")
+          .append("        ").append(proc_class.getCanonicalName()).append(" proc = (")
+          .append(proc_class.getCanonicalName()).append(")volt_proc;\n")
+          .append("        try {\n")
+          .append("            ");
+        if (returnType == void.class) {
+            sb.append("proc.run(");
+        } else {
+            sb.append("return (proc.run(");
+        }
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (i > 0) sb.append(",\n                     ");
+            sb.append(convertParameter(paramTypes[i], "params[" + i + "]"));
+        } // FOR
+        if (returnType == void.class) {
+            sb.append(");\n")
+              .append("            return (null);\n");
+        } else {
+            sb.append("));\n");
+        }
+        sb.append("        } catch (Throwable ex) {\n")
+          .append("            throw new java.lang.reflect.InvocationTargetException(ex);\n")
+          .append("        }\n")
+          .append("    }\n")
+          .append("}\n");
+        return (sb.toString());
+    }
+
+    /**
+     * Return the expression that converts the Object in the parameter array into the
+     * given type. This assumes that VoltProcedure has already made the parameter
+     * compatible with the run() method, so the primitive integer types can be
+     * any integer Number.
+     * @param type
+     * @param expr
+     * @return
+     */
+    private static String convertParameter(Class<?> type, String expr) {
+        if (type == long.class) return ("((Number)" + expr + ").longValue()");
+        if (type == int.class) return ("((Number)" + expr + ").intValue()");
+        if (type == short.class) return ("((Number)" + expr + ").shortValue()");
+        if (type == byte.class) return ("((Number)" + expr + ").byteValue()");
+        if (type == double.class) return ("((Number)" + expr + ").doubleValue()");
+        if (type == float.class) return ("((Number)" + expr + ").floatValue()");
+        if (type == boolean.class) return ("((Boolean)" + expr + ").booleanValue()");
+        if (type == char.class) return ("((Character)" + expr + ").charValue()");
+        return ("(" + type.getCanonicalName() + ")" + expr);
+    }
+
+    /**
+     * Compile the given source code in memory and return the bytes of the class file.
+     * Returns null if the compilation fails.
+     */
+    private static byte[] compile(JavaCompiler compiler, String className, String source) throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager std = compiler.getStandardFileManager(diagnostics, null, null);
+        MemoryFileManager fileManager = new MemoryFileManager(std);
+        try {
+            JavaFileObject sourceFile = new SourceFile(className, source);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-classpath", System.getProperty("java.class.path"), "-g:none"),
+                    null, Arrays.asList(sourceFile));
+            if (task.call() == false) {
+                StringBuilder sb = new StringBuilder();
+                for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                    sb.append(d.getMessage(null)).append("\n");
+                } // FOR
+                LOG.warn(String.format("Failed to compile %s:\n%s", className, sb));
+                return (null);
+            }
+        } finally {
+            fileManager.close();
+        }
+        return (fileManager.getBytes());
+    }
+
+    // ----------------------------------------------------------------------------
+    // COMPILER HELPERS
+    // ----------------------------------------------------------------------------
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return (this.source);
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ClassFile(String className) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+        @Override
+        public OutputStream openOutputStream() {
+            return (this.out);
+        }
+    }
+
+    /**
+     * Keeps the compiled class file in memory instead of writing it to disk
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        private ClassFile output;
+
+        MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            this.output = new ClassFile(className);
+            return (this.output);
+        }
+        byte[] getBytes() {
+            return (this.output != null ? this.output.out.toByteArray() : null);
+        }
+    }
+
+    private static class InvokerClassLoader extends ClassLoader {
+        InvokerClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+        Class<?> define(String className, byte bytes[]) {
+            return (this.defineClass(className, bytes, 0, bytes.length));
+        }
+    }
+}
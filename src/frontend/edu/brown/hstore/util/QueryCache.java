@@ -1,16 +1,23 @@
 package edu.brown.hstore.util;
 
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 import org.apache.commons.pool.BasePoolableObjectFactory;
 import org.apache.log4j.Logger;
 import org.voltdb.ParameterSet;
 import org.voltdb.VoltTable;
+import org.voltdb.types.QueryCacheEvictionPolicyType;
+import org.voltdb.utils.DBBPool;
+import org.voltdb.utils.DBBPool.BBContainer;
 import org.voltdb.utils.EstTime;
 
 import edu.brown.logging.LoggerUtil;
@@ -18,6 +25,20 @@ import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.pools.FastObjectPool;
 import edu.brown.utils.StringUtil;
 
+/**
+ * Cache for query results at a single PartitionExecutor.
+ * There are two separate caches:
+ * <ol>
+ *  <li><b>Transaction Cache:</b> Results that are only available to the transaction that
+ *      stored them (e.g., prefetched queries). These are kept on the heap in a fixed-size
+ *      circular buffer and are purged when the transaction finishes.</li>
+ *  <li><b>Global Cache:</b> Results of read-only queries that can be shared across
+ *      transactions. These are serialized into off-heap buffers from a DBBPool and the
+ *      total size of the cache is bounded by a byte budget. Every entry records the write
+ *      versions of the tables that the query read when it was stored. An entry is only
+ *      returned if all of those tables still have the same versions.</li>
+ * </ol>
+ */
 public class QueryCache {
     private static final Logger LOG = Logger.getLogger(QueryCache.class);
     private static final LoggerBoolean debug = new LoggerBoolean();
@@ -114,6 +135,101 @@ public class QueryCache {
         }
     } // CLASS
     
+    /**
+     * Key for the global cache.
+     */
+    private static class GlobalCacheKey {
+        long fragmentId;
+        int partitionId;
+        int paramsHash;
+        
+        GlobalCacheKey() {
+            // Nothing to do...
+        }
+        
+        GlobalCacheKey(long fragmentId, int partitionId, int paramsHash) {
+            this.set(fragmentId, partitionId, paramsHash);
+        }
+        
+        GlobalCacheKey set(long fragmentId, int partitionId, int paramsHash) {
+            this.fragmentId = fragmentId;
+            this.partitionId = partitionId;
+            this.paramsHash = paramsHash;
+            return (this);
+        }
+        
+        @Override
+        public int hashCode() {
+            int result = (int)(this.fragmentId ^ (this.fragmentId >>> 32));
+            result = 31 * result + this.partitionId;
+            result = 31 * result + this.paramsHash;
+            return (result);
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return (true);
+            if ((obj instanceof GlobalCacheKey) == false) return (false);
+            GlobalCacheKey other = (GlobalCacheKey)obj;
+            return (this.fragmentId == other.fragmentId &&
+                    this.partitionId == other.partitionId &&
+                    this.paramsHash == other.paramsHash);
+        }
+    } // CLASS
+    
+    /**
+     * A query result in the global cache.
+     * The serialized VoltTable is stored in an off-heap buffer.
+     */
+    private static class GlobalCacheEntry {
+        final GlobalCacheKey key;
+        final Object params[];
+        final long tableVersions[];
+        final BBContainer buffer;
+        final int size;
+        int accessCounter = 0;
+        long accessTick;
+        
+        GlobalCacheEntry(GlobalCacheKey key, Object params[], long tableVersions[], BBContainer buffer, int size) {
+            this.key = key;
+            this.params = params;
+            this.tableVersions = tableVersions;
+            this.buffer = buffer;
+            this.size = size;
+        }
+        
+        /**
+         * The number of off-heap bytes that this entry is holding on to
+         */
+        int getMemorySize() {
+            return (this.buffer.b.capacity());
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("{FragmentId:%d, Partition:%d, Size:%d, Accesses:%d}",
+                                 this.key.fragmentId, this.key.partitionId,
+                                 this.size, this.accessCounter);
+        }
+    } // CLASS
+    
+    private static final Comparator<GlobalCacheEntry> LRU_COMPARATOR = new Comparator<GlobalCacheEntry>() {
+        @Override
+        public int compare(GlobalCacheEntry e0, GlobalCacheEntry e1) {
+            return (e0.accessTick < e1.accessTick ? -1 : (e0.accessTick == e1.accessTick ? 0 : 1));
+        }
+    };
+    
+    private static final Comparator<GlobalCacheEntry> LFU_COMPARATOR = new Comparator<GlobalCacheEntry>() {
+        @Override
+        public int compare(GlobalCacheEntry e0, GlobalCacheEntry e1) {
+            if (e0.accessCounter != e1.accessCounter) {
+                return (e0.accessCounter < e1.accessCounter ? -1 : 1);
+            }
+            return (LRU_COMPARATOR.compare(e0, e1));
+        }
+    };
+    
     /**
      * List<Integer> pool used by txnCache
      * TODO: Switch to a better object pool
@@ -135,7 +251,6 @@ public class QueryCache {
     // INITIALIZATION
     // ----------------------------------------------------------------------------
 
-    private final Cache globalCache;
     private final Cache txnCache;
     
     /**
@@ -143,12 +258,44 @@ public class QueryCache {
      */
     private final Map<Long, List<Integer>> txnCacheXref = new HashMap<Long, List<Integer>>();
     
+    /**
+     * Off-heap buffers for the global cache's entries
+     */
+    private final DBBPool globalPool = new DBBPool(false, false);
+    private final Map<GlobalCacheKey, GlobalCacheEntry> globalCache = new HashMap<GlobalCacheKey, GlobalCacheEntry>();
+    
+    /**
+     * The global cache's entries ordered by which one should be evicted first
+     */
+    private final TreeSet<GlobalCacheEntry> globalEvictionOrder;
+    private final GlobalCacheKey globalProbeKey = new GlobalCacheKey();
+    private final QueryCacheEvictionPolicyType globalPolicy;
+    private final long globalMaxBytes;
+    private final int globalMaxEntryBytes;
+    private long globalBytes = 0;
+    private long globalTick = 0;
+    
+    // Global Cache Counters
+    private long globalHits = 0;
+    private long globalMisses = 0;
+    private long globalEvictions = 0;
+    private long globalInvalidations = 0;
+    
     /**
      * Constructor
+     * @param txnBufferSize The number of entries in the transaction cache
+     * @param globalMaxBytes The maximum number of off-heap bytes used by the global cache
+     * @param globalPolicy How to pick entries to evict from the global cache
      */
-    public QueryCache(int globalBufferSize, int txnBufferSize) {
-        this.globalCache = new Cache(globalBufferSize);
+    public QueryCache(int txnBufferSize, long globalMaxBytes, QueryCacheEvictionPolicyType globalPolicy) {
         this.txnCache = new Cache(txnBufferSize);
+        this.globalMaxBytes = globalMaxBytes;
+        this.globalPolicy = globalPolicy;
+        this.globalEvictionOrder = new TreeSet<GlobalCacheEntry>(globalPolicy == QueryCacheEvictionPolicyType.LRU ?
+                                                                     LRU_COMPARATOR : LFU_COMPARATOR);
+        // Don't let a single result take up more than a quarter of the cache
+        // or more than what the DBBPool will give us off-heap
+        this.globalMaxEntryBytes = (int)Math.min(DBBPool.MAX_ALLOCATION_SIZE, globalMaxBytes / 4);
     }
     
     
@@ -157,8 +304,120 @@ public class QueryCache {
     // ----------------------------------------------------------------------------
 
     
-    public void addGlobalQueryResult(int fragmentId, ParameterSet params, VoltTable result) {
+    /**
+     * Store the result of a read-only query so that it is available to other transactions.
+     * The given table versions must be the current write versions of the tables that the
+     * query read, in the same order that will be used when retrieving the result.
+     * The result is copied, so the caller is free to modify it afterwards.
+     * Returns true if the result was stored in the cache.
+     * @param fragmentId
+     * @param partitionId
+     * @param params
+     * @param tableVersions
+     * @param result
+     * @return
+     */
+    public boolean addGlobalResult(long fragmentId, int partitionId, ParameterSet params, long tableVersions[], VoltTable result) {
+        int size = result.getUnderlyingBufferSize();
+        if (size > this.globalMaxEntryBytes) {
+            if (trace.val)
+                LOG.trace(String.format("Not caching result for FragmentId %d at partition %d [size=%d, max=%d]",
+                          fragmentId, partitionId, size, this.globalMaxEntryBytes));
+            return (false);
+        }
+        
+        GlobalCacheKey key = new GlobalCacheKey(fragmentId, partitionId, params.hashCode());
+        GlobalCacheEntry entry = this.globalCache.get(key);
+        if (entry != null) this.removeGlobalEntry(entry);
+        
+        BBContainer buffer = this.globalPool.acquire(size);
+        ByteBuffer src = result.getTableDataReference();
+        src.limit(size);
+        buffer.b.clear();
+        buffer.b.put(src);
+        entry = new GlobalCacheEntry(key, params.toArray().clone(), tableVersions.clone(), buffer, size);
+        
+        // Make room for the new entry
+        while (this.globalBytes + entry.getMemorySize() > this.globalMaxBytes && this.globalEvictionOrder.isEmpty() == false) {
+            GlobalCacheEntry victim = this.globalEvictionOrder.first();
+            if (trace.val) LOG.trace("Evicting global cache entry " + victim);
+            this.removeGlobalEntry(victim);
+            this.globalEvictions++;
+        } // WHILE
+        
+        entry.accessTick = this.globalTick++;
+        this.globalCache.put(key, entry);
+        this.globalEvictionOrder.add(entry);
+        this.globalBytes += entry.getMemorySize();
+        if (debug.val)
+            LOG.debug(String.format("Stored global cache entry %s [totalBytes=%d]", entry, this.globalBytes));
+        return (true);
+    }
+    
+    /**
+     * Retrieve a cached result for a read-only query that was stored by any transaction.
+     * Returns null if there is no entry or if any of the tables that the query read
+     * have a different write version than when the result was stored.
+     * The returned VoltTable is a new copy on the heap.
+     * This assumes that we only have own thread accessing the cache
+     * @param fragmentId
+     * @param partitionId
+     * @param params
+     * @param tableVersions
+     * @return
+     */
+    public VoltTable getGlobalResult(long fragmentId, int partitionId, ParameterSet params, long tableVersions[]) {
+        GlobalCacheEntry entry = this.globalCache.get(this.globalProbeKey.set(fragmentId, partitionId, params.hashCode()));
+        if (entry == null) {
+            this.globalMisses++;
+            return (null);
+        }
+        // Somebody modified one of the tables since we stored this result,
+        // so we know that this entry will never be valid again
+        if (Arrays.equals(entry.tableVersions, tableVersions) == false) {
+            if (debug.val) LOG.debug("Invalidating global cache entry " + entry);
+            this.removeGlobalEntry(entry);
+            this.globalInvalidations++;
+            this.globalMisses++;
+            return (null);
+        }
+        // Make sure that it's not a hash collision
+        if (Arrays.deepEquals(entry.params, params.toArray()) == false) {
+            this.globalMisses++;
+            return (null);
+        }
+        
+        this.globalEvictionOrder.remove(entry);
+        entry.accessCounter++;
+        entry.accessTick = this.globalTick++;
+        this.globalEvictionOrder.add(entry);
+        this.globalHits++;
         
+        ByteBuffer src = entry.buffer.b.duplicate();
+        src.position(0);
+        src.limit(entry.size);
+        ByteBuffer copy = ByteBuffer.allocate(entry.size);
+        copy.put(src);
+        return (new VoltTable(copy, false));
+    }
+    
+    private void removeGlobalEntry(GlobalCacheEntry entry) {
+        this.globalCache.remove(entry.key);
+        this.globalEvictionOrder.remove(entry);
+        this.globalBytes -= entry.getMemorySize();
+        entry.buffer.discard();
+    }
+    
+    /**
+     * Remove all of the entries from the global cache and release their buffers.
+     */
+    public void clearGlobalCache() {
+        for (GlobalCacheEntry entry : this.globalCache.values()) {
+            entry.buffer.discard();
+        } // FOR
+        this.globalCache.clear();
+        this.globalEvictionOrder.clear();
+        this.globalBytes = 0;
     }
     
     /**
@@ -273,6 +532,42 @@ public class QueryCache {
     }
 
 
+    // ----------------------------------------------------------------------------
+    // STATISTICS
+    // ----------------------------------------------------------------------------
+    
+    public QueryCacheEvictionPolicyType getGlobalPolicy() {
+        return (this.globalPolicy);
+    }
+    public int getGlobalEntryCount() {
+        return (this.globalCache.size());
+    }
+    public long getGlobalBytes() {
+        return (this.globalBytes);
+    }
+    public long getGlobalMaxBytes() {
+        return (this.globalMaxBytes);
+    }
+    public long getGlobalHits() {
+        return (this.globalHits);
+    }
+    public long getGlobalMisses() {
+        return (this.globalMisses);
+    }
+    public long getGlobalEvictions() {
+        return (this.globalEvictions);
+    }
+    public long getGlobalInvalidations() {
+        return (this.globalInvalidations);
+    }
+    /**
+     * Returns the fraction of global cache lookups that were hits
+     */
+    public double getGlobalHitRatio() {
+        long total = this.globalHits + this.globalMisses;
+        return (total > 0 ? this.globalHits / (double)total : 0d);
+    }
+
     // ----------------------------------------------------------------------------
     // UTILITY CODE
     // ----------------------------------------------------------------------------
@@ -285,7 +580,12 @@ public class QueryCache {
         
         // Global Cache
         m[idx] = new LinkedHashMap<String, Object>();
-        m[idx].put("Global Cache", null);
+        m[idx].put("Global Cache", String.format("%d entries / %d bytes [max=%d, policy=%s]",
+                                                 this.globalCache.size(), this.globalBytes,
+                                                 this.globalMaxBytes, this.globalPolicy));
+        m[idx].put("Global Hit Ratio", String.format("%.3f", this.getGlobalHitRatio()));
+        m[idx].put("Global Evictions", this.globalEvictions);
+        m[idx].put("Global Invalidations", this.globalInvalidations);
         
         // TxnCache
         m[++idx] = new LinkedHashMap<String, Object>();
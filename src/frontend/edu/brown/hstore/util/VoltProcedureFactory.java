@@ -25,6 +25,7 @@ public class VoltProcedureFactory extends TypedPoolableObjectFactory<VoltProcedu
     private final Procedure catalog_proc;
     private final boolean has_java;
     private final Class<? extends VoltProcedure> proc_class;
+    private final ProcedureInvoker invoker;
     
     @SuppressWarnings("unchecked")
     public VoltProcedureFactory(PartitionExecutor executor, Procedure catalog_proc) {
@@ -45,7 +46,12 @@ public class VoltProcedureFactory extends TypedPoolableObjectFactory<VoltProcedu
             }
         }
         this.proc_class = p_class;
-
+        
+        if (p_class != null && executor.getHStoreConf().site.exec_generated_invokers) {
+            this.invoker = ProcedureInvokerGenerator.getInvoker(catalog_proc, p_class);
+        } else {
+            this.invoker = null;
+        }
     }
     @Override
     public VoltProcedure makeObjectImpl() throws Exception {
@@ -59,6 +65,7 @@ public class VoltProcedureFactory extends TypedPoolableObjectFactory<VoltProcedu
             volt_proc.init(this.executor,
                            this.catalog_proc,
                            this.executor.getBackendTarget());
+            if (this.invoker != null) volt_proc.setProcedureInvoker(this.invoker);
         } catch (Exception e) {
             LOG.error("Failed to created VoltProcedure instance for " + catalog_proc.getName() , e);
             throw e;
@@ -1,15 +1,20 @@
 package edu.brown.markov;
 
+import java.io.IOException;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 import org.voltdb.catalog.Database;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
 
 import edu.brown.graphs.AbstractEdge;
 import edu.brown.graphs.AbstractGraphElement;
 import edu.brown.graphs.IGraph;
 import edu.brown.graphs.exceptions.InvalidGraphElementException;
 import edu.brown.utils.MathUtil;
+import edu.uci.ics.jung.graph.util.EdgeType;
 
 
 /**
@@ -176,6 +181,43 @@ public class MarkovEdge extends AbstractEdge implements MarkovHitTrackable {
     // SERIALIZATION METHODS
     // ----------------------------------------------------------------------------
 
+    /**
+     * Write out this edge in the compact binary format used by MarkovGraph.writeBinary()
+     * @param fs
+     * @param v0 the source vertex
+     * @param v1 the destination vertex
+     * @throws IOException
+     */
+    public void writeBinary(FastSerializer fs, MarkovVertex v0, MarkovVertex v1) throws IOException {
+        fs.writeLong(this.getElementId());
+        fs.writeLong(v0.getElementId());
+        fs.writeLong(v1.getElementId());
+        fs.writeFloat(this.probability);
+        fs.writeInt(this.totalhits);
+        fs.writeInt(this.instancehits);
+    }
+    
+    /**
+     * Read in this edge from the compact binary format and add it to the given graph.
+     * All of the edge's vertices must already be in the graph.
+     * @param fds
+     * @param markov
+     * @throws IOException
+     */
+    public void readBinary(FastDeserializer fds, MarkovGraph markov) throws IOException {
+        this.setElementId(fds.readLong());
+        long v0_elementId = fds.readLong();
+        MarkovVertex v0 = markov.getVertex(v0_elementId);
+        assert(v0 != null) : "Invalid vertex element id '" + v0_elementId + "' (0)";
+        long v1_elementId = fds.readLong();
+        MarkovVertex v1 = markov.getVertex(v1_elementId);
+        assert(v1 != null) : "Invalid vertex element id '" + v1_elementId + "' (1)";
+        this.probability = fds.readFloat();
+        this.totalhits = fds.readInt();
+        this.instancehits = fds.readInt();
+        markov.addEdge(this, v0, v1, EdgeType.DIRECTED);
+    }
+    
     public void toJSONStringImpl(JSONStringer stringer) throws JSONException {
         super.toJSONStringImpl(stringer);
         super.fieldsToJSONString(stringer, MarkovEdge.class, Members.values());
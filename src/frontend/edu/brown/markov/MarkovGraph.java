@@ -1,6 +1,7 @@
 package edu.brown.markov;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -17,6 +18,8 @@ import org.json.JSONStringer;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Statement;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
 
 import edu.brown.graphs.AbstractDirectedGraph;
 import edu.brown.graphs.AbstractGraphElement;
@@ -159,6 +162,12 @@ public class MarkovGraph extends AbstractDirectedGraph<MarkovVertex, MarkovEdge>
     private transient final Map<Statement, Collection<MarkovVertex>> cache_stmtVertices = new HashMap<Statement, Collection<MarkovVertex>>();
     private transient final Map<MarkovVertex, Collection<MarkovVertex>> cache_getSuccessors = new ConcurrentHashMap<MarkovVertex, Collection<MarkovVertex>>();
     
+    /**
+     * Array-based copy of this graph that is used for on-line estimation.
+     * This is rebuilt every time that we recompute the probabilities.
+     */
+    private transient volatile MarkovGraphSnapshot snapshot = null;
+    
     public void buildCache() {
         for (Statement catalog_stmt : this.catalog_proc.getStatements().values()) {
             if (this.cache_stmtVertices.containsKey(catalog_stmt) == false)
@@ -320,6 +329,27 @@ public class MarkovGraph extends AbstractDirectedGraph<MarkovVertex, MarkovEdge>
         return null;
     }
     
+    /**
+     * Return the MarkovGraphSnapshot for this graph. The snapshot will be created
+     * the first time that this is invoked and then rebuilt whenever
+     * calculateProbabilities() is invoked.
+     * Note that the snapshot will not include any vertices or edges that were added to
+     * this graph after it was created. 
+     * @return
+     */
+    public MarkovGraphSnapshot getSnapshot() {
+        MarkovGraphSnapshot ret = this.snapshot;
+        if (ret == null) {
+            synchronized (this) {
+                ret = this.snapshot;
+                if (ret == null) {
+                    ret = this.snapshot = new MarkovGraphSnapshot(this);
+                }
+            } // SYNCH
+        }
+        return (ret);
+    }
+    
     @Override
     public Collection<MarkovVertex> getSuccessors(MarkovVertex vertex) {
         Collection<MarkovVertex> successors = this.cache_getSuccessors.get(vertex);
@@ -365,6 +395,11 @@ public class MarkovGraph extends AbstractDirectedGraph<MarkovVertex, MarkovEdge>
         // Then traverse the graph and calculate the vertex probability tables
         this.calculateVertexProbabilities(partitions);
         
+        // Rebuild the snapshot so that the estimators use the new probabilities
+        synchronized (this) {
+            this.snapshot = new MarkovGraphSnapshot(this);
+        } // SYNCH
+        
         this.recompute_count++;
     }
 
@@ -662,6 +697,58 @@ public class MarkovGraph extends AbstractDirectedGraph<MarkovVertex, MarkovEdge>
         GraphUtil.serialize(this, ignore, null, stringer);
     }
     
+    /**
+     * Write out this graph in a compact binary format. Like toJSON(), this will
+     * skip any query vertices that have never been hit.
+     * @param fs
+     * @throws IOException
+     */
+    public void writeBinary(FastSerializer fs) throws IOException {
+        List<MarkovVertex> vertices = new ArrayList<MarkovVertex>();
+        Set<Long> all_vertices = new HashSet<Long>();
+        for (MarkovVertex v : this.getVertices()) {
+            if (v.isQueryVertex() && (v.instancehits == 0 && v.totalhits == 0)) continue;
+            vertices.add(v);
+            all_vertices.add(v.getElementId());
+        } // FOR
+        List<MarkovEdge> edges = new ArrayList<MarkovEdge>();
+        for (MarkovEdge e : this.getEdges()) {
+            if (all_vertices.contains(this.getSource(e).getElementId()) &&
+                all_vertices.contains(this.getDest(e).getElementId())) {
+                edges.add(e);
+            }
+        } // FOR
+        
+        fs.writeInt(this.getGraphId());
+        fs.writeInt(vertices.size());
+        for (MarkovVertex v : vertices) {
+            v.writeBinary(fs);
+        } // FOR
+        fs.writeInt(edges.size());
+        for (MarkovEdge e : edges) {
+            e.writeBinary(fs, this.getSource(e), this.getDest(e));
+        } // FOR
+    }
+    
+    /**
+     * Load the vertices and edges of this graph from the binary format written out by writeBinary()
+     * @param fds
+     * @throws IOException
+     */
+    public void readBinary(FastDeserializer fds) throws IOException {
+        Database catalog_db = this.getDatabase();
+        this.setGraphId(fds.readInt());
+        for (int i = 0, cnt = fds.readInt(); i < cnt; i++) {
+            MarkovVertex v = new MarkovVertex();
+            v.readBinary(fds, catalog_db);
+            this.addVertex(v);
+        } // FOR
+        for (int i = 0, cnt = fds.readInt(); i < cnt; i++) {
+            MarkovEdge e = new MarkovEdge(this);
+            e.readBinary(fds, this);
+        } // FOR
+    }
+    
     // ----------------------------------------------------------------------------
     // YE OLDE MAIN METHOD
     // ----------------------------------------------------------------------------
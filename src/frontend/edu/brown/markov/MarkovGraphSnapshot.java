@@ -0,0 +1,283 @@
+package edu.brown.markov;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.voltdb.catalog.Statement;
+
+import edu.brown.hstore.HStoreConstants;
+import edu.brown.utils.PartitionSet;
+
+/**
+ * Immutable, array-based copy of a MarkovGraph that is used for on-line estimation.
+ * The successors of each vertex are stored in compressed sparse row (CSR) form and
+ * the partitions and past partitions of each vertex are stored as bitmaps, so a path
+ * traversal only has to walk primitive arrays instead of the JUNG hash maps.
+ * <p>
+ * The successors of each vertex are sorted by the probability of their edge (highest first),
+ * so the first matching successor is always the best one.
+ * <p>
+ * A snapshot is only a view of the MarkovGraph at the time that it was created.
+ * Vertices and edges that are added afterwards will not be included until the
+ * MarkovGraph's probabilities are recomputed.
+ */
+public class MarkovGraphSnapshot {
+
+    private static final Comparator<MarkovEdge> EDGE_COMPARATOR = new Comparator<MarkovEdge>() {
+        @Override
+        public int compare(MarkovEdge e0, MarkovEdge e1) {
+            int ret = Float.compare(e1.getProbability(), e0.getProbability());
+            if (ret == 0) ret = e0.getElementId().compareTo(e1.getElementId());
+            return (ret);
+        }
+    };
+
+    // ----------------------------------------------------------------------------
+    // VERTEX DATA
+    // ----------------------------------------------------------------------------
+
+    private final MarkovVertex vertices[];
+    private final Statement statements[];
+    private final int counters[];
+    private final MarkovVertex.Type types[];
+
+    /**
+     * The number of longs used for each vertex's partition bitmap
+     */
+    private final int num_words;
+    private final long partitions[];
+    private final long past_partitions[];
+    private final int partitions_size[];
+    private final int past_partitions_size[];
+    private final boolean partitions_null[];
+    private final boolean past_partitions_null[];
+
+    // ----------------------------------------------------------------------------
+    // EDGE DATA
+    // ----------------------------------------------------------------------------
+
+    /**
+     * The successors of vertex #i are stored in
+     * successors[successor_offsets[i]] until successors[successor_offsets[i+1]-1]
+     */
+    private final int successor_offsets[];
+    private final int successors[];
+    private final float probabilities[];
+
+    /**
+     * Constructor
+     * @param markov
+     */
+    public MarkovGraphSnapshot(MarkovGraph markov) {
+        Collection<MarkovVertex> all_vertices = markov.getVertices();
+        int num_vertices = all_vertices.size();
+        this.vertices = all_vertices.toArray(new MarkovVertex[num_vertices]);
+        this.statements = new Statement[num_vertices];
+        this.counters = new int[num_vertices];
+        this.types = new MarkovVertex.Type[num_vertices];
+
+        int max_partition = 0;
+        for (int i = 0; i < num_vertices; i++) {
+            MarkovVertex v = this.vertices[i];
+            v.setSnapshotIndex(i);
+            this.statements[i] = v.getCatalogItem();
+            this.counters[i] = v.getQueryCounter();
+            this.types[i] = v.getType();
+            max_partition = Math.max(max_partition, getMaxPartition(v.getPartitions()));
+            max_partition = Math.max(max_partition, getMaxPartition(v.getPastPartitions()));
+        } // FOR
+
+        // Partition Bitmaps
+        this.num_words = (max_partition / 64) + 1;
+        this.partitions = new long[num_vertices * this.num_words];
+        this.past_partitions = new long[num_vertices * this.num_words];
+        this.partitions_size = new int[num_vertices];
+        this.past_partitions_size = new int[num_vertices];
+        this.partitions_null = new boolean[num_vertices];
+        this.past_partitions_null = new boolean[num_vertices];
+        for (int i = 0; i < num_vertices; i++) {
+            MarkovVertex v = this.vertices[i];
+            PartitionSet ps = v.getPartitions();
+            this.setBitmap(this.partitions, i, ps);
+            this.partitions_size[i] = ps.size();
+            this.partitions_null[i] = ps.containsNull();
+
+            ps = v.getPastPartitions();
+            this.setBitmap(this.past_partitions, i, ps);
+            this.past_partitions_size[i] = ps.size();
+            this.past_partitions_null[i] = ps.containsNull();
+        } // FOR
+
+        // Successors
+        this.successor_offsets = new int[num_vertices + 1];
+        List<int[]> rows = new ArrayList<int[]>(num_vertices);
+        List<float[]> row_probabilities = new ArrayList<float[]>(num_vertices);
+        List<MarkovEdge> edges = new ArrayList<MarkovEdge>();
+        int num_edges = 0;
+        for (int i = 0; i < num_vertices; i++) {
+            edges.clear();
+            Collection<MarkovEdge> out_edges = markov.getOutEdges(this.vertices[i]);
+            if (out_edges != null) edges.addAll(out_edges);
+            Collections.sort(edges, EDGE_COMPARATOR);
+
+            int row[] = new int[edges.size()];
+            float row_prob[] = new float[edges.size()];
+            for (int j = 0; j < row.length; j++) {
+                MarkovEdge e = edges.get(j);
+                row[j] = markov.getDest(e).getSnapshotIndex();
+                row_prob[j] = e.getProbability();
+            } // FOR
+            rows.add(row);
+            row_probabilities.add(row_prob);
+            this.successor_offsets[i] = num_edges;
+            num_edges += row.length;
+        } // FOR
+        this.successor_offsets[num_vertices] = num_edges;
+
+        this.successors = new int[num_edges];
+        this.probabilities = new float[num_edges];
+        for (int i = 0; i < num_vertices; i++) {
+            int row[] = rows.get(i);
+            System.arraycopy(row, 0, this.successors, this.successor_offsets[i], row.length);
+            System.arraycopy(row_probabilities.get(i), 0, this.probabilities, this.successor_offsets[i], row.length);
+        } // FOR
+    }
+
+    private static int getMaxPartition(PartitionSet ps) {
+        int max = 0;
+        for (int p = ps.nextPartition(HStoreConstants.NULL_PARTITION_ID); p != PartitionSet.END; p = ps.nextPartition(p)) {
+            max = p;
+        } // FOR
+        return (max);
+    }
+
+    // The null partition is kept in its own array, so these skip it
+    private void setBitmap(long bitmap[], int idx, PartitionSet ps) {
+        int offset = idx * this.num_words;
+        for (int p = ps.nextPartition(HStoreConstants.NULL_PARTITION_ID); p != PartitionSet.END; p = ps.nextPartition(p)) {
+            bitmap[offset + (p >>> 6)] |= (1l << (p & 63));
+        } // FOR
+    }
+
+    private boolean isEqual(long bitmap[], int sizes[], boolean nulls[], int idx, PartitionSet ps) {
+        if (sizes[idx] != ps.size() || nulls[idx] != ps.containsNull()) {
+            return (false);
+        }
+        int offset = idx * this.num_words;
+        for (int p = ps.nextPartition(HStoreConstants.NULL_PARTITION_ID); p != PartitionSet.END; p = ps.nextPartition(p)) {
+            int word = p >>> 6;
+            if (word >= this.num_words || (bitmap[offset + word] & (1l << (p & 63))) == 0) {
+                return (false);
+            }
+        } // FOR
+        return (true);
+    }
+
+    // ----------------------------------------------------------------------------
+    // API METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns the number of vertices in this snapshot
+     * @return
+     */
+    public int getVertexCount() {
+        return (this.vertices.length);
+    }
+
+    /**
+     * Returns the number of edges in this snapshot
+     * @return
+     */
+    public int getEdgeCount() {
+        return (this.successors.length);
+    }
+
+    /**
+     * Return the offset of the given MarkovVertex in this snapshot.
+     * Returns -1 if the vertex was added to the MarkovGraph after this snapshot was created.
+     * @param v
+     * @return
+     */
+    public int indexOf(MarkovVertex v) {
+        int idx = v.getSnapshotIndex();
+        if (idx >= 0 && idx < this.vertices.length && this.vertices[idx] == v) {
+            return (idx);
+        }
+        return (-1);
+    }
+
+    public MarkovVertex getVertex(int idx) {
+        return (this.vertices[idx]);
+    }
+    public Statement getStatement(int idx) {
+        return (this.statements[idx]);
+    }
+    public int getQueryCounter(int idx) {
+        return (this.counters[idx]);
+    }
+    public MarkovVertex.Type getType(int idx) {
+        return (this.types[idx]);
+    }
+    public boolean isQueryVertex(int idx) {
+        return (this.types[idx] == MarkovVertex.Type.QUERY);
+    }
+
+    /**
+     * Returns the offset in the successor arrays of the first outgoing edge for the given vertex.
+     * The outgoing edges for the vertex end at getSuccessorStart(idx+1)
+     * @param idx
+     * @return
+     */
+    public int getSuccessorStart(int idx) {
+        return (this.successor_offsets[idx]);
+    }
+    /**
+     * Returns the offset in the successor arrays after the last outgoing edge for the given vertex.
+     * @param idx
+     * @return
+     */
+    public int getSuccessorEnd(int idx) {
+        return (this.successor_offsets[idx+1]);
+    }
+    /**
+     * Return the vertex offset of the destination of the given edge
+     * @param edge
+     * @return
+     */
+    public int getSuccessor(int edge) {
+        return (this.successors[edge]);
+    }
+    /**
+     * Return the probability of the given edge
+     * @param edge
+     * @return
+     */
+    public float getProbability(int edge) {
+        return (this.probabilities[edge]);
+    }
+
+    /**
+     * Returns true if the vertex at the given offset has the same Statement, query counter,
+     * partitions, and past partitions as the given arguments.
+     * This is the same as MarkovVertex.isEqual()
+     * @param idx
+     * @param catalog_stmt
+     * @param stmt_partitions
+     * @param past_partitions
+     * @param counter
+     * @param use_past_partitions
+     * @return
+     */
+    public boolean isEqual(int idx, Statement catalog_stmt, PartitionSet stmt_partitions,
+                           PartitionSet past_partitions, int counter, boolean use_past_partitions) {
+        return (this.counters[idx] == counter &&
+                (this.statements[idx] == catalog_stmt || catalog_stmt.equals(this.statements[idx])) &&
+                this.isEqual(this.partitions, this.partitions_size, this.partitions_null, idx, stmt_partitions) &&
+                (use_past_partitions == false ||
+                 this.isEqual(this.past_partitions, this.past_partitions_size, this.past_partitions_null, idx, past_partitions)));
+    }
+}
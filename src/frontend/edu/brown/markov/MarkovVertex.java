@@ -1,5 +1,6 @@
 package edu.brown.markov;
 
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -19,6 +20,8 @@ import org.json.JSONStringer;
 import org.voltdb.catalog.CatalogType;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Statement;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
 import org.voltdb.utils.NotImplementedException;
 
 import edu.brown.catalog.CatalogKey;
@@ -178,6 +181,11 @@ public class MarkovVertex extends AbstractVertex implements MarkovHitTrackable,
      */
     private transient CountedStatement counted_stmt = null;
     
+    /**
+     * The offset of this vertex in its MarkovGraph's latest MarkovGraphSnapshot
+     */
+    private transient int snapshot_index = -1;
+    
 
     // ----------------------------------------------------------------------------
     // CONSTRUCTORS
@@ -396,6 +404,13 @@ public class MarkovVertex extends AbstractVertex implements MarkovHitTrackable,
         return (int)this.counter;
     }
     
+    protected int getSnapshotIndex() {
+        return (this.snapshot_index);
+    }
+    protected void setSnapshotIndex(int idx) {
+        this.snapshot_index = idx;
+    }
+    
     public CountedStatement getCountedStatement() {
         if (this.counted_stmt == null) {
             synchronized (this) {
@@ -897,6 +912,84 @@ public class MarkovVertex extends AbstractVertex implements MarkovHitTrackable,
         } // SWITCH
     }
     
+    /**
+     * Write out this vertex in the compact binary format used by MarkovGraph.writeBinary()
+     * @param fs
+     * @throws IOException
+     */
+    public void writeBinary(FastSerializer fs) throws IOException {
+        fs.writeLong(this.getElementId());
+        fs.writeByte(this.type.ordinal());
+        fs.writeString(this.catalog_key);
+        fs.writeInt(this.counter);
+        fs.writeInt(this.totalhits);
+        fs.writeInt(this.instancehits);
+        fs.writeLong(this.execution_time);
+        writePartitions(fs, this.partitions);
+        writePartitions(fs, this.past_partitions);
+        for (int i = 0; i < this.probabilities.length; i++) {
+            float p[] = this.probabilities[i];
+            fs.writeInt(p != null ? p.length : -1);
+            if (p == null) continue;
+            for (int j = 0; j < p.length; j++) {
+                fs.writeFloat(p[j]);
+            } // FOR
+        } // FOR
+    }
+    
+    /**
+     * Read in this vertex from the compact binary format used by MarkovGraph.readBinary()
+     * @param fds
+     * @param catalog_db
+     * @throws IOException
+     */
+    public void readBinary(FastDeserializer fds, Database catalog_db) throws IOException {
+        this.setElementId(fds.readLong());
+        this.type = Type.values()[fds.readByte()];
+        this.catalog_key = fds.readString();
+        this.counter = fds.readInt();
+        this.totalhits = fds.readInt();
+        this.instancehits = fds.readInt();
+        this.execution_time = fds.readLong();
+        readPartitions(fds, this.partitions);
+        readPartitions(fds, this.past_partitions);
+        for (int i = 0; i < this.probabilities.length; i++) {
+            int cnt = fds.readInt();
+            if (cnt < 0) continue;
+            this.probabilities[i] = new float[cnt];
+            for (int j = 0; j < cnt; j++) {
+                this.probabilities[i][j] = fds.readFloat();
+            } // FOR
+        } // FOR
+        
+        switch (this.type) {
+            case START:
+            case COMMIT:
+            case ABORT:
+                this.catalog_item = MarkovUtil.getSpecialStatement(catalog_db, this.type);
+                break;
+            default:
+                this.catalog_item = CatalogKey.getFromKey(catalog_db, this.catalog_key, Statement.class);
+                break;
+        } // SWITCH
+        assert(this.catalog_item != null) : "Invalid catalog key '" + this.catalog_key + "'";
+        this.catalog_class = this.catalog_item.getClass();
+    }
+    
+    private static void writePartitions(FastSerializer fs, PartitionSet partitions) throws IOException {
+        fs.writeShort(partitions.size());
+        for (int partition : partitions.values()) {
+            fs.writeShort(partition);
+        } // FOR
+    }
+    
+    private static void readPartitions(FastDeserializer fds, PartitionSet partitions) throws IOException {
+        partitions.clear();
+        for (int i = 0, cnt = fds.readShort(); i < cnt; i++) {
+            partitions.add(fds.readShort());
+        } // FOR
+    }
+    
     // ----------------------------------------------------------------------------
     // DEBUG METHODS
     // ----------------------------------------------------------------------------
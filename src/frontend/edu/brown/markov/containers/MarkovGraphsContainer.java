@@ -2,6 +2,7 @@ package edu.brown.markov.containers;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -22,6 +23,7 @@ import org.json.JSONObject;
 import org.json.JSONStringer;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Procedure;
+import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.utils.Encoder;
 
@@ -67,6 +69,14 @@ public class MarkovGraphsContainer implements JSONSerializable {
      */
     private final Map<Integer, Map<Procedure, MarkovGraph>> markovs = Collections.synchronizedMap(new TreeMap<Integer, Map<Procedure, MarkovGraph>>());
     
+    /**
+     * MarkovGraphs that have not been deserialized yet.
+     * Each graph is stored as a slice of a memory-mapped binary file and is only
+     * loaded the first time that someone asks for it.
+     * @see MarkovGraphsContainerUtil.loadBinary()
+     */
+    private final Map<Integer, Map<Procedure, ByteBuffer>> lazy_markovs = new ConcurrentHashMap<Integer, Map<Procedure, ByteBuffer>>();
+    
     /**
      * The procedures that we actually want to load. If this is null, then we will load everything
      */
@@ -98,6 +108,7 @@ public class MarkovGraphsContainer implements JSONSerializable {
     // -----------------------------------------------------------------
     
     public MarkovGraph getFromGraphId(int id) {
+        this.loadAllLazy();
         for (MarkovGraph m : this.getAll()) {
             if (m.getGraphId() == id) return (m);
         } // FOR
@@ -120,11 +131,16 @@ public class MarkovGraphsContainer implements JSONSerializable {
     
     public void clear() {
         this.markovs.clear();
+        this.lazy_markovs.clear();
     }
     
     public MarkovGraph get(Integer id, Procedure catalog_proc) {
         Map<Procedure, MarkovGraph> inner = this.markovs.get(id);
-        return (inner != null ? inner.get(catalog_proc) : null);
+        MarkovGraph markov = (inner != null ? inner.get(catalog_proc) : null);
+        if (markov == null && this.lazy_markovs.isEmpty() == false) {
+            markov = this.loadLazy(id, catalog_proc);
+        }
+        return (markov);
     }
     
     /**
@@ -179,6 +195,83 @@ public class MarkovGraphsContainer implements JSONSerializable {
         inner.put(markov.getProcedure(), markov);
     }
     
+    // -----------------------------------------------------------------
+    // LAZY LOADING METHODS
+    // -----------------------------------------------------------------
+    
+    /**
+     * Register the serialized form of a MarkovGraph that will be deserialized
+     * the first time that it is retrieved from this container
+     * @param id
+     * @param catalog_proc
+     * @param buffer
+     */
+    public void putLazy(Integer id, Procedure catalog_proc, ByteBuffer buffer) {
+        assert(id != null) : "Invalid id";
+        Map<Procedure, ByteBuffer> inner = this.lazy_markovs.get(id);
+        if (inner == null) {
+            synchronized (this.lazy_markovs) {
+                inner = this.lazy_markovs.get(id);
+                if (inner == null) {
+                    inner = new ConcurrentHashMap<Procedure, ByteBuffer>();
+                    this.lazy_markovs.put(id, inner);
+                }
+            } // SYNCH
+        }
+        inner.put(catalog_proc, buffer);
+    }
+    
+    /**
+     * Returns the number of MarkovGraphs that have not been deserialized yet
+     */
+    public int getLazyCount() {
+        int total = 0;
+        for (Map<Procedure, ByteBuffer> inner : this.lazy_markovs.values()) {
+            total += inner.size();
+        } // FOR
+        return (total);
+    }
+    
+    private MarkovGraph loadLazy(Integer id, Procedure catalog_proc) {
+        Map<Procedure, ByteBuffer> inner = this.lazy_markovs.get(id);
+        if (inner == null || inner.containsKey(catalog_proc) == false) return (null);
+        
+        synchronized (this) {
+            // Check whether somebody else loaded it while we were waiting for the lock
+            ByteBuffer buffer = inner.get(catalog_proc);
+            if (buffer == null) {
+                Map<Procedure, MarkovGraph> loaded = this.markovs.get(id);
+                return (loaded != null ? loaded.get(catalog_proc) : null);
+            }
+            if (debug.val)
+                LOG.debug(String.format("Loading MarkovGraph [id=%d, proc=%s, bytes=%d]",
+                          id, catalog_proc.getName(), buffer.remaining()));
+            MarkovGraph markov = new MarkovGraph(catalog_proc);
+            try {
+                markov.readBinary(new FastDeserializer(buffer.duplicate()));
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to load MarkovGraph " + id + " for " + catalog_proc.getName(), ex);
+            }
+            markov.buildCache();
+            this.put(id, markov);
+            inner.remove(catalog_proc);
+            return (markov);
+        } // SYNCH
+    }
+    
+    /**
+     * Deserialize all of the MarkovGraphs that have not been loaded yet
+     */
+    protected void loadAllLazy() {
+        if (this.lazy_markovs.isEmpty()) return;
+        for (Integer id : this.lazy_markovs.keySet()) {
+            for (Procedure catalog_proc : this.lazy_markovs.get(id).keySet()) {
+                this.loadLazy(id, catalog_proc);
+            } // FOR
+        } // FOR
+        this.lazy_markovs.clear();
+    }
+    
     /**
      * 
      * @param txn_id
@@ -203,6 +296,7 @@ public class MarkovGraphsContainer implements JSONSerializable {
      * Invoke MarkovGraph.calculateProbabilities() for all of the graphs stored within this container 
      */
     public void calculateProbabilities(PartitionSet partitions) {
+        this.loadAllLazy();
         for (Map<Procedure, MarkovGraph> inner : this.markovs.values()) {
             for (Entry<Procedure, MarkovGraph> e : inner.entrySet()) {
                 MarkovGraph m = e.getValue();
@@ -224,10 +318,12 @@ public class MarkovGraphsContainer implements JSONSerializable {
     }
     
     protected Map<Procedure, MarkovGraph> getAll(Integer id) {
+        this.loadAllLazy();
         return (this.markovs.get(id));
     }
     
     public Map<Integer, MarkovGraph> getAll(Procedure catalog_proc) {
+        this.loadAllLazy();
         Map<Integer, MarkovGraph> ret = new HashMap<Integer, MarkovGraph>();
         for (Integer id : this.markovs.keySet()) {
             MarkovGraph m = this.markovs.get(id).get(catalog_proc);
@@ -241,6 +337,7 @@ public class MarkovGraphsContainer implements JSONSerializable {
      * @return
      */
     public Set<MarkovGraph> getAll() {
+        this.loadAllLazy();
         Set<MarkovGraph> ret = new HashSet<MarkovGraph>();
         for (Integer id : this.markovs.keySet()) {
             Map<Procedure, MarkovGraph> m = this.markovs.get(id);
@@ -250,22 +347,27 @@ public class MarkovGraphsContainer implements JSONSerializable {
     }
     
     public void copy(MarkovGraphsContainer other) {
+        other.loadAllLazy();
         this.markovs.putAll(other.markovs);
     }
     
     public Set<Integer> keySet() {
+        this.loadAllLazy();
         return this.markovs.keySet();
     }
     
     public Set<Entry<Integer, Map<Procedure, MarkovGraph>>> entrySet() {
+        this.loadAllLazy();
         return this.markovs.entrySet();
     }
     
     public int size() {
+        this.loadAllLazy();
         return (this.markovs.size());
     }
     
     public int totalSize() {
+        this.loadAllLazy();
         int total = 0;
         for (Integer id : this.markovs.keySet()) {
             Map<Procedure, MarkovGraph> m = this.markovs.get(id);
@@ -277,6 +379,7 @@ public class MarkovGraphsContainer implements JSONSerializable {
     @Override
     @SuppressWarnings("unchecked")
     public String toString() {
+        this.loadAllLazy();
         int num_ids = this.markovs.size();
         Map<String, Object> maps[] = (Map<String, Object>[])new Map<?, ?>[num_ids+1];
         int i = 0;
@@ -322,6 +425,7 @@ public class MarkovGraphsContainer implements JSONSerializable {
 
     @Override
     public void toJSON(JSONStringer stringer) throws JSONException {
+        this.loadAllLazy();
         // CLASSNAME
         stringer.key(Members.CLASSNAME.name()).value(this.getClass().getCanonicalName());
         
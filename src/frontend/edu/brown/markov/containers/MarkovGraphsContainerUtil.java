@@ -1,10 +1,16 @@
 package edu.brown.markov.containers;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -27,6 +33,8 @@ import org.json.JSONStringer;
 import org.voltdb.CatalogContext;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Procedure;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
 import org.voltdb.utils.Pair;
 
 import edu.brown.catalog.CatalogUtil;
@@ -36,6 +44,7 @@ import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.markov.MarkovGraph;
 import edu.brown.markov.MarkovUtil;
 import edu.brown.statistics.ObjectHistogram;
+import edu.brown.utils.ArgumentsParser;
 import edu.brown.utils.ClassUtil;
 import edu.brown.utils.CollectionUtil;
 import edu.brown.utils.FileUtil;
@@ -51,6 +60,12 @@ public abstract class MarkovGraphsContainerUtil {
     static {
         LoggerUtil.attachObserver(LOG, debug, trace);
     }
+    
+    /**
+     * The first bytes of a MarkovGraphsContainer file written by saveBinary()
+     */
+    public static final int BINARY_MAGIC = 0x4D4B5647; // "MKVG"
+    public static final int BINARY_VERSION = 1;
 
     // ----------------------------------------------------------------------------
     // INSTANTATION METHODS
@@ -379,10 +394,97 @@ public abstract class MarkovGraphsContainerUtil {
         LOG.info(String.format("Wrote out %d graphs in %s to '%s'", graphs_ctr, className, output_path));
     }
     
+    /**
+     * Serialize the given MarkovGraphsContainers out to a file in the compact binary format.
+     * <B>File Format:</B>
+     * <pre>
+     * [MAGIC:int][VERSION:int]
+     * [Graph #0 bytes][Graph #1 bytes]...
+     * [NumContainers:int]
+     *    [ContainerId:int][ContainerClass:String][NumGraphs:int]
+     *       [GraphId:int][ProcedureName:String][Offset:long][Length:int]
+     * [IndexOffset:long]
+     * </pre>
+     * The index is at the end of the file so that each graph can be written out as 
+     * soon as it is serialized. The file can then be memory-mapped and each graph can
+     * be deserialized on its own.
+     * @param markovs
+     * @param output_path
+     */
+    public static void saveBinary(Map<Integer, ? extends MarkovGraphsContainer> markovs, File output_path) {
+        final String className = CollectionUtil.first(markovs.values()).getClass().getSimpleName();
+        
+        // Sort the list of partitions so we always iterate over them in the same order
+        SortedSet<Integer> sorted = new TreeSet<Integer>(markovs.keySet());
+        
+        int graphs_ctr = 0;
+        try {
+            FileOutputStream out = new FileOutputStream(output_path);
+            FastSerializer fs = new FastSerializer();
+            fs.writeInt(BINARY_MAGIC);
+            fs.writeInt(BINARY_VERSION);
+            out.write(fs.getBytes());
+            long offset = fs.size();
+            
+            // We build the index as we write out the graphs
+            FastSerializer index = new FastSerializer();
+            index.writeInt(sorted.size());
+            for (Integer container_id : sorted) {
+                MarkovGraphsContainer container = markovs.get(container_id);
+                assert(container != null) : "Null MarkovGraphsContainer for id #" + container_id;
+                index.writeInt(container_id.intValue());
+                index.writeString(container.getClass().getCanonicalName());
+                index.writeInt(container.totalSize());
+                
+                for (Map.Entry<Integer, Map<Procedure, MarkovGraph>> e : container.entrySet()) {
+                    for (MarkovGraph markov : e.getValue().values()) {
+                        fs = new FastSerializer();
+                        markov.writeBinary(fs);
+                        byte bytes[] = fs.getBytes();
+                        out.write(bytes);
+                        
+                        index.writeInt(e.getKey().intValue());
+                        index.writeString(markov.getProcedure().getName());
+                        index.writeLong(offset);
+                        index.writeInt(bytes.length);
+                        offset += bytes.length;
+                        graphs_ctr++;
+                    } // FOR
+                } // FOR
+            } // FOR
+            
+            // Write out the index and where it starts in the file
+            index.writeLong(offset);
+            fs = index;
+            out.write(fs.getBytes());
+            out.close();
+        } catch (Exception ex) {
+            LOG.error("Failed to serialize the " + className + " file '" + output_path + "'", ex);
+            throw new RuntimeException(ex);
+        }
+        LOG.info(String.format("Wrote out %d graphs in %s to binary file '%s'", graphs_ctr, className, output_path));
+    }
+    
     // ----------------------------------------------------------------------------
     // LOAD METHODS
     // ----------------------------------------------------------------------------
     
+    /**
+     * Returns true if the given file was written out by saveBinary()
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static boolean isBinaryFile(File file) throws IOException {
+        if (file.length() < 8) return (false);
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return (in.readInt() == BINARY_MAGIC);
+        } finally {
+            in.close();
+        }
+    }
+    
     public static Map<Integer, MarkovGraphsContainer> load(CatalogContext catalogContext, File input_path) throws Exception {
         return (MarkovGraphsContainerUtil.load(catalogContext, input_path, null, null));
     }
@@ -407,6 +509,9 @@ public abstract class MarkovGraphsContainerUtil {
                                                            final File file,
                                                            final Collection<Procedure> procedures,
                                                            final Collection<Integer> ids) throws Exception {
+        if (isBinaryFile(file)) {
+            return (loadBinary(catalogContext, file, procedures, ids));
+        }
         final Map<Integer, MarkovGraphsContainer> ret = new HashMap<Integer, MarkovGraphsContainer>();
         LOG.info(String.format("Loading in MarkovGraphContainers from '%s' [procedures=%s, ids=%s]",
                                file.getName(), (procedures == null ? "*ALL*" : CatalogUtil.debug(procedures)), (ids == null ? "*ALL*" : ids)));
@@ -462,6 +567,118 @@ public abstract class MarkovGraphsContainerUtil {
         if (debug.val) LOG.debug("The loading of the MarkovGraphsContainer is complete");
         return (ret);
     }
+    
+    /**
+     * Make sure that the given region of a binary MarkovGraphsContainer file
+     * is inside of the part of the file that we are allowed to read
+     * @param file
+     * @param offset
+     * @param length
+     * @param limit
+     * @throws IOException
+     */
+    private static void checkBinaryRange(File file, long offset, int length, int limit) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > limit) {
+            throw new IOException(String.format("Invalid offset %d [length=%d] in the MarkovGraphsContainer " +
+                                                "file '%s' [limit=%d]", offset, length, file, limit));
+        }
+    }
+    
+    /**
+     * Load the MarkovGraphsContainers from a file written out by saveBinary().
+     * Only the index is read in here. The file is memory-mapped and each MarkovGraph
+     * is not deserialized until the first time that it is retrieved from its container.
+     * @param catalogContext
+     * @param file
+     * @param procedures
+     * @param ids
+     * @return
+     * @throws Exception
+     */
+    public static Map<Integer, MarkovGraphsContainer> loadBinary(final CatalogContext catalogContext,
+                                                                 final File file,
+                                                                 final Collection<Procedure> procedures,
+                                                                 final Collection<Integer> ids) throws Exception {
+        final Map<Integer, MarkovGraphsContainer> ret = new HashMap<Integer, MarkovGraphsContainer>();
+        LOG.info(String.format("Loading in binary MarkovGraphContainers from '%s' [procedures=%s, ids=%s]",
+                               file.getName(), (procedures == null ? "*ALL*" : CatalogUtil.debug(procedures)), (ids == null ? "*ALL*" : ids)));
+        
+        int graphs_ctr = 0;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            MappedByteBuffer buffer = null;
+            try {
+                // A single mapping can only cover Integer.MAX_VALUE bytes
+                if (raf.length() > Integer.MAX_VALUE) {
+                    throw new IOException(String.format("The file '%s' is too large to be loaded [size=%d]",
+                                                        file, raf.length()));
+                }
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            } finally {
+                // The mapping stays valid after the channel is closed
+                raf.close();
+            }
+            
+            FastDeserializer fds = new FastDeserializer(buffer.duplicate());
+            if (fds.readInt() != BINARY_MAGIC) {
+                throw new IOException("The file '" + file + "' is not a binary MarkovGraphsContainer file");
+            }
+            int version = fds.readInt();
+            if (version != BINARY_VERSION) {
+                throw new IOException(String.format("Unsupported MarkovGraphsContainer file version %d in '%s'", version, file));
+            }
+            
+            // Jump to the index at the end of the file
+            ByteBuffer index = buffer.duplicate();
+            long index_offset = buffer.getLong(buffer.limit() - 8);
+            checkBinaryRange(file, index_offset, 0, buffer.limit() - 8);
+            index.position((int)index_offset);
+            fds = new FastDeserializer(index);
+            for (int i = 0, num_containers = fds.readInt(); i < num_containers; i++) {
+                Integer container_id = Integer.valueOf(fds.readInt());
+                String className = fds.readString();
+                int num_graphs = fds.readInt();
+                
+                // Same rules as in the JSON format for deciding which containers we want
+                boolean include = (container_id.equals(MarkovUtil.GLOBAL_MARKOV_CONTAINER_ID) ||
+                                   ids == null || ids.contains(container_id));
+                MarkovGraphsContainer markovs = null;
+                if (include) {
+                    markovs = ClassUtil.newInstance(className, new Object[]{procedures},
+                                                               new Class<?>[]{Collection.class});
+                    ret.put(container_id, markovs);
+                }
+                for (int j = 0; j < num_graphs; j++) {
+                    Integer id = Integer.valueOf(fds.readInt());
+                    String procName = fds.readString();
+                    long offset = fds.readLong();
+                    int length = fds.readInt();
+                    if (include == false) continue;
+                    
+                    Procedure catalog_proc = catalogContext.procedures.getIgnoreCase(procName);
+                    if (catalog_proc == null) {
+                        LOG.warn(String.format("Skipping MarkovGraph for unknown procedure '%s' [id=%d]", procName, id));
+                        continue;
+                    }
+                    if (procedures != null && procedures.contains(catalog_proc) == false) continue;
+                    
+                    checkBinaryRange(file, offset, length, buffer.limit());
+                    ByteBuffer slice = buffer.duplicate();
+                    slice.limit((int)(offset + length));
+                    slice.position((int)offset);
+                    markovs.putLazy(id, catalog_proc, slice.slice());
+                    graphs_ctr++;
+                } // FOR
+            } // FOR
+        } catch (Exception ex) {
+            LOG.error("Failed to deserialize the MarkovGraphsContainer from file '" + file + "'", ex);
+            throw new IOException(ex);
+        }
+        if (debug.val)
+            LOG.debug(String.format("Registered %d MarkovGraphs in %d containers for lazy loading",
+                      graphs_ctr, ret.size()));
+        return (ret);
+    }
 
     // ----------------------------------------------------------------------------
     // UTILITY METHODS
@@ -491,5 +708,22 @@ public abstract class MarkovGraphsContainerUtil {
         } // FOR
         return;
     }
+    
+    /**
+     * Convert a JSON MarkovGraphsContainer file into the binary format
+     * @param vargs
+     * @throws Exception
+     */
+    public static void main(String[] vargs) throws Exception {
+        ArgumentsParser args = ArgumentsParser.load(vargs);
+        args.require(ArgumentsParser.PARAM_CATALOG,
+                     ArgumentsParser.PARAM_MARKOV,
+                     ArgumentsParser.PARAM_MARKOV_OUTPUT);
+        
+        File input = args.getFileParam(ArgumentsParser.PARAM_MARKOV);
+        File output = args.getFileParam(ArgumentsParser.PARAM_MARKOV_OUTPUT);
+        Map<Integer, MarkovGraphsContainer> markovs = load(args.catalogContext, input);
+        saveBinary(markovs, output);
+    }
 
 }
@@ -89,6 +89,18 @@ public class AntiCacheManagerProfiler extends AbstractProfiler {
      */
     public int restarted_txns = 0;
     
+    /**
+     * The number of transactions that had evicted blocks read in for them
+     * before they started because we probed for the keys that they will access.
+     */
+    public int prefetched_txns = 0;
+    
+    /**
+     * The number of requested blocks that did not need to be read
+     * because another txn was already waiting for the same block.
+     */
+    public int coalesced_blocks = 0;
+    
     /**
      * Eviction history
      */
@@ -117,11 +129,19 @@ public class AntiCacheManagerProfiler extends AbstractProfiler {
      */
     public ProfileMeasurement merge_time = new ProfileMeasurement("MERGE");
     
+    /**
+     * The amount of time it takes to probe the EE for the evicted
+     * keys that a new transaction will access.
+     */
+    public ProfileMeasurement probe_time = new ProfileMeasurement("PROBE");
+    
     public void reset() {
         super.reset();
         this.eviction_history.clear();
         this.evictedaccess_history.clear();
         this.restarted_txns = 0;
+        this.prefetched_txns = 0;
+        this.coalesced_blocks = 0;
     }
     
     // ----------------------------------------------------------------------------
@@ -0,0 +1,210 @@
+package edu.brown.profilers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import edu.brown.statistics.LatencyHistogram;
+
+/**
+ * Lightweight tracer for the lifecycle of every transaction.
+ * Unlike the TransactionProfiler, this is meant to be always enabled. Each thread
+ * that records a phase gets its own fixed-size event ring and its own set of
+ * LatencyHistograms, so recording an event never takes a lock or allocates memory.
+ * The histograms and rings from all of the threads are only combined when somebody
+ * asks for them (e.g., through the @Statistics sysproc).
+ * <p>
+ * The event rings only keep the most recent events for each thread. They can be
+ * written out in the Chrome trace event format (chrome://tracing).
+ * <p>
+ * Note that the readers do not synchronize with the threads that are recording,
+ * so the statistics that they return are only approximate.
+ */
+public class TransactionTracer {
+
+    /**
+     * The phases of a transaction's lifecycle that we measure
+     */
+    public enum Phase {
+        /** From when the txn is created until it is added to the lock queues */
+        INIT,
+        /** Waiting in the lock queues until it starts executing */
+        QUEUE,
+        /** Executing the txn's control code at its base partition */
+        EXEC,
+        /** Two-phase commit for distributed txns */
+        TWOPC,
+        /** Waiting for the txn to be written to the command log */
+        COMMITLOG,
+        /** Sending the ClientResponse back to the client */
+        RESPONSE;
+
+        private static final Phase values[] = Phase.values();
+        public static Phase get(int idx) {
+            return (values[idx]);
+        }
+    }
+
+    /**
+     * The number of longs that we store per event in a TraceBuffer
+     */
+    private static final int EVENT_SIZE = 4;
+
+    /**
+     * Per-thread event ring and histograms.
+     * Only the owning thread is allowed to write to this.
+     */
+    protected static class TraceBuffer {
+        private final String threadName;
+        private final long threadId;
+        private final long events[];
+        private final int capacity;
+        private long position = 0;
+        private final LatencyHistogram histograms[];
+
+        private TraceBuffer(Thread thread, int capacity) {
+            this.threadName = thread.getName();
+            this.threadId = thread.getId();
+            this.capacity = capacity;
+            this.events = new long[capacity * EVENT_SIZE];
+            this.histograms = new LatencyHistogram[Phase.values().length];
+            for (int i = 0; i < this.histograms.length; i++) {
+                this.histograms[i] = new LatencyHistogram();
+            } // FOR
+        }
+
+        private void add(long txnId, Phase phase, long start, long stop) {
+            if (this.capacity > 0) {
+                int offset = (int)(this.position % this.capacity) * EVENT_SIZE;
+                this.events[offset] = txnId;
+                this.events[offset+1] = phase.ordinal();
+                this.events[offset+2] = start;
+                this.events[offset+3] = stop;
+                this.position++;
+            }
+            this.histograms[phase.ordinal()].record(stop - start);
+        }
+    }
+
+    private final int siteId;
+    private final int bufferSize;
+
+    /**
+     * All of the TraceBuffers that have been created for this tracer.
+     * We only add to this when a new thread records its first event.
+     */
+    private final List<TraceBuffer> buffers = new CopyOnWriteArrayList<TraceBuffer>();
+
+    private final ThreadLocal<TraceBuffer> threadBuffer = new ThreadLocal<TraceBuffer>() {
+        @Override
+        protected TraceBuffer initialValue() {
+            TraceBuffer buffer = new TraceBuffer(Thread.currentThread(), bufferSize);
+            buffers.add(buffer);
+            return (buffer);
+        }
+    };
+
+    /**
+     * Constructor
+     * @param siteId The id of the site that this tracer belongs to.
+     * @param bufferSize The number of events to keep per thread.
+     */
+    public TransactionTracer(int siteId, int bufferSize) {
+        this.siteId = siteId;
+        this.bufferSize = Math.max(0, bufferSize);
+    }
+
+    /**
+     * Returns the current timestamp that should be used as the start of a phase.
+     * @return
+     */
+    public static long getTime() {
+        return (System.nanoTime());
+    }
+
+    /**
+     * Record that the given txn finished a phase that started at the
+     * given timestamp. Returns the current time, which can then be used
+     * as the start of the next phase.
+     * If the start timestamp is zero (i.e., the txn is not being traced),
+     * then nothing is recorded and this returns zero.
+     * @param txnId
+     * @param phase
+     * @param start
+     * @return
+     */
+    public long record(long txnId, Phase phase, long start) {
+        if (start == 0) return (0);
+        long now = System.nanoTime();
+        this.threadBuffer.get().add(txnId, phase, start, now);
+        return (now);
+    }
+
+    // ----------------------------------------------------------------------------
+    // ACCESS METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns a new LatencyHistogram that combines the measurements
+     * for the given phase from all threads.
+     * @param phase
+     * @return
+     */
+    public LatencyHistogram getHistogram(Phase phase) {
+        LatencyHistogram h = new LatencyHistogram();
+        for (TraceBuffer buffer : this.buffers) {
+            h.add(buffer.histograms[phase.ordinal()]);
+        } // FOR
+        return (h);
+    }
+
+    /**
+     * Clear the histograms for all threads.
+     * This is not synchronized with the recording threads, so measurements
+     * that are being added at the same time may be lost.
+     */
+    public void reset() {
+        for (TraceBuffer buffer : this.buffers) {
+            for (LatencyHistogram h : buffer.histograms) {
+                h.clear();
+            } // FOR
+        } // FOR
+    }
+
+    /**
+     * Write the events that are still in each thread's ring out
+     * in the Chrome trace event format. The timestamps are in microseconds.
+     * @param out
+     * @throws IOException
+     */
+    public void writeChromeTrace(Writer out) throws IOException {
+        out.write("{\"traceEvents\":[\n");
+        boolean first = true;
+        for (TraceBuffer buffer : this.buffers) {
+            if (first == false) out.write(",\n");
+            out.write(String.format("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":%d,\"tid\":%d," +
+                                    "\"args\":{\"name\":\"%s\"}}",
+                                    this.siteId, buffer.threadId, buffer.threadName.replace("\"", "\\\"")));
+            first = false;
+
+            long end = buffer.position;
+            long start = Math.max(0, end - buffer.capacity);
+            for (long pos = start; pos < end; pos++) {
+                int offset = (int)(pos % buffer.capacity) * EVENT_SIZE;
+                long txnId = buffer.events[offset];
+                Phase phase = Phase.get((int)buffer.events[offset+1]);
+                long ts = buffer.events[offset+2];
+                long dur = buffer.events[offset+3] - ts;
+                out.write(String.format(Locale.US, ",\n{\"name\":\"%s\",\"cat\":\"txn\",\"ph\":\"X\"," +
+                                        "\"ts\":%.3f,\"dur\":%.3f,\"pid\":%d,\"tid\":%d," +
+                                        "\"args\":{\"txnId\":%d}}",
+                                        phase.name(), ts / 1000d, dur / 1000d,
+                                        this.siteId, buffer.threadId, txnId));
+            } // FOR
+        } // FOR
+        out.write("\n]}\n");
+        out.flush();
+    }
+}
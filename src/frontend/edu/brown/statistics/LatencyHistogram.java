@@ -0,0 +1,226 @@
+package edu.brown.statistics;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.voltdb.catalog.Database;
+
+import edu.brown.utils.JSONSerializable;
+import edu.brown.utils.JSONUtil;
+
+/**
+ * Fixed-size log-linear histogram for latency measurements.
+ * Values are grouped into power-of-two ranges and each range is split into
+ * SUB_BUCKETS linear buckets, so the error of any percentile is bounded by
+ * 1/SUB_BUCKETS of the value. Recording a value is just a few bit operations
+ * and an array increment, so it is cheap enough to do for every transaction.
+ * <p>
+ * This class is not thread-safe. Each thread should record into its own
+ * histogram and then they can be combined with add() when they are read.
+ * <p>
+ * Only the non-empty buckets are written out when the histogram is serialized
+ * so that it is small enough to send back with every poll from the clients.
+ */
+public class LatencyHistogram implements JSONSerializable {
+
+    public enum Members {
+        COUNT,
+        TOTAL,
+        MIN,
+        MAX,
+        BUCKETS,
+    }
+
+    /**
+     * The number of bits used for the linear sub-buckets in each power-of-two range
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The largest value that we can record. Anything larger is clamped to this.
+     * For nanosecond measurements this is a little over 18 minutes.
+     */
+    public static final long MAX_VALUE = (1l << 40) - 1;
+
+    private static final int NUM_BUCKETS = getBucketIndex(MAX_VALUE) + 1;
+
+    private final long buckets[] = new long[NUM_BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    // ----------------------------------------------------------------------------
+    // BUCKET MATH
+    // ----------------------------------------------------------------------------
+
+    protected static int getBucketIndex(long value) {
+        if (value < SUB_BUCKETS) return ((int)value);
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int sub = (int)(value >>> shift) & (SUB_BUCKETS - 1);
+        return (SUB_BUCKETS + (shift * SUB_BUCKETS) + sub);
+    }
+
+    /**
+     * Returns the smallest value that is stored in the given bucket
+     */
+    protected static long getBucketLowerBound(int idx) {
+        if (idx < SUB_BUCKETS) return (idx);
+        int shift = (idx - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = idx % SUB_BUCKETS;
+        return ((long)(SUB_BUCKETS + sub) << shift);
+    }
+
+    /**
+     * Returns the largest value that is stored in the given bucket
+     */
+    protected static long getBucketUpperBound(int idx) {
+        if (idx < SUB_BUCKETS) return (idx);
+        int shift = (idx - SUB_BUCKETS) / SUB_BUCKETS;
+        return (getBucketLowerBound(idx) + (1l << shift) - 1);
+    }
+
+    // ----------------------------------------------------------------------------
+    // RECORDING
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Record a new value. Negative values are recorded as zero.
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        else if (value > MAX_VALUE) value = MAX_VALUE;
+        this.buckets[getBucketIndex(value)]++;
+        this.count++;
+        this.total += value;
+        if (value < this.min) this.min = value;
+        if (value > this.max) this.max = value;
+    }
+
+    /**
+     * Add all of the values recorded in the other histogram into this one
+     * @param other
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            this.buckets[i] += other.buckets[i];
+        } // FOR
+        this.count += other.count;
+        this.total += other.total;
+        if (other.min < this.min) this.min = other.min;
+        if (other.max > this.max) this.max = other.max;
+    }
+
+    public void clear() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            this.buckets[i] = 0;
+        } // FOR
+        this.count = 0;
+        this.total = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+    }
+
+    // ----------------------------------------------------------------------------
+    // ACCESS METHODS
+    // ----------------------------------------------------------------------------
+
+    public long getCount() {
+        return (this.count);
+    }
+    public boolean isEmpty() {
+        return (this.count == 0);
+    }
+    public long getMin() {
+        return (this.count > 0 ? this.min : 0);
+    }
+    public long getMax() {
+        return (this.max);
+    }
+    public double getMean() {
+        return (this.count > 0 ? this.total / (double)this.count : 0d);
+    }
+
+    /**
+     * Returns the value at the given percentile (0.0 - 100.0).
+     * The returned value is the upper bound of the bucket that contains
+     * the percentile, but it will never be larger than the max recorded value.
+     * @param percentile
+     * @return
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (this.count == 0) return (0);
+        if (percentile < 0) percentile = 0;
+        else if (percentile > 100) percentile = 100;
+        long target = (long)Math.ceil((percentile / 100.0d) * this.count);
+        if (target < 1) target = 1;
+
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += this.buckets[i];
+            if (seen >= target) {
+                return (Math.min(getBucketUpperBound(i), this.max));
+            }
+        } // FOR
+        return (this.max);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{count=%d, mean=%.1f, p50=%d, p99=%d, p999=%d, max=%d}",
+                             this.getClass().getSimpleName(), this.count, this.getMean(),
+                             this.getValueAtPercentile(50), this.getValueAtPercentile(99),
+                             this.getValueAtPercentile(99.9), this.max);
+    }
+
+    // ----------------------------------------------------------------------------
+    // SERIALIZATION METHODS
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public void load(File input_path, Database catalog_db) throws IOException {
+        JSONUtil.load(this, catalog_db, input_path);
+    }
+    @Override
+    public void save(File output_path) throws IOException {
+        JSONUtil.save(this, output_path);
+    }
+    @Override
+    public String toJSONString() {
+        return (JSONUtil.toJSONString(this));
+    }
+    @Override
+    public void toJSON(JSONStringer stringer) throws JSONException {
+        stringer.key(Members.COUNT.name()).value(this.count);
+        stringer.key(Members.TOTAL.name()).value(this.total);
+        stringer.key(Members.MIN.name()).value(this.min);
+        stringer.key(Members.MAX.name()).value(this.max);
+
+        // Pairs of (bucket index, count) for the non-empty buckets
+        stringer.key(Members.BUCKETS.name()).array();
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            if (this.buckets[i] == 0) continue;
+            stringer.value(i).value(this.buckets[i]);
+        } // FOR
+        stringer.endArray();
+    }
+    @Override
+    public void fromJSON(JSONObject json_object, Database catalog_db) throws JSONException {
+        this.clear();
+        this.count = json_object.getLong(Members.COUNT.name());
+        this.total = json_object.getLong(Members.TOTAL.name());
+        this.min = json_object.getLong(Members.MIN.name());
+        this.max = json_object.getLong(Members.MAX.name());
+
+        JSONArray jsonArr = json_object.getJSONArray(Members.BUCKETS.name());
+        for (int i = 0, cnt = jsonArr.length(); i < cnt; i += 2) {
+            this.buckets[jsonArr.getInt(i)] = jsonArr.getLong(i+1);
+        } // FOR
+    }
+}
@@ -802,10 +802,29 @@ public class PartitionEstimator {
             // Single-Column Partitioning
         } else {
             VoltType type = VoltType.get(catalog_col.getType());
-            Object value = row.get(catalog_col.getIndex(), type);
-            partition = this.hasher.hash(value, catalog_col);
+            int col_idx = catalog_col.getIndex();
+            // OPTIMIZATION: Hash integer columns without boxing them
+            switch (type) {
+                case TINYINT:
+                case SMALLINT:
+                case INTEGER:
+                case BIGINT: {
+                    long value = row.getLong(col_idx);
+                    if (row.wasNull() == false) {
+                        partition = this.hasher.hash(value);
+                    }
+                    break;
+                }
+                default:
+                    break;
+            } // SWITCH
+            if (partition == -1) {
+                Object value = row.get(col_idx, type);
+                partition = this.hashValue(value, type, catalog_col);
+            }
             if (debug.val)
-                LOG.debug(String.format("%s SingleColumn: Value=%s / Partition=%d", catalog_col.fullName(), value, partition));
+                LOG.debug(String.format("%s SingleColumn: Value=%s / Partition=%d",
+                          catalog_col.fullName(), row.get(col_idx, type), partition));
         }
         assert (partition >= 0) : "Invalid partition for " + catalog_tbl;
         return (partition);
@@ -917,7 +936,8 @@ public class PartitionEstimator {
                 int mpp_param_idx = mpp.get(i).getIndex();
                 assert (mpp_param_idx >= 0) : "Invalid Partitioning MultiProcParameter #" + mpp_param_idx;
                 assert (mpp_param_idx < params.length) : CatalogUtil.getDisplayName(mpp) + " < " + params.length;
-                int hash = this.calculatePartition(catalog_proc, params[mpp_param_idx], is_array);
+                int hash = this.calculatePartition(catalog_proc, params[mpp_param_idx], is_array,
+                                                   VoltType.get(mpp.get(i).getType()));
                 hashes[i] = (hash == HStoreConstants.NULL_PARTITION_ID ? 0 : hash);
                 if (debug.val)
                     LOG.debug(mpp.get(i) + " value[" + params[mpp_param_idx] + "] => hash[" + hashes[i] + "]");
@@ -931,7 +951,8 @@ public class PartitionEstimator {
             if (debug.val)
                 LOG.debug("Calculating base partition using " + catalog_param.fullName() + ": " + params[catalog_param.getIndex()]);
             assert(catalog_param.getIndex() >= 0) : "Invalid parameter offset " + catalog_param.fullName();
-            partition = this.calculatePartition(catalog_proc, params[catalog_param.getIndex()], is_array);
+            partition = this.calculatePartition(catalog_proc, params[catalog_param.getIndex()], is_array,
+                                                VoltType.get(catalog_param.getType()));
         }
         return (partition);
     }
@@ -1400,8 +1421,10 @@ public class PartitionEstimator {
                         // We therefore just need to take the cross product of
                         // the two sets and hash them together
                         if (is_valid) {
-                            for (int part0 : mc_partitions[0]) {
-                                for (int part1 : mc_partitions[1]) {
+                            PartitionSet mc_partitions0 = mc_partitions[0];
+                            PartitionSet mc_partitions1 = mc_partitions[1];
+                            for (int part0 = mc_partitions0.firstPartition(); part0 != PartitionSet.END; part0 = mc_partitions0.nextPartition(part0)) {
+                                for (int part1 = mc_partitions1.firstPartition(); part1 != PartitionSet.END; part1 = mc_partitions1.nextPartition(part1)) {
                                     int partition = this.hasher.multiValueHash(part0, part1);
                                     table_partitions.add(partition);
                                     if (trace.val)
@@ -1475,6 +1498,8 @@ public class PartitionEstimator {
                                      final boolean is_array[],
                                      final List<Pair<ExpressionType, CatalogType>> predicates,
                                      final Column catalog_col) throws Exception {
+        final VoltType col_type = VoltType.get(catalog_col.getType());
+        
         // Note that we have to go through all of the mappings from the partitioning column
         // to parameters. This can occur when the partitioning column is referenced multiple times
         // This allows us to handle complex WHERE clauses and what not.
@@ -1505,7 +1530,7 @@ public class PartitionEstimator {
                         LOG.trace(String.format("%s is an array. Calculating multiple partitions", param));
                     for (int i = 0; i < num_elements; i++) {
                         Object value = Array.get(params[param_idx], i);
-                        int partition_id = this.hasher.hash(value, catalog_col);
+                        int partition_id = this.hashValue(value, col_type, catalog_col);
                         if (trace.val)
                             LOG.trace(String.format("%s HASHING PARAM ARRAY[%d][%d]: %s -> %d",
                             		  catalog_col.fullName(), param_idx, i, value, partition_id));
@@ -1515,7 +1540,7 @@ public class PartitionEstimator {
                 }
                 // Primitive Value
                 else {
-                    int partition_id = this.hasher.hash(params[param_idx], catalog_col);
+                    int partition_id = this.hashValue(params[param_idx], col_type, catalog_col);
                     if (trace.val)
                         LOG.trace(String.format("%s HASHING PARAM [%d]: %s -> %d",
                                   catalog_col.fullName(), param_idx, params[param_idx], partition_id));
@@ -1545,12 +1570,14 @@ public class PartitionEstimator {
      * @param catalog_proc
      * @param partition_param_val
      * @param is_array Whether the value is an array.
+     * @param param_type The catalog type of the parameter
      * @return
      * @throws Exception
      */
     private int calculatePartition(final Procedure catalog_proc,
                                    Object param_val,
-                                   final boolean is_array) throws Exception {
+                                   final boolean is_array,
+                                   final VoltType param_type) throws Exception {
         // If the parameter is an array, then just use the first value
         if (is_array) {
             int num_elements = Array.getLength(param_val);
@@ -1566,7 +1593,42 @@ public class PartitionEstimator {
                 LOG.warn("Null ProcParameter value: " + catalog_proc);
             return (HStoreConstants.NULL_PARTITION_ID);
         }
-        return (this.hasher.hash(param_val, catalog_proc));
+        return (this.hashValue(param_val, param_type, catalog_proc));
+    }
+    
+    /**
+     * Hash the given value using the hasher's primitive methods for the type
+     * that the catalog says that it should be. This avoids making the hasher
+     * figure out the value's type at run time. Anything else falls back
+     * to AbstractHasher.hash(Object, CatalogType).
+     * @param value
+     * @param type
+     * @param catalog_item
+     * @return
+     */
+    private int hashValue(final Object value, final VoltType type, final CatalogType catalog_item) {
+        switch (type) {
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+                if (value instanceof Long) {
+                    return (this.hasher.hash(((Long)value).longValue()));
+                } else if (value instanceof Integer) {
+                    return (this.hasher.hash(((Integer)value).intValue()));
+                }
+                break;
+            case STRING:
+                if (value instanceof String) {
+                    return (this.hasher.hash((String)value));
+                } else if (value instanceof byte[]) {
+                    return (this.hasher.hash((byte[])value));
+                }
+                break;
+            default:
+                break;
+        } // SWITCH
+        return (this.hasher.hash(value, catalog_item));
     }
 
     // ----------------------------------------------------------------------------
@@ -47,13 +47,37 @@ import edu.brown.hstore.HStoreConstants;
 /**
  * Container class that represents a list of partitionIds
  * This is the fastest way to represent a list of partitions in the system.
+ * <p>
+ * Iterating over this set using its Iterator will allocate a new object and box
+ * each partition id. On the hot paths you should use either the values() array or
+ * the firstPartition()/nextPartition() cursor, which does not allocate anything:
+ * <pre>
+ * for (int p = partitions.firstPartition(); p != PartitionSet.END; p = partitions.nextPartition(p)) {
+ *    ...
+ * }
+ * </pre>
+ * All three return the partitions in the same order, starting with the
+ * NULL_PARTITION_ID if it is in the set.
  * @author pavlo
  */
 public class PartitionSet implements Collection<Integer>, JSONSerializable, FastSerializable {
     
+    /**
+     * Returned by the nextPartition() cursor when there are no more partitions.
+     * This can't be -1 because that is the NULL_PARTITION_ID.
+     */
+    public static final int END = Integer.MIN_VALUE;
+    
     private final BitSet inner = new BitSet();
     private boolean contains_null = false;
     private int[] values = null;
+    
+    /**
+     * If set to true, then any attempt to modify this PartitionSet will
+     * throw an UnsupportedOperationException. This is used for the shared
+     * PartitionSets in the CatalogContext.
+     */
+    private boolean immutable = false;
 
     // ----------------------------------------------------------------------------
     // CONSTRUCTORS
@@ -97,10 +121,69 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
         this.addAll(partitions);
     }
     
+    // ----------------------------------------------------------------------------
+    // IMMUTABLE
+    // ----------------------------------------------------------------------------
+    
+    /**
+     * Prevent any further modifications to this PartitionSet.
+     * Once this is invoked, the PartitionSet can be shared between threads.
+     * Returns itself for convenience.
+     * @return
+     */
+    public PartitionSet makeImmutable() {
+        this.values();
+        this.immutable = true;
+        return (this);
+    }
+    
+    public boolean isImmutable() {
+        return (this.immutable);
+    }
+    
+    private void checkMutable() {
+        if (this.immutable) {
+            throw new UnsupportedOperationException("Trying to modify an immutable PartitionSet " + this);
+        }
+        this.values = null;
+    }
+    
     // ----------------------------------------------------------------------------
     // API METHODS
     // ----------------------------------------------------------------------------
 
+    /**
+     * Returns the first partition id in this set, or END if the set is empty.
+     * This is the NULL_PARTITION_ID if it is in the set.
+     * @return
+     */
+    public final int firstPartition() {
+        if (this.contains_null) return (HStoreConstants.NULL_PARTITION_ID);
+        return (this.nextPartition(HStoreConstants.NULL_PARTITION_ID));
+    }
+    
+    /**
+     * Returns the first partition id that comes after the given partition,
+     * or END if there is no such partition. This is a cursor that can be used
+     * to iterate over the set without allocating any objects.
+     * Passing in the NULL_PARTITION_ID returns the first partition
+     * that is not the NULL_PARTITION_ID.
+     * @param partition
+     * @return
+     */
+    public final int nextPartition(int partition) {
+        int next = this.inner.nextSetBit(partition + 1);
+        return (next == -1 ? END : next);
+    }
+    
+    /**
+     * Returns true if this PartitionSet contains the NULL_PARTITION_ID
+     * @return
+     */
+    public final boolean containsNull() {
+        return (this.contains_null);
+    }
+
     /**
      * Return a cached int array of the partition ids in this PartitionSet.
      * This is the preferred way (i.e., faster) to iterate over the contents of the set. You will
@@ -130,9 +213,8 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
      * @throws IndexOutOfBoundsException
      */
     public int get() throws IndexOutOfBoundsException {
-        for (int partition = 0, cnt = this.inner.size(); partition < cnt; partition++) {
-            if (this.inner.get(partition)) return (partition);
-        } // FOR
+        int partition = this.inner.nextSetBit(0);
+        if (partition != -1) return (partition);
         if (this.contains_null) return HStoreConstants.NULL_PARTITION_ID;
         throw new IndexOutOfBoundsException();
     }
@@ -140,11 +222,12 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof PartitionSet) {
-            return this.inner.equals(((PartitionSet)obj).inner);
+            PartitionSet other = (PartitionSet)obj;
+            return (this.contains_null == other.contains_null && this.inner.equals(other.inner));
         }
         else if (obj instanceof Collection<?>) {
             Collection<?> other = (Collection<?>)obj;
-            if (this.inner.size() != other.size()) return (false);
+            if (this.size() != other.size()) return (false);
             return (this.containsAll(other));
         }
         return (false);
@@ -171,9 +254,9 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
     }
     @Override
     public void clear() {
+        this.checkMutable();
         this.contains_null = false;
         this.inner.clear();
-        this.values = null;
     }
     @Override
     public boolean isEmpty() {
@@ -197,24 +280,22 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
     }
     @Override
     public Object[] toArray() {
-        int length = this.inner.cardinality();
-        Object arr[] = new Object[length];
-        int idx = 0;
-        for (Integer partition : this) {
-            arr[idx++] = partition;
-        }
+        int values[] = this.values();
+        Object arr[] = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            arr[i] = Integer.valueOf(values[i]);
+        } // FOR
         return (arr);
     }
     @SuppressWarnings("unchecked")
     @Override
     public <T> T[] toArray(T[] a) {
-        int length = this.inner.cardinality();
-        if (a.length != length) {
-            a = (T[])new Object[length];
+        int values[] = this.values();
+        if (a.length != values.length) {
+            a = (T[])new Object[values.length];
         }
-        int idx = 0;
-        for (Integer partition : this) {
-            a[idx++] = (T)partition;
+        for (int i = 0; i < values.length; i++) {
+            a[i] = (T)Integer.valueOf(values[i]);
         } // FOR
         return (a);
     }
@@ -223,12 +304,12 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
         return (this.add(e.intValue()));
     }
     public boolean add(int partition) {
+        this.checkMutable();
         if (partition == HStoreConstants.NULL_PARTITION_ID) {
             this.contains_null = true;
         } else {
             this.inner.set(partition);
         }
-        this.values = null;
         return (true);
     }
     @Override
@@ -240,6 +321,7 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
         return (false);
     }
     public boolean remove(int partition) {
+        this.checkMutable();
         boolean ret = false;
         if (partition == HStoreConstants.NULL_PARTITION_ID) {
             ret = this.contains_null;
@@ -248,7 +330,6 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
             ret = true;
             this.inner.set(partition, false);            
         }
-        this.values = null;
         return (ret);
     }
     @Override
@@ -261,14 +342,11 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
         return (true);
     }
     public boolean containsAll(PartitionSet partitions) {
-        if (this.contains_null != partitions.contains_null) return (false);
-        if (this.inner.intersects(partitions.inner)) {
-            for (int partition = 0, cnt = partitions.inner.size(); partition < cnt; partition++) {
-                if (partitions.inner.get(partition) && this.inner.get(partition) == false) return (false);
-            } // FOR
-            return (true);
-        }
-        return (false);
+        if (partitions.contains_null && this.contains_null == false) return (false);
+        for (int p = partitions.inner.nextSetBit(0); p != -1; p = partitions.inner.nextSetBit(p+1)) {
+            if (this.inner.get(p) == false) return (false);
+        } // FOR
+        return (true);
     }
     public boolean addAll(int partitions[]) {
         boolean ret = true;
@@ -286,6 +364,7 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
         return (ret);
     }
     public boolean addAll(PartitionSet partitions) {
+        this.checkMutable();
         if (partitions.contains_null) this.contains_null = true;
         this.inner.or(partitions.inner);
         return (true);
@@ -301,6 +380,7 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
         return (ret);
     }
     public boolean removeAll(PartitionSet partitions) {
+        this.checkMutable();
         boolean ret = false;
         if (partitions.contains_null) {
             ret = this.contains_null;
@@ -314,7 +394,7 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
     }
     @Override
     public boolean retainAll(Collection<?> c) {
-        for (Integer partition : this) {
+        for (int partition : this.values()) {
             if (c.contains(partition) == false) {
                 this.remove(partition);
             }
@@ -322,6 +402,7 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
         return (true);
     }
     public boolean retainAll(PartitionSet partitions) {
+        this.checkMutable();
         if (this.contains_null != partitions.contains_null) this.contains_null = false;
         this.inner.and(partitions.inner);
         return (true);
@@ -335,6 +416,13 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
     // STATIC METHODS
     // ----------------------------------------------------------------------------
     
+    /**
+     * Create a new PartitionSet that only contains the given partition.
+     * If you don't need to modify the set, then you should use
+     * CatalogContext.getPartitionSetSingleton() instead.
+     * @param partition
+     * @return
+     */
     public static PartitionSet singleton(int partition) {
         PartitionSet ret = new PartitionSet();
         ret.add(partition);
@@ -399,12 +487,9 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
             if (contains_null && this.shown_null == false) {
                 return (true);
             }
-            for (int cnt = inner.size(); this.idx < cnt; this.idx++) {
-                if (inner.get(this.idx)) {
-                    return (true);
-                }
-            } // FOR
-            return (false);
+            if (this.idx == -1) return (false);
+            this.idx = inner.nextSetBit(this.idx);
+            return (this.idx != -1);
         }
         @Override
         public Integer next() {
@@ -443,8 +528,8 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
     public void writeExternal(FastSerializer out) throws IOException {
         out.writeBoolean(this.contains_null);
         out.writeShort(this.inner.cardinality());
-        for (Integer partition : this) {
-            out.writeInt(partition.intValue());
+        for (int p = this.inner.nextSetBit(0); p != -1; p = this.inner.nextSetBit(p+1)) {
+            out.writeInt(p);
         } // FOR
     }
     
@@ -477,7 +562,7 @@ public class PartitionSet implements Collection<Integer>, JSONSerializable, Fast
     public void fromJSON(JSONObject json_object, Database catalog_db) throws JSONException {
         JSONArray json_arr = json_object.getJSONArray("P");
         for (int i = 0, cnt = json_arr.length(); i < cnt; i++) {
-            this.inner.set(json_arr.getInt(i));
+            this.add(json_arr.getInt(i));
         }
     }
 }
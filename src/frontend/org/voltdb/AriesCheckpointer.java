@@ -0,0 +1,704 @@
+package org.voltdb;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.log4j.Logger;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.jni.ExecutionEngine;
+import org.voltdb.sysprocs.saverestore.SnapshotUtil;
+import org.voltdb.sysprocs.saverestore.TableSaveFile;
+import org.voltdb.utils.DBBPool;
+import org.voltdb.utils.DBBPool.BBContainer;
+
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.hstore.HStoreConstants;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.FileUtil;
+
+/**
+ * ARIES checkpoints for a single partition.
+ * A checkpoint writes out every table using the EE's copy-on-write table stream
+ * while txns keep running, so it is a consistent image of the partition as of the
+ * moment that it started. We remember how big the ARIES log was at that moment.
+ * Once the checkpoint is durable, everything in the log before that point is
+ * thrown away, so recovery only has to load the last checkpoint and then replay
+ * the records that were logged after it started.
+ * <B>NOTE:</B> Everything here except for closing the checkpoint files and
+ * copying the log's tail must be invoked from the PartitionExecutor's thread.
+ */
+public class AriesCheckpointer {
+    private static final Logger LOG = Logger.getLogger(AriesCheckpointer.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    public static final String METADATA_FILE = "checkpoint.meta";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int NUM_BUFFERS = 2;
+    private static final int COPY_BUFFER_SIZE = 65536;
+
+    /**
+     * What we record about the last checkpoint that was made durable
+     */
+    public static class Checkpoint {
+        /** The last txn that committed at this partition before the checkpoint started */
+        public final long txnId;
+        /** The offset in the ARIES log where recovery should start replaying */
+        public final long logOffset;
+        /**
+         * If this is not negative, then we were in the middle of cutting the log
+         * down to this many bytes when this was written out
+         */
+        public final long logSize;
+        /** The name of the directory with the checkpoint's table files */
+        public final String dirName;
+
+        public Checkpoint(long txnId, long logOffset, String dirName) {
+            this(txnId, logOffset, -1, dirName);
+        }
+
+        public Checkpoint(long txnId, long logOffset, long logSize, String dirName) {
+            this.txnId = txnId;
+            this.logOffset = logOffset;
+            this.logSize = logSize;
+            this.dirName = dirName;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Checkpoint[txnId=%d, logOffset=%d, logSize=%d, dir=%s]",
+                                 this.txnId, this.logOffset, this.logSize, this.dirName);
+        }
+    }
+
+    private static class TableTask {
+        final Table catalog_tbl;
+        final SnapshotDataTarget target;
+        TableTask(Table catalog_tbl, SnapshotDataTarget target) {
+            this.catalog_tbl = catalog_tbl;
+            this.target = target;
+        }
+    }
+
+    private final int partitionId;
+    private final File ariesDir;
+    private final File logFile;
+    private final File metadataFile;
+
+    /**
+     * Invoked whenever there might be more checkpoint work for the
+     * PartitionExecutor to do after it was waiting on I/O.
+     */
+    private final Runnable onPotentialWork;
+
+    private final ConcurrentLinkedQueue<BBContainer> availableBuffers = new ConcurrentLinkedQueue<BBContainer>();
+    private final List<BBContainer> bufferOrigins = new ArrayList<BBContainer>();
+
+    // Checkpoint in progress
+    private Checkpoint current = null;
+    private ArrayDeque<TableTask> tasks = null;
+    private List<SnapshotDataTarget> targets = null;
+    private boolean closing = false;
+    private volatile boolean durable = false;
+    private volatile boolean failed = false;
+
+    /**
+     * The size of the log when its tail was copied to the front of the file,
+     * and how many bytes were copied. These are negative if the log will not
+     * be compacted for the current checkpoint.
+     */
+    private volatile long compactStart = -1;
+    private volatile long compactedSize = -1;
+
+    /**
+     * Constructor
+     * @param partitionId
+     * @param ariesDir The directory with this partition's ARIES log
+     * @param logFile The partition's ARIES log file
+     * @param onPotentialWork
+     */
+    public AriesCheckpointer(int partitionId, File ariesDir, File logFile, Runnable onPotentialWork) {
+        this.partitionId = partitionId;
+        this.ariesDir = ariesDir;
+        this.logFile = logFile;
+        this.metadataFile = new File(ariesDir, METADATA_FILE);
+        this.onPotentialWork = onPotentialWork;
+    }
+
+    private void initializeBufferPool() {
+        for (int i = 0; i < NUM_BUFFERS; i++) {
+            final BBContainer origin = DBBPool.allocateDirect(SnapshotSiteProcessor.m_snapshotBufferLength);
+            this.bufferOrigins.add(origin);
+            long address = 0;
+            if (EELibraryLoader.loadExecutionEngineLibrary(false)) {
+                address = DBBPool.getBufferAddress(origin.b);
+            }
+            this.availableBuffers.offer(new BBContainer(origin.b, address) {
+                @Override
+                public void discard() {
+                    availableBuffers.offer(this);
+                    onPotentialWork.run();
+                }
+            });
+        } // FOR
+    }
+
+    public void shutdown() {
+        for (BBContainer c : this.bufferOrigins) {
+            c.discard();
+        } // FOR
+        this.bufferOrigins.clear();
+        this.availableBuffers.clear();
+    }
+
+    /**
+     * Returns true if there is a checkpoint in progress
+     */
+    public boolean isActive() {
+        return (this.current != null);
+    }
+
+    // ----------------------------------------------------------------------------
+    // CHECKPOINT
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Start a new checkpoint. This must be invoked in between txns.
+     * Returns false if the checkpoint could not be started, which includes
+     * when a snapshot is already streaming out one of the tables.
+     * @param ee
+     * @param catalog_db
+     * @param lastCommittedTxnId
+     */
+    public boolean start(ExecutionEngine ee, Database catalog_db, long lastCommittedTxnId) {
+        assert(this.current == null);
+        if (this.bufferOrigins.isEmpty()) this.initializeBufferPool();
+
+        Checkpoint checkpoint = new Checkpoint(lastCommittedTxnId,
+                                               this.logFile.length(),
+                                               CHECKPOINT_PREFIX + System.currentTimeMillis());
+        File dir = new File(this.ariesDir, checkpoint.dirName);
+        FileUtil.makeDirIfNotExists(dir);
+
+        ArrayDeque<TableTask> newTasks = new ArrayDeque<TableTask>();
+        List<SnapshotDataTarget> newTargets = new ArrayList<SnapshotDataTarget>();
+        long createTime = System.currentTimeMillis();
+        try {
+            for (Table catalog_tbl : SnapshotUtil.getTablesToSave(catalog_db)) {
+                SnapshotDataTarget target = new DefaultSnapshotDataTarget(
+                        getTableFile(dir, catalog_tbl),
+                        0,
+                        CatalogUtil.getCluster(catalog_db).getName(),
+                        catalog_db.getName(),
+                        catalog_tbl.getName(),
+                        1,
+                        false,
+                        new int[]{ this.partitionId },
+                        CatalogUtil.getVoltTable(catalog_tbl),
+                        createTime);
+                newTargets.add(target);
+                newTasks.add(new TableTask(catalog_tbl, target));
+            } // FOR
+        } catch (IOException ex) {
+            LOG.error(String.format("Failed to create ARIES checkpoint files at partition %d", this.partitionId), ex);
+            closeTargets(newTargets);
+            FileUtil.deleteDirectory(dir);
+            return (false);
+        }
+
+        // The snapshot is consistent as of when we turn on copy-on-write
+        // for the tables, so nothing can run in between these
+        List<TableTask> activated = new ArrayList<TableTask>();
+        for (TableTask task : newTasks) {
+            if (ee.activateTableStream(task.catalog_tbl.getRelativeIndex(), TableStreamType.CHECKPOINT) == false) {
+                LOG.warn(String.format("Failed to activate copy-on-write mode for %s at partition %d. " +
+                                       "Skipping ARIES checkpoint",
+                                       task.catalog_tbl.getName(), this.partitionId));
+                this.cancelTableStreams(ee, activated);
+                closeTargets(newTargets);
+                FileUtil.deleteDirectory(dir);
+                return (false);
+            }
+            activated.add(task);
+        } // FOR
+
+        this.current = checkpoint;
+        this.tasks = newTasks;
+        this.targets = newTargets;
+        this.closing = false;
+        this.durable = false;
+        this.failed = false;
+        if (debug.val)
+            LOG.debug(String.format("Started ARIES %s at partition %d", checkpoint, this.partitionId));
+        return (true);
+    }
+
+    /**
+     * Throw away the checkpoint in progress so that its tables' copy-on-write
+     * streams can be used by a snapshot. Nothing happens if all of the tables have
+     * already been written out, since the streams are no longer in use then.
+     * This must be invoked in between txns.
+     * @param ee
+     */
+    public void cancel(ExecutionEngine ee) {
+        if (this.current == null || this.closing) return;
+        if (debug.val)
+            LOG.debug(String.format("Cancelling ARIES %s at partition %d", this.current, this.partitionId));
+
+        // Wait for the pending writes so that we get our buffers back
+        closeTargets(this.targets);
+        this.cancelTableStreams(ee, new ArrayList<TableTask>(this.tasks));
+        FileUtil.deleteDirectory(new File(this.ariesDir, this.current.dirName));
+        this.reset();
+    }
+
+    /**
+     * Turn copy-on-write mode back off for the given tables. The EE does not have a
+     * way to cancel a table stream, so we have to read through the rest of each one.
+     * @param ee
+     * @param tasks
+     */
+    private void cancelTableStreams(ExecutionEngine ee, List<TableTask> tasks) {
+        if (tasks.isEmpty()) return;
+        BBContainer buffer = this.availableBuffers.poll();
+        if (buffer == null) {
+            LOG.warn(String.format("Unable to cancel %d ARIES checkpoint table streams at partition %d",
+                     tasks.size(), this.partitionId));
+            return;
+        }
+        try {
+            for (TableTask task : tasks) {
+                int serialized;
+                do {
+                    buffer.b.clear();
+                    serialized = ee.tableStreamSerializeMore(buffer,
+                                                             task.catalog_tbl.getRelativeIndex(),
+                                                             TableStreamType.CHECKPOINT);
+                } while (serialized > 0);
+            } // FOR
+        } finally {
+            this.availableBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Do the next piece of work for the current checkpoint. Each invocation
+     * serializes at most one chunk of a table. Returns true if there is more
+     * work that can be done right away.
+     * @param ee
+     */
+    public boolean doWork(ExecutionEngine ee) {
+        if (this.current == null) return (false);
+
+        // Once the checkpoint is durable, we can throw away the old log
+        if (this.durable) {
+            this.finish();
+            return (false);
+        }
+        if (this.failed) {
+            LOG.warn(String.format("Discarding failed ARIES %s at partition %d", this.current, this.partitionId));
+            FileUtil.deleteDirectory(new File(this.ariesDir, this.current.dirName));
+            this.reset();
+            return (false);
+        }
+        if (this.closing) return (false);
+
+        while (this.tasks.isEmpty() == false) {
+            TableTask task = this.tasks.peek();
+            BBContainer buffer = this.availableBuffers.poll();
+            if (buffer == null) {
+                // Wait for one of the writes to finish
+                return (false);
+            }
+            int headerSize = task.target.getHeaderSize();
+            buffer.b.clear();
+            buffer.b.position(headerSize);
+            int serialized = ee.tableStreamSerializeMore(buffer,
+                                                         task.catalog_tbl.getRelativeIndex(),
+                                                         TableStreamType.CHECKPOINT);
+            if (serialized < 0) {
+                String msg = String.format("Failed to serialize %s for ARIES checkpoint at partition %d",
+                                           task.catalog_tbl.getName(), this.partitionId);
+                throw new RuntimeException(msg);
+            }
+            // The EE returns zero once there is nothing left in the table
+            else if (serialized == 0) {
+                this.tasks.poll();
+                this.availableBuffers.offer(buffer);
+                continue;
+            }
+            buffer.b.limit(headerSize + serialized);
+            buffer.b.position(0);
+            task.target.write(buffer);
+            return (this.availableBuffers.isEmpty() == false);
+        } // WHILE
+
+        // All of the tables have been written out, so now we need to sync them
+        // and then record the checkpoint. We also copy the log's tail here. We do
+        // this in a separate thread so that the PartitionExecutor can go back to
+        // running txns
+        this.closing = true;
+        final Checkpoint checkpoint = this.current;
+        final List<SnapshotDataTarget> closeTargets = this.targets;
+        Thread t = new Thread("ARIES checkpoint terminator " + this.partitionId) {
+            @Override
+            public void run() {
+                boolean success = closeTargets(closeTargets);
+                if (success) {
+                    try {
+                        writeMetadata(checkpoint);
+                    } catch (IOException ex) {
+                        LOG.error("Failed to record ARIES " + checkpoint, ex);
+                        success = false;
+                    }
+                }
+                if (success) {
+                    try {
+                        prepareCompaction(checkpoint);
+                    } catch (IOException ex) {
+                        // We still have the whole log, so recovery will just take longer
+                        LOG.error(String.format("Failed to copy ARIES log tail at partition %d", partitionId), ex);
+                    }
+                    durable = true;
+                } else {
+                    failed = true;
+                }
+                onPotentialWork.run();
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+        return (false);
+    }
+
+    /**
+     * Throw away everything in the log from before the checkpoint that
+     * was just made durable, and then delete any older checkpoints.
+     */
+    private void finish() {
+        Checkpoint checkpoint = this.current;
+        try {
+            this.compactLog(checkpoint);
+        } catch (IOException ex) {
+            // We still have the whole log, so recovery will just take longer
+            LOG.error(String.format("Failed to compact ARIES log at partition %d", this.partitionId), ex);
+        }
+        File dirs[] = this.ariesDir.listFiles();
+        if (dirs != null) {
+            for (File f : dirs) {
+                if (f.isDirectory() && f.getName().startsWith(CHECKPOINT_PREFIX) &&
+                    f.getName().equals(checkpoint.dirName) == false) {
+                    FileUtil.deleteDirectory(f);
+                }
+            } // FOR
+        }
+        if (debug.val)
+            LOG.debug(String.format("Finished ARIES %s at partition %d [logSize=%d]",
+                      checkpoint, this.partitionId, this.logFile.length()));
+        this.reset();
+    }
+
+    private void reset() {
+        this.current = null;
+        this.tasks = null;
+        this.targets = null;
+        this.closing = false;
+        this.durable = false;
+        this.failed = false;
+        this.compactStart = -1;
+        this.compactedSize = -1;
+    }
+
+    /**
+     * Copy everything in the log after the checkpoint's offset to the front of the log.
+     * This is invoked from the checkpoint's background thread after its metadata is
+     * durable, so the EE can keep appending to the log while we do this.
+     * We only overwrite the part of the log in front of the checkpoint's offset, so
+     * if we crash in the middle of this, recovery can still replay from that offset.
+     * If the tail is bigger than that, then we leave the log alone.
+     * @param checkpoint
+     * @throws IOException
+     */
+    void prepareCompaction(Checkpoint checkpoint) throws IOException {
+        this.compactStart = -1;
+        this.compactedSize = -1;
+        if (checkpoint.logOffset <= 0 || this.logFile.exists() == false) return;
+
+        RandomAccessFile raf = new RandomAccessFile(this.logFile, "rw");
+        try {
+            FileChannel log = raf.getChannel();
+            long end = log.size();
+            long tailSize = end - checkpoint.logOffset;
+            if (tailSize > checkpoint.logOffset) {
+                if (debug.val)
+                    LOG.debug(String.format("Not compacting ARIES log at partition %d [offset=%d, tail=%d]",
+                              this.partitionId, checkpoint.logOffset, tailSize));
+                return;
+            }
+            copy(log, checkpoint.logOffset, tailSize, 0);
+            log.force(true);
+            this.compactStart = end;
+            this.compactedSize = tailSize;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Cut the log down to the tail that prepareCompaction() copied to the front of it,
+     * plus whatever was appended to the log since then. Only the records appended since
+     * then are copied here. The EE only ever appends to the log from this partition's
+     * thread, so nothing can be added to it while we are doing this.
+     * @param checkpoint
+     * @throws IOException
+     */
+    void compactLog(Checkpoint checkpoint) throws IOException {
+        if (this.compactedSize < 0 || this.logFile.exists() == false) return;
+
+        RandomAccessFile raf = new RandomAccessFile(this.logFile, "rw");
+        try {
+            FileChannel log = raf.getChannel();
+            long appended = log.size() - this.compactStart;
+            long newSize = this.compactedSize + appended;
+            if (appended < 0 || newSize > checkpoint.logOffset) {
+                if (debug.val)
+                    LOG.debug(String.format("Not compacting ARIES log at partition %d [offset=%d, newSize=%d]",
+                              this.partitionId, checkpoint.logOffset, newSize));
+                return;
+            }
+            copy(log, this.compactStart, appended, this.compactedSize);
+            log.force(true);
+
+            // If we crash before the log is cut down, then recovery will finish it for us.
+            // Nothing past the checkpoint's offset has been touched yet, so if we fail
+            // here we can just go back to replaying from there.
+            this.writeMetadata(new Checkpoint(checkpoint.txnId, 0, newSize, checkpoint.dirName));
+            try {
+                log.truncate(newSize);
+            } catch (IOException ex) {
+                this.writeMetadata(checkpoint);
+                throw ex;
+            }
+            try {
+                log.force(true);
+            } finally {
+                // The EE will start appending to the log again after this, so recovery
+                // must not cut it back down to this size
+                this.writeMetadata(new Checkpoint(checkpoint.txnId, 0, checkpoint.dirName));
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Copy count bytes in the given file from the src position to the dest position.
+     * The dest position must come before the src position.
+     */
+    private static void copy(FileChannel channel, long src, long count, long dest) throws IOException {
+        assert(dest <= src);
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        long copied = 0;
+        while (copied < count) {
+            buffer.clear();
+            buffer.limit((int)Math.min(buffer.capacity(), count - copied));
+            int read = channel.read(buffer, src + copied);
+            if (read < 0) {
+                throw new IOException(String.format("Unexpected end of file at %d", src + copied));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, dest + copied + buffer.position());
+            } // WHILE
+            copied += read;
+        } // WHILE
+    }
+
+    private static boolean closeTargets(List<SnapshotDataTarget> targets) {
+        boolean success = true;
+        for (SnapshotDataTarget target : targets) {
+            try {
+                target.close();
+            } catch (Exception ex) {
+                LOG.error("Failed to close ARIES checkpoint file", ex);
+                success = false;
+            }
+            if (target.getLastWriteException() != null) success = false;
+        } // FOR
+        return (success);
+    }
+
+    private static File getTableFile(File dir, Table catalog_tbl) {
+        return (new File(dir, catalog_tbl.getName() + ".vpt"));
+    }
+
+    // ----------------------------------------------------------------------------
+    // METADATA
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Atomically replace the checkpoint metadata file
+     * @param checkpoint
+     * @throws IOException
+     */
+    void writeMetadata(Checkpoint checkpoint) throws IOException {
+        String json = null;
+        try {
+            JSONStringer stringer = new JSONStringer();
+            stringer.object()
+                    .key("TXNID").value(checkpoint.txnId)
+                    .key("LOGOFFSET").value(checkpoint.logOffset);
+            if (checkpoint.logSize >= 0) {
+                stringer.key("LOGSIZE").value(checkpoint.logSize);
+            }
+            stringer.key("DIR").value(checkpoint.dirName)
+                    .endObject();
+            json = stringer.toString();
+        } catch (Exception ex) {
+            throw new IOException(ex);
+        }
+        File tempFile = new File(this.metadataFile.getAbsolutePath() + TEMP_SUFFIX);
+        FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            out.write(json.getBytes());
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (tempFile.renameTo(this.metadataFile) == false) {
+            throw new IOException("Failed to rename " + tempFile + " to " + this.metadataFile);
+        }
+        // The rename is not durable until the directory is synced
+        syncDirectory(this.ariesDir);
+    }
+
+    private static void syncDirectory(File dir) throws IOException {
+        FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the last checkpoint that was made durable at this partition,
+     * or null if there isn't one.
+     */
+    public Checkpoint getLastCheckpoint() throws IOException {
+        if (this.metadataFile.exists() == false) return (null);
+        try {
+            JSONObject json = new JSONObject(FileUtil.readFile(this.metadataFile));
+            return (new Checkpoint(json.getLong("TXNID"),
+                                   json.getLong("LOGOFFSET"),
+                                   (json.has("LOGSIZE") ? json.getLong("LOGSIZE") : -1),
+                                   json.getString("DIR")));
+        } catch (Exception ex) {
+            throw new IOException("Invalid ARIES checkpoint metadata file " + this.metadataFile, ex);
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // RECOVERY
+    // ----------------------------------------------------------------------------
+
+    /**
+     * If we crashed while compacting the log, then finish cutting it down
+     * so that it matches the given checkpoint. Returns the checkpoint that
+     * recovery should use.
+     * @param checkpoint
+     */
+    Checkpoint repairLog(Checkpoint checkpoint) throws IOException {
+        if (checkpoint == null || checkpoint.logSize < 0) return (checkpoint);
+
+        LOG.info(String.format("Finishing ARIES log compaction at partition %d [logSize=%d]",
+                 this.partitionId, checkpoint.logSize));
+        if (this.logFile.exists() && this.logFile.length() > checkpoint.logSize) {
+            RandomAccessFile raf = new RandomAccessFile(this.logFile, "rw");
+            try {
+                raf.getChannel().truncate(checkpoint.logSize);
+                raf.getChannel().force(true);
+            } finally {
+                raf.close();
+            }
+        }
+        checkpoint = new Checkpoint(checkpoint.txnId, checkpoint.logOffset, checkpoint.dirName);
+        this.writeMetadata(checkpoint);
+        return (checkpoint);
+    }
+
+    /**
+     * Load the last checkpoint into the EE. This must be invoked before the log is
+     * read for replay. Returns the checkpoint that was loaded, whose logOffset is
+     * where the replay should start from, or null if there is no checkpoint.
+     * @param ee
+     * @param catalog_db
+     */
+    public Checkpoint recover(ExecutionEngine ee, Database catalog_db) throws IOException {
+        Checkpoint checkpoint = this.repairLog(this.getLastCheckpoint());
+        if (checkpoint == null) return (null);
+
+        // Loading the tables makes the EE log them, but those records are already
+        // in the checkpoint so we cut them back off afterwards
+        long logSize = this.logFile.length();
+
+        File dir = new File(this.ariesDir, checkpoint.dirName);
+        long tuples = 0;
+        for (Table catalog_tbl : SnapshotUtil.getTablesToSave(catalog_db)) {
+            File f = getTableFile(dir, catalog_tbl);
+            if (f.exists() == false) {
+                throw new IOException(String.format("Missing %s for %s", f, checkpoint));
+            }
+            FileInputStream in = new FileInputStream(f);
+            TableSaveFile savefile = new TableSaveFile(in.getChannel(), 3, new int[]{ this.partitionId });
+            try {
+                while (savefile.hasMoreChunks()) {
+                    BBContainer c = savefile.getNextChunk();
+                    if (c == null) continue;
+                    try {
+                        VoltTable vt = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b, true);
+                        tuples += vt.getRowCount();
+                        ee.loadTable(catalog_tbl.getRelativeIndex(), vt,
+                                     checkpoint.txnId, checkpoint.txnId,
+                                     HStoreConstants.NULL_UNDO_LOGGING_TOKEN, false);
+                    } finally {
+                        c.discard();
+                    }
+                } // WHILE
+            } finally {
+                savefile.close();
+                in.close();
+            }
+        } // FOR
+
+        if (this.logFile.exists() && this.logFile.length() > logSize) {
+            RandomAccessFile raf = new RandomAccessFile(this.logFile, "rw");
+            try {
+                raf.getChannel().truncate(logSize);
+                raf.getChannel().force(true);
+            } finally {
+                raf.close();
+            }
+        }
+        LOG.info(String.format("Loaded %d tuples from ARIES %s at partition %d",
+                 tuples, checkpoint, this.partitionId));
+        return (checkpoint);
+    }
+}
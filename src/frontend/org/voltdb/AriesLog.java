@@ -1,7 +1,5 @@
 package org.voltdb;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-
 // ARIES
 public abstract class AriesLog implements Runnable {
 	protected int logsize;			// in MBs
@@ -13,7 +11,18 @@ public abstract class AriesLog implements Runnable {
     public abstract void setTxnIdToBeginReplay(long txnId);
 	public abstract long getTxnIdToBeginReplay();
 	public abstract boolean isReadyForReplay();
-    public abstract void log(byte[] logbytes, AtomicBoolean isDurable);
+    /**
+     * Append a log record. This can be invoked by multiple threads at the same time.
+     * The given callback (if not null) will be invoked once the record is durable.
+     * Returns the LSN of the new record. The record is durable once it is less
+     * than or equal to the value returned by getDurableLSN().
+     */
+    public abstract long log(byte[] logbytes, Runnable callback);
+    /**
+     * Returns the LSN of the last record that is durable. Every record with
+     * a smaller LSN is also durable.
+     */
+    public abstract long getDurableLSN();
 	public abstract void setRecoveryCompleted(int siteId);
 	public abstract boolean isRecoveryCompleted();
 	public abstract boolean isRecoveryCompletedForSite(int siteId);
@@ -6,15 +6,17 @@ package org.voltdb;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.io.SyncFailedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
-import org.voltdb.utils.DBBPool.BBContainer;
 
-import edu.brown.hstore.PartitionExecutor;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 
@@ -46,18 +48,60 @@ public class AriesLogNative extends AriesLog {
 	private int m_numSites ;
     private int m_numPartitionsPerSite ;
 	
-	private static class LogDataWithAtom {
-		public byte b[];
-		public AtomicBoolean isDurable;
+	/**
+	 * How much we grow the log file by whenever we run out of room. Writing into
+	 * space that is already allocated means that each sync doesn't also have to
+	 * update the file's length.
+	 */
+	private static final long PREALLOCATE_SIZE = 64l * 1024l * 1024l; // 64MB
+	
+	private static class LogRecord {
+		public final long lsn;
+		public final byte b[];
+		public final Runnable callback;
 		
-		public LogDataWithAtom(byte b[], AtomicBoolean isDurable) {
+		public LogRecord(long lsn, byte b[], Runnable callback) {
+			this.lsn = lsn;
 			this.b = b;
-			this.isDurable = isDurable;
+			this.callback = callback;
 		}
 	}
 	
-	private List<LogDataWithAtom> m_waitingToFlush;
-	private List<LogDataWithAtom> m_beingFlushed;
+	private static final Comparator<LogRecord> LSN_COMPARATOR = new Comparator<LogRecord>() {
+		@Override
+		public int compare(LogRecord r0, LogRecord r1) {
+			return (r0.lsn < r1.lsn ? -1 : (r0.lsn == r1.lsn ? 0 : 1));
+		}
+	};
+	
+	/**
+	 * The LSN that will be given to the next record that is logged.
+	 */
+	private final AtomicLong m_nextLSN = new AtomicLong(1);
+	
+	/**
+	 * Records that have been logged but not yet picked up by the flush thread.
+	 * Threads can get their LSN and then be preempted before they add their record
+	 * here, so the records are not always in LSN order.
+	 */
+	private final ConcurrentLinkedQueue<LogRecord> m_waitingToFlush = new ConcurrentLinkedQueue<LogRecord>();
+	
+	// The following are only used by the flush thread
+	
+	/**
+	 * Records that can't be written yet because a record with a smaller LSN
+	 * hasn't shown up in m_waitingToFlush.
+	 */
+	private final PriorityQueue<LogRecord> m_pending = new PriorityQueue<LogRecord>(64, LSN_COMPARATOR);
+	private final List<LogRecord> m_beingFlushed = new ArrayList<LogRecord>();
+	private long m_nextToWrite = 1;
+	private long m_writeOffset = 0;
+	private long m_allocatedSize = 0;
+	
+	/**
+	 * The LSN of the last record that has been synced to disk.
+	 */
+	private volatile long m_durableLSN = 0;
 	
 	public AriesLogNative(int numSites, int numPartitionsPerSite, String logFileName) {
 		this(numSites, numPartitionsPerSite, 0, logFileName); // hardcode to 0 MB for now.
@@ -81,9 +125,6 @@ public class AriesLogNative extends AriesLog {
 		fsyncFrequency = syncFrequency;
 		logsize = size;			
 		
-		m_waitingToFlush = new ArrayList<LogDataWithAtom>();
-		m_beingFlushed = null;
-		
 		isInitialized = false;
 		
 		totalLogSize = 0;
@@ -140,6 +181,8 @@ public class AriesLogNative extends AriesLog {
 				//XXX Disable this
 				ariesLogfile = new RandomAccessFile(m_logFileName, "rw");
 				ariesLogfile.setLength(logsizeInMB * 1024 * 1024);
+				m_allocatedSize = ariesLogfile.length();
+				m_writeOffset = 0;
 				
 				ariesLogfile.seek(0);
 				
@@ -176,60 +219,70 @@ public class AriesLogNative extends AriesLog {
 		return String.valueOf(getAverageLogSize());
 	}
 	
-	private void flushData() {	    
-		swapFlushListWithEmpty();
+	/**
+	 * Write out all of the records that are ready with a single gathering write,
+	 * sync the log, and then tell everyone that their records are durable.
+	 * Records are always written in LSN order.
+	 */
+	private void flushData() {
+		LogRecord record = null;
+		while ((record = m_waitingToFlush.poll()) != null) {
+			m_pending.add(record);
+		} // WHILE
 		
-		if (m_beingFlushed == null || m_beingFlushed.size() == 0) {
-		    if(m_beingFlushed == null){
-		        //LOG.warn("AriesLogNative : m_beingFlushed :"+m_beingFlushed);
-		    }
-		    else{
-		        //LOG.warn("AriesLogNative : m_beingFlushed size :"+m_beingFlushed.size());
-		    }		        
+		m_beingFlushed.clear();
+		long numBytes = 0;
+		while (m_pending.isEmpty() == false && m_pending.peek().lsn == m_nextToWrite) {
+			record = m_pending.poll();
+			m_beingFlushed.add(record);
+			numBytes += record.b.length;
+			m_nextToWrite++;
+		} // WHILE
+		if (m_beingFlushed.isEmpty()) {
 			return;
 		}
 		
-		// write all log data to the file 
-		// in memory
-		for(LogDataWithAtom l : m_beingFlushed) {
-			try {
-				ariesLogfile.write(l.b);
-			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
+		ByteBuffer buffers[] = new ByteBuffer[m_beingFlushed.size()];
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = ByteBuffer.wrap(m_beingFlushed.get(i).b);
+		} // FOR
 		
-		// flush the log out
 		try {
-			ariesLogfile.getFD().sync();
-			
-	        LOG.debug("AriesLogNative : finished flushData :: File Size : "+ariesLogfile.length());
-		} catch (SyncFailedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			if (m_writeOffset + numBytes > m_allocatedSize) {
+				m_allocatedSize = Math.max(m_writeOffset + numBytes, m_allocatedSize + PREALLOCATE_SIZE);
+				ariesLogfile.setLength(m_allocatedSize);
+			}
+			FileChannel channel = ariesLogfile.getChannel();
+			channel.position(m_writeOffset);
+			long written = 0;
+			while (written < numBytes) {
+				written += channel.write(buffers);
+			} // WHILE
+			channel.force(false);
+			m_writeOffset += numBytes;
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			// Put everything back so that we try again the next time around
+			LOG.error("AriesLogNative : failed to flush " + m_beingFlushed.size() + " log records", e);
+			m_pending.addAll(m_beingFlushed);
+			m_nextToWrite = m_beingFlushed.get(0).lsn;
+			m_beingFlushed.clear();
+			return;
 		}
+		if (debug.val)
+			LOG.debug("AriesLogNative : finished flushData :: records : " + m_beingFlushed.size() +
+			          " bytes : " + numBytes + " offset : " + m_writeOffset);
 		
-		for(LogDataWithAtom l : m_beingFlushed) {
-			l.isDurable.set(true);
-		}
-
-		m_beingFlushed = null;
-	}
-
-	/**
-	 * 
-	 */
-	private void swapFlushListWithEmpty() {
-		// Must synchronize to avoid insertions into the list 
-		// during the swap.
-		synchronized (this) {
-			m_beingFlushed = m_waitingToFlush;
-			m_waitingToFlush = new ArrayList<LogDataWithAtom>();
-		}
+		m_durableLSN = m_beingFlushed.get(m_beingFlushed.size() - 1).lsn;
+		for (LogRecord l : m_beingFlushed) {
+			if (l.callback != null) {
+				try {
+					l.callback.run();
+				} catch (Throwable ex) {
+					LOG.error("AriesLogNative : unexpected error in durability callback", ex);
+				}
+			}
+		} // FOR
+		m_beingFlushed.clear();
 	}
 
 	@Override
@@ -259,20 +312,21 @@ public class AriesLogNative extends AriesLog {
 		return m_perSiteRecoveryDone[index];
 	}
 	
-	// Must synchronize because multiple sites might insert into the log
-	// concurrently
+	// Multiple sites might insert into the log concurrently, but
+	// we don't need a lock because the flush thread puts the records
+	// back in LSN order before it writes them out
 	@Override
-	public synchronized void log(byte[] logbytes, AtomicBoolean isDurable) {
-		LogDataWithAtom atom = new LogDataWithAtom(logbytes, isDurable);
-		
-		LOG.warn("AriesLogNative : log add atom :: size :"+m_waitingToFlush.size());
+	public long log(byte[] logbytes, Runnable callback) {
+		long lsn = m_nextLSN.getAndIncrement();
+		m_waitingToFlush.add(new LogRecord(lsn, logbytes, callback));
 		//totalLogSize += logbytes.length;
 		//numTransactions++;
-		
-		// Must lock further to avoid insertions during a list swap.
-		synchronized (this) {
-			m_waitingToFlush.add(atom);
-		}
+		return (lsn);
+	}
+	
+	@Override
+	public long getDurableLSN() {
+		return (m_durableLSN);
 	}
 
 	@Override
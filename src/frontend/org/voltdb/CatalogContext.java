@@ -188,10 +188,12 @@ public class CatalogContext {
             int p = part.getId();
             this.partitions[p] = part;
             this.partitionIdArray[p] = Integer.valueOf(p);
-            this.partitionSingletons[p] = new PartitionSet(p);
+            this.partitionSingletons[p] = new PartitionSet(p).makeImmutable();
             this.partitionIdCollection.add(this.partitionIdArray[p]);
             this.partitionSiteXref[part.getId()] = ((Site)part.getParent()).getId();
         } // FOR
+        // These are shared by everyone, so nobody is allowed to modify them
+        this.partitionIdCollection.makeImmutable();
         
         // ------------------------------------------------------------
         // TABLES
@@ -337,6 +339,7 @@ public class CatalogContext {
     
     /**
      * Return all the partition ids in this H-Store database cluster
+     * The returned PartitionSet is immutable.
      */
     public PartitionSet getAllPartitionIds() {
         return (this.partitionIdCollection);
@@ -351,6 +354,7 @@ public class CatalogContext {
     
     /**
      * Return a PartitionSet that only contains the given partition id
+     * The returned PartitionSet is immutable.
      * @param partition
      */
     public PartitionSet getPartitionSetSingleton(int partition) {
@@ -38,12 +38,29 @@ import java.util.zip.CRC32;
 import org.apache.log4j.Logger;
 import org.voltdb.client.ConnectionUtil;
 import org.voltdb.messaging.FastSerializer;
+import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.DBBPool;
 import org.voltdb.utils.DBBPool.BBContainer;
 
+import edu.brown.hstore.conf.HStoreConf;
+
 public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     private static final Logger LOG = Logger.getLogger(DefaultSnapshotDataTarget.class);
 
+    /**
+     * Value stored in the last slot of the header's version number when the
+     * tuple data of every chunk in the file has been compressed with Snappy.
+     * See TableSaveFile for the reader side.
+     */
+    public static final int VERSION_COMPRESSED_CHUNKS = 1;
+
+    /**
+     * Chunk length, partition id, partition id CRC and tuple data CRC.
+     * These stay uncompressed so that restore can validate them before
+     * decompressing anything.
+     */
+    public static final int CHUNK_HEADER_LENGTH = 16;
+
     public static volatile boolean m_simulateFullDiskWritingHeader = false;
     public static volatile boolean m_simulateFullDiskWritingChunk = false;
 
@@ -79,17 +96,59 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
     private final AtomicInteger m_outstandingWriteTasks = new AtomicInteger(0);
 
-    private static final ExecutorService m_es = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    /**
+     * Whether the tuple data of each chunk is compressed before it is written
+     */
+    private final boolean m_compress;
+
+    /**
+     * The write service that this target was assigned to. All of the writes for
+     * a single file go through the same thread so that they stay in order.
+     */
+    private final ExecutorService m_es;
+
+    /**
+     * Snapshot write services shared by all targets. Targets are assigned
+     * round-robin so that different files are compressed and written in parallel.
+     */
+    private static ExecutorService m_writeServices[] = null;
+    private static final AtomicInteger m_nextWriteService = new AtomicInteger(0);
+
+    /**
+     * Scratch space for compressed chunks. Only touched by the write service threads.
+     */
+    private static final ThreadLocal<ByteBuffer> m_compressionBuffer = new ThreadLocal<ByteBuffer>() {
         @Override
-        public Thread newThread(Runnable r) {
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(CHUNK_HEADER_LENGTH +
+                    CompressionService.maxCompressedLength(SnapshotSiteProcessor.m_snapshotBufferLength));
+        }
+    };
 
-            return new Thread(
-                    Thread.currentThread().getThreadGroup(),
-                    r,
-                    "Snapshot write service ",
-                    131072);
+    private static synchronized ExecutorService getWriteService() {
+        if (m_writeServices == null) {
+            int numThreads = 1;
+            if (HStoreConf.isInitialized()) {
+                numThreads = Math.max(1, HStoreConf.singleton().site.snapshot_writer_threads);
+            }
+            m_writeServices = new ExecutorService[numThreads];
+            for (int ii = 0; ii < numThreads; ii++) {
+                final int serviceId = ii;
+                m_writeServices[ii] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(
+                                Thread.currentThread().getThreadGroup(),
+                                r,
+                                "Snapshot write service " + serviceId,
+                                131072);
+                    }
+                });
+            } // FOR
         }
-    });
+        int idx = (m_nextWriteService.getAndIncrement() & Integer.MAX_VALUE) % m_writeServices.length;
+        return (m_writeServices[idx]);
+    }
 
     private static final ScheduledExecutorService m_syncService = Executors.newSingleThreadScheduledExecutor(
             new ThreadFactory() {
@@ -125,7 +184,9 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                 partitionIds,
                 schemaTable,
                 createTime,
-                new int[] { 0, 0, 0, 0 });
+                new int[] { 0, 0, 0, (HStoreConf.isInitialized() &&
+                                      HStoreConf.singleton().site.snapshot_compression ?
+                                            VERSION_COMPRESSED_CHUNKS : 0) });
     }
 
     public DefaultSnapshotDataTarget(
@@ -144,6 +205,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         String hostname = ConnectionUtil.getHostnameOrAddress();
         m_file = file;
         m_tableName = tableName;
+        m_compress = (version[3] >= VERSION_COMPRESSED_CHUNKS);
+        m_es = getWriteService();
         m_fos = new FileOutputStream(file);
         m_channel = m_fos.getChannel();
         final FastSerializer fs = new FastSerializer();
@@ -280,6 +343,12 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             @Override
             public Object call() throws Exception {
                 try {
+                    // Only tuple chunks are compressed, never the file header
+                    ByteBuffer data = tupleData.b;
+                    if (m_compress && prependLength) {
+                        data = compressChunk(tupleData.b);
+                    }
+
                     if (m_acceptOneWrite) {
                         m_acceptOneWrite = false;
                     } else {
@@ -288,11 +357,11 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                         }
                     }
 
-                    m_bytesAllowedBeforeSync.acquire(tupleData.b.remaining());
+                    m_bytesAllowedBeforeSync.acquire(data.remaining());
 
                     int totalWritten = 0;
-                    while (tupleData.b.hasRemaining()) {
-                        totalWritten += m_channel.write(tupleData.b);
+                    while (data.hasRemaining()) {
+                        totalWritten += m_channel.write(data);
                     }
                     m_bytesWritten += totalWritten;
                     m_bytesWrittenSinceLastSync.addAndGet(totalWritten);
@@ -315,6 +384,35 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         return writeTask;
     }
 
+    /**
+     * Compress the tuple data of a length-prefixed chunk into this thread's scratch buffer.
+     * The chunk header is copied as is and its length is rewritten to cover the compressed data.
+     * The CRC from the EE still covers the uncompressed tuple data so that restore can verify
+     * the chunk after it has been decompressed.
+     */
+    private static ByteBuffer compressChunk(ByteBuffer chunk) throws IOException {
+        final int start = chunk.position();
+        final int needed = CHUNK_HEADER_LENGTH +
+                           CompressionService.maxCompressedLength(chunk.remaining() - CHUNK_HEADER_LENGTH);
+        ByteBuffer output = m_compressionBuffer.get();
+        if (output.capacity() < needed) {
+            output = ByteBuffer.allocateDirect(needed);
+            m_compressionBuffer.set(output);
+        }
+        output.clear();
+
+        ByteBuffer header = chunk.duplicate();
+        header.limit(start + CHUNK_HEADER_LENGTH);
+        output.put(header);
+
+        chunk.position(start + CHUNK_HEADER_LENGTH);
+        final int compressedLength = CompressionService.compressBuffer(chunk, output);
+        output.position(0);
+        output.limit(CHUNK_HEADER_LENGTH + compressedLength);
+        output.putInt(0, output.remaining() - 4);
+        return (output);
+    }
+
     @Override
     public Future<?> write(final BBContainer tupleData) {
         return write(tupleData, true);
@@ -57,4 +57,12 @@ public @interface ProcInfo {
      */
     String mapInputQuery() default "";
     String reduceInputQuery() default "";
+    
+    /**
+     * Can this read-only single-partition procedure be executed without waiting
+     * in its partition's lock queue behind other transactions? If this is true and
+     * the site has txn_stale_reads enabled, then the procedure may not see the
+     * changes of transactions that arrived just before it.
+     */
+    boolean allowStaleReads() default false;
 }
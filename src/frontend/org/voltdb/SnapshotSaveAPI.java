@@ -35,6 +35,7 @@ import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 
 import edu.brown.catalog.CatalogUtil;
 import edu.brown.hstore.PartitionExecutor.SystemProcedureExecutionContext;
+import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.utils.CollectionUtil;
 
 /**
@@ -158,7 +159,7 @@ public class SnapshotSaveAPI
     }
 
 
-    private void createSetup(String file_path, String file_nonce,
+    private void createSetup(final String file_path, final String file_nonce,
             long startTime, SystemProcedureExecutionContext context,
             String hostname, final VoltTable result) {
         {            
@@ -182,15 +183,44 @@ public class SnapshotSaveAPI
 
                 final List<Table> tables = SnapshotUtil.getTablesToSave(context.getDatabase());
 
+                final String baseNonce;
                 synchronized (SnapshotSiteProcessor.m_digestWritten) {
-                    if (SnapshotSiteProcessor.m_digestWritten.get() == false) {
+                    if (SnapshotSiteProcessor.m_digestWritten.get() == false ||
+                            !file_nonce.equals(SnapshotSiteProcessor.m_lastSnapshotNonce) ||
+                            !file_path.equals(SnapshotSiteProcessor.m_lastSnapshotPath)) {
                         SnapshotSiteProcessor.m_digestWritten.set(true);
                         SnapshotUtil.recordSnapshotTableList(startTime, file_path, file_nonce, tables);
+                        setupSnapshotBase(file_path, file_nonce);
                         LOG.trace("Digest written at partition " + context.getPartitionExecutor().getPartitionId());
                     }
+                    baseNonce = SnapshotSiteProcessor.m_snapshotBaseNonce;
                 }
 
-                final AtomicInteger numTables = new AtomicInteger(tables.size());                
+                // For an incremental snapshot, only the tables that were changed since
+                // the base snapshot are written out. Restore finds the rest in the base.
+                final List<Table> tablesToWrite = new ArrayList<Table>();
+                for (Table table : tables) {
+                    if (baseNonce != null &&
+                            !context.getExecutionEngine().isTableModifiedSinceSnapshot(table.getRelativeIndex())) {
+                        final File saveFilePath =
+                            SnapshotUtil.constructFileForTable(table, file_path, file_nonce,
+                                                  String.valueOf(context.getHost().getId()),
+                                                  String.valueOf(context.getHStoreSite().getSiteId()),
+                                                  String.valueOf(context.getPartitionExecutor().getPartitionId())
+                                                  );
+                        // Remove the placeholder that was created by the save test
+                        if (saveFilePath.exists() && saveFilePath.length() == 0) {
+                            saveFilePath.delete();
+                        }
+                        if (LOG.isDebugEnabled())
+                            LOG.debug("Skipping unmodified table " + table.getTypeName() + " in snapshot " +
+                                      file_nonce + " at partition " + context.getPartitionExecutor().getPartitionId());
+                        continue;
+                    }
+                    tablesToWrite.add(table);
+                }
+
+                final AtomicInteger numTables = new AtomicInteger(tablesToWrite.size());                
                 //LOG.info("NumTables Initial : "+numTables);
                 
                 final SnapshotRegistry.Snapshot snapshotRecord =
@@ -201,9 +231,9 @@ public class SnapshotSaveAPI
                             context.getPartitionExecutor().getPartitionId(),                           
                             file_path,
                             file_nonce,
-                            tables.toArray(new Table[0]));
+                            tablesToWrite.toArray(new Table[0]));
                 
-                for (final Table table : SnapshotUtil.getTablesToSave(context.getDatabase()))
+                for (final Table table : tablesToWrite)
                 {
                     String canSnapshot = "SUCCESS";
                     String err_msg = "";
@@ -239,6 +269,9 @@ public class SnapshotSaveAPI
                                                 sdtFinal.getLastWriteException());
                                     }
                                 });
+                                if (sdtFinal.getLastWriteException() != null) {
+                                    markSnapshotFailed(file_path, file_nonce);
+                                }
                                 int tablesLeft = numTables.decrementAndGet();
                                 if (tablesLeft == 0) {
                                     final SnapshotRegistry.Snapshot completed =
@@ -286,6 +319,7 @@ public class SnapshotSaveAPI
                         PrintWriter pw = new PrintWriter(sw);
                         ex.printStackTrace(pw);
                         pw.flush();
+                        markSnapshotFailed(file_path, file_nonce);
                         canSnapshot = "FAILURE";
                         err_msg = "SNAPSHOT INITIATION OF " + saveFilePath +
                         "RESULTED IN IOException: \n" + sw.toString();
@@ -301,7 +335,7 @@ public class SnapshotSaveAPI
                 }
 
                 synchronized (SnapshotSiteProcessor.m_taskListsForSites) {
-                    if (!partitionedSnapshotTasks.isEmpty() || !replicatedSnapshotTasks.isEmpty()) {
+                    if (!partitionedSnapshotTasks.isEmpty() || !replicatedSnapshotTasks.isEmpty() || baseNonce != null) {
 
                         // Used to sync across all partitions on all sites - set only once                        
                         if(SnapshotSiteProcessor.ExecutionSitesCurrentlySnapshotting.get() == -1){
@@ -312,7 +346,8 @@ public class SnapshotSaveAPI
                         for (int ii = 0; ii < numLocalPartitions; ii++) {
                             SnapshotSiteProcessor.m_taskListsForSites.add(new ArrayDeque<SnapshotTableTask>());
                         }
-                    } else {
+                    }
+                    if (partitionedSnapshotTasks.isEmpty() && replicatedSnapshotTasks.isEmpty()) {
                         SnapshotRegistry.discardSnapshot(snapshotRecord);
                     }
 
@@ -382,6 +417,58 @@ public class SnapshotSaveAPI
         }
     }
 
+    /**
+     * Decide whether the snapshot that is being set up can be an incremental
+     * snapshot of the previous one. This is only done once per snapshot and
+     * must be called while holding the m_digestWritten lock.
+     * @param file_path
+     * @param file_nonce
+     * @throws IOException
+     */
+    private static void setupSnapshotBase(String file_path, String file_nonce) throws IOException {
+        String baseNonce = null;
+        if (HStoreConf.isInitialized() && HStoreConf.singleton().site.snapshot_incremental &&
+                file_path.equals(SnapshotSiteProcessor.m_lastSnapshotPath) &&
+                SnapshotSiteProcessor.m_incrementalChainLength < HStoreConf.singleton().site.snapshot_incremental_chain &&
+                SnapshotSiteProcessor.m_lastSnapshotFailed == false &&
+                new File(file_path, SnapshotUtil.constructDigestFilenameForNonce(
+                        SnapshotSiteProcessor.m_lastSnapshotNonce)).exists()) {
+            baseNonce = SnapshotSiteProcessor.m_lastSnapshotNonce;
+        }
+
+        if (baseNonce != null) {
+            SnapshotUtil.recordSnapshotBase(file_path, file_nonce, baseNonce);
+            SnapshotSiteProcessor.m_incrementalChainLength++;
+            LOG.info("Snapshot " + file_nonce + " is incremental on top of snapshot " + baseNonce);
+        } else {
+            // Make sure that a full snapshot is never mistaken for an incremental one
+            File f = new File(file_path, SnapshotUtil.constructBaseFilenameForNonce(file_nonce));
+            if (f.exists() && !f.delete()) {
+                throw new IOException("Unable to remove snapshot base file " + f);
+            }
+            SnapshotSiteProcessor.m_incrementalChainLength = 0;
+        }
+        SnapshotSiteProcessor.m_snapshotBaseNonce = baseNonce;
+        SnapshotSiteProcessor.m_lastSnapshotPath = file_path;
+        SnapshotSiteProcessor.m_lastSnapshotNonce = file_nonce;
+        SnapshotSiteProcessor.m_lastSnapshotFailed = false;
+    }
+
+    /**
+     * Record that a table of the given snapshot could not be written out, so
+     * that the next snapshot is a full snapshot instead of building on it.
+     * @param file_path
+     * @param file_nonce
+     */
+    private static void markSnapshotFailed(String file_path, String file_nonce) {
+        synchronized (SnapshotSiteProcessor.m_digestWritten) {
+            if (file_nonce.equals(SnapshotSiteProcessor.m_lastSnapshotNonce) &&
+                    file_path.equals(SnapshotSiteProcessor.m_lastSnapshotPath)) {
+                SnapshotSiteProcessor.m_lastSnapshotFailed = true;
+            }
+        }
+    }
+
     private VoltTable acquireSnapshotPermit(SystemProcedureExecutionContext context,
             String hostname, final VoltTable result) {
         try {
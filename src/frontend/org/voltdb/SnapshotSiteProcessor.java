@@ -117,6 +117,34 @@ public class SnapshotSiteProcessor {
      */
     public static AtomicBoolean m_finishedSetup = new AtomicBoolean(false);
 
+    /**
+     * The path and nonce of the last snapshot that was set up. Used to
+     * find the base of the next incremental snapshot.
+     * Guarded by m_digestWritten.
+     */
+    public static String m_lastSnapshotPath = null;
+    public static String m_lastSnapshotNonce = null;
+
+    /**
+     * The nonce of the snapshot that the current snapshot is based on,
+     * or null if the current snapshot is a full snapshot.
+     * Guarded by m_digestWritten.
+     */
+    public static String m_snapshotBaseNonce = null;
+
+    /**
+     * The number of incremental snapshots taken since the last full snapshot
+     * Guarded by m_digestWritten.
+     */
+    public static int m_incrementalChainLength = 0;
+
+    /**
+     * Set if any table of the last snapshot could not be written out. The
+     * next snapshot is never an incremental snapshot of a failed one.
+     * Guarded by m_digestWritten.
+     */
+    public static boolean m_lastSnapshotFailed = false;
+
     
     /**
      * A class identifying a table that should be snapshotted as well as the destination
@@ -200,6 +228,13 @@ public class SnapshotSiteProcessor {
         }
     }
 
+    /**
+     * Returns true if this partition's tables are still being streamed out for a snapshot
+     */
+    public boolean isActive() {
+        return (m_snapshotTableTasks != null);
+    }
+
     public Future<?> doSnapshotWork(ExecutionEngine ee) {
         Future<?> retval = null;
 
@@ -28,6 +28,7 @@ public enum SysProcSelector {
     SNAPSHOTSTATUS,
     TXNCOUNTER,     // transaction counter information
     TXNPROFILER,    // transaction profiler information
+    TXNTRACE,       // transaction lifecycle latency percentiles
     EXECPROFILER,   // executor profiler information
     QUEUEPROFILER,  // transaction queue manager profiler information
     MARKOVPROFILER, // markov estimation profiler information
@@ -37,4 +38,5 @@ public enum SysProcSelector {
     ANTICACHE,      // anti-cache manager information
     ANTICACHEEVICTIONS, // anti-cache eviction history
     ANTICACHEACCESS, // anti-cache evicted access history
+    QUERYCACHE,     // query cache hit ratio and memory usage
 }
@@ -31,5 +31,11 @@ public enum TableStreamType {
      * that is actively being modified. The stream starts by transporting all the tuple data
      * and then transports the set of modified and deleted tuples in a separate synchronous phase.
      */
-    RECOVERY
+    RECOVERY,
+    /*
+     * The same copy on write stream as SNAPSHOT, but used for ARIES checkpoints.
+     * Finishing one does not count as a snapshot of the table, so incremental
+     * snapshots still write out the tables that were changed before it.
+     */
+    CHECKPOINT
 }
@@ -88,6 +88,62 @@ public abstract class TheHashinator {
         return -1;
     }
 
+    /**
+     * Given the UTF-8 bytes of a String, pick a partition to store the data.
+     * This returns the same partition as hashinate(Object) does for the String.
+     *
+     * @param bytes The UTF-8 encoded value to hash.
+     * @param partitionCount The number of partitions to choose from.
+     * @return A value between 0 and partitionCount-1
+     */
+    static int hashinate(byte bytes[], int partitionCount) {
+        int hashCode = 0;
+        for (int ii = 0; ii < bytes.length; ii++) {
+            hashCode = 31 * hashCode + bytes[ii];
+        }
+        return java.lang.Math.abs(hashCode % partitionCount);
+    }
+
+    /**
+     * Given a long value and a number of partitions, map it to a partition.
+     * This is the same as hashToPartition(Object, int) without the boxing.
+     * @param value The value to be mapped to a partition.
+     * @param partitionCount The number of partitions TheHashinator will use
+     * @return The id of the partition desired.
+     */
+    public static int hashToPartition(long value, int partitionCount) {
+        return hashinate(value, partitionCount);
+    }
+
+    /**
+     * Given a String and a number of partitions, map it to a partition.
+     * Strings that only contain ASCII characters are hashed without
+     * having to encode them first.
+     * @param value The value to be mapped to a partition.
+     * @param partitionCount The number of partitions TheHashinator will use
+     * @return The id of the partition desired.
+     */
+    public static int hashToPartition(String value, int partitionCount) {
+        int hashCode = 0;
+        for (int ii = 0, cnt = value.length(); ii < cnt; ii++) {
+            char c = value.charAt(ii);
+            // The UTF-8 encoding of anything else is more than one byte
+            if (c >= 0x80) return hashinate((Object)value, partitionCount);
+            hashCode = 31 * hashCode + c;
+        }
+        return java.lang.Math.abs(hashCode % partitionCount);
+    }
+
+    /**
+     * Given the UTF-8 bytes of a String and a number of partitions, map it to a partition.
+     * @param value The value to be mapped to a partition.
+     * @param partitionCount The number of partitions TheHashinator will use
+     * @return The id of the partition desired.
+     */
+    public static int hashToPartition(byte value[], int partitionCount) {
+        return hashinate(value, partitionCount);
+    }
+
     /**
      * Given an object, map it to a partition.
      * @param obj The object to be mapped to a partition.
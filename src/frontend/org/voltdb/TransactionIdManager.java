@@ -19,10 +19,12 @@ package org.voltdb;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
-import edu.brown.hstore.HStore;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
 
 /**
  * <p>The TransactionIdManager creates Transaction ids that
@@ -40,6 +42,10 @@ import edu.brown.hstore.HStore;
  */
 public class TransactionIdManager {
     private static final Logger LOG = Logger.getLogger(TransactionIdManager.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
     
     // bit sizes for each of the fields in the 64-bit id
     // note, these add up to 63 bits to make dealing with
@@ -47,8 +53,6 @@ public class TransactionIdManager {
     static final long TIMESTAMP_BITS = 40;
     static final long COUNTER_BITS = 13;
     static final long INITIATORID_BITS = 10;
-    
-    static final int DRIFT_CHECK = 5; // ms
 
     // VOLT_EPOCH holds the time in millis since 1/1/2008 at 12am.
     // The current time - VOLT_EPOCH should fit nicely in 40 bits
@@ -72,17 +76,15 @@ public class TransactionIdManager {
     static final long INITIATORID_MAX_VALUE = (1L << INITIATORID_BITS) - 1L;
 
     // the local siteid
-    long initiatorId;
-    // the time of the previous txn id generation
-    long lastUsedTime = -1;
-    // the number of txns generated during the same value
-    // for System.currentTimeMillis()
-    long counterValue = 0;
+    final long initiatorId;
 
-    // remembers the last txn generated
-    Long lastTxnId = 0l;
-    
-    long time_delta = 0L;
+    // The hybrid logical clock that we generate txn ids from. The upper bits are
+    // the time in millis since VOLT_EPOCH and the lower COUNTER_BITS are the
+    // logical counter for that millisecond. This is exactly the txn id shifted
+    // over by INITIATORID_BITS, so it only ever moves forward.
+    private final AtomicLong clock = new AtomicLong(0);
+
+    private volatile long time_delta = 0L;
 
     /**
      * Initialize the TransactionIdManager for this site
@@ -96,67 +98,33 @@ public class TransactionIdManager {
      * Generate a unique id that contains a timestamp, a counter
      * and a siteid packed into a 64-bit long value. Subsequent calls
      * to this method will return strictly larger long values.
+     * <p>
+     * This never blocks. If the system clock has not moved past the last id's
+     * timestamp (because we ran out of counter values for this millisecond or
+     * because the clock was moved backwards), then we just keep incrementing
+     * the logical counter, which carries over into the timestamp. Once the
+     * physical clock catches up, the ids go back to using it.
      * @return The newly generated transaction id.
      */
-    public Long getNextUniqueTransactionId() {
-        long currentTime = 0;
-        long currentCounter = 0;
-        
-        synchronized (this) {
-            currentTime = System.currentTimeMillis();
-            if (currentTime == this.lastUsedTime) {
-                // increment the counter for this millisecond
-                currentCounter = ++this.counterValue;
-    
-                // handle the case where we've run out of counter values
-                // for this particular millisecond (feels unlikely)
-                if (this.counterValue > COUNTER_MAX_VALUE) {
-                    LOG.warn("TOO MANY TXNS! SPIN LOCK!!!");
-                    // spin until the next millisecond
-                    while (currentTime == this.lastUsedTime)
-                        currentTime = System.currentTimeMillis();
-                    // reset the counter and lastUsedTime for the new millisecond
-                    this.lastUsedTime = currentTime;
-                    currentCounter = this.counterValue = 0;
-                }
-            }
-            else {
-                // reset the counter and lastUsedTime for the new millisecond
-                if (currentTime < this.lastUsedTime) {
-                    LOG.warn(String.format("Initiator time moved backwards from %d to %d by %d ms!!!",
-                                           this.lastUsedTime, currentTime, (this.lastUsedTime - currentTime)));
-                    // if the diff is less than 5 ms, wait a bit
-                    if ((this.lastUsedTime - currentTime) < DRIFT_CHECK) {
-                        int count = 1000;
-                        // note, the loop should stop once lastUsedTime is PASSED, not current
-                        while ((currentTime <= this.lastUsedTime) && (count-- > 0)) {
-                            try {
-                                Thread.sleep(this.lastUsedTime - currentTime + 1);
-                            } catch (InterruptedException e) {}
-                            currentTime = System.currentTimeMillis();
-                        }
-                        // if the loop above ended because it ran too much
-                        if (count < 0) {
-                            LOG.error("H-Store was unable to recover after the system time was externally negatively adusted. " +
-                                      "It is possible that there is a serious system time or NTP error. ");
-                            HStore.crashDB();
-                        }
-                    }
-                    // crash immediately if time has gone backwards by too much
-                    else {
-                        HStore.crashDB();
-                    }
-                }
-                this.lastUsedTime = currentTime;
-                currentCounter = this.counterValue = 0;
+    public long getNextUniqueTransactionId() {
+        long prev, next;
+        do {
+            prev = this.clock.get();
+            long currentTime = System.currentTimeMillis() + this.time_delta - VOLT_EPOCH;
+            if (currentTime > (prev >>> COUNTER_BITS)) {
+                next = currentTime << COUNTER_BITS;
+            } else {
+                next = prev + 1;
             }
-        } // SYNCH
+        } while (this.clock.compareAndSet(prev, next) == false);
 
-        Long newTxnId = new Long(makeIdFromComponents(currentTime + this.time_delta,
-                                 currentCounter,
-                                 this.initiatorId));
-        this.lastTxnId = newTxnId;
-        return (newTxnId);
+        if (debug.val && (prev & COUNTER_MAX_VALUE) == COUNTER_MAX_VALUE) {
+            LOG.debug(String.format("Logical clock at initiator %d is now %d ms ahead of the system time",
+                      this.initiatorId, (next >>> COUNTER_BITS) -
+                                        (System.currentTimeMillis() + this.time_delta - VOLT_EPOCH)));
+        }
+        assert((next >>> COUNTER_BITS) <= TIMESTAMP_MAX_VALUE);
+        return ((next << INITIATORID_BITS) | this.initiatorId);
     }
 
     public static long makeIdFromComponents(long ts, long seqNo, long initiatorId) {
@@ -222,12 +190,16 @@ public class TransactionIdManager {
      * Get the last txn id generated.
      * @return The last txn id generated.
      */
-    public Long getLastTxnId() {
-        return lastTxnId;
+    public long getLastTxnId() {
+        long last = this.clock.get();
+        if (last == 0) return (0);
+        return ((last << INITIATORID_BITS) | this.initiatorId);
     }
 
     public long getLastUsedTime() {
-        return lastUsedTime;
+        long last = this.clock.get();
+        if (last == 0) return (-1);
+        return ((last >>> COUNTER_BITS) + VOLT_EPOCH);
     }
 
     /**
@@ -32,7 +32,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.voltdb.catalog.CatalogMap;
@@ -60,6 +59,7 @@ import edu.brown.hstore.PartitionExecutor.SystemProcedureExecutionContext;
 import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.hstore.util.ParameterSetArrayCache;
+import edu.brown.hstore.util.ProcedureInvoker;
 import edu.brown.interfaces.DebugContext;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
@@ -111,6 +111,7 @@ public abstract class VoltProcedure implements Poolable {
 
     // private members reserved exclusively to VoltProcedure
     private Method procMethod;
+    private ProcedureInvoker procInvoker;
     private boolean procMethodNoJava = false;
     private boolean procIsMapReduce = false;
     private Class<?>[] paramTypes;
@@ -415,6 +416,17 @@ public abstract class VoltProcedure implements Poolable {
                       this.procedure_name, this.partitionId));
     }
     
+    /**
+     * Use the given ProcedureInvoker to call this procedure's run() method
+     * instead of reflection. This is only allowed for regular Java procedures.
+     * @param invoker
+     */
+    public void setProcedureInvoker(ProcedureInvoker invoker) {
+        assert(invoker == null || (this.procMethodNoJava == false && this.procIsMapReduce == false)) :
+            "Unable to use a " + ProcedureInvoker.class.getSimpleName() + " for " + this.procedure_name;
+        this.procInvoker = invoker;
+    }
+    
     protected SQLStmt getSQLStmt(String name) {
         return (this.stmts.get(name));
     }
@@ -597,7 +609,12 @@ public abstract class VoltProcedure implements Poolable {
                     }
                 }
                 
-                Object rawResult = this.procMethod.invoke(this, this.procParams);
+                Object rawResult = null;
+                if (this.procInvoker != null) {
+                    rawResult = this.procInvoker.invoke(this, this.procParams);
+                } else {
+                    rawResult = this.procMethod.invoke(this, this.procParams);
+                }
                 this.results = this.getResultsFromRawResults(rawResult);
                 if (this.results == null) results = HStoreConstants.EMPTY_RESULT;
 
@@ -961,8 +978,8 @@ public abstract class VoltProcedure implements Poolable {
                     arieslogData = new byte[bufferLength];
                     this.executor.getArieslogData(bufferLength, arieslogData);
 
-                    // we don't really care much about this atomic boolean here
-                    this.hstore_site.getAriesLogger().log(arieslogData, new AtomicBoolean());
+                    // we don't need to know when this is durable
+                    this.hstore_site.getAriesLogger().log(arieslogData, null);
                 }
             }
             
@@ -20,8 +20,10 @@ package org.voltdb;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -117,6 +119,7 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
     static final int NULL_STRING_INDICATOR = -1;
     static final String METADATA_ENCODING = "US-ASCII";
     static final String ROWDATA_ENCODING = "UTF-8";
+    static final Charset ROWDATA_CHARSET = Charset.forName(ROWDATA_ENCODING);
 
     static final AtomicInteger expandCountDouble = new AtomicInteger(0);
 
@@ -125,6 +128,9 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
     int m_rowCount = -1;
     int m_colCount = -1;
 
+    /** Lazily created cursor for appending typed values */
+    private RowAppender m_appender;
+
     /**
      * <p>Object that represents the name and schema for a {@link VoltTable} column.
      * Primarily used to construct in the constructor {@link VoltTable#VoltTable(ColumnInfo...)}
@@ -338,6 +344,8 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
         m_buffer.position(m_rowStart);
         m_buffer.putInt(0);
         m_rowCount = 0;
+        if (m_appender != null)
+            m_appender.m_rowPosition = -1;
         assert(verifyTableInvariants());
     }
 
@@ -350,7 +358,7 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
     @Override
     public VoltTableRow cloneRow() {
         Row retval = new Row(m_position);
-        retval.m_hasCalculatedOffsets = m_hasCalculatedOffsets;
+        retval.m_numCalculatedOffsets = m_numCalculatedOffsets;
         retval.m_wasNull = m_wasNull;
         if (m_offsets != null)
             for (int i = 0; i < m_colCount; i++)
@@ -404,6 +412,11 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
             return VoltTable.this.getColumnType(columnIndex);
         }
 
+        @Override
+        protected VoltType[] getColumnTypes() {
+            return VoltTable.this.getColumnTypes();
+        }
+
         @Override
         protected int getRowCount() {
             return VoltTable.this.getRowCount();
@@ -422,7 +435,7 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
         @Override
         public VoltTableRow cloneRow() {
             Row retval = new Row(m_position);
-            retval.m_hasCalculatedOffsets = m_hasCalculatedOffsets;
+            retval.m_numCalculatedOffsets = m_numCalculatedOffsets;
             retval.m_wasNull = m_wasNull;
             for (int i = 0; i < m_colCount; i++)
                 retval.m_offsets[i] = m_offsets[i];
@@ -465,12 +478,22 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
 
     @Override
     public VoltType getColumnType(int index) {
-        assert(verifyTableInvariants());
         assert(index < m_colCount);
-        // move to the right place
-        VoltType retval = VoltType.get(m_buffer.get(4 + 1 + 2 + index));//headerLength + status code + column count
-        assert(verifyTableInvariants());
-        return retval;
+        return getColumnTypes()[index];
+    }
+
+    @Override
+    protected VoltType[] getColumnTypes() {
+        if (m_columnTypes == null) {
+            assert(verifyTableInvariants());
+            final VoltType[] types = new VoltType[m_colCount];
+            for (int i = 0; i < m_colCount; i++) {
+                // move to the right place
+                types[i] = VoltType.get(m_buffer.get(4 + 1 + 2 + i));//headerLength + status code + column count
+            }
+            m_columnTypes = types;
+        }
+        return m_columnTypes;
     }
 
     @Override
@@ -560,10 +583,17 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
      * Append a {@link VoltTableRow row} from another <tt>VoltTable</tt>
      * to this VoltTable instance. Technically, it could be from the same
      * table, but this isn't the common usage.
+     * If the other table has the same column types as this one, then the
+     * row's serialized bytes are copied as-is without deserializing its values.
      * @param row {@link VoltTableRow Row} to add.
      */
     public final void add(VoltTableRow row) {
         assert(verifyTableInvariants());
+        final VoltType[] rowTypes = row.getColumnTypes();
+        if (rowTypes == getColumnTypes() || Arrays.equals(rowTypes, getColumnTypes())) {
+            addRawRow(row);
+            return;
+        }
         final Object[] values = new Object[m_colCount];
         for (int i = 0; i < m_colCount; i++) {
             try {
@@ -827,6 +857,485 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
         assert(verifyTableInvariants());
     }
 
+    /**
+     * Append multiple rows to the table from arrays of column values.
+     * There must be one array for each column in the table and each array must
+     * have at least <tt>numRows</tt> elements. The arrays can be primitive arrays
+     * (<tt>long[]</tt>, <tt>int[]</tt>, <tt>short[]</tt>, <tt>byte[]</tt>, <tt>double[]</tt>,
+     * <tt>boolean[]</tt>), or <tt>String[]</tt>, <tt>byte[][]</tt>, <tt>TimestampType[]</tt>,
+     * <tt>BigDecimal[]</tt>, or <tt>Object[]</tt>. A <tt>null</tt> element in an
+     * object array is stored as SQL <tt>null</tt>.
+     * <p>This avoids allocating a boxed value for every cell like {@link #addRow(Object...)} does.</p>
+     * @param numRows The number of rows to add
+     * @param columns The values of each column
+     * @throws VoltTypeException when an array does not match the type of its column
+     */
+    public final void addRowsFromColumns(int numRows, Object... columns) {
+        if (columns.length != m_colCount) {
+            throw new IllegalArgumentException(columns.length + " arguments but table has " + m_colCount + " columns");
+        }
+        for (int col = 0; col < m_colCount; col++) {
+            if (columns[col] == null || columns[col].getClass().isArray() == false) {
+                throw new IllegalArgumentException("Values for column " + col + " (" + getColumnName(col) + ") are not an array");
+            }
+        }
+        final RowAppender appender = getRowAppender();
+
+        // Grow the buffer once for the fixed-size portion of all of the rows
+        final VoltType[] types = getColumnTypes();
+        long fixedSize = ROW_HEADER_SIZE;
+        for (VoltType type : types) {
+            fixedSize += (type == VoltType.STRING ? STRING_LEN_SIZE : type.getLengthInBytesForFixedTypes());
+        }
+        ensureCapacity((int)Math.min(fixedSize * numRows, MAX_SERIALIZED_TABLE_LENGTH));
+
+        for (int row = 0; row < numRows; row++) {
+            appender.startRow();
+            for (int col = 0; col < m_colCount; col++) {
+                final Object values = columns[col];
+                if (values instanceof long[])
+                    appender.appendLong(((long[])values)[row]);
+                else if (values instanceof int[])
+                    appender.appendLong(((int[])values)[row]);
+                else if (values instanceof short[])
+                    appender.appendLong(((short[])values)[row]);
+                else if (values instanceof byte[])
+                    appender.appendLong(((byte[])values)[row]);
+                else if (values instanceof double[])
+                    appender.appendDouble(((double[])values)[row]);
+                else if (values instanceof boolean[])
+                    appender.appendBoolean(((boolean[])values)[row]);
+                else if (values instanceof String[])
+                    appender.appendString(((String[])values)[row]);
+                else if (values instanceof byte[][])
+                    appender.appendString(((byte[][])values)[row]);
+                else if (values instanceof TimestampType[])
+                    appender.appendTimestamp(((TimestampType[])values)[row]);
+                else if (values instanceof BigDecimal[])
+                    appender.appendDecimal(((BigDecimal[])values)[row]);
+                else if (values instanceof Object[])
+                    appender.appendValue(((Object[])values)[row]);
+                else {
+                    appender.abortRow();
+                    throw new VoltTypeException("Unsupported array type " + values.getClass().getSimpleName() +
+                                                " for column " + col + " (" + getColumnName(col) + ")");
+                }
+            }
+            appender.endRow();
+        }
+    }
+
+    /**
+     * Return the {@link RowAppender} for this table. The same instance
+     * is returned every time.
+     * @return The {@link RowAppender} for this table.
+     */
+    public final RowAppender getRowAppender() {
+        if (m_appender == null) {
+            m_appender = new RowAppender();
+        }
+        return m_appender;
+    }
+
+    /**
+     * <p>A cursor that appends a new row to its <tt>VoltTable</tt> one typed value at a time.
+     * Unlike {@link VoltTable#addRow(Object...)}, the values are never boxed and the
+     * column types are only looked up once per table.</p>
+     *
+     * <p>Example:<br/>
+     * <tt>VoltTable.RowAppender appender = t.getRowAppender();<br/>
+     * appender.startRow().appendLong(15).appendString("sampleString").endRow();</tt>
+     * </p>
+     *
+     * <p>The values must be appended in the order of the table's columns. If a value
+     * does not match the type of its column, the partial row is removed and a
+     * {@link VoltTypeException} is thrown. Numeric values that are equal to the column's
+     * SQL <tt>null</tt> representation (e.g., {@link VoltType#NULL_INTEGER}) are stored as <tt>null</tt>.</p>
+     */
+    public final class RowAppender {
+        /** Where the row that is being appended starts in the buffer (-1 if none) */
+        private int m_rowPosition = -1;
+        /** The index of the next column to append */
+        private int m_column = 0;
+
+        private RowAppender() {}
+
+        /**
+         * Start a new row at the end of the table.
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender startRow() {
+            if (m_readOnly) {
+                throw new IllegalStateException("Table is read-only. Make a copy before changing.");
+            }
+            if (m_rowPosition != -1) {
+                throw new IllegalStateException("The previous row was not finished with endRow()");
+            }
+            assert(verifyTableInvariants());
+            m_rowPosition = m_buffer.position();
+            m_column = 0;
+            // advance past the row size value
+            reserve(ROW_HEADER_SIZE);
+            m_buffer.position(m_rowPosition + ROW_HEADER_SIZE);
+            return this;
+        }
+
+        /**
+         * Finish the current row and add it to the table.
+         * @throws IllegalStateException if a value was not appended for every column
+         */
+        public void endRow() {
+            if (m_rowPosition == -1) {
+                throw new IllegalStateException("startRow() must be called before endRow()");
+            }
+            if (m_column != m_colCount) {
+                final int column = m_column;
+                abortRow();
+                throw new IllegalStateException(column + " values were appended but table has " + m_colCount + " columns");
+            }
+            final int rowsize = m_buffer.position() - m_rowPosition - ROW_HEADER_SIZE;
+            // check for too big rows
+            if (rowsize > VoltTableRow.MAX_TUPLE_LENGTH) {
+                abortRow();
+                throw new VoltOverflowException(
+                        "Table row total length larger than allowed max " + VoltTableRow.MAX_TUPLE_LENGTH_STR);
+            }
+            m_buffer.putInt(m_rowPosition, rowsize);
+            m_rowCount++;
+            m_buffer.putInt(m_rowStart, m_rowCount);
+            // constrain buffer limit back to the new position
+            m_buffer.limit(m_buffer.position());
+            m_rowPosition = -1;
+            assert(verifyTableInvariants());
+        }
+
+        /**
+         * Discard the values of the current row (if any).
+         */
+        public void abortRow() {
+            if (m_rowPosition == -1) return;
+            m_buffer.position(m_rowPosition);
+            m_buffer.limit(m_rowPosition);
+            m_rowPosition = -1;
+        }
+
+        /**
+         * Append an integral value to a TINYINT, SMALLINT, INTEGER, BIGINT, or TIMESTAMP column.
+         * @param value
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender appendLong(long value) {
+            final VoltType type = nextColumnType();
+            switch (type) {
+            case TINYINT:
+                checkRange(type, value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+                reserve(1);
+                m_buffer.put((byte)value);
+                break;
+            case SMALLINT:
+                checkRange(type, value, Short.MIN_VALUE, Short.MAX_VALUE);
+                reserve(2);
+                m_buffer.putShort((short)value);
+                break;
+            case INTEGER:
+                checkRange(type, value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                reserve(4);
+                m_buffer.putInt((int)value);
+                break;
+            case BIGINT:
+            case TIMESTAMP:
+                reserve(8);
+                m_buffer.putLong(value);
+                break;
+            default:
+                throw typeMismatch(type, "long");
+            }
+            m_column++;
+            return this;
+        }
+
+        /**
+         * Append a value to a FLOAT column.
+         * @param value
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender appendDouble(double value) {
+            final VoltType type = nextColumnType();
+            if (type != VoltType.FLOAT) {
+                throw typeMismatch(type, "double");
+            }
+            reserve(8);
+            m_buffer.putDouble(value);
+            m_column++;
+            return this;
+        }
+
+        /**
+         * Append a value to a BOOLEAN column.
+         * @param value
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender appendBoolean(boolean value) {
+            final VoltType type = nextColumnType();
+            if (type != VoltType.BOOLEAN) {
+                throw typeMismatch(type, "boolean");
+            }
+            reserve(1);
+            m_buffer.put(value ? (byte)1 : (byte)0);
+            m_column++;
+            return this;
+        }
+
+        /**
+         * Append a value to a STRING column. A <tt>null</tt> value is stored as SQL <tt>null</tt>.
+         * @param value
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender appendString(String value) {
+            final VoltType type = nextColumnType();
+            if (type != VoltType.STRING) {
+                throw typeMismatch(type, "String");
+            }
+            if (value != null && value.length() > VoltType.MAX_VALUE_LENGTH) {
+                throw valueTooLarge();
+            }
+            return appendStringBytes(value == null ? null : value.getBytes(ROWDATA_CHARSET));
+        }
+
+        /**
+         * Append a UTF-8 encoded value to a STRING column. A <tt>null</tt> value is stored as SQL <tt>null</tt>.
+         * @param value
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender appendString(byte[] value) {
+            final VoltType type = nextColumnType();
+            if (type != VoltType.STRING) {
+                throw typeMismatch(type, "byte[]");
+            }
+            if (value != null && value.length > VoltType.MAX_VALUE_LENGTH) {
+                throw valueTooLarge();
+            }
+            // bytes MUST be a UTF-8 encoded string.
+            assert(value == null || testForUTF8Encoding(value));
+            return appendStringBytes(value);
+        }
+
+        private RowAppender appendStringBytes(byte[] value) {
+            if (value == null) {
+                reserve(STRING_LEN_SIZE);
+                m_buffer.putInt(NULL_STRING_INDICATOR);
+            } else {
+                reserve(STRING_LEN_SIZE + value.length);
+                m_buffer.putInt(value.length);
+                m_buffer.put(value);
+            }
+            m_column++;
+            return this;
+        }
+
+        /**
+         * Append a value to a TIMESTAMP column. A <tt>null</tt> value is stored as SQL <tt>null</tt>.
+         * @param value
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender appendTimestamp(TimestampType value) {
+            final VoltType type = nextColumnType();
+            if (type != VoltType.TIMESTAMP) {
+                throw typeMismatch(type, "TimestampType");
+            }
+            reserve(8);
+            m_buffer.putLong(value == null ? VoltType.NULL_BIGINT : value.getTime());
+            m_column++;
+            return this;
+        }
+
+        /**
+         * Append a value to a DECIMAL column. A <tt>null</tt> value is stored as SQL <tt>null</tt>.
+         * @param value
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender appendDecimal(BigDecimal value) {
+            final VoltType type = nextColumnType();
+            if (type != VoltType.DECIMAL) {
+                throw typeMismatch(type, "BigDecimal");
+            }
+            reserve(type.getLengthInBytesForFixedTypes());
+            try {
+                VoltDecimalHelper.serializeBigDecimal(value, m_buffer);
+            } catch (RuntimeException ex) {
+                abortRow();
+                throw ex;
+            }
+            m_column++;
+            return this;
+        }
+
+        /**
+         * Append a SQL <tt>null</tt> to the next column.
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender appendNull() {
+            final VoltType type = nextColumnType();
+            switch (type) {
+            case BOOLEAN:
+            case TINYINT:
+                reserve(1);
+                m_buffer.put(VoltType.NULL_TINYINT);
+                break;
+            case SMALLINT:
+                reserve(2);
+                m_buffer.putShort(VoltType.NULL_SMALLINT);
+                break;
+            case INTEGER:
+                reserve(4);
+                m_buffer.putInt(VoltType.NULL_INTEGER);
+                break;
+            case TIMESTAMP:
+            case BIGINT:
+                reserve(8);
+                m_buffer.putLong(VoltType.NULL_BIGINT);
+                break;
+            case FLOAT:
+                reserve(8);
+                m_buffer.putDouble(VoltType.NULL_FLOAT);
+                break;
+            case STRING:
+                reserve(STRING_LEN_SIZE);
+                m_buffer.putInt(NULL_STRING_INDICATOR);
+                break;
+            case DECIMAL:
+                reserve(type.getLengthInBytesForFixedTypes());
+                VoltDecimalHelper.serializeNull(m_buffer);
+                break;
+            default:
+                abortRow();
+                throw new VoltTypeException("Unsupported type: " + type);
+            }
+            m_column++;
+            return this;
+        }
+
+        /**
+         * Append a boxed value to the next column. This is slower than the typed
+         * append methods and should only be used when the type is not known.
+         * @param value
+         * @return This <tt>RowAppender</tt>
+         */
+        public RowAppender appendValue(Object value) {
+            final VoltType type = nextColumnType();
+            if (VoltType.isNullVoltType(value)) {
+                return appendNull();
+            } else if (value instanceof BigDecimal) {
+                return appendDecimal((BigDecimal)value);
+            } else if (value instanceof Number) {
+                if (type == VoltType.FLOAT)
+                    return appendDouble(((Number)value).doubleValue());
+                if (type == VoltType.DECIMAL)
+                    return appendDecimal(toDecimal((Number)value));
+                return appendLong(((Number)value).longValue());
+            } else if (value instanceof Boolean) {
+                return appendBoolean(((Boolean)value).booleanValue());
+            } else if (value instanceof String) {
+                return appendString((String)value);
+            } else if (value instanceof byte[]) {
+                return appendString((byte[])value);
+            } else if (value instanceof TimestampType) {
+                return appendTimestamp((TimestampType)value);
+            }
+            throw typeMismatch(type, value.getClass().getSimpleName());
+        }
+
+        /**
+         * Convert a boxed number for a DECIMAL column. Floating point values are
+         * rounded to the default scale because they are not exact to begin with.
+         */
+        private BigDecimal toDecimal(Number value) {
+            if (value instanceof Double || value instanceof Float)
+                return BigDecimal.valueOf(value.doubleValue()).setScale(VoltDecimalHelper.kDefaultScale, RoundingMode.HALF_UP);
+            return BigDecimal.valueOf(value.longValue());
+        }
+
+        private VoltType nextColumnType() {
+            if (m_rowPosition == -1) {
+                throw new IllegalStateException("startRow() must be called before appending values");
+            }
+            if (m_column >= m_colCount) {
+                abortRow();
+                throw new IllegalStateException("More values were appended than the table's " + m_colCount + " columns");
+            }
+            return getColumnTypes()[m_column];
+        }
+
+        private void reserve(int bytes) {
+            if (m_buffer.remaining() < bytes) {
+                ensureCapacity(bytes);
+            }
+        }
+
+        private void checkRange(VoltType type, long value, long min, long max) {
+            if (value < min || value > max) {
+                abortRow();
+                throw new VoltTypeException("Cast of " + value + " to " + type + " would overflow");
+            }
+        }
+
+        private VoltTypeException typeMismatch(VoltType type, String valueType) {
+            final int column = m_column;
+            abortRow();
+            return new VoltTypeException("Value for column " + column + " (" + getColumnName(column) + ") is type " +
+                                         valueType + " when type " + type + " was expected.");
+        }
+
+        private VoltOverflowException valueTooLarge() {
+            abortRow();
+            return new VoltOverflowException(
+                    "Value in VoltTable.RowAppender larger than allowed max " + VoltType.MAX_VALUE_LENGTH_STR);
+        }
+    }
+
+    /**
+     * Copy the serialized data of the given row into this table.
+     * The row must have the same column types as this table.
+     */
+    private final void addRawRow(VoltTableRow row) {
+        if (m_readOnly) {
+            throw new IllegalStateException("Table is read-only. Make a copy before changing.");
+        }
+        if (row.m_activeRowIndex == INVALID_ROW_INDEX || row.m_position < 0) {
+            throw new RuntimeException("VoltTableRow.advanceRow() must be called to advance to the first row before any access.");
+        }
+        final ByteBuffer src = row.m_buffer;
+        final int start = row.m_position - ROW_HEADER_SIZE;
+        final int length = src.getInt(start) + ROW_HEADER_SIZE;
+        ensureCapacity(length);
+
+        final int pos = m_buffer.position();
+        if (src.hasArray() && m_buffer.hasArray()) {
+            System.arraycopy(src.array(), src.arrayOffset() + start,
+                             m_buffer.array(), m_buffer.arrayOffset() + pos, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                m_buffer.put(pos + i, src.get(start + i));
+            }
+        }
+        m_buffer.position(pos + length);
+        m_rowCount++;
+        m_buffer.putInt(m_rowStart, m_rowCount);
+        m_buffer.limit(m_buffer.position());
+        assert(verifyTableInvariants());
+    }
+
+    /**
+     * Make sure that there is room for the given number of bytes after the
+     * buffer's current position. The buffer's limit is left at its capacity.
+     */
+    private final void ensureCapacity(int bytes) {
+        m_buffer.limit(m_buffer.capacity());
+        while (m_buffer.remaining() < bytes) {
+            expandBuffer();
+        }
+    }
+
     private final void expandBuffer() {
         final int end = m_buffer.position();
         assert(end > m_rowStart);
@@ -893,6 +1402,12 @@ public class VoltTable extends VoltTableRow implements FastSerializable {
         m_colCount = m_buffer.getShort(5);
         m_rowCount = m_buffer.getInt(m_rowStart);
 
+        // The schema may have changed
+        m_columnTypes = null;
+        m_offsets = null;
+        m_appender = null;
+        resetRowPosition();
+
         assert(verifyTableInvariants());
     }
 
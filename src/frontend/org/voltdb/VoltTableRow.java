@@ -80,8 +80,10 @@ public abstract class VoltTableRow {
     protected int m_position = -1;
     /** Offsets of each column in the buffer */
     protected int[] m_offsets;
-    /** Have the offsets been calculated */
-    protected boolean m_hasCalculatedOffsets = false;
+    /** How many of the offsets for the active row have been calculated */
+    protected int m_numCalculatedOffsets = 0;
+    /** Cached types of each column */
+    protected VoltType[] m_columnTypes;
 
     protected int m_activeRowIndex = INVALID_ROW_INDEX;
 
@@ -126,13 +128,37 @@ public abstract class VoltTableRow {
      */
     public abstract VoltTableRow cloneRow();
 
-    private final void ensureCalculatedOffsets() {
-        if (m_hasCalculatedOffsets == true)
-            return;
+    /**
+     * Returns the {@link VoltType types} of all of the columns in the table schema.
+     * The array is created the first time this is called and then cached.
+     * The caller must not modify it.
+     * @return Array of the {@link VoltType VoltTypes} for each column
+     */
+    protected VoltType[] getColumnTypes() {
+        if (m_columnTypes == null) {
+            final VoltType[] types = new VoltType[getColumnCount()];
+            for (int i = 0; i < types.length; i++)
+                types[i] = getColumnType(i);
+            m_columnTypes = types;
+        }
+        return m_columnTypes;
+    }
 
-        m_offsets[0] = m_position;
-        for (int i = 1, cnt = getColumnCount(); i < cnt; i++) {
-            final VoltType type = getColumnType(i - 1);
+    /**
+     * Calculate the offsets of the active row's columns up to and
+     * including the given column index. The offsets of the columns
+     * before it are cached until the row position changes, so accessing
+     * the columns of a row in order only walks the row once.
+     */
+    private final void calculateOffsets(int index) {
+        final VoltType[] types = getColumnTypes();
+        int i = m_numCalculatedOffsets;
+        if (i == 0) {
+            m_offsets[0] = m_position;
+            i = 1;
+        }
+        for (; i <= index; i++) {
+            final VoltType type = types[i - 1];
             // handle variable length types specially
             if (type == VoltType.STRING) {
                 final int strlen = m_buffer.getInt(m_offsets[i - 1]);
@@ -147,13 +173,15 @@ public abstract class VoltTableRow {
                 m_offsets[i] = m_offsets[i - 1] + type.getLengthInBytesForFixedTypes();
             }
         }
-        m_hasCalculatedOffsets = true;
+        if (index >= m_numCalculatedOffsets)
+            m_numCalculatedOffsets = index + 1;
     }
 
     protected final int getOffset(int index) {
-        ensureCalculatedOffsets();
         assert(index >= 0);
         assert(index < m_offsets.length);
+        if (index >= m_numCalculatedOffsets)
+            calculateOffsets(index);
         return m_offsets[index];
     }
 
@@ -204,7 +232,7 @@ public abstract class VoltTableRow {
         if (m_activeRowIndex >= getRowCount())
             return false;
 
-        m_hasCalculatedOffsets = false;
+        m_numCalculatedOffsets = 0;
         if (m_offsets == null)
             m_offsets = new int[getColumnCount()];
 
@@ -223,7 +251,7 @@ public abstract class VoltTableRow {
     }
     
     public Object get(int columnIndex) {
-        return (this.get(columnIndex, this.getColumnType(columnIndex)));
+        return (this.get(columnIndex, this.getColumnTypes()[columnIndex]));
     }
     
     /**
@@ -344,7 +372,7 @@ public abstract class VoltTableRow {
         if ((columnIndex >= getColumnCount()) || (columnIndex < 0)) {
             throw new IndexOutOfBoundsException("Column index " + columnIndex + " is type greater than the number of columns");
         }
-        final VoltType type = getColumnType(columnIndex);
+        final VoltType type = getColumnTypes()[columnIndex];
         if (m_activeRowIndex == INVALID_ROW_INDEX)
             throw new RuntimeException("VoltTableRow.advanceRow() must be called to advance to the first row before any access.");
 
@@ -614,7 +642,7 @@ public abstract class VoltTableRow {
         if ((columnIndex >= getColumnCount()) || (columnIndex < 0)) {
             throw new IndexOutOfBoundsException("Column index " + columnIndex + " is type greater than the number of columns");
         }
-        final VoltType columnType = getColumnType(columnIndex);
+        final VoltType columnType = getColumnTypes()[columnIndex];
         for (VoltType type : types)
             if (columnType == type)
                 return;
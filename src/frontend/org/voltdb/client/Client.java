@@ -169,6 +169,16 @@ public interface Client {
             Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * Set the time (in milliseconds) that the next asynchronous procedure invocation made by the
+     * calling thread was supposed to be sent. The round trip time of that invocation will be measured
+     * from this timestamp instead of from when it was actually queued. This is used by open-loop
+     * benchmark clients so that the time an invocation spent waiting to be sent is included in its latency.
+     * The timestamp only applies to the next invocation made by the calling thread.
+     * @param timestamp
+     */
+    public void setNextInvocationTime(long timestamp);
+
     /**
      * Calculate the size of a stored procedure invocation once it is serialized. This is computationally intensive
      * as the invocation is serialized as part of the calculation.
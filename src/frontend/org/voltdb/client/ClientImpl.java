@@ -78,6 +78,16 @@ final class ClientImpl implements Client {
     private int m_partitionSiteXref[];
     private final HStoreConf m_hstoreConf;
     private final ProfileMeasurement m_queueTime = new ProfileMeasurement("queue");
+    
+    /**
+     * The time that the next async invocation from each thread was supposed to be sent.
+     * This is per thread because multiple benchmark threads can share the same client.
+     */
+    private final ThreadLocal<long[]> m_nextInvocationTime = new ThreadLocal<long[]>() {
+        protected long[] initialValue() {
+            return (new long[1]);
+        }
+    };
 
     /** Create a new client without any initial connections. */
     ClientImpl() {
@@ -300,6 +310,10 @@ final class ClientImpl implements Client {
             StoredProcedureInvocationHints hints,
             Object... parameters)
             throws IOException, NoConnectionsException {
+        final long nextInvocationTime[] = m_nextInvocationTime.get();
+        final long callTime = nextInvocationTime[0];
+        nextInvocationTime[0] = 0;
+        
         if (m_isShutdown) {
             return false;
         }
@@ -338,11 +352,14 @@ final class ClientImpl implements Client {
         }
         if (hints != null && hints.basePartition != HStoreConstants.NULL_PARTITION_ID) {
             invocation.setBasePartition(hints.basePartition);
+            if (m_partitionSiteXref != null) {
+                site_id = m_partitionSiteXref[hints.basePartition];
+            }
         }
 
         if (m_blockingQueue) {
             long start = ProfileMeasurement.getTime();
-            while (!m_distributer.queue(invocation, callback, expectedSerializedSize, true, site_id)) {
+            while (!m_distributer.queue(invocation, callback, expectedSerializedSize, true, site_id, callTime)) {
                 try {
                     backpressureBarrier();
                 } catch (InterruptedException e) {
@@ -353,7 +370,7 @@ final class ClientImpl implements Client {
             return true;
         } else {
             long start = ProfileMeasurement.getTime();
-            boolean ret = m_distributer.queue(invocation, callback, expectedSerializedSize, false, site_id);
+            boolean ret = m_distributer.queue(invocation, callback, expectedSerializedSize, false, site_id, callTime);
             m_queueTime.appendTime(start, ProfileMeasurement.getTime(), 1);
             return ret;
         }
@@ -491,6 +508,11 @@ final class ClientImpl implements Client {
         return m_blockingQueue;
     }
 
+    @Override
+    public void setNextInvocationTime(long timestamp) {
+        m_nextInvocationTime.get()[0] = timestamp;
+    }
+
     @Override
     public ProfileMeasurement getQueueTime() {
         return m_queueTime;
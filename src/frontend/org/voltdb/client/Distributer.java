@@ -663,9 +663,32 @@ class Distributer {
             final boolean ignoreBackpressure,
             final Integer site_id)
         throws NoConnectionsException {
+        return this.queue(invocation, cb, expectedSerializedSize, ignoreBackpressure, site_id, 0);
+    }
+    
+    /**
+     * Queue invocation. If callTime is greater than zero, then the round trip time of the
+     * invocation will be measured from that timestamp instead of the current time.
+     * @param invocation
+     * @param cb
+     * @param expectedSerializedSize
+     * @param ignoreBackpressure
+     * @param site_id
+     * @param callTime
+     * @return
+     * @throws NoConnectionsException
+     */
+    boolean queue(
+            StoredProcedureInvocation invocation,
+            ProcedureCallback cb,
+            int expectedSerializedSize,
+            final boolean ignoreBackpressure,
+            final Integer site_id,
+            final long callTime)
+        throws NoConnectionsException {
         NodeConnection cxn = null;
         boolean backpressure = true;
-        long now = System.currentTimeMillis();
+        long now = (callTime > 0 ? callTime : System.currentTimeMillis());
         
         final int totalConnections = m_connections.size();
 
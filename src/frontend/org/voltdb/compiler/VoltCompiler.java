@@ -92,6 +92,8 @@ import org.voltdb.sysprocs.GarbageCollection;
 import org.voltdb.sysprocs.GetCatalog;
 import org.voltdb.sysprocs.GetConfiguration;
 import org.voltdb.sysprocs.LoadMultipartitionTable;
+import org.voltdb.sysprocs.LoadPartitionTable;
+import org.voltdb.sysprocs.MigrateHashBucket;
 import org.voltdb.sysprocs.NoOp;
 import org.voltdb.sysprocs.MarkovUpdate;
 import org.voltdb.sysprocs.Quiesce;
@@ -1284,6 +1286,7 @@ public class VoltCompiler {
         final Object[][] procedures = {
             // SysProcedure Class                   readonly    everysite
             {LoadMultipartitionTable.class,         false,      true},
+            {LoadPartitionTable.class,              false,      false},
             {DatabaseDump.class,                    true,       true},
             {MarkovUpdate.class,                    true,       true},
             {Shutdown.class,                        false,      true},
@@ -1303,6 +1306,7 @@ public class VoltCompiler {
             {SnapshotDelete.class,                  false,      true},
             {Quiesce.class,                         true,       true},
             {Statistics.class,                      true,       false},
+            {MigrateHashBucket.class,               false,      true},
             
             // Anti-Cache Operations
             {EvictTuples.class,                     false,      false},
@@ -38,8 +38,11 @@ import org.voltdb.export.ExportProtoMessage;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.utils.DBBPool.BBContainer;
 import org.voltdb.utils.LogKeys;
+import org.voltdb.utils.Pair;
 import org.voltdb.utils.VoltLoggerFactory;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
+import org.voltdb.types.AntiCacheTrackingType;
 
 import edu.brown.hstore.HStore;
 import edu.brown.hstore.PartitionExecutor;
@@ -74,6 +77,7 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     public static final int ERRORCODE_ERROR = 1; // just error or not so far.
     public static final int ERRORCODE_WRONG_SERIALIZED_BYTES = 101;
     public static final int ERRORCODE_NO_DATA = 102;
+    public static final int ERRORCODE_EVICTED_TUPLES = 103;
 
     /** Create an ee and load the volt shared library */
     public ExecutionEngine(final PartitionExecutor executor) {
@@ -447,6 +451,34 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     public abstract long tableHashCode(int tableId);
 
+    /**
+     * Returns true if the table has been changed since the last time
+     * a snapshot stream was activated for it.
+     * @param tableId table to check
+     */
+    public abstract boolean isTableModifiedSinceSnapshot(int tableId);
+
+    /**
+     * Returns a version number for the table that changes every time
+     * the table is modified (including when a modification is rolled back).
+     * Returns -1 if the engine does not track changes for this table.
+     * @param tableId table to check
+     */
+    public abstract long getTableWriteVersion(int tableId);
+
+    /**
+     * Remove up to maxTuples tuples from a partitioned table whose partitioning
+     * column hashes to the given value and return them.
+     * Used to migrate a hash bucket from one partition to another.
+     * @param tableId table to extract tuples from
+     * @param hash the hash value of the tuples to extract
+     * @param partitionCount the number of hash buckets
+     * @param maxTuples the maximum number of tuples to extract at once
+     * @throws EEException with ERRORCODE_EVICTED_TUPLES if the table has evicted tuples
+     */
+    public abstract VoltTable extractTuplesByHash(int tableId, int hash, int partitionCount, int maxTuples,
+                                                  long txnId, long lastCommittedTxnId, long undoToken) throws EEException;
+
     /**
      * Compute the partition to which the parameter value maps using the
      * ExecutionEngine's hashinator.  Currently only valid for int types
@@ -697,6 +729,30 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected native long nativeTableHashCode(long pointer, int tableId);
 
+    /**
+     * Check whether a table has been changed since its last snapshot.
+     * @param pointer Pointer to an engine instance
+     * @param tableId table to check
+     */
+    protected native boolean nativeIsTableModifiedSinceSnapshot(long pointer, int tableId);
+
+    /**
+     * Get the current write version of a table.
+     * @param pointer Pointer to an engine instance
+     * @param tableId table to check
+     */
+    protected native long nativeGetTableWriteVersion(long pointer, int tableId);
+
+    /**
+     * Remove the tuples of a hash bucket from a partitioned table and serialize them.
+     * @param pointer Pointer to an engine instance
+     * @param tableId table to extract tuples from
+     * @return the number of tuples that were extracted or -1 on error
+     */
+    protected native int nativeExtractTuplesByHash(long pointer, int tableId, int hash, int partitionCount,
+                                                   int maxTuples, long txnId, long lastCommittedTxnId,
+                                                   long undoToken, ByteBuffer outputBuffer, int outputCapacity);
+
     /**
      * Perform an export poll or ack action. Poll data will be returned via the usual
      * results buffer. A single action may encompass both a poll and ack.
@@ -811,6 +867,42 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      * @throws EEException
      */
     public abstract void antiCacheAddDB(File dbDir, AntiCacheDBType dbType, long blockSize, long maxSize) throws EEException;
+
+    /**
+     * Change how the EE records tuple accesses for choosing which tuples to evict.
+     * <B>NOTE:</B> This can only be invoked after antiCacheInitialize is invoked
+     * @param trackingType
+     * @throws EEException
+     */
+    public abstract void antiCacheSetTracking(AntiCacheTrackingType trackingType) throws EEException;
+
+    /**
+     * Change the codec that the EE uses to compress evicted blocks.
+     * Blocks that were already written are still readable afterwards.
+     * <B>NOTE:</B> This can only be invoked after antiCacheInitialize is invoked
+     * @param compressionType
+     * @throws EEException
+     */
+    public abstract void antiCacheSetCompression(AntiCacheCompressionType compressionType) throws EEException;
+
+    /**
+     * Configure how the EE moves blocks between the levels of a multi-level anti-cache.
+     * A block that is read promoteThreshold times from a slower level with the tuple-merge
+     * strategy is queued to be moved up one level by antiCacheDemoteBlocks(), which also keeps demoteFreeBlocks free blocks in each faster level.
+     * <B>NOTE:</B> This can only be invoked after antiCacheInitialize is invoked
+     * @param promoteThreshold
+     * @param demoteFreeBlocks
+     * @throws EEException
+     */
+    public abstract void antiCacheSetMigrationPolicy(int promoteThreshold, int demoteFreeBlocks) throws EEException;
+
+    /**
+     * Move the blocks that were queued for promotion up one anti-cache level, then
+     * move the least recently used blocks in the faster levels down to the slower
+     * ones until each faster level has room again.
+     * @return the number of blocks that were moved
+     */
+    public abstract int antiCacheDemoteBlocks();
     
     /**
      * 
@@ -844,6 +936,18 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      * @param catalog_tbl
      */
     public abstract void antiCacheMergeBlocks(Table catalog_tbl);
+    
+    /**
+     * Look up the given primary keys in the table and return the block ids and
+     * tuple offsets of any of the matching tuples that are evicted. The columns
+     * of the keys VoltTable must be the same as the table's primary key columns.
+     * This does not change anything in the table.
+     * @param catalog_tbl
+     * @param keys
+     * @return The block ids and tuple offsets of the evicted tuples, or null if
+     *         none of the tuples for the given keys are evicted
+     */
+    public abstract Pair<int[], int[]> antiCacheProbeKeys(Table catalog_tbl, VoltTable keys);
         
     /**
      * Enables the anti-cache feature in the EE. The given database directory path
@@ -871,6 +975,38 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      * @return
      */
     protected native int nativeAntiCacheAddDB(long pointer, String dbDir, long blockSize, int dbtype, long maxSize);
+
+    /**
+     * Change how the EE records tuple accesses for choosing which tuples to evict.
+     * @param pointer
+     * @param trackingType
+     * @return
+     */
+    protected native int nativeAntiCacheSetTracking(long pointer, int trackingType);
+
+    /**
+     * Change the codec that the EE uses to compress evicted blocks.
+     * @param pointer
+     * @param compressionType
+     * @return
+     */
+    protected native int nativeAntiCacheSetCompression(long pointer, int compressionType);
+
+    /**
+     * Configure how the EE moves blocks between anti-cache levels.
+     * @param pointer
+     * @param promoteThreshold
+     * @param demoteFreeBlocks
+     * @return
+     */
+    protected native int nativeAntiCacheSetMigrationPolicy(long pointer, int promoteThreshold, int demoteFreeBlocks);
+
+    /**
+     * Move cold blocks down to the slower anti-cache levels.
+     * @param pointer
+     * @return the number of blocks that were moved
+     */
+    protected native int nativeAntiCacheDemoteBlocks(long pointer);
     
      /**
      * 
@@ -907,6 +1043,15 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected native int nativeAntiCacheMergeBlocks(long pointer, int tableId);
     
+    /**
+     * 
+     * @param pointer
+     * @param tableId
+     * @param serialized_keys
+     * @return The number of evicted tuples that were found
+     */
+    protected native int nativeAntiCacheProbeKeys(long pointer, int tableId, byte[] serialized_keys);
+    
     /**
      * This code only does anything useful on MACOSX.
      * On LINUX, procfs is read to get RSS
@@ -918,13 +1063,15 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     // STORAGE MMAP
     // ----------------------------------------------------------------------------
     
-    public abstract void MMAPInitialize(File dbDir, long mapSize, long syncFrequency) throws EEException;
+    public abstract void MMAPInitialize(File dbDir, long mapSize, long syncFrequency, long dirtyLimit) throws EEException;
     
     /**
      * Enables the mmap storage feature in the EE. The given database directory path
      * must be a unique location for this partition where the EE can store MMAP'ed files.
+     * Dirty pages are written out by a background thread in the EE. The partition's thread
+     * only writes them out itself once there are more than dirtyLimit bytes waiting.
      */
-    protected native int nativeMMAPInitialize(long pointer, String dbDir, long mapSize, long syncFrequency);
+    protected native int nativeMMAPInitialize(long pointer, String dbDir, long mapSize, long syncFrequency, long dirtyLimit);
 
     // ----------------------------------------------------------------------------
     // ARIES
@@ -49,7 +49,10 @@ import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.utils.DBBPool.BBContainer;
 import org.voltdb.utils.NotImplementedException;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
+import org.voltdb.types.AntiCacheTrackingType;
+import org.voltdb.utils.Pair;
 
 import edu.brown.hstore.HStore;
 import edu.brown.hstore.PartitionExecutor;
@@ -1424,6 +1427,24 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         }
     }
 
+    @Override
+    public boolean isTableModifiedSinceSnapshot(int tableId) {
+        // The IPC engine does not track this, so always write the table out
+        return true;
+    }
+
+    @Override
+    public long getTableWriteVersion(int tableId) {
+        // The IPC engine does not track this
+        return -1;
+    }
+
+    @Override
+    public VoltTable extractTuplesByHash(int tableId, int hash, int partitionCount, int maxTuples,
+                                         long txnId, long lastCommittedTxnId, long undoToken) throws EEException {
+        throw new NotImplementedException("Hash bucket migration is disabled for IPC ExecutionEngine");
+    }
+
     @Override
     public int hashinate(Object value, int partitionCount)
     {
@@ -1488,6 +1509,26 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
     }
 
+    @Override
+    public void antiCacheSetTracking(AntiCacheTrackingType trackingType) throws EEException {
+        throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
+    }
+
+    @Override
+    public void antiCacheSetCompression(AntiCacheCompressionType compressionType) throws EEException {
+        throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
+    }
+
+    @Override
+    public void antiCacheSetMigrationPolicy(int promoteThreshold, int demoteFreeBlocks) throws EEException {
+        throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
+    }
+
+    @Override
+    public int antiCacheDemoteBlocks() {
+        throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
+    }
+
     @Override
     public void antiCacheReadBlocks(Table catalog_tbl, int[] block_ids, int[] tuple_offsets) {
         throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
@@ -1497,6 +1538,11 @@ public class ExecutionEngineIPC extends ExecutionEngine {
     public void antiCacheMergeBlocks(Table catalog_tbl) {
         throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
     }
+    
+    @Override
+    public Pair<int[], int[]> antiCacheProbeKeys(Table catalog_tbl, VoltTable keys) {
+        throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
+    }
 
     @Override
     public VoltTable antiCacheEvictBlock(Table catalog_tbl, long block_size, int num_blocks) {
@@ -1511,7 +1557,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
     
     @Override
-    public void MMAPInitialize(File dbDir, long mapSize, long syncFrequency) throws EEException {
+    public void MMAPInitialize(File dbDir, long mapSize, long syncFrequency, long dirtyLimit) throws EEException {
         throw new NotImplementedException("Storage MMAP is disabled for IPC ExecutionEngine");
     }
     
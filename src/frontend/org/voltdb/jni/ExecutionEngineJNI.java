@@ -39,8 +39,11 @@ import org.voltdb.export.ExportProtoMessage;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.messaging.FastSerializer.BufferGrowCallback;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
+import org.voltdb.types.AntiCacheTrackingType;
 import org.voltdb.utils.DBBPool.BBContainer;
+import org.voltdb.utils.Pair;
 
 import edu.brown.hstore.HStoreConstants;
 import edu.brown.hstore.PartitionExecutor;
@@ -646,6 +649,34 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         return nativeTableHashCode( pointer, tableId);
     }
 
+    @Override
+    public boolean isTableModifiedSinceSnapshot(int tableId) {
+        return nativeIsTableModifiedSinceSnapshot(pointer, tableId);
+    }
+
+    @Override
+    public long getTableWriteVersion(int tableId) {
+        return nativeGetTableWriteVersion(pointer, tableId);
+    }
+
+    @Override
+    public VoltTable extractTuplesByHash(int tableId, int hash, int partitionCount, int maxTuples,
+                                         long txnId, long lastCommittedTxnId, long undoToken) throws EEException {
+        deserializer.clear();
+        final int numTuples = nativeExtractTuplesByHash(this.pointer, tableId, hash, partitionCount, maxTuples,
+                                                        txnId, lastCommittedTxnId, undoToken,
+                                                        deserializer.buffer(), deserializer.buffer().capacity());
+        if (numTuples < 0) {
+            throw new EEException(ERRORCODE_EVICTED_TUPLES);
+        }
+        try {
+            return deserializer.readObject(VoltTable.class);
+        } catch (final IOException ex) {
+            LOG.error("Failed to extract tuples from table:" + tableId + ex);
+            throw new EEException(ERRORCODE_WRONG_SERIALIZED_BYTES);
+        }
+    }
+
     @Override
     public int hashinate(Object value, int partitionCount) {
         ParameterSet parameterSet = new ParameterSet(true);
@@ -801,6 +832,42 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         checkErrorCode(errorCode);
     }
 
+    @Override
+    public void antiCacheSetTracking(AntiCacheTrackingType trackingType) throws EEException {
+        assert(m_anticache == true);
+        if (debug.val)
+            LOG.debug(String.format("Partition #%d AntiCache Tracking: %s",
+                      this.executor.getPartitionId(), trackingType));
+        final int errorCode = nativeAntiCacheSetTracking(this.pointer, trackingType.ordinal());
+        checkErrorCode(errorCode);
+    }
+
+    @Override
+    public void antiCacheSetCompression(AntiCacheCompressionType compressionType) throws EEException {
+        assert(m_anticache == true);
+        if (debug.val)
+            LOG.debug(String.format("Partition #%d AntiCache Compression: %s",
+                      this.executor.getPartitionId(), compressionType));
+        final int errorCode = nativeAntiCacheSetCompression(this.pointer, compressionType.ordinal());
+        checkErrorCode(errorCode);
+    }
+
+    @Override
+    public void antiCacheSetMigrationPolicy(int promoteThreshold, int demoteFreeBlocks) throws EEException {
+        assert(m_anticache == true);
+        if (debug.val)
+            LOG.debug(String.format("Partition #%d AntiCache Migration Policy: promoteThreshold=%d / demoteFreeBlocks=%d",
+                      this.executor.getPartitionId(), promoteThreshold, demoteFreeBlocks));
+        final int errorCode = nativeAntiCacheSetMigrationPolicy(this.pointer, promoteThreshold, demoteFreeBlocks);
+        checkErrorCode(errorCode);
+    }
+
+    @Override
+    public int antiCacheDemoteBlocks() {
+        assert(m_anticache == true);
+        return nativeAntiCacheDemoteBlocks(this.pointer);
+    }
+
     
     @Override
     public void antiCacheReadBlocks(Table catalog_tbl, int[] block_ids, int[] tuple_offsets) {
@@ -876,6 +943,36 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         final int errorCode = nativeAntiCacheMergeBlocks(this.pointer, catalog_tbl.getRelativeIndex());
         checkErrorCode(errorCode);
     }
+    
+    @Override
+    public Pair<int[], int[]> antiCacheProbeKeys(Table catalog_tbl, VoltTable keys) {
+        assert(m_anticache);
+        deserializer.clear();
+        
+        byte[] serialized_keys = keys.getTableDataReference().array();
+        final int numResults = nativeAntiCacheProbeKeys(this.pointer, catalog_tbl.getRelativeIndex(), serialized_keys);
+        if (numResults == -1) {
+            LOG.error("Unexpected error in antiCacheProbeKeys for table " + catalog_tbl.getName());
+            throwExceptionForError(ERRORCODE_ERROR);
+        }
+        try {
+            int num_tuples = deserializer.readInt();
+            assert(num_tuples == numResults);
+            if (num_tuples == 0) return (null);
+            int block_ids[] = new int[num_tuples];
+            int tuple_offsets[] = new int[num_tuples];
+            for (int i = 0; i < num_tuples; i++) {
+                block_ids[i] = deserializer.readInt();
+            } // FOR
+            for (int i = 0; i < num_tuples; i++) {
+                tuple_offsets[i] = deserializer.readInt();
+            } // FOR
+            return (Pair.of(block_ids, tuple_offsets));
+        } catch (final IOException ex) {
+            LOG.error("Failed to deserialize results for antiCacheProbeKeys" + ex);
+            throw new EEException(ERRORCODE_WRONG_SERIALIZED_BYTES);
+        }
+    }
 
     
     /*
@@ -883,12 +980,12 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      */
     
     @Override
-    public void MMAPInitialize(File dbDir, long mapSize, long syncFrequency) throws EEException {
+    public void MMAPInitialize(File dbDir, long mapSize, long syncFrequency, long dirtyLimit) throws EEException {
         
         LOG.info("Initializing storage mmap feature at partition " + this.executor.getPartitionId());
         LOG.info(String.format("Partition #%d MMAP Directory: %s",
                  this.executor.getPartitionId(), dbDir.getAbsolutePath()));
-        final int errorCode = nativeMMAPInitialize(this.pointer, dbDir.getAbsolutePath(), mapSize, syncFrequency);
+        final int errorCode = nativeMMAPInitialize(this.pointer, dbDir.getAbsolutePath(), mapSize, syncFrequency, dirtyLimit);
         checkErrorCode(errorCode);
         m_anticache = true;
     }
@@ -31,7 +31,10 @@ import org.voltdb.exceptions.EEException;
 import org.voltdb.export.ExportProtoMessage;
 import org.voltdb.utils.NotImplementedException;
 import org.voltdb.utils.DBBPool.BBContainer;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
+import org.voltdb.types.AntiCacheTrackingType;
+import org.voltdb.utils.Pair;
 
 public class MockExecutionEngine extends ExecutionEngine {
 
@@ -174,6 +177,22 @@ public class MockExecutionEngine extends ExecutionEngine {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean isTableModifiedSinceSnapshot(int tableId) {
+        return true;
+    }
+
+    @Override
+    public long getTableWriteVersion(int tableId) {
+        return -1;
+    }
+
+    @Override
+    public VoltTable extractTuplesByHash(int tableId, int hash, int partitionCount, int maxTuples,
+                                         long txnId, long lastCommittedTxnId, long undoToken) throws EEException {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public int hashinate(Object value, int partitionCount) {
         // TODO Auto-generated method stub
@@ -208,6 +227,23 @@ public class MockExecutionEngine extends ExecutionEngine {
     public void antiCacheAddDB(File dbFilePath, AntiCacheDBType dbType, long blockSize, long maxSize) throws EEException {
     }
 
+    @Override
+    public void antiCacheSetTracking(AntiCacheTrackingType trackingType) throws EEException {
+    }
+
+    @Override
+    public void antiCacheSetCompression(AntiCacheCompressionType compressionType) throws EEException {
+    }
+
+    @Override
+    public void antiCacheSetMigrationPolicy(int promoteThreshold, int demoteFreeBlocks) throws EEException {
+    }
+
+    @Override
+    public int antiCacheDemoteBlocks() {
+        return (0);
+    }
+
     @Override
     public void antiCacheReadBlocks(Table catalog_tbl, int[] block_ids, int[] tuple_offsets) {
         // TODO Auto-generated method stub
@@ -216,6 +252,11 @@ public class MockExecutionEngine extends ExecutionEngine {
     public void antiCacheMergeBlocks(Table catalog_tbl) {
         // TODO Auto-generated method stub
     }
+    @Override
+    public Pair<int[], int[]> antiCacheProbeKeys(Table catalog_tbl, VoltTable keys) {
+        // TODO Auto-generated method stub
+        return (null);
+    }
 
     @Override
     public VoltTable antiCacheEvictBlock(Table catalog_tbl, long block_size, int num_blocks) {
@@ -233,7 +274,7 @@ public class MockExecutionEngine extends ExecutionEngine {
 
     
     @Override
-    public void MMAPInitialize(File dbDir, long mapSize, long syncFrequency) throws EEException {
+    public void MMAPInitialize(File dbDir, long mapSize, long syncFrequency, long dirtyLimit) throws EEException {
      // TODO Auto-generated method stub        
     }
     
@@ -0,0 +1,107 @@
+package org.voltdb.sysprocs;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.voltdb.DependencySet;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Table;
+
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.hstore.PartitionExecutor.SystemProcedureExecutionContext;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+
+/**
+ * Load a VoltTable whose rows all belong to a single partition directly into that
+ * partition's EE as a single-partition transaction. This is the bulk loading
+ * counterpart to {@link LoadMultipartitionTable}: the client splits the rows by
+ * partition ahead of time and then can load every partition in parallel without
+ * having to lock the entire cluster.
+ * <B>NOTE:</B> Replicated tables and tables with a vertical partition must still
+ * be loaded using {@link LoadMultipartitionTable}.
+ */
+@ProcInfo(
+    partitionParam = 0,
+    singlePartition = true
+)
+public class LoadPartitionTable extends VoltSystemProcedure {
+    private static final Logger LOG = Logger.getLogger(LoadPartitionTable.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    @Override
+    public void initImpl() {
+        // Nothing to do...
+    }
+
+    @Override
+    public DependencySet executePlanFragment(Long txn_id,
+                                             Map<Integer, List<VoltTable>> dependencies,
+                                             int fragmentId,
+                                             ParameterSet params,
+                                             SystemProcedureExecutionContext context) {
+        throw new IllegalAccessError("Invalid invocation of " + this.getClass() + ".executePlanFragment()");
+    }
+
+    public VoltTable[] run(int partition, String tableName, VoltTable table) throws VoltAbortException {
+        assert(table != null) :
+            "VoltTable to be loaded into " + tableName + " is null in txn #" + this.getTransactionId();
+        if (partition != this.partitionId) {
+            String msg = String.format("Trying to load data for partition %d at partition %d", partition, this.partitionId);
+            throw new VoltAbortException(msg);
+        }
+
+        Table catalog_tbl = catalogContext.database.getTables().getIgnoreCase(tableName);
+        if (catalog_tbl == null) {
+            throw new VoltAbortException("Table '" + tableName + "' does not exist");
+        }
+        else if (catalog_tbl.getIsreplicated()) {
+            String msg = String.format("Unable to load replicated table '%s' at a single partition", catalog_tbl.getName());
+            throw new VoltAbortException(msg);
+        }
+        else if (CatalogUtil.getVerticalPartition(catalog_tbl) != null) {
+            String msg = String.format("Unable to load table '%s' at a single partition because it has a vertical partition",
+                                       catalog_tbl.getName());
+            throw new VoltAbortException(msg);
+        }
+        assert(this.checkPartitions(catalog_tbl, table)) :
+            String.format("Not all of the %s tuples belong to partition %d", catalog_tbl.getName(), this.partitionId);
+
+        if (debug.val)
+            LOG.debug(String.format("Loading %d tuples for %s at partition %d in txn #%d [bytes=%d]",
+                      table.getRowCount(), catalog_tbl.getName(), this.partitionId,
+                      this.getTransactionId(), table.getUnderlyingBufferSize()));
+        this.executor.loadTable(this.getTransactionState(),
+                                catalogContext.cluster.getName(),
+                                catalogContext.database.getName(),
+                                catalog_tbl.getName(), table, 0);
+
+        VoltTable result = new VoltTable(new VoltTable.ColumnInfo("TxnId", VoltType.BIGINT));
+        result.addRow(this.getTransactionId());
+        return (new VoltTable[]{ result });
+    }
+
+    private boolean checkPartitions(Table catalog_tbl, VoltTable table) {
+        table.resetRowPosition();
+        try {
+            while (table.advanceRow()) {
+                if (this.p_estimator.getTableRowPartition(catalog_tbl, table) != this.partitionId) {
+                    return (false);
+                }
+            } // WHILE
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            table.resetRowPosition();
+        }
+        return (true);
+    }
+}
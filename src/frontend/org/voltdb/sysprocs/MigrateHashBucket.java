@@ -0,0 +1,261 @@
+package org.voltdb.sysprocs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.voltdb.DependencySet;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Table;
+import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.MispredictionException;
+import org.voltdb.jni.ExecutionEngine;
+
+import edu.brown.hashing.AbstractHasher;
+import edu.brown.hashing.MappedHasher;
+import edu.brown.hstore.HStoreConstants;
+import edu.brown.hstore.PartitionExecutor.SystemProcedureExecutionContext;
+import edu.brown.hstore.txns.AbstractTransaction;
+import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.statistics.ObjectHistogram;
+
+/**
+ * Move all of the tuples in a hash bucket from the partition that currently
+ * owns it to a new partition and then switch the MappedHasher on every site
+ * so that new transactions are routed to the new partition.
+ * The tuples are moved in batches from the source partition's EE to the
+ * destination partition's EE. The whole migration runs as a single
+ * distributed transaction, so no other transaction will ever see the bucket
+ * split between the two partitions. The new mapping is staged at each site and
+ * only applied when the transaction commits, so an aborted migration leaves
+ * the bucket where it was.
+ * Buckets of tables that have evicted tuples at the source partition cannot be
+ * migrated, because the evicted tuples do not keep their partitioning column.
+ * This requires that the cluster is using the MappedHasher.
+ */
+@ProcInfo(singlePartition = false)
+public class MigrateHashBucket extends VoltSystemProcedure {
+    private static final Logger LOG = Logger.getLogger(MigrateHashBucket.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    /**
+     * The maximum number of tuples that are moved in a single round
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    private static final int DEP_extract = SysProcFragmentId.PF_migrateExtract;
+    private static final int DEP_load = SysProcFragmentId.PF_migrateLoad;
+    private static final int DEP_remapDistribute = SysProcFragmentId.PF_migrateRemapDistribute |
+                                                   HStoreConstants.MULTIPARTITION_DEPENDENCY;
+    private static final int DEP_remapAggregate = SysProcFragmentId.PF_migrateRemapAggregate;
+
+    private final ObjectHistogram<Integer> allPartitionsHistogram = new ObjectHistogram<Integer>();
+
+    @Override
+    public void initImpl() {
+        executor.registerPlanFragment(SysProcFragmentId.PF_migrateExtract, this);
+        executor.registerPlanFragment(SysProcFragmentId.PF_migrateLoad, this);
+        executor.registerPlanFragment(SysProcFragmentId.PF_migrateRemapDistribute, this);
+        executor.registerPlanFragment(SysProcFragmentId.PF_migrateRemapAggregate, this);
+        this.allPartitionsHistogram.put(catalogContext.getAllPartitionIds());
+    }
+
+    @Override
+    public DependencySet executePlanFragment(Long txn_id,
+                                             Map<Integer, List<VoltTable>> dependencies,
+                                             int fragmentId,
+                                             ParameterSet params,
+                                             SystemProcedureExecutionContext context) {
+        AbstractTransaction ts = this.hstore_site.getTransaction(txn_id);
+
+        switch (fragmentId) {
+            // Pull the next batch of tuples for the bucket out of the source partition
+            case SysProcFragmentId.PF_migrateExtract: {
+                String table_name = (String)params.toArray()[0];
+                int hash = ((Number)params.toArray()[1]).intValue();
+                int num_buckets = ((Number)params.toArray()[2]).intValue();
+                Table catalog_tbl = catalogContext.database.getTables().getIgnoreCase(table_name);
+                assert(catalog_tbl != null) : "Invalid table '" + table_name + "'";
+
+                VoltTable vt = null;
+                try {
+                    vt = this.executor.extractTuplesByHash(ts, catalog_tbl, hash, num_buckets, BATCH_SIZE);
+                } catch (EEException ex) {
+                    if (ex.getErrorCode() != ExecutionEngine.ERRORCODE_EVICTED_TUPLES) throw ex;
+                    throw new VoltAbortException(String.format("Unable to migrate hash bucket %d because %s " +
+                                                 "has evicted tuples at partition %d",
+                                                 hash, table_name, this.partitionId));
+                }
+                if (debug.val)
+                    LOG.debug(String.format("Extracted %d tuples for hash bucket %d from %s at partition %d",
+                              vt.getRowCount(), hash, table_name, this.partitionId));
+                return new DependencySet(DEP_extract, vt);
+            }
+            // Load the tuples that were extracted into the destination partition
+            case SysProcFragmentId.PF_migrateLoad: {
+                String table_name = (String)params.toArray()[0];
+                List<VoltTable> deps = dependencies.get(DEP_extract);
+                assert(deps != null && deps.size() == 1) :
+                    "Missing extracted tuples for " + table_name + " in txn #" + txn_id;
+                VoltTable vt = deps.get(0);
+                if (vt.getRowCount() > 0) {
+                    this.executor.loadTable(ts,
+                                            context.getCluster().getName(),
+                                            context.getDatabase().getName(),
+                                            table_name, vt, 0);
+                }
+                VoltTable result = new VoltTable(new VoltTable.ColumnInfo("TUPLES", VoltType.BIGINT));
+                result.addRow(vt.getRowCount());
+                return new DependencySet(DEP_load, result);
+            }
+            // Tell the hasher at each site to point the bucket at the new partition
+            // once this txn commits. HStoreSite applies or discards it when the txn finishes.
+            case SysProcFragmentId.PF_migrateRemapDistribute: {
+                int hash = ((Number)params.toArray()[0]).intValue();
+                int dest_partition = ((Number)params.toArray()[1]).intValue();
+                MappedHasher hasher = (MappedHasher)this.hstore_site.getHasher();
+                if (hasher.getPartition(hash) != dest_partition) {
+                    hasher.stage(txn_id, hash, dest_partition);
+                    if (debug.val)
+                        LOG.debug(String.format("Staged hash bucket %d to be mapped to partition %d at %s [txnId=%d]",
+                                  hash, dest_partition, this.hstore_site.getSiteName(), txn_id));
+                }
+                VoltTable result = new VoltTable(new VoltTable.ColumnInfo("TxnId", VoltType.BIGINT));
+                result.addRow(txn_id);
+                return new DependencySet(DEP_remapDistribute, result);
+            }
+            case SysProcFragmentId.PF_migrateRemapAggregate: {
+                VoltTable result = new VoltTable(new VoltTable.ColumnInfo("TxnId", VoltType.BIGINT));
+                result.addRow(txn_id);
+                return new DependencySet(DEP_remapAggregate, result);
+            }
+        } // SWITCH
+        // must handle every dependency id.
+        assert (false) : "Unexpected FragmentId " + fragmentId;
+        return null;
+    }
+
+    /**
+     * Move a batch of tuples from one table at the source partition to the destination partition.
+     * Returns the number of tuples that were moved.
+     */
+    private long moveBatch(Table catalog_tbl, int hash, int num_buckets, int source, int dest) {
+        SynthesizedPlanFragment pfs[] = new SynthesizedPlanFragment[2];
+
+        pfs[0] = new SynthesizedPlanFragment();
+        pfs[0].fragmentId = SysProcFragmentId.PF_migrateExtract;
+        pfs[0].inputDependencyIds = new int[] { };
+        pfs[0].outputDependencyIds = new int[] { DEP_extract };
+        pfs[0].multipartition = false;
+        pfs[0].nonExecSites = false;
+        pfs[0].destPartitionId = source;
+        pfs[0].parameters = new ParameterSet(catalog_tbl.getName(), hash, num_buckets);
+
+        pfs[1] = new SynthesizedPlanFragment();
+        pfs[1].fragmentId = SysProcFragmentId.PF_migrateLoad;
+        pfs[1].inputDependencyIds = new int[] { DEP_extract };
+        pfs[1].outputDependencyIds = new int[] { DEP_load };
+        pfs[1].multipartition = false;
+        pfs[1].nonExecSites = false;
+        pfs[1].destPartitionId = dest;
+        pfs[1].parameters = new ParameterSet(catalog_tbl.getName());
+        pfs[1].last_task = true;
+
+        VoltTable results[] = executeSysProcPlanFragments(pfs, DEP_load);
+        assert(results != null && results.length == 1);
+        return (results[0].asScalarLong());
+    }
+
+    public VoltTable[] run(int hash, int dest_partition) throws VoltAbortException {
+        AbstractHasher hasher = this.hstore_site.getHasher();
+        if ((hasher instanceof MappedHasher) == false) {
+            throw new VoltAbortException(String.format("Unable to migrate hash buckets with %s. " +
+                                         "The cluster must be started with %s",
+                                         hasher.getClass().getSimpleName(), MappedHasher.class.getSimpleName()));
+        }
+        int num_buckets = hasher.getNumPartitions();
+        if (hash < 0 || hash >= num_buckets) {
+            throw new VoltAbortException("Invalid hash bucket " + hash);
+        }
+        if (catalogContext.getAllPartitionIds().contains(dest_partition) == false) {
+            throw new VoltAbortException("Invalid destination partition " + dest_partition);
+        }
+
+        // We need to lock the entire cluster so that no other txn can see
+        // the bucket while it is split between the two partitions
+        LocalTransaction ts = this.getTransactionState();
+        if (ts.getPredictTouchedPartitions().size() != this.allPartitionsHistogram.getValueCount()) {
+            throw new MispredictionException(this.getTransactionId(), this.allPartitionsHistogram);
+        }
+
+        int source_partition = ((MappedHasher)hasher).getPartition(hash);
+        Map<String, Long> moved = new HashMap<String, Long>();
+        if (source_partition != dest_partition) {
+            List<Table> tables = new ArrayList<Table>();
+            for (Table catalog_tbl : catalogContext.database.getTables()) {
+                if (catalog_tbl.getIsreplicated() || catalog_tbl.getSystable() ||
+                    catalog_tbl.getMapreduce() || catalog_tbl.getPartitioncolumn() == null) continue;
+                tables.add(catalog_tbl);
+            } // FOR
+
+            for (Table catalog_tbl : tables) {
+                long total = 0;
+                while (true) {
+                    long cnt = this.moveBatch(catalog_tbl, hash, num_buckets, source_partition, dest_partition);
+                    total += cnt;
+                    if (cnt < BATCH_SIZE) break;
+                } // WHILE
+                moved.put(catalog_tbl.getName(), total);
+                if (debug.val)
+                    LOG.debug(String.format("Moved %d %s tuples for hash bucket %d from partition %d to %d",
+                              total, catalog_tbl.getName(), hash, source_partition, dest_partition));
+            } // FOR
+        }
+
+        // Now switch the mapping at every site
+        SynthesizedPlanFragment pfs[] = new SynthesizedPlanFragment[2];
+        ParameterSet params = new ParameterSet(hash, dest_partition);
+
+        pfs[0] = new SynthesizedPlanFragment();
+        pfs[0].fragmentId = SysProcFragmentId.PF_migrateRemapDistribute;
+        pfs[0].inputDependencyIds = new int[] { };
+        pfs[0].outputDependencyIds = new int[] { DEP_remapDistribute };
+        pfs[0].multipartition = true;
+        pfs[0].nonExecSites = false;
+        pfs[0].parameters = params;
+
+        pfs[1] = new SynthesizedPlanFragment();
+        pfs[1].fragmentId = SysProcFragmentId.PF_migrateRemapAggregate;
+        pfs[1].inputDependencyIds = new int[] { DEP_remapDistribute };
+        pfs[1].outputDependencyIds = new int[] { DEP_remapAggregate };
+        pfs[1].multipartition = false;
+        pfs[1].nonExecSites = false;
+        pfs[1].destPartitionId = this.partitionId;
+        pfs[1].parameters = new ParameterSet();
+        executeSysProcPlanFragments(pfs, DEP_remapAggregate);
+
+        LOG.info(String.format("Migrated hash bucket %d from partition %d to partition %d",
+                 hash, source_partition, dest_partition));
+
+        VoltTable result = new VoltTable(new VoltTable.ColumnInfo("TABLE_NAME", VoltType.STRING),
+                                         new VoltTable.ColumnInfo("SOURCE_PARTITION", VoltType.INTEGER),
+                                         new VoltTable.ColumnInfo("DEST_PARTITION", VoltType.INTEGER),
+                                         new VoltTable.ColumnInfo("TUPLES", VoltType.BIGINT));
+        for (Map.Entry<String, Long> e : moved.entrySet()) {
+            result.addRow(e.getKey(), source_partition, dest_partition, e.getValue());
+        } // FOR
+        return (new VoltTable[]{ result });
+    }
+}
@@ -569,7 +569,38 @@ public class SnapshotRestore extends VoltSystemProcedure {
 
         File save_dir = new File(filePath);
         File[] save_files = save_dir.listFiles(has_nonce);
-        return save_files;
+
+        // If this is an incremental snapshot, then the tables that were not
+        // written out have to be pulled from the snapshots that it was based on
+        List<String> chain = null;
+        try {
+            chain = SnapshotUtil.retrieveSnapshotChain(filePath, fileNonce);
+        } catch (IOException e) {
+            LOG.warn("Failed to read the base of snapshot " + fileNonce, e);
+        }
+        if (save_files == null || chain == null || chain.size() <= 1) {
+            return save_files;
+        }
+        List<File> all_files = new ArrayList<File>();
+        Set<String> suffixes = new HashSet<String>();
+        for (File f : save_files) {
+            all_files.add(f);
+            suffixes.add(f.getName().substring(fileNonce.length()));
+        }
+        for (final String baseNonce : chain.subList(1, chain.size())) {
+            File[] base_files = save_dir.listFiles(new FilenameFilter() {
+                public boolean accept(File dir, String file) {
+                    return file.startsWith(baseNonce + "-") && file.endsWith(".vpt");
+                }
+            });
+            if (base_files == null) continue;
+            for (File f : base_files) {
+                if (suffixes.add(f.getName().substring(baseNonce.length()))) {
+                    all_files.add(f);
+                }
+            }
+        }
+        return all_files.toArray(new File[all_files.size()]);
     }
 
     private VoltTable constructResultsTable() {
@@ -591,7 +622,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
         filename_builder.append("-");
         filename_builder.append(tableName);
         filename_builder.append(".vpt");
-        return new File(m_filePath, new String(filename_builder));
+        return SnapshotUtil.resolveSnapshotFile(m_filePath, m_fileNonce,
+                                                new File(m_filePath, new String(filename_builder)));
     }
 
     private static File getSaveFileForPartitionedTable(String filePath, String fileNonce, String tableName, int originalHostId, int siteId, int partitionId) {
@@ -608,7 +640,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
 
         
         filename_builder.append(".vpt");
-        return new File(filePath, new String(filename_builder));
+        return SnapshotUtil.resolveSnapshotFile(filePath, fileNonce,
+                                                new File(filePath, new String(filename_builder)));
     }
 
     private static TableSaveFile getTableSaveFile(File saveFile, int readAheadChunks, int relevantPartitionIds[]) throws IOException {
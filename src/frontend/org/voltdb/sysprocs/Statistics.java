@@ -102,6 +102,7 @@ public class Statistics extends VoltSystemProcedure {
         addStatsFragments(SysProcSelector.MEMORY, SysProcFragmentId.PF_nodeMemory, SysProcFragmentId.PF_nodeMemoryAggregator);
         addStatsFragments(SysProcSelector.TXNCOUNTER, SysProcFragmentId.PF_txnCounterData, SysProcFragmentId.PF_txnCounterAggregator);
         addStatsFragments(SysProcSelector.TXNPROFILER, SysProcFragmentId.PF_txnProfilerData, SysProcFragmentId.PF_txnProfilerAggregator);
+        addStatsFragments(SysProcSelector.TXNTRACE, SysProcFragmentId.PF_txnTraceData, SysProcFragmentId.PF_txnTraceAggregator);
         addStatsFragments(SysProcSelector.EXECPROFILER, SysProcFragmentId.PF_execProfilerData, SysProcFragmentId.PF_execProfilerAggregator);
         addStatsFragments(SysProcSelector.QUEUEPROFILER, SysProcFragmentId.PF_queueProfilerData, SysProcFragmentId.PF_queueProfilerAggregator);
         addStatsFragments(SysProcSelector.MARKOVPROFILER, SysProcFragmentId.PF_markovProfilerData, SysProcFragmentId.PF_markovProfilerAggregator);
@@ -109,6 +110,7 @@ public class Statistics extends VoltSystemProcedure {
         addStatsFragments(SysProcSelector.SITEPROFILER, SysProcFragmentId.PF_siteProfilerData, SysProcFragmentId.PF_siteProfilerAggregator);
         addStatsFragments(SysProcSelector.PLANNERPROFILER, SysProcFragmentId.PF_plannerProfilerData, SysProcFragmentId.PF_plannerProfilerAggregator);
         addStatsFragments(SysProcSelector.ANTICACHE, SysProcFragmentId.PF_anticacheProfilerData, SysProcFragmentId.PF_anticacheProfilerAggregator);
+        addStatsFragments(SysProcSelector.QUERYCACHE, SysProcFragmentId.PF_queryCacheData, SysProcFragmentId.PF_queryCacheAggregator);
     } // STATIC
     
     @Override
@@ -149,13 +151,15 @@ public class Statistics extends VoltSystemProcedure {
             }
             case SysProcFragmentId.PF_txnCounterData:
             case SysProcFragmentId.PF_txnProfilerData:
+            case SysProcFragmentId.PF_txnTraceData:
             case SysProcFragmentId.PF_execProfilerData:
             case SysProcFragmentId.PF_queueProfilerData:
             case SysProcFragmentId.PF_markovProfilerData:
             case SysProcFragmentId.PF_specexecProfilerData:
             case SysProcFragmentId.PF_siteProfilerData:
             case SysProcFragmentId.PF_plannerProfilerData:
-            case SysProcFragmentId.PF_anticacheProfilerData: {
+            case SysProcFragmentId.PF_anticacheProfilerData:
+            case SysProcFragmentId.PF_queryCacheData: {
                 assert(params.toArray().length == 2);
                 final boolean interval =
                     ((Byte)params.toArray()[0]).byteValue() == 0 ? false : true;
@@ -190,13 +194,15 @@ public class Statistics extends VoltSystemProcedure {
             case SysProcFragmentId.PF_nodeMemoryAggregator:
             case SysProcFragmentId.PF_txnCounterAggregator:
             case SysProcFragmentId.PF_txnProfilerAggregator:
+            case SysProcFragmentId.PF_txnTraceAggregator:
             case SysProcFragmentId.PF_execProfilerAggregator:
             case SysProcFragmentId.PF_queueProfilerAggregator:
             case SysProcFragmentId.PF_markovProfilerAggregator:
             case SysProcFragmentId.PF_specexecProfilerAggregator:
             case SysProcFragmentId.PF_siteProfilerAggregator:
             case SysProcFragmentId.PF_plannerProfilerAggregator:
-            case SysProcFragmentId.PF_anticacheProfilerAggregator: {
+            case SysProcFragmentId.PF_anticacheProfilerAggregator:
+            case SysProcFragmentId.PF_queryCacheAggregator: {
                 // Do a reverse look up to find the input dependency id
                 int dataFragmentId = -1;
                 for (Integer id : STATS_DATA.keySet()) {
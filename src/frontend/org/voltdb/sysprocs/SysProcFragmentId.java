@@ -59,6 +59,10 @@ public class SysProcFragmentId {
     public static final int PF_plannerProfilerAggregator = 37;
     public static final int PF_anticacheProfilerData = 38;
     public static final int PF_anticacheProfilerAggregator = 39;
+    public static final int PF_txnTraceData = 40;
+    public static final int PF_txnTraceAggregator = 41;
+    public static final int PF_queryCacheData = 42;
+    public static final int PF_queryCacheAggregator = 43;
 
     // @Shutdown
     public static final int PF_shutdownCommand = 50;
@@ -180,6 +184,12 @@ public class SysProcFragmentId {
     public static final int PF_anitCacheAccessDistribute = 213;
     public static final int PF_anitCacheAccessAggregate = 214;
     
+    // @MigrateHashBucket
+    public static final int PF_migrateExtract = 220;
+    public static final int PF_migrateLoad = 221;
+    public static final int PF_migrateRemapDistribute = 222;
+    public static final int PF_migrateRemapAggregate = 223;
+    
     // @SetConfiguration
     public static final int PF_setConfDistribute = 300;
     public static final int PF_setConfAggregate = 301;
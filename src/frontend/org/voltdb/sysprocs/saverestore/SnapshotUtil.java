@@ -98,6 +98,106 @@ public class SnapshotUtil {
         fos.getFD().sync();
     }
 
+    /**
+     * Record the nonce of the snapshot that an incremental snapshot was based on.
+     * Tables that were not modified since the base snapshot are not written out
+     * again, so restore has to look for them in the base snapshot instead.
+     * The file uses the same CRC-prefixed layout as the digest.
+     * @param path
+     * @param nonce
+     * @param baseNonce
+     * @throws IOException
+     */
+    public static void recordSnapshotBase(String path, String nonce, String baseNonce) throws IOException {
+        final File f = new File(path, constructBaseFilenameForNonce(nonce));
+        if (f.exists()) {
+            if (!f.delete()) {
+                throw new IOException("Unable to write snapshot base file " + f);
+            }
+        }
+        final byte baseBytes[] = (baseNonce + "\n").getBytes("UTF-8");
+        final CRC32 crc = new CRC32();
+        crc.update(baseBytes);
+        ByteBuffer fileBuffer = ByteBuffer.allocate(baseBytes.length + 4);
+        fileBuffer.putInt((int)crc.getValue());
+        fileBuffer.put(baseBytes);
+        fileBuffer.flip();
+        FileOutputStream fos = new FileOutputStream(f);
+        try {
+            fos.getChannel().write(fileBuffer);
+            fos.getFD().sync();
+        } finally {
+            fos.close();
+        }
+    }
+
+    /**
+     * Retrieve the nonce of the snapshot that the given snapshot was based on.
+     * Returns null if the snapshot is a full snapshot.
+     * @param path
+     * @param nonce
+     * @throws IOException If the base file is corrupted
+     */
+    public static String retrieveSnapshotBase(String path, String nonce) throws IOException {
+        final File f = new File(path, constructBaseFilenameForNonce(nonce));
+        if (!f.exists()) {
+            return null;
+        }
+        return CRCCheck(f);
+    }
+
+    /**
+     * Return the file that holds the data for the given snapshot file. If the
+     * snapshot is incremental and the table was not written out, then this walks
+     * back through the base snapshots until it finds the file that has it.
+     * If no snapshot in the chain has the file, the original file is returned.
+     * @param path
+     * @param nonce
+     * @param f A file in the snapshot identified by nonce
+     */
+    public static File resolveSnapshotFile(String path, String nonce, File f) {
+        if (f.exists() || !f.getName().startsWith(nonce)) {
+            return f;
+        }
+        final String suffix = f.getName().substring(nonce.length());
+        final Set<String> visited = new HashSet<String>();
+        String current = nonce;
+        try {
+            while (visited.add(current)) {
+                current = retrieveSnapshotBase(path, current);
+                if (current == null) {
+                    break;
+                }
+                final File candidate = new File(path, current + suffix);
+                if (candidate.exists()) {
+                    return candidate;
+                }
+            }
+        } catch (IOException e) {
+            // Fall through and let the caller fail on the missing file
+        }
+        return f;
+    }
+
+    /**
+     * Returns the list of nonces that make up the chain for the given
+     * snapshot, starting with the snapshot itself and ending with the
+     * full snapshot that the chain was started from.
+     * @param path
+     * @param nonce
+     * @throws IOException
+     */
+    public static List<String> retrieveSnapshotChain(String path, String nonce) throws IOException {
+        final List<String> chain = new ArrayList<String>();
+        final Set<String> visited = new HashSet<String>();
+        String current = nonce;
+        while (current != null && visited.add(current)) {
+            chain.add(current);
+            current = retrieveSnapshotBase(path, current);
+        }
+        return chain;
+    }
+
     public static List<String> retrieveRelevantTableNames(String path,
             String nonce) throws Exception {
         return retrieveRelevantTableNamesAndTime(new File(path, constructDigestFilenameForNonce(nonce))).getSecond();
@@ -641,6 +741,15 @@ public class SnapshotUtil {
         return (nonce + ".digest");
     }
 
+    /**
+     * Generates the filename of the file that records the base snapshot of an
+     * incremental snapshot for the given nonce.
+     * @param nonce
+     */
+    public static final String constructBaseFilenameForNonce(String nonce) {
+        return (nonce + ".base");
+    }
+
     public static final List<Table> getTablesToSave(Database database)
     {
         ArrayList<Table> my_tables = new ArrayList<Table>();
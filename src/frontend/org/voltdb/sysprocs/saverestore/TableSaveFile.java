@@ -27,10 +27,15 @@ import java.util.ArrayDeque;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.CRC32;
 
+import org.voltdb.DefaultSnapshotDataTarget;
 import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.DBBPool;
 import org.voltdb.utils.DBBPool.BBContainer;
 import org.voltdb.EELibraryLoader;
@@ -76,6 +81,21 @@ public class TableSaveFile {
      */
     private static final int DEFAULT_CHUNKSIZE = org.voltdb.SnapshotSiteProcessor.m_snapshotBufferLength + (1024 * 256);
 
+    /**
+     * Decompresses and validates the chunks of compressed save files. This is shared
+     * by all of the files being restored so that chunks are decoded in parallel.
+     */
+    private static final ExecutorService m_decoders =
+            Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), new ThreadFactory() {
+                private int threadIndex = 0;
+                @Override
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "ChunkDecoder-" + threadIndex++);
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
     public TableSaveFile(FileChannel dataIn, int readAheadChunks, int relevantPartitionIds[]) throws IOException {
         this(dataIn, readAheadChunks, relevantPartitionIds, false);
     }
@@ -204,6 +224,8 @@ public class TableSaveFile {
             for (int ii = 0; ii < 4; ii++) {
                 m_versionNum[ii] = fd.readInt();
             }
+            m_compressed = (m_versionNum[3] >= DefaultSnapshotDataTarget.VERSION_COMPRESSED_CHUNKS);
+            m_maxChunkLength = (m_compressed ? CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE) : DEFAULT_CHUNKSIZE);
             m_createTime = fd.readLong();
             m_hostId = fd.readInt();
             m_hostname = fd.readString();
@@ -287,6 +309,13 @@ public class TableSaveFile {
         return m_completed;
     }
 
+    /**
+     * Returns true if the tuple data of each chunk in this file was compressed
+     */
+    public boolean isCompressed() {
+        return m_compressed;
+    }
+
     public long getCreateTime() {
         return m_createTime;
     }
@@ -408,6 +437,8 @@ public class TableSaveFile {
     private final FileChannel m_saveFile;
     private final ByteBuffer m_tableHeader;
     private final boolean m_completed;
+    private final boolean m_compressed;
+    private final int m_maxChunkLength;
     private final int m_versionNum[] = new int[4];
     private final int m_hostId;
     private final String m_hostname;
@@ -420,6 +451,7 @@ public class TableSaveFile {
     private final long m_createTime;
     private boolean m_hasMoreChunks = true;
     private static ConcurrentLinkedQueue<Container> m_buffers = new ConcurrentLinkedQueue<Container>();
+    private static ConcurrentLinkedQueue<ByteBuffer> m_compressedBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
     private final ArrayDeque<Container> m_availableChunks = new ArrayDeque<Container>();
     private final HashSet<Integer> m_relevantPartitionIds;
     private String m_filePath;
@@ -445,6 +477,190 @@ public class TableSaveFile {
     private Thread m_chunkReaderThread = null;
     private IOException m_chunkReaderException = null;
 
+    /**
+     * The number of compressed chunks that have been read but not decoded yet.
+     * Guarded by the TableSaveFile monitor.
+     */
+    private int m_pendingDecodes = 0;
+
+    private static Container getContainer() {
+        Container c = m_buffers.poll();
+        if (c == null) {
+            final BBContainer originContainer = DBBPool.allocateDirect(DEFAULT_CHUNKSIZE);
+            final ByteBuffer b = originContainer.b;
+            final long pointer = org.voltdb.utils.DBBPool.getBufferAddress(b);
+            c = new Container(b, pointer, originContainer);
+        }
+        return (c);
+    }
+
+    private void markAllPartitionsCorrupted() {
+        synchronized (this) {
+            for (int partitionId : m_partitionIds) {
+                m_corruptedPartitions.add(partitionId);
+            }
+        }
+    }
+
+    /**
+     * Validate a chunk whose tuple data has been copied into the container and
+     * hand it over to the consumer. Returns false if the chunk was skipped.
+     * @param c
+     * @param partitionId
+     * @param expectedCRC
+     * @param checksumStartPosition
+     * @param rowCount
+     * @throws IOException
+     */
+    private boolean finishChunk(Container c, int partitionId, int expectedCRC, int checksumStartPosition, int rowCount) throws IOException {
+        /*
+         * Validate the rest of the chunk. This can fail if the data
+         * is corrupted or the length value was corrupted.
+         */
+        final int calculatedCRC = DBBPool.getBufferCRC32(c.b, c.b.position(), c.b.remaining());
+        if (calculatedCRC != expectedCRC) {
+            synchronized (this) {
+                m_corruptedPartitions.add(partitionId);
+            }
+            if (m_continueOnCorruptedChunk) {
+                c.discard();
+                m_chunkReads.release();
+                return (false);
+            } else {
+                c.discard();
+                throw new IOException("CRC mismatch in saved table chunk");
+            }
+        }
+
+        /*
+         * Skip irrelevant chunks after CRC is calculated. Always
+         * calulate the CRC in case it is the length value that is
+         * corrupted
+         */
+        if (m_relevantPartitionIds != null) {
+            if (!m_relevantPartitionIds.contains(partitionId)) {
+                c.discard();
+                m_chunkReads.release();
+                return (false);
+            }
+        }
+
+        /*
+         * The row count which was stored on disk at the end (and
+         * for the CRC calc) is now moved to the appropriate place
+         * for the table serialization format. Update the limit to
+         * reflect that. Surrounded in a try finally just in case
+         * there is overflow/underflow. Shouldn't happen but I could
+         * be wrong.
+         */
+        boolean success = false;
+        try {
+            c.b.limit(c.b.limit() - 4);
+            c.b.position(checksumStartPosition - 4);
+            c.b.putInt(rowCount);
+            c.b.position(0);
+            success = true;
+        } finally {
+            if (!success) {
+                markAllPartitionsCorrupted();
+            }
+        }
+
+        synchronized (this) {
+            m_availableChunks.offer(c);
+            this.notifyAll();
+        }
+        return (true);
+    }
+
+    /**
+     * Decompress a chunk that was read by the ChunkReader into a container
+     * and validate it. This is invoked from the decoder threads.
+     * @param compressed
+     * @param partitionId
+     * @param expectedCRC
+     * @throws IOException
+     */
+    private void decodeChunk(ByteBuffer compressed, int partitionId, int expectedCRC) throws IOException {
+        final Container c = getContainer();
+        boolean completedRead = false;
+        int checksumStartPosition = 0;
+        int rowCount = 0;
+        try {
+            // The table header is shared by all of the decoder threads
+            final ByteBuffer tableHeader = m_tableHeader.duplicate();
+            tableHeader.position(0);
+            c.b.clear();
+            c.b.put(tableHeader);
+            c.b.position(c.b.position() + 4); // Leave space for row count
+            checksumStartPosition = c.b.position();
+
+            final int uncompressedLength = CompressionService.uncompressedLength(compressed);
+            if (uncompressedLength < 4 || uncompressedLength > c.b.remaining()) {
+                throw new IOException("Corrupted TableSaveFile chunk has invalid uncompressed length " + uncompressedLength);
+            }
+            CompressionService.decompressBuffer(compressed, c.b);
+            c.b.position(checksumStartPosition + uncompressedLength - 4);
+            rowCount = c.b.getInt();
+            c.b.limit(checksumStartPosition + uncompressedLength);
+            c.b.position(checksumStartPosition);
+            completedRead = true;
+        } finally {
+            if (!completedRead) {
+                synchronized (this) {
+                    m_corruptedPartitions.add(partitionId);
+                }
+                c.discard();
+            }
+        }
+        finishChunk(c, partitionId, expectedCRC, checksumStartPosition, rowCount);
+    }
+
+    private void submitDecode(final ByteBuffer compressed, final int partitionId, final int expectedCRC) {
+        synchronized (this) {
+            m_pendingDecodes++;
+        }
+        m_decoders.execute(new Runnable() {
+            @Override
+            public void run() {
+                IOException error = null;
+                try {
+                    decodeChunk(compressed, partitionId, expectedCRC);
+                } catch (IOException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new IOException(e);
+                } finally {
+                    m_compressedBuffers.offer(compressed);
+                    synchronized (TableSaveFile.this) {
+                        m_pendingDecodes--;
+                        if (error != null && m_chunkReaderException == null) {
+                            m_hasMoreChunks = false;
+                            m_chunkReaderException = error;
+                        }
+                        TableSaveFile.this.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Block until the decoder threads have finished all of the chunks that were
+     * submitted for this file. The caller must hold the TableSaveFile monitor.
+     * The decoders report any errors themselves, so we only need to wait.
+     */
+    private void waitForPendingDecodes() {
+        while (m_pendingDecodes > 0) {
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
     /**
      * Thread to read chunks from the disk
      */
@@ -520,10 +736,47 @@ public class TableSaveFile {
                         throw new IOException("Corrupted TableSaveFile chunk has negative chunk length");
                     }
 
-                    if (nextChunkLength > DEFAULT_CHUNKSIZE) {
+                    if (nextChunkLength > m_maxChunkLength) {
                         throw new IOException("Corrupted TableSaveFile chunk has unreasonable length " + "> DEFAULT_CHUNKSIZE bytes");
                     }
 
+                    /*
+                     * Compressed chunks are read as is and then decompressed and
+                     * validated by the decoder threads. The CRC covers the
+                     * uncompressed tuple data, so it is checked after decoding.
+                     */
+                    if (m_compressed) {
+                        final int compressedLength = nextChunkLength - 12;
+                        if (compressedLength < 0) {
+                            throw new IOException("Corrupted TableSaveFile chunk has negative compressed length");
+                        }
+                        ByteBuffer compressed = m_compressedBuffers.poll();
+                        if (compressed == null) {
+                            compressed = ByteBuffer.allocateDirect(m_maxChunkLength);
+                        }
+                        compressed.clear();
+                        compressed.limit(compressedLength);
+                        boolean completedRead = false;
+                        try {
+                            while (compressed.hasRemaining()) {
+                                final int read = m_saveFile.read(compressed);
+                                if (read == -1) {
+                                    throw new EOFException();
+                                }
+                            }
+                            completedRead = true;
+                        } finally {
+                            if (!completedRead) {
+                                m_compressedBuffers.offer(compressed);
+                                markAllPartitionsCorrupted();
+                            }
+                        }
+                        compressed.flip();
+                        submitDecode(compressed, nextChunkPartitionId, nextChunkCRC);
+                        ++chunksRead;
+                        continue;
+                    }
+
                     /*
                      * Now allocate space to store the chunk using the VoltTable
                      * serialization representation. The chunk will contain an
@@ -532,13 +785,7 @@ public class TableSaveFile {
                      * overwrite the partition id that is not part of the
                      * serialization format
                      */
-                    Container c = m_buffers.poll();
-                    if (c == null) {
-                        final BBContainer originContainer = DBBPool.allocateDirect(DEFAULT_CHUNKSIZE);
-                        final ByteBuffer b = originContainer.b;
-                        final long pointer = org.voltdb.utils.DBBPool.getBufferAddress(b);
-                        c = new Container(b, pointer, originContainer);
-                    }
+                    Container c = getContainer();
 
                     /*
                      * If the length value is wrong or not all data made it to
@@ -587,65 +834,14 @@ public class TableSaveFile {
                         }
                     }
 
-                    /*
-                     * Validate the rest of the chunk. This can fail if the data
-                     * is corrupted or the length value was corrupted.
-                     */
-                    final int calculatedCRC = DBBPool.getBufferCRC32(c.b, c.b.position(), c.b.remaining());
-                    if (calculatedCRC != nextChunkCRC) {
-                        m_corruptedPartitions.add(nextChunkPartitionId);
-                        if (m_continueOnCorruptedChunk) {
-                            c.discard();
-                            m_chunkReads.release();
-                            continue;
-                        } else {
-                            throw new IOException("CRC mismatch in saved table chunk");
-                        }
-                    }
-
-                    /*
-                     * Skip irrelevant chunks after CRC is calculated. Always
-                     * calulate the CRC in case it is the length value that is
-                     * corrupted
-                     */
-                    if (m_relevantPartitionIds != null) {
-                        if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
-                            c.discard();
-                            m_chunkReads.release();
-                            continue;
-                        }
-                    }
-
-                    /*
-                     * The row count which was stored on disk at the end (and
-                     * for the CRC calc) is now moved to the appropriate place
-                     * for the table serialization format. Update the limit to
-                     * reflect that. Surrounded in a try finally just in case
-                     * there is overflow/underflow. Shouldn't happen but I could
-                     * be wrong.
-                     */
-                    boolean success = false;
-                    try {
-                        c.b.limit(c.b.limit() - 4);
-                        c.b.position(checksumStartPosition - 4);
-                        c.b.putInt(rowCount);
-                        c.b.position(0);
-                        success = true;
-                    } finally {
-                        if (!success) {
-                            for (int partitionId : m_partitionIds) {
-                                m_corruptedPartitions.add(partitionId);
-                            }
-                        }
-                    }
-                    ++chunksRead;
-
-                    synchronized (TableSaveFile.this) {
-                        m_availableChunks.offer(c);
-                        TableSaveFile.this.notifyAll();
+                    if (finishChunk(c, nextChunkPartitionId, nextChunkCRC, checksumStartPosition, rowCount)) {
+                        ++chunksRead;
                     }
                 } catch (EOFException eof) {
                     synchronized (TableSaveFile.this) {
+                        // Don't let the consumer think that we are done until
+                        // all of the outstanding chunks have been decoded
+                        waitForPendingDecodes();
                         m_hasMoreChunks = false;
                         if (expectedAnotherChunk) {
                             m_chunkReaderException = new IOException("Expected to find another chunk but reached end of file instead");
@@ -654,24 +850,28 @@ public class TableSaveFile {
                     }
                 } catch (IOException e) {
                     synchronized (TableSaveFile.this) {
+                        waitForPendingDecodes();
                         m_hasMoreChunks = false;
                         m_chunkReaderException = e;
                         TableSaveFile.this.notifyAll();
                     }
                 } catch (BufferUnderflowException e) {
                     synchronized (TableSaveFile.this) {
+                        waitForPendingDecodes();
                         m_hasMoreChunks = false;
                         m_chunkReaderException = new IOException(e);
                         TableSaveFile.this.notifyAll();
                     }
                 } catch (BufferOverflowException e) {
                     synchronized (TableSaveFile.this) {
+                        waitForPendingDecodes();
                         m_hasMoreChunks = false;
                         m_chunkReaderException = new IOException(e);
                         TableSaveFile.this.notifyAll();
                     }
                 } catch (IndexOutOfBoundsException e) {
                     synchronized (TableSaveFile.this) {
+                        waitForPendingDecodes();
                         m_hasMoreChunks = false;
                         m_chunkReaderException = new IOException(e);
                         TableSaveFile.this.notifyAll();
@@ -686,6 +886,8 @@ public class TableSaveFile {
                 readChunks();
             } finally {
                 synchronized (TableSaveFile.this) {
+                    // The decoders may still be filling containers from this file
+                    waitForPendingDecodes();
                     m_hasMoreChunks = false;
                     TableSaveFile.this.notifyAll();
                     try {
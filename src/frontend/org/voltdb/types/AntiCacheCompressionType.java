@@ -0,0 +1,41 @@
+package org.voltdb.types;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The codec that the EE uses to compress blocks of evicted tuples before
+ * it writes them out to an AntiCacheDB.
+ * The ordinals must match AntiCacheCompressionType in the EE's types.h
+ */
+public enum AntiCacheCompressionType {
+    /**
+     * Write blocks without compressing them
+     */
+    NONE,
+    /**
+     * LZF (fast LZ77 variant)
+     */
+    LZF
+    ;
+
+    private static final Map<String, AntiCacheCompressionType> name_lookup = new HashMap<String, AntiCacheCompressionType>();
+    static {
+        for (AntiCacheCompressionType vt : EnumSet.allOf(AntiCacheCompressionType.class)) {
+            name_lookup.put(vt.name().toLowerCase(), vt);
+        }
+    } // STATIC
+
+    public static AntiCacheCompressionType get(int idx) {
+        AntiCacheCompressionType values[] = AntiCacheCompressionType.values();
+        if (idx < 0 || idx >= values.length) {
+            return(null);
+        }
+        return (values[idx]);
+    }
+
+    public static AntiCacheCompressionType get(String name) {
+        return AntiCacheCompressionType.name_lookup.get(name.toLowerCase());
+    }
+}
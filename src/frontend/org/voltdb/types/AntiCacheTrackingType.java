@@ -0,0 +1,43 @@
+package org.voltdb.types;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How the EE records that a tuple was accessed so that it can pick which tuples
+ * to evict. These are only used when the EE is compiled with anti-cache timestamps.
+ * The ordinals must match AntiCacheTrackingType in the EE's types.h
+ */
+public enum AntiCacheTrackingType {
+    /**
+     * Write the current cycle counter into the tuple's header on every access
+     */
+    TIMESTAMP,
+    /**
+     * Write the eviction manager's clock epoch into the tuple's header the first
+     * time that it is accessed after an eviction. Most accesses to hot tuples
+     * only read the header instead of writing to it.
+     */
+    CLOCK
+    ;
+
+    private static final Map<String, AntiCacheTrackingType> name_lookup = new HashMap<String, AntiCacheTrackingType>();
+    static {
+        for (AntiCacheTrackingType vt : EnumSet.allOf(AntiCacheTrackingType.class)) {
+            name_lookup.put(vt.name().toLowerCase(), vt);
+        }
+    } // STATIC
+
+    public static AntiCacheTrackingType get(int idx) {
+        AntiCacheTrackingType values[] = AntiCacheTrackingType.values();
+        if (idx < 0 || idx >= values.length) {
+            return(null);
+        }
+        return (values[idx]);
+    }
+
+    public static AntiCacheTrackingType get(String name) {
+        return AntiCacheTrackingType.name_lookup.get(name.toLowerCase());
+    }
+}
@@ -0,0 +1,33 @@
+package org.voltdb.types;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This defines how the QueryCache will choose which cached
+ * query results to evict when it runs out of space.
+ */
+public enum QueryCacheEvictionPolicyType {
+    /**
+     * Evict the entry that was accessed the longest time ago.
+     */
+    LRU,
+    /**
+     * Evict the entry that has been accessed the least number of times.
+     * Ties are broken by evicting the entry that was accessed the longest time ago.
+     * This is the default configuration.
+     */
+    LFU;
+      
+    private static final Map<String, QueryCacheEvictionPolicyType> name_lookup = new HashMap<String, QueryCacheEvictionPolicyType>();
+    static {
+        for (QueryCacheEvictionPolicyType e : EnumSet.allOf(QueryCacheEvictionPolicyType.class)) {
+            QueryCacheEvictionPolicyType.name_lookup.put(e.name().toLowerCase(), e);
+        } // FOR
+    } // STATIC
+      
+    public static QueryCacheEvictionPolicyType get(String name) {
+        return QueryCacheEvictionPolicyType.name_lookup.get(name.toLowerCase());
+    }
+} // ENUM
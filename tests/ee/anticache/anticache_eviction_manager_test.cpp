@@ -346,8 +346,185 @@ TEST_F(AntiCacheEvictionManagerTest, FullBackingStore) {
     delete acem;
 }
 
+TEST_F(AntiCacheEvictionManagerTest, PromoteBlock) {
+    ChTempDir tempdir;
+
+    string temp = tempdir.name();
+
+    ExecutorContext* ctx = m_engine->getExecutorContext();
+
+    AntiCacheEvictionManager* acem = new AntiCacheEvictionManager(m_engine);
+    AntiCacheDB* nvmdb = new NVMAntiCacheDB(ctx, temp, BLOCK_SIZE, 2 * BLOCK_SIZE);
+    AntiCacheDB* berkeleydb = new BerkeleyAntiCacheDB(ctx, temp, BLOCK_SIZE, MAX_SIZE);
+
+    acem->addAntiCacheDB(nvmdb);
+    int16_t berkeley_acid = acem->addAntiCacheDB(berkeleydb);
+
+    string tableName("TEST");
+    string payload("Cold payload");
+    string hotPayload("Hot payload");
+
+    // Fill up the faster level
+    for (int i = 0; i < nvmdb->getMaxBlocks(); i++) {
+        int16_t blockId = nvmdb->nextBlockId();
+        nvmdb->writeBlock(tableName,
+            blockId,
+            1,
+            const_cast<char*>(payload.data()),
+            static_cast<int>(payload.size())+1);
+    }
+    ASSERT_EQ(0, nvmdb->getFreeBlocks());
+
+    int16_t blockId = berkeleydb->nextBlockId();
+    berkeleydb->writeBlock(tableName,
+        blockId,
+        1,
+        const_cast<char*>(hotPayload.data()),
+        static_cast<int>(hotPayload.size())+1);
+    int32_t fullBlockId = (berkeley_acid << 16) | blockId;
+
+    // The LRU block in the faster level gets swapped down to make room
+    AntiCacheBlock* block = berkeleydb->readBlock(blockId);
+    int32_t newBlockId = acem->promoteBlock(fullBlockId, block);
+    delete block;
+
+    ASSERT_EQ(nvmdb->getACID(), (int16_t)((newBlockId & 0xFFFF0000) >> 16));
+    ASSERT_EQ(1, acem->getBlocksPromoted());
+    ASSERT_EQ(1, acem->getBlocksDemoted());
+    ASSERT_EQ(0, nvmdb->getFreeBlocks());
+    ASSERT_EQ(1, berkeleydb->getNumBlocks());
+
+    AntiCacheBlock* nvmblock = nvmdb->readBlock((int16_t)(newBlockId & 0x0000FFFF));
+    ASSERT_EQ(hotPayload.size()+1, nvmblock->getSize());
+    ASSERT_EQ(0, hotPayload.compare(nvmblock->getData()));
+
+    // Blocks can't go any higher than the first level
+    ASSERT_EQ(-1, acem->promoteBlock(newBlockId, nvmblock));
+    ASSERT_EQ(1, acem->getBlocksPromoted());
+    delete nvmblock;
+
+    delete berkeleydb;
+    delete nvmdb;
+    delete acem;
+}
+
+TEST_F(AntiCacheEvictionManagerTest, PromotePendingBlocks) {
+    ChTempDir tempdir;
+
+    string temp = tempdir.name();
+
+    ExecutorContext* ctx = m_engine->getExecutorContext();
+
+    AntiCacheEvictionManager* acem = new AntiCacheEvictionManager(m_engine);
+    AntiCacheDB* nvmdb = new NVMAntiCacheDB(ctx, temp, BLOCK_SIZE, 2 * BLOCK_SIZE);
+    AntiCacheDB* berkeleydb = new BerkeleyAntiCacheDB(ctx, temp, BLOCK_SIZE, MAX_SIZE);
+
+    acem->addAntiCacheDB(nvmdb);
+    int16_t berkeley_acid = acem->addAntiCacheDB(berkeleydb);
+    acem->setPromoteThreshold(2);
+
+    string tableName("TEST");
+    string payload("Cold payload");
+    string hotPayload("Hot payload");
+
+    // Fill up the faster level
+    for (int i = 0; i < nvmdb->getMaxBlocks(); i++) {
+        int16_t blockId = nvmdb->nextBlockId();
+        nvmdb->writeBlock(tableName,
+            blockId,
+            1,
+            const_cast<char*>(payload.data()),
+            static_cast<int>(payload.size())+1);
+    }
+    ASSERT_EQ(0, nvmdb->getFreeBlocks());
+
+    int16_t blockId = berkeleydb->nextBlockId();
+    berkeleydb->writeBlock(tableName,
+        blockId,
+        4,
+        const_cast<char*>(hotPayload.data()),
+        static_cast<int>(hotPayload.size())+1);
+    int32_t fullBlockId = (berkeley_acid << 16) | blockId;
+
+    // The first read is below the threshold, so nothing is queued
+    AntiCacheBlock* block = berkeleydb->readBlock(blockId);
+    ASSERT_FALSE(acem->countBlockRead(fullBlockId, 4, block));
+    delete block;
+    ASSERT_EQ(0, acem->promotePendingBlocks());
+
+    // The second read queues the block, but it is only moved once the
+    // partition's thread promotes the pending blocks
+    block = berkeleydb->readBlock(blockId);
+    ASSERT_TRUE(acem->countBlockRead(fullBlockId, 4, block));
+    ASSERT_EQ(0, acem->getBlocksPromoted());
+    ASSERT_EQ(0, nvmdb->getFreeBlocks());
+
+    ASSERT_EQ(1, acem->promotePendingBlocks());
+    ASSERT_EQ(1, acem->getBlocksPromoted());
+    ASSERT_EQ(1, acem->getBlocksDemoted());
+    ASSERT_EQ(0, nvmdb->getFreeBlocks());
+    ASSERT_EQ(1, berkeleydb->getNumBlocks());
+    ASSERT_EQ(0, acem->promotePendingBlocks());
+
+    // Once every tuple in a block has been read its count is dropped,
+    // so it is neither queued nor counted any further
+    int32_t mergedBlockId = (berkeley_acid << 16) | berkeleydb->nextBlockId();
+    ASSERT_FALSE(acem->countBlockRead(mergedBlockId, 1, NULL));
+    ASSERT_FALSE(acem->countBlockRead(mergedBlockId, 3, NULL));
+    ASSERT_EQ(0, acem->promotePendingBlocks());
+    ASSERT_EQ(1, acem->getBlocksPromoted());
+
+    delete berkeleydb;
+    delete nvmdb;
+    delete acem;
+}
+
+TEST_F(AntiCacheEvictionManagerTest, DemoteColdBlocks) {
+    ChTempDir tempdir;
+
+    string temp = tempdir.name();
+
+    ExecutorContext* ctx = m_engine->getExecutorContext();
+
+    AntiCacheEvictionManager* acem = new AntiCacheEvictionManager(m_engine);
+    AntiCacheDB* nvmdb = new NVMAntiCacheDB(ctx, temp, BLOCK_SIZE, 4 * BLOCK_SIZE);
+    AntiCacheDB* berkeleydb = new BerkeleyAntiCacheDB(ctx, temp, BLOCK_SIZE, MAX_SIZE);
+
+    acem->addAntiCacheDB(nvmdb);
+    acem->addAntiCacheDB(berkeleydb);
+
+    string tableName("TEST");
+    string payload("Test payload");
+
+    for (int i = 0; i < nvmdb->getMaxBlocks(); i++) {
+        int16_t blockId = nvmdb->nextBlockId();
+        nvmdb->writeBlock(tableName,
+            blockId,
+            1,
+            const_cast<char*>(payload.data()),
+            static_cast<int>(payload.size())+1);
+    }
+    ASSERT_EQ(0, nvmdb->getFreeBlocks());
+
+    // Nothing moves until we ask for free blocks
+    ASSERT_EQ(0, acem->demoteColdBlocks());
+
+    acem->setDemoteFreeBlocks(2);
+    ASSERT_EQ(2, acem->demoteColdBlocks());
+    ASSERT_EQ(2, nvmdb->getFreeBlocks());
+    ASSERT_EQ(2, berkeleydb->getNumBlocks());
+    ASSERT_EQ(2, acem->getBlocksDemoted());
+
+    // The levels already have enough room
+    ASSERT_EQ(0, acem->demoteColdBlocks());
+
+    delete berkeleydb;
+    delete nvmdb;
+    delete acem;
+}
+
+
 
- 
 
 #ifndef ANTICACHE_TIMESTAMPS
 TEST_F(AntiCacheEvictionManagerTest, GetTupleID)
@@ -593,6 +770,33 @@ TEST_F(AntiCacheEvictionManagerTest, GetTupleTimeStamp)
     cleanupTable(); 
 }
 
+TEST_F(AntiCacheEvictionManagerTest, TouchTupleTimeStamp)
+{
+    initTable(true); 
+    
+    TableTuple tuple = m_table->tempTuple();
+    
+    tuple.setNValue(0, ValueFactory::getIntegerValue(m_tuplesInserted++));
+    tuple.setNValue(1, ValueFactory::getIntegerValue(rand()));
+    m_table->insertTuple(tuple);
+    
+    tuple = m_table->lookupTuple(tuple); 
+    
+    // a cold tuple picks up the current clock epoch
+    tuple.setColdTimeStamp();
+    tuple.touchTimeStamp(7);
+    ASSERT_EQ(7, tuple.getTimeStamp());
+
+    // touching it again in the same epoch doesn't change anything
+    tuple.touchTimeStamp(7);
+    ASSERT_EQ(7, tuple.getTimeStamp());
+
+    tuple.touchTimeStamp(8);
+    ASSERT_EQ(8, tuple.getTimeStamp());
+    
+    cleanupTable(); 
+}
+
 TEST_F(AntiCacheEvictionManagerTest, TestEvictionOrder)
 {
     int num_tuples = 100; 
@@ -0,0 +1,107 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <string>
+#include <stdlib.h>
+#include <string.h>
+#include "harness.h"
+#include "anticache/BlockCompressor.h"
+
+using namespace std;
+using namespace voltdb;
+
+#define BLOCK_SIZE 524288
+
+/**
+ * BlockCompressor Tests
+ */
+class BlockCompressorTest : public Test {
+public:
+    BlockCompressorTest() {
+        
+    };
+
+    void checkRoundTrip(const char* data, long size) {
+        long compressed_size = 0;
+        char* compressed = BlockCompressor::compress(ANTICACHE_COMPRESSION_LZF, data, size, compressed_size);
+        ASSERT_TRUE(compressed != NULL);
+        ASSERT_TRUE(compressed_size < size);
+        ASSERT_TRUE(BlockCompressor::isCompressed(compressed, compressed_size));
+        
+        long uncompressed_size = 0;
+        char* uncompressed = BlockCompressor::decompress(compressed, compressed_size, uncompressed_size);
+        ASSERT_EQ(size, uncompressed_size);
+        ASSERT_EQ(0, memcmp(data, uncompressed, size));
+        
+        delete [] compressed;
+        delete [] uncompressed;
+    }
+};
+
+TEST_F(BlockCompressorTest, CompressText) {
+    std::string text;
+    while (text.size() < BLOCK_SIZE) {
+        text.append("The quick brown fox jumps over the lazy dog. ");
+        text.append(1, static_cast<char>('a' + (rand() % 26)));
+    } // WHILE
+    checkRoundTrip(text.c_str(), static_cast<long>(text.size()));
+}
+
+TEST_F(BlockCompressorTest, CompressLongRuns) {
+    char* data = new char[BLOCK_SIZE];
+    for (int i = 0; i < BLOCK_SIZE; i++) {
+        data[i] = static_cast<char>(i / 1000);
+    } // FOR
+    checkRoundTrip(data, BLOCK_SIZE);
+    delete [] data;
+}
+
+TEST_F(BlockCompressorTest, IncompressibleBlock) {
+    char* data = new char[BLOCK_SIZE];
+    for (int i = 0; i < BLOCK_SIZE; i++) {
+        data[i] = static_cast<char>(rand());
+    } // FOR
+    
+    // Random data won't get any smaller so it should be written as-is
+    long compressed_size = 0;
+    char* compressed = BlockCompressor::compress(ANTICACHE_COMPRESSION_LZF, data, BLOCK_SIZE, compressed_size);
+    ASSERT_TRUE(compressed == NULL);
+    delete [] data;
+}
+
+TEST_F(BlockCompressorTest, UncompressedBlock) {
+    // An uncompressed block starts with the number of tables in it
+    char data[64];
+    memset(data, 0, sizeof(data));
+    data[3] = 1;
+    ASSERT_FALSE(BlockCompressor::isCompressed(data, sizeof(data)));
+    
+    long compressed_size = 0;
+    ASSERT_TRUE(BlockCompressor::compress(ANTICACHE_COMPRESSION_NONE, data, sizeof(data), compressed_size) == NULL);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
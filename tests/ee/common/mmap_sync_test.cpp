@@ -0,0 +1,151 @@
+/* Copyright (C) 2013 by H-Store Project
+ * Brown University
+ * Carnegie Mellon University
+ * Massachusetts Institute of Technology
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+#include "harness.h"
+#include "common/MMAPMemoryManager.h"
+#include "common/MMAPSyncThread.h"
+#include <cstring>
+#include <string>
+#include <unistd.h>
+#include <stdint.h>
+#include <sys/mman.h>
+
+using namespace voltdb;
+
+#define MMAP_TEST_SIZE (4 * 1024 * 1024)
+
+class MMAPSyncTest : public Test {
+public:
+    MMAPSyncTest() {
+        m_fileName = "/tmp/mmap_sync_test";
+        m_pageSize = static_cast<int64_t>(sysconf(_SC_PAGESIZE));
+    }
+    ~MMAPSyncTest() {
+        unlink((m_fileName + ".nvm").c_str());
+    }
+
+    std::string m_fileName;
+    int64_t m_pageSize;
+};
+
+TEST_F(MMAPSyncTest, MarkDirty) {
+    MMAPMemoryManager manager(MMAP_TEST_SIZE, m_fileName, true);
+    char* block = static_cast<char*>(manager.allocate(m_pageSize * 8));
+    ASSERT_EQ(0, manager.getDirtyBytes());
+
+    // Writing to the same page twice only dirties it once
+    memset(block, 1, 16);
+    manager.markDirty(block, 16);
+    manager.markDirty(block + 8, 8);
+    ASSERT_EQ(m_pageSize, manager.getDirtyBytes());
+
+    // A range that crosses a page boundary dirties both pages
+    char* boundary = block + (m_pageSize * 4) - 4;
+    memset(boundary, 2, 8);
+    manager.markDirty(boundary, 8);
+    ASSERT_EQ(m_pageSize * 3, manager.getDirtyBytes());
+
+    ASSERT_EQ(m_pageSize * 3, manager.syncDirty());
+    ASSERT_EQ(0, manager.getDirtyBytes());
+    ASSERT_EQ(m_pageSize * 3, manager.getSyncedBytes());
+
+    // Nothing left to write out
+    ASSERT_EQ(0, manager.syncDirty());
+
+    // Pages can be dirtied again after they were written out
+    manager.markDirty(block, 1);
+    ASSERT_EQ(m_pageSize, manager.getDirtyBytes());
+}
+
+TEST_F(MMAPSyncTest, SyncThread) {
+    MMAPMemoryManager* manager = new MMAPMemoryManager(MMAP_TEST_SIZE, m_fileName, true);
+    MMAPSyncThread* syncThread = new MMAPSyncThread(m_pageSize * 2, 10);
+    syncThread->addManager(manager);
+
+    char* block = static_cast<char*>(manager->allocate(m_pageSize * 8));
+    for (int i = 0; i < 4; i++) {
+        block[i * m_pageSize] = static_cast<char>(i);
+        manager->markDirty(block + (i * m_pageSize), 1);
+    }
+    ASSERT_TRUE(syncThread->isOverDirtyLimit());
+
+    // The background thread should catch up on its own
+    syncThread->requestSync();
+    for (int i = 0; i < 100 && syncThread->getDirtyBytes() > 0; i++) {
+        usleep(10000);
+    }
+    ASSERT_EQ(0, syncThread->getDirtyBytes());
+    ASSERT_EQ(m_pageSize * 4, syncThread->getSyncedBytes());
+    ASSERT_FALSE(syncThread->isOverDirtyLimit());
+
+    // Writing them out from the caller's thread
+    manager->markDirty(block, m_pageSize * 3);
+    syncThread->syncNow();
+    ASSERT_EQ(0, syncThread->getDirtyBytes());
+
+    syncThread->removeManager(manager);
+    delete syncThread;
+    delete manager;
+}
+
+TEST_F(MMAPSyncTest, SyncThreadError) {
+    MMAPMemoryManager* manager = new MMAPMemoryManager(MMAP_TEST_SIZE, m_fileName, true);
+    MMAPSyncThread* syncThread = new MMAPSyncThread(0, 10);
+    syncThread->addManager(manager);
+
+    // Pull the mapping out from under the manager so that msync fails
+    char* block = static_cast<char*>(manager->allocate(m_pageSize * 8));
+    manager->markDirty(block, 1);
+    ASSERT_EQ(0, munmap(block, MMAP_TEST_SIZE));
+    syncThread->requestSync();
+
+    // The background thread's error has to be thrown on our thread
+    bool failed = false;
+    for (int i = 0; i < 100 && failed == false; i++) {
+        usleep(10000);
+        try {
+            syncThread->checkError();
+        } catch (FatalException &e) {
+            failed = true;
+        }
+    }
+    ASSERT_TRUE(failed);
+
+    // And it keeps being thrown after that
+    failed = false;
+    try {
+        syncThread->syncNow();
+    } catch (FatalException &e) {
+        failed = true;
+    }
+    ASSERT_TRUE(failed);
+
+    syncThread->removeManager(manager);
+    delete syncThread;
+    delete manager;
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
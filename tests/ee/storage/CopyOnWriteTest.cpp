@@ -294,7 +294,7 @@ TEST_F(CopyOnWriteTest, BigTest) {
             ASSERT_TRUE(inserted);
         }
 
-        m_table->activateCopyOnWrite(&serializer, 0);
+        m_table->activateCopyOnWrite(&serializer, 0, TABLE_STREAM_SNAPSHOT);
 
         std::set<int64_t> COWTuples;
         char serializationBuffer[131072];
@@ -379,7 +379,7 @@ TEST_F(CopyOnWriteTest, BigTestWithUndo) {
             ASSERT_TRUE(inserted);
         }
 
-        m_table->activateCopyOnWrite(&serializer, 0);
+        m_table->activateCopyOnWrite(&serializer, 0, TABLE_STREAM_SNAPSHOT);
 
         std::set<int64_t> COWTuples;
         char serializationBuffer[131072];
@@ -469,7 +469,7 @@ TEST_F(CopyOnWriteTest, BigTestUndoEverything) {
             ASSERT_TRUE(inserted);
         }
 
-        m_table->activateCopyOnWrite(&serializer, 0);
+        m_table->activateCopyOnWrite(&serializer, 0, TABLE_STREAM_SNAPSHOT);
 
         std::set<int64_t> COWTuples;
         char serializationBuffer[131072];
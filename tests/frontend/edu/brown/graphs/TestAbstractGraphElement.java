@@ -110,4 +110,21 @@ public class TestAbstractGraphElement extends TestCase {
         }
     }
     
+    /**
+     * testSetElementId
+     */
+    public void testSetElementId() throws Exception {
+        // Loading an element with a large id means that new elements
+        // have to get ids that are greater than it
+        TestElement loaded = new TestElement(this.rand);
+        long large_id = this.element.getElementId() + 100000;
+        loaded.setElementId(large_id);
+        assertTrue(new TestElement(this.rand).getElementId() > large_id);
+        
+        // But loading one with a smaller id must not move the ids backwards
+        long last_id = new TestElement(this.rand).getElementId();
+        new TestElement(this.rand).setElementId(1);
+        assertTrue(new TestElement(this.rand).getElementId() > last_id);
+    }
+    
 }
@@ -101,4 +101,33 @@ public class TestDefaultHasher extends BaseTestCase {
             assert(in_limit) : "[" + i + "] " + cnt + " > " + fudgey_the_whale_factor;
         } // FOR
     }
+
+    /**
+     * testPrimitiveHash
+     */
+    public void testPrimitiveHash() throws Exception {
+        CachedHasher cached = new CachedHasher(null, NUM_PARTITIONS);
+        for (int i = -1000; i < 1000; i++) {
+            long val = i * 7919l;
+            int expected = this.hasher.hash((Object)Long.valueOf(val));
+            assertEquals(Long.toString(val), expected, this.hasher.hash(val));
+            assertEquals(Long.toString(val), expected, cached.hash(val));
+            assertEquals(Long.toString(val), expected, cached.hash((Object)Long.valueOf(val)));
+            
+            int int_val = (int)val;
+            expected = this.hasher.hash((Object)Integer.valueOf(int_val));
+            assertEquals(Integer.toString(int_val), expected, this.hasher.hash(int_val));
+            assertEquals(Integer.toString(int_val), expected, cached.hash(int_val));
+        } // FOR
+        
+        String strings[] = { "", "a", "WAREHOUSE", "h-store is 2x faster", "caf\u00e9", "\u65e5\u672c" };
+        for (String val : strings) {
+            int expected = this.hasher.hash((Object)val);
+            assertEquals(val, expected, this.hasher.hash(val));
+            assertEquals(val, expected, this.hasher.hash(val.getBytes("UTF-8")));
+            assertEquals(val, expected, cached.hash(val));
+            // Twice so that the second one comes out of the cache
+            assertEquals(val, expected, cached.hash(val));
+        } // FOR
+    }
 }
@@ -0,0 +1,152 @@
+package edu.brown.hashing;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import edu.brown.BaseTestCase;
+
+public class TestMappedHasher extends BaseTestCase {
+
+    private static final int NUM_PARTITIONS = 10;
+    private MappedHasher hasher;
+    private DefaultHasher defaultHasher;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        hasher = new MappedHasher(null, NUM_PARTITIONS);
+        defaultHasher = new DefaultHasher(null, NUM_PARTITIONS);
+    }
+
+    /**
+     * testUnmapped
+     */
+    public void testUnmapped() throws Exception {
+        // Without any mappings we should get the same thing as the DefaultHasher
+        for (long val = 0; val < 1000; val++) {
+            assertEquals(defaultHasher.hash(val), hasher.hash(val));
+        } // FOR
+    }
+
+    /**
+     * testRemap
+     */
+    public void testRemap() throws Exception {
+        long version = hasher.getVersion();
+        Map<Integer, Integer> changes = new HashMap<Integer, Integer>();
+        changes.put(1, 5);
+        changes.put(2, 5);
+        hasher.remap(changes);
+        assertEquals(version + 1, hasher.getVersion());
+        assertEquals(5, hasher.getPartition(1));
+        assertEquals(5, hasher.getPartition(2));
+        assertEquals(3, hasher.getPartition(3));
+
+        for (long val = 0; val < 1000; val++) {
+            int expected = defaultHasher.hash(val);
+            if (expected == 1 || expected == 2) expected = 5;
+            assertEquals(expected, hasher.hash(val));
+        } // FOR
+
+        // Moving the bucket back should restore the original mapping
+        hasher.map(1, 1);
+        assertEquals(1, hasher.getPartition(1));
+    }
+
+    /**
+     * testInvalidRemap
+     */
+    public void testInvalidRemap() throws Exception {
+        Map<Integer, Integer> changes = new HashMap<Integer, Integer>();
+        changes.put(1, 5);
+        changes.put(2, NUM_PARTITIONS);
+        try {
+            hasher.remap(changes);
+            fail("Expected the remap to fail");
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+        // None of the changes should have been applied
+        assertEquals(1, hasher.getPartition(1));
+        assertEquals(2, hasher.getPartition(2));
+    }
+
+    /**
+     * testStageCommit
+     */
+    public void testStageCommit() throws Exception {
+        Long txn_id = 1000l;
+        long version = hasher.getVersion();
+        hasher.stage(txn_id, 1, 5);
+        hasher.stage(txn_id, 2, 6);
+
+        // Nothing changes until the txn commits
+        assertEquals(version, hasher.getVersion());
+        assertEquals(1, hasher.getPartition(1));
+        assertEquals(2, hasher.getPartition(2));
+
+        assertTrue(hasher.finishTransaction(txn_id, true));
+        assertEquals(version + 1, hasher.getVersion());
+        assertEquals(5, hasher.getPartition(1));
+        assertEquals(6, hasher.getPartition(2));
+
+        // The staged changes are gone once the txn is finished
+        assertFalse(hasher.finishTransaction(txn_id, true));
+        assertEquals(version + 1, hasher.getVersion());
+    }
+
+    /**
+     * testStageAbort
+     */
+    public void testStageAbort() throws Exception {
+        Long txn_id = 1000l;
+        Long other_txn_id = 1001l;
+        long version = hasher.getVersion();
+        hasher.stage(txn_id, 1, 5);
+        hasher.stage(other_txn_id, 3, 7);
+
+        assertTrue(hasher.finishTransaction(txn_id, false));
+        assertEquals(version, hasher.getVersion());
+        assertEquals(1, hasher.getPartition(1));
+        for (long val = 0; val < 1000; val++) {
+            assertEquals(defaultHasher.hash(val), hasher.hash(val));
+        } // FOR
+
+        // Aborting one txn does not touch what the other txn staged
+        assertTrue(hasher.finishTransaction(other_txn_id, true));
+        assertEquals(7, hasher.getPartition(3));
+        assertEquals(1, hasher.getPartition(1));
+
+        // Finishing a txn that never staged anything is a no-op
+        assertFalse(hasher.finishTransaction(1002l, true));
+    }
+
+    /**
+     * testInvalidStage
+     */
+    public void testInvalidStage() throws Exception {
+        try {
+            hasher.stage(1000l, 1, NUM_PARTITIONS);
+            fail("Expected the stage to fail");
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+        assertFalse(hasher.finishTransaction(1000l, true));
+    }
+
+    /**
+     * testSerialization
+     */
+    public void testSerialization() throws Exception {
+        hasher.map(4, 7);
+        String json = hasher.toJSONString();
+        assertNotNull(json);
+
+        MappedHasher clone = new MappedHasher(null, NUM_PARTITIONS);
+        clone.fromJSON(new JSONObject(json), null);
+        assertEquals(7, clone.getPartition(4));
+        assertEquals(3, clone.getPartition(3));
+    }
+}
@@ -0,0 +1,191 @@
+package edu.brown.hstore;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.voltdb.SysProcSelector;
+import org.voltdb.VoltTable;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Site;
+import org.voltdb.catalog.Table;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.jni.ExecutionEngine;
+import org.voltdb.utils.Pair;
+import org.voltdb.utils.VoltTableUtil;
+
+import edu.brown.BaseTestCase;
+import edu.brown.HStoreSiteTestUtil;
+import edu.brown.benchmark.AbstractProjectBuilder;
+import edu.brown.benchmark.ycsb.YCSBConstants;
+import edu.brown.benchmark.ycsb.YCSBProjectBuilder;
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.profilers.AntiCacheManagerProfiler;
+import edu.brown.utils.CollectionUtil;
+import edu.brown.utils.FileUtil;
+
+/**
+ * AntiCacheManager BlockFetcher Test Cases
+ */
+public class TestAntiCacheBlockFetcher extends BaseTestCase {
+
+    private static final int NUM_PARTITIONS = 1;
+    private static final int NUM_TUPLES = 10;
+    private static final int NOTIFY_TIMEOUT = 10000; // ms
+    private static final String TARGET_TABLE = YCSBConstants.TABLE_NAME;
+
+    private HStoreSite hstore_site;
+    private HStoreConf hstore_conf;
+    private File anticache_dir;
+    private Client client;
+
+    private PartitionExecutor executor;
+    private ExecutionEngine ee;
+    private Table catalog_tbl;
+    private int locators[];
+    private final Map<Long, String> expected = new HashMap<Long, String>();
+
+    private final AbstractProjectBuilder builder = new YCSBProjectBuilder() {
+        {
+            this.markTableEvictable(TARGET_TABLE);
+            this.addAllDefaults();
+            this.addStmtProcedure("GetRecord",
+                                  "SELECT * FROM " + TARGET_TABLE + " WHERE ycsb_key = ?");
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp(builder, false);
+        initializeCatalog(1, 1, NUM_PARTITIONS);
+        this.anticache_dir = FileUtil.getTempDirectory();
+
+        this.catalog_tbl = getTable(TARGET_TABLE);
+        assertTrue(catalog_tbl.getEvictable());
+        this.locators = new int[] { catalog_tbl.getRelativeIndex() };
+
+        Site catalog_site = CollectionUtil.first(getCatalogContext().sites);
+        this.hstore_conf = HStoreConf.singleton();
+        this.hstore_conf.site.status_enable = false;
+        this.hstore_conf.site.anticache_enable = true;
+        this.hstore_conf.site.anticache_profiling = true;
+        this.hstore_conf.site.anticache_fetch_pool = true;
+        this.hstore_conf.site.anticache_check_interval = Integer.MAX_VALUE;
+        this.hstore_conf.site.anticache_dir = this.anticache_dir.getAbsolutePath();
+        this.hstore_conf.site.anticache_dbtype = "BERKELEY";
+
+        this.hstore_site = createHStoreSite(catalog_site, hstore_conf);
+        this.executor = hstore_site.getPartitionExecutor(0);
+        assertNotNull(this.executor);
+        this.ee = executor.getExecutionEngine();
+        assertNotNull(this.ee);
+
+        this.client = createClient();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.client != null) this.client.close();
+        if (this.hstore_site != null) this.hstore_site.shutdown();
+        FileUtil.deleteDirectory(this.anticache_dir);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // UTILITY METHODS
+    // --------------------------------------------------------------------------------------------
+
+    private void loadData() throws Exception {
+        VoltTable vt = CatalogUtil.getVoltTable(catalog_tbl);
+        assertNotNull(vt);
+        for (int i = 0; i < NUM_TUPLES; i++) {
+            Object row[] = VoltTableUtil.getRandomRow(catalog_tbl);
+            row[0] = i;
+            vt.addRow(row);
+            this.expected.put((long)i, row[1].toString());
+        } // FOR
+        this.executor.loadTable(1000l, catalog_tbl, vt, false);
+    }
+
+    private long getTuplesEvicted() throws Exception {
+        VoltTable stats[] = this.ee.getStats(SysProcSelector.TABLE, this.locators, false, 0L);
+        assertEquals(1, stats.length);
+        boolean adv = stats[0].advanceRow();
+        assertTrue(adv);
+        return (stats[0].getLong("ANTICACHE_TUPLES_EVICTED"));
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // TEST CASES
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * testCoalesce
+     */
+    @Test
+    public void testCoalesce() throws Exception {
+        AntiCacheManager manager = hstore_site.getAntiCacheManager();
+        AntiCacheManager.BlockFetcher fetcher = manager.new BlockFetcher(0);
+        int requested = fetcher.coalesce(Arrays.asList(
+            manager.new QueueEntry(null, 0, catalog_tbl, new int[]{ 5, 5, 7 }, new int[]{ 1, 2, 0 }),
+            manager.new QueueEntry(null, 0, catalog_tbl, new int[]{ 5 }, new int[]{ 3 }),
+            manager.new QueueEntry(null, 0, catalog_tbl, new int[]{ 7, 5 }, new int[]{ 0, 1 })
+        ));
+        assertEquals(6, requested);
+
+        // Every different tuple offset for a block has to be kept, but
+        // the same offset only needs to be read in once
+        Pair<int[], int[]> blocks = fetcher.getBlocks(catalog_tbl);
+        assertNotNull(blocks);
+        assertEquals(Arrays.toString(new int[]{ 5, 5, 5, 7 }), Arrays.toString(blocks.getFirst()));
+        assertEquals(Arrays.toString(new int[]{ 1, 2, 3, 0 }), Arrays.toString(blocks.getSecond()));
+    }
+
+    /**
+     * testFetchMergeAndRestart
+     */
+    @Test
+    public void testFetchMergeAndRestart() throws Exception {
+        this.loadData();
+        VoltTable evictResult = this.ee.antiCacheEvictBlock(catalog_tbl, 1024 * 500, 1);
+        assertNotNull(evictResult);
+        assertTrue(this.getTuplesEvicted() > 0);
+
+        // Fire off a bunch of txns that all need tuples from the evicted block.
+        // They have to be restarted once the BlockFetcher has read the block
+        // back in and then see the right data.
+        Procedure proc = this.getProcedure("GetRecord"); // Special Single-Stmt Proc
+        HStoreSiteTestUtil.LatchableProcedureCallback callback = new HStoreSiteTestUtil.LatchableProcedureCallback(NUM_TUPLES);
+        for (long i = 0; i < NUM_TUPLES; i++) {
+            this.client.callProcedure(callback, proc.getName(), i);
+        } // FOR
+        boolean result = callback.latch.await(NOTIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+        assertTrue("LATCH --> " + callback.latch, result);
+
+        int restarted = 0;
+        for (ClientResponse cresponse : callback.responses) {
+            assertEquals(cresponse.toString(), Status.OK, cresponse.getStatus());
+            VoltTable results[] = cresponse.getResults();
+            assertEquals(1, results.length);
+            boolean adv = results[0].advanceRow();
+            assertTrue(adv);
+            long key = results[0].getLong(0);
+            assertEquals(this.expected.get(key), results[0].getString(1));
+            if (cresponse.getRestartCounter() > 0) restarted++;
+        } // FOR
+        assertTrue(restarted > 0);
+
+        // The whole block should have been merged back into the table
+        assertEquals(0, this.getTuplesEvicted());
+        AntiCacheManagerProfiler profiler = hstore_site.getAntiCacheManager().getDebugContext().getProfiler(0);
+        assertNotNull(profiler);
+        assertTrue(profiler.evictedaccess_history.size() > 0);
+    }
+
+}
@@ -1,12 +1,16 @@
 package edu.brown.hstore;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.voltdb.SysProcSelector;
 import org.voltdb.VoltSystemProcedure;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Column;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Site;
 import org.voltdb.catalog.Table;
@@ -15,6 +19,7 @@ import org.voltdb.client.ClientResponse;
 import org.voltdb.exceptions.UnknownBlockAccessException;
 import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.sysprocs.Statistics;
+import org.voltdb.utils.Pair;
 import org.voltdb.utils.VoltTableUtil;
 
 import edu.brown.BaseTestCase;
@@ -25,6 +30,7 @@ import edu.brown.catalog.CatalogUtil;
 import edu.brown.hstore.Hstoreservice.Status;
 import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.profilers.AntiCacheManagerProfiler;
+import edu.brown.profilers.AntiCacheManagerProfiler.EvictionHistory;
 import edu.brown.utils.CollectionUtil;
 import edu.brown.utils.FileUtil;
 import edu.brown.utils.StringUtil;
@@ -300,6 +306,31 @@ public class TestAntiCacheManager extends BaseTestCase {
         assertEquals(1, profiler.evictedaccess_history.size());
     }
     
+    @Test
+    public void testProbeEvictedKeys() throws Exception {
+        this.loadData();
+        Column pkey = CollectionUtil.first(CatalogUtil.getPrimaryKeyColumns(catalog_tbl));
+        VoltTable keys = new VoltTable(new VoltTable.ColumnInfo(pkey.getName(), VoltType.get(pkey.getType())));
+        keys.addRow(1);
+        keys.addRow(NUM_TUPLES + 100);
+        
+        // Nothing should be evicted yet
+        Pair<int[], int[]> evicted = this.ee.antiCacheProbeKeys(catalog_tbl, keys);
+        assertNull(evicted);
+        
+        VoltTable evictResult = this.evictData();
+        assertTrue(evictResult.getLong("ANTICACHE_TUPLES_EVICTED") > 0);
+        
+        // Only the key that exists should come back
+        evicted = this.ee.antiCacheProbeKeys(catalog_tbl, keys);
+        assertNotNull(evicted);
+        assertEquals(1, evicted.getFirst().length);
+        assertEquals(1, evicted.getSecond().length);
+        
+        // And we should be able to read its block back in
+        this.ee.antiCacheReadBlocks(catalog_tbl, evicted.getFirst(), evicted.getSecond());
+    }
+    
     @Test
     public void testEvictTuples() throws Exception {
         this.loadData();
@@ -358,6 +389,38 @@ public class TestAntiCacheManager extends BaseTestCase {
         } // FOR
     }
 
+    @Test
+    public void testEvictionSlices() throws Exception {
+        // Have the PartitionExecutor evict our blocks one slice at a time
+        this.loadData();
+        this.hstore_conf.site.anticache_block_size = 512;
+        this.hstore_conf.site.anticache_eviction_slice_us = 1;
+        AntiCacheManager manager = hstore_site.getAntiCacheManager();
+        assertFalse(manager.getDebugContext().isEvicting());
+
+        Map<Integer, Map<String, Integer>> distribution = new HashMap<Integer, Map<String, Integer>>();
+        distribution.put(0, new HashMap<String, Integer>());
+        distribution.get(0).put(catalog_tbl.getName(), 3);
+        manager.queueEvictionSlices(distribution);
+        assertTrue(manager.getDebugContext().isEvicting());
+
+        for (int i = 0; i < 100 && manager.getDebugContext().isEvicting(); i++) {
+            ThreadUtil.sleep(100);
+        } // FOR
+        assertFalse(manager.getDebugContext().isEvicting());
+
+        AntiCacheManagerProfiler profiler = manager.getDebugContext().getProfiler(0);
+        assertEquals(1, profiler.eviction_history.size());
+        EvictionHistory eh = CollectionUtil.first(profiler.eviction_history);
+        assertTrue(eh.blocksEvicted > 0);
+        assertTrue(eh.blocksEvicted <= 3);
+
+        VoltTable results[] = this.ee.getStats(SysProcSelector.TABLE, this.locators, false, 0L);
+        results[0].advanceRow();
+        assertEquals(eh.blocksEvicted, results[0].getLong("ANTICACHE_BLOCKS_EVICTED"));
+        assertEquals(eh.tuplesEvicted, results[0].getLong("ANTICACHE_TUPLES_EVICTED"));
+    }
+
     @Test
     public void testReadNonExistentBlock() throws Exception {
         int block_ids[] = new int[]{ 1111 };
@@ -0,0 +1,147 @@
+package edu.brown.hstore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Site;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.regressionsuites.specexecprocs.StaleReadSubscriber;
+import org.voltdb.regressionsuites.specexecprocs.UpdateOne;
+
+import edu.brown.BaseTestCase;
+import edu.brown.HStoreSiteTestUtil;
+import edu.brown.benchmark.tm1.TM1ProjectBuilder;
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.utils.CollectionUtil;
+
+/**
+ * PartitionExecutor tests for stale read txns that skip the lock queue
+ */
+public class TestPartitionExecutorStaleReads extends BaseTestCase {
+
+    private static final int NUM_PARTITIONS = 2;
+    private static final int NUM_TXNS = 100;
+    private static final int NOTIFY_TIMEOUT = 10000; // ms
+
+    private HStoreSite hstore_site;
+    private HStoreConf hstore_conf;
+    private Client client;
+
+    private final TM1ProjectBuilder builder = new TM1ProjectBuilder() {
+        {
+            this.addAllDefaults();
+            this.addProcedure(UpdateOne.class);
+            this.addProcedure(StaleReadSubscriber.class);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp(this.builder);
+        initializeCatalog(1, 1, NUM_PARTITIONS);
+
+        Site catalog_site = CollectionUtil.first(catalogContext.sites);
+        this.hstore_conf = HStoreConf.singleton();
+        this.hstore_conf.site.status_enable = false;
+        this.hstore_conf.site.anticache_enable = false;
+        this.hstore_conf.site.specexec_enable = false;
+        this.hstore_conf.site.exec_voltdb_procinfo = true;
+        this.hstore_conf.site.txn_stale_reads = true;
+        this.hstore_conf.site.txn_stale_reads_max_lag = NOTIFY_TIMEOUT;
+
+        // Make the writes wait in the lock queue long enough
+        // for the stale reads to want to jump ahead of them
+        this.hstore_conf.site.txn_incoming_delay = 20;
+
+        this.hstore_site = createHStoreSite(catalog_site, hstore_conf);
+        this.client = createClient();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.client != null) this.client.close();
+        if (this.hstore_site != null) this.hstore_site.shutdown();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // TEST CASES
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * testLastCommittedTxnIdOrder
+     */
+    @Test
+    public void testLastCommittedTxnIdOrder() throws Exception {
+        final PartitionExecutor.Debug executorDbgs[] = new PartitionExecutor.Debug[NUM_PARTITIONS];
+        for (int i = 0; i < NUM_PARTITIONS; i++) {
+            executorDbgs[i] = this.hstore_site.getPartitionExecutor(i).getDebugContext();
+        } // FOR
+
+        // Keep checking that the last committed txn id at each
+        // partition never goes backwards while the txns are running
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicBoolean backwards = new AtomicBoolean(false);
+        Thread checker = new Thread() {
+            public void run() {
+                long last[] = new long[NUM_PARTITIONS];
+                for (int i = 0; i < NUM_PARTITIONS; i++) {
+                    last[i] = executorDbgs[i].getLastCommittedTxnId();
+                } // FOR
+                while (stop.get() == false) {
+                    for (int i = 0; i < NUM_PARTITIONS; i++) {
+                        long txnId = executorDbgs[i].getLastCommittedTxnId();
+                        if (txnId < last[i]) backwards.set(true);
+                        last[i] = txnId;
+                    } // FOR
+                } // WHILE
+            }
+        };
+        checker.setDaemon(true);
+        checker.start();
+
+        Procedure writeProc = this.getProcedure(UpdateOne.class);
+        Procedure readProc = this.getProcedure(StaleReadSubscriber.class);
+        HStoreSiteTestUtil.LatchableProcedureCallback writeCallback = new HStoreSiteTestUtil.LatchableProcedureCallback(NUM_TXNS);
+        HStoreSiteTestUtil.LatchableProcedureCallback readCallback = new HStoreSiteTestUtil.LatchableProcedureCallback(NUM_TXNS);
+        for (int i = 0; i < NUM_TXNS; i++) {
+            Object params[] = { i % NUM_PARTITIONS };
+            this.client.callProcedure(writeCallback, writeProc.getName(), params);
+            params = new Object[]{ (long)(i % NUM_PARTITIONS) };
+            this.client.callProcedure(readCallback, readProc.getName(), params);
+        } // FOR
+
+        boolean result = writeCallback.latch.await(NOTIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+        assertTrue("WRITE LATCH --> " + writeCallback.latch, result);
+        result = readCallback.latch.await(NOTIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+        assertTrue("READ LATCH --> " + readCallback.latch, result);
+        stop.set(true);
+        checker.join();
+        assertFalse(backwards.get());
+
+        // The last committed txn id at each partition has to be the last write
+        // that it executed. The stale reads are serialized right after the txn that
+        // committed before them, so they must never show up here.
+        Map<Integer, Long> lastWrites = new HashMap<Integer, Long>();
+        for (ClientResponse cr : writeCallback.responses) {
+            assertEquals(cr.toString(), Status.OK, cr.getStatus());
+            Long txnId = lastWrites.get(cr.getBasePartition());
+            if (txnId == null || txnId.longValue() < cr.getTransactionId()) {
+                lastWrites.put(cr.getBasePartition(), cr.getTransactionId());
+            }
+        } // FOR
+        for (ClientResponse cr : readCallback.responses) {
+            assertEquals(cr.toString(), Status.OK, cr.getStatus());
+        } // FOR
+        for (Integer partition : lastWrites.keySet()) {
+            assertEquals(partition.toString(), lastWrites.get(partition), executorDbgs[partition].getLastCommittedTxnId());
+        } // FOR
+    }
+
+}
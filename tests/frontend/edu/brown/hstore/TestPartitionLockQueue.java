@@ -139,6 +139,22 @@ public class TestPartitionLockQueue extends BaseTestCase {
         assertEquals(expected, t.result.get());
     }
     
+    /**
+     * testGetOldestTransactionId
+     */
+    @Test
+    public void testGetOldestTransactionId() throws Exception {
+        assertNull(this.queue.getOldestTransactionId());
+        
+        // The oldest txn should be returned even though it is not
+        // ready to be released from the queue yet
+        Collection<AbstractTransaction> added = this.loadQueue(NUM_TXNS);
+        AbstractTransaction expected = CollectionUtil.first(added);
+        assertNull(this.queue.peek());
+        assertEquals(expected.getTransactionId(), this.queue.getOldestTransactionId());
+        assertEquals(NUM_TXNS, this.queue.size());
+    }
+    
     /**
      * testBlockOnEmpty
      */
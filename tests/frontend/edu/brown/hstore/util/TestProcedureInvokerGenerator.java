@@ -0,0 +1,60 @@
+package edu.brown.hstore.util;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.voltdb.VoltProcedure;
+
+import junit.framework.TestCase;
+
+public class TestProcedureInvokerGenerator extends TestCase {
+
+    public static class MockProcedure extends VoltProcedure {
+        public long run(long a, int b, String c, long d[]) {
+            long total = a + b + c.length();
+            for (long x : d) total += x;
+            return (total);
+        }
+    }
+
+    public static class MockVoidProcedure extends VoltProcedure {
+        public void run(byte a, double b, boolean c) {
+            if (c) throw new VoltAbortException("Aborted " + a + " " + b);
+        }
+    }
+
+    /**
+     * testInvoke
+     */
+    public void testInvoke() throws Exception {
+        ProcedureInvoker invoker = ProcedureInvokerGenerator.getInvoker(MockProcedure.class);
+        assertNotNull(invoker);
+        assertTrue(invoker.getClass().getName().endsWith(ProcedureInvokerGenerator.CLASSNAME_SUFFIX));
+
+        // Integer params are allowed for long slots
+        Object params[] = { 1l, 2, "xyz", new long[]{ 10, 20 } };
+        Object result = invoker.invoke(new MockProcedure(), params);
+        assertEquals(Long.valueOf(36), result);
+        params[0] = Integer.valueOf(5);
+        assertEquals(Long.valueOf(40), invoker.invoke(new MockProcedure(), params));
+
+        // We should get back the same invoker the second time
+        assertSame(invoker, ProcedureInvokerGenerator.getInvoker(MockProcedure.class));
+    }
+
+    /**
+     * testInvokeVoid
+     */
+    public void testInvokeVoid() throws Exception {
+        ProcedureInvoker invoker = ProcedureInvokerGenerator.getInvoker(MockVoidProcedure.class);
+        assertNotNull(invoker);
+        assertNull(invoker.invoke(new MockVoidProcedure(), new Object[]{ (byte)1, 2.0d, false }));
+
+        // Exceptions thrown by run() should be wrapped just like Method.invoke()
+        try {
+            invoker.invoke(new MockVoidProcedure(), new Object[]{ (byte)1, 2.0d, true });
+            fail("Expected an exception");
+        } catch (InvocationTargetException ex) {
+            assertTrue(ex.getCause() instanceof VoltProcedure.VoltAbortException);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Statement;
+import org.voltdb.types.QueryCacheEvictionPolicyType;
 
 import edu.brown.BaseTestCase;
 import edu.brown.benchmark.tm1.procedures.DeleteCallForwarding;
@@ -23,7 +24,7 @@ import edu.brown.utils.ProjectType;
  */
 public class TestQueryCache extends BaseTestCase {
 
-    private static final int globalBufferSize = 10;
+    private static final long globalMaxBytes = 4096;
     private static final int txnBufferSize = 10;
     private static Class<? extends VoltProcedure> TARGET_PROCEDURE = DeleteCallForwarding.class;
     private static String TARGET_STATEMENT = "query";
@@ -39,7 +40,7 @@ public class TestQueryCache extends BaseTestCase {
     protected void setUp() throws Exception {
         super.setUp(ProjectType.TM1);
         
-        this.cache = new QueryCache(globalBufferSize, txnBufferSize);
+        this.cache = new QueryCache(txnBufferSize, globalMaxBytes, QueryCacheEvictionPolicyType.LFU);
         this.catalog_proc = this.getProcedure(TARGET_PROCEDURE);
         this.catalog_stmt = this.getStatement(catalog_proc, TARGET_STATEMENT);
     }
@@ -98,4 +99,114 @@ public class TestQueryCache extends BaseTestCase {
             assertEquals(expected, cacheResult.asScalarLong());
         } // FOR
     }
+    
+    private VoltTable makeResult(long value) {
+        VoltTable result = new VoltTable(TARGET_RESULT);
+        result.addRow(value);
+        return (result);
+    }
+    
+    /**
+     * testGlobalCacheGet
+     */
+    public void testGlobalCacheGet() throws Exception {
+        long fragmentId = 1111;
+        int partitionId = 1;
+        long versions[] = { 5, 7 };
+        ParameterSet params = new ParameterSet("Squirrels", 1981);
+        
+        assertNull(this.cache.getGlobalResult(fragmentId, partitionId, params, versions));
+        assertTrue(this.cache.addGlobalResult(fragmentId, partitionId, params, versions, this.makeResult(9900)));
+        assertEquals(1, this.cache.getGlobalEntryCount());
+        assertTrue(this.cache.getGlobalBytes() > 0);
+        
+        // Same values in a different ParameterSet should still be a hit
+        VoltTable cacheResult = this.cache.getGlobalResult(fragmentId, partitionId, new ParameterSet("Squi" + "rrels", 1981), versions);
+        assertNotNull(cacheResult);
+        assertEquals(9900, cacheResult.asScalarLong());
+        
+        // Each hit gets its own copy
+        VoltTable other = this.cache.getGlobalResult(fragmentId, partitionId, params, versions);
+        assertNotSame(cacheResult, other);
+        assertEquals(9900, other.asScalarLong());
+        assertEquals(2, this.cache.getGlobalHits());
+        
+        // Different partitions or parameters should never match
+        assertNull(this.cache.getGlobalResult(fragmentId, partitionId+1, params, versions));
+        assertNull(this.cache.getGlobalResult(fragmentId, partitionId, new ParameterSet("WuTang!", 1981), versions));
+        
+        // Once one of the tables has changed, the entry should be removed
+        long newVersions[] = { 5, 8 };
+        assertNull(this.cache.getGlobalResult(fragmentId, partitionId, params, newVersions));
+        assertEquals(0, this.cache.getGlobalEntryCount());
+        assertEquals(0, this.cache.getGlobalBytes());
+        assertEquals(1, this.cache.getGlobalInvalidations());
+        assertNull(this.cache.getGlobalResult(fragmentId, partitionId, params, versions));
+        assertEquals(2 / 7d, this.cache.getGlobalHitRatio(), 0.0001);
+    }
+    
+    /**
+     * testGlobalCacheEvictionLFU
+     */
+    public void testGlobalCacheEvictionLFU() throws Exception {
+        long versions[] = { 1 };
+        int partitionId = 0;
+        ParameterSet params = new ParameterSet(1);
+        
+        // Fill up the cache and then keep hitting the first entry
+        int num_entries = 0;
+        long fragmentId = 0;
+        while (this.cache.getGlobalEvictions() == 0) {
+            assertTrue(this.cache.addGlobalResult(fragmentId, partitionId, params, versions, this.makeResult(fragmentId)));
+            assertNotNull(this.cache.getGlobalResult(0, partitionId, params, versions));
+            assertTrue(this.cache.getGlobalBytes() <= globalMaxBytes);
+            fragmentId++;
+        } // WHILE
+        num_entries = this.cache.getGlobalEntryCount();
+        assertTrue(num_entries > 1);
+        
+        // The most frequently used entry should still be there, but the 
+        // least frequently used one should have been evicted
+        assertNotNull(this.cache.getGlobalResult(0, partitionId, params, versions));
+        assertNull(this.cache.getGlobalResult(1, partitionId, params, versions));
+        assertNotNull(this.cache.getGlobalResult(fragmentId-1, partitionId, params, versions));
+    }
+    
+    /**
+     * testGlobalCacheEvictionLRU
+     */
+    public void testGlobalCacheEvictionLRU() throws Exception {
+        this.cache = new QueryCache(txnBufferSize, globalMaxBytes, QueryCacheEvictionPolicyType.LRU);
+        long versions[] = { 1 };
+        int partitionId = 0;
+        ParameterSet params = new ParameterSet(1);
+        
+        // Hit the first entry a lot, but then stop touching it
+        assertTrue(this.cache.addGlobalResult(0, partitionId, params, versions, this.makeResult(0)));
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(this.cache.getGlobalResult(0, partitionId, params, versions));
+        } // FOR
+        long fragmentId = 1;
+        while (this.cache.getGlobalEvictions() == 0) {
+            assertTrue(this.cache.addGlobalResult(fragmentId, partitionId, params, versions, this.makeResult(fragmentId)));
+            fragmentId++;
+        } // WHILE
+        assertNull(this.cache.getGlobalResult(0, partitionId, params, versions));
+        assertNotNull(this.cache.getGlobalResult(1, partitionId, params, versions));
+        assertTrue(this.cache.getGlobalBytes() <= globalMaxBytes);
+    }
+    
+    /**
+     * testGlobalCacheMaxEntrySize
+     */
+    public void testGlobalCacheMaxEntrySize() throws Exception {
+        VoltTable result = new VoltTable(TARGET_RESULT);
+        for (int i = 0; i < 1000; i++) {
+            result.addRow(i);
+        } // FOR
+        assertTrue(result.getUnderlyingBufferSize() > globalMaxBytes);
+        assertFalse(this.cache.addGlobalResult(1, 0, new ParameterSet(1), new long[]{ 1 }, result));
+        assertEquals(0, this.cache.getGlobalEntryCount());
+        assertEquals(0, this.cache.getGlobalBytes());
+    }
 }
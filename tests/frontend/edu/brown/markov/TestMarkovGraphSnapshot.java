@@ -0,0 +1,167 @@
+package edu.brown.markov;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+
+import edu.brown.BaseTestCase;
+import edu.brown.hstore.HStoreConstants;
+import edu.brown.utils.PartitionSet;
+import edu.brown.utils.ProjectType;
+
+public class TestMarkovGraphSnapshot extends BaseTestCase {
+
+    private static final int NUM_PARTITIONS = 100;
+
+    private final Integer[][] partitions = {
+        { 2, 4 },
+        { 3, 4 },
+        { 0, 2 },
+        { 1, 99 },
+        { 0, 64, 65 },
+        { 5 },
+    };
+
+    private Statement catalog_stmt;
+    private MarkovGraph markov;
+    private MarkovVertex vertices[];
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TM1);
+        this.addPartitions(NUM_PARTITIONS);
+
+        Procedure catalog_proc = this.getProcedure("InsertCallForwarding");
+        this.catalog_stmt = catalog_proc.getStatements().get("query2");
+        assertNotNull(this.catalog_stmt);
+
+        this.markov = new MarkovGraph(catalog_proc);
+        this.markov.initialize();
+        this.vertices = new MarkovVertex[this.partitions.length];
+        PartitionSet past = new PartitionSet();
+        for (int i = 0; i < this.partitions.length; i++) {
+            this.vertices[i] = new MarkovVertex(this.catalog_stmt,
+                                                MarkovVertex.Type.QUERY,
+                                                i,
+                                                new PartitionSet(this.partitions[i]),
+                                                new PartitionSet(past));
+            this.markov.addVertex(this.vertices[i]);
+            past.addAll(this.vertices[i].getPartitions());
+        } // FOR
+
+        // START fans out to every vertex with different weights
+        MarkovVertex start = this.markov.getStartVertex();
+        for (int i = 0; i < this.vertices.length; i++) {
+            MarkovVertex end = (i % 2 == 0 ? this.markov.getCommitVertex() : this.markov.getAbortVertex());
+            for (int j = 0; j <= i; j++) {
+                start.incrementInstanceHits();
+                this.markov.addToEdge(start, this.vertices[i]).incrementInstanceHits();
+                this.vertices[i].incrementInstanceHits();
+                this.markov.addToEdge(this.vertices[i], end).incrementInstanceHits();
+                end.incrementInstanceHits();
+            } // FOR
+        } // FOR
+        this.markov.calculateProbabilities(catalogContext.getAllPartitionIds());
+    }
+
+    /**
+     * testSuccessors
+     */
+    @Test
+    public void testSuccessors() throws Exception {
+        MarkovGraphSnapshot snapshot = this.markov.getSnapshot();
+        assertNotNull(snapshot);
+        assertEquals(this.markov.getVertexCount(), snapshot.getVertexCount());
+        assertEquals(this.markov.getEdgeCount(), snapshot.getEdgeCount());
+
+        for (MarkovVertex v : this.markov.getVertices()) {
+            int idx = snapshot.indexOf(v);
+            assertTrue(v.toString(), idx >= 0);
+            assertSame(v, snapshot.getVertex(idx));
+            assertEquals(v.getType(), snapshot.getType(idx));
+
+            Collection<MarkovVertex> expected = this.markov.getSuccessors(v);
+            Set<MarkovVertex> actual = new HashSet<MarkovVertex>();
+            float last = Float.MAX_VALUE;
+            for (int edge = snapshot.getSuccessorStart(idx); edge < snapshot.getSuccessorEnd(idx); edge++) {
+                MarkovVertex next = snapshot.getVertex(snapshot.getSuccessor(edge));
+                assertTrue(actual.add(next));
+                MarkovEdge e = this.markov.findEdge(v, next);
+                assertNotNull(e);
+                assertEquals(e.getProbability(), snapshot.getProbability(edge));
+
+                // The successors must be sorted by their probabilities
+                assertTrue(snapshot.getProbability(edge) <= last);
+                last = snapshot.getProbability(edge);
+            } // FOR
+            assertEquals(expected.size(), actual.size());
+            assertTrue(actual.containsAll(expected));
+        } // FOR
+    }
+
+    /**
+     * testIsEqual
+     */
+    @Test
+    public void testIsEqual() throws Exception {
+        MarkovGraphSnapshot snapshot = this.markov.getSnapshot();
+        for (MarkovVertex v : this.vertices) {
+            int idx = snapshot.indexOf(v);
+            for (MarkovVertex other : this.vertices) {
+                PartitionSet other_partitions = other.getPartitions();
+                PartitionSet other_past = other.getPastPartitions();
+                for (boolean use_past : new boolean[]{ true, false }) {
+                    boolean expected = v.isEqual(this.catalog_stmt, other_partitions, other_past, other.getQueryCounter(), use_past);
+                    boolean actual = snapshot.isEqual(idx, this.catalog_stmt, other_partitions, other_past, other.getQueryCounter(), use_past);
+                    assertEquals(v + " <-> " + other, expected, actual);
+
+                    // Ignore the query counter
+                    expected = v.isEqual(this.catalog_stmt, other_partitions, other_past, v.getQueryCounter(), use_past);
+                    actual = snapshot.isEqual(idx, this.catalog_stmt, other_partitions, other_past, v.getQueryCounter(), use_past);
+                    assertEquals(v + " <-> " + other, expected, actual);
+                } // FOR
+            } // FOR
+        } // FOR
+
+        // Partitions that are outside of the bitmaps
+        int idx = snapshot.indexOf(this.vertices[0]);
+        PartitionSet ps = new PartitionSet(this.vertices[0].getPartitions());
+        ps.remove(ps.get());
+        ps.add(NUM_PARTITIONS * 10);
+        assertFalse(snapshot.isEqual(idx, this.catalog_stmt, ps, this.vertices[0].getPastPartitions(), 0, true));
+        
+        // The null partition
+        ps = new PartitionSet(this.vertices[0].getPartitions());
+        ps.add(HStoreConstants.NULL_PARTITION_ID);
+        assertFalse(snapshot.isEqual(idx, this.catalog_stmt, ps, this.vertices[0].getPastPartitions(), 0, true));
+    }
+
+    /**
+     * testRebuild
+     */
+    @Test
+    public void testRebuild() throws Exception {
+        MarkovGraphSnapshot snapshot = this.markov.getSnapshot();
+        assertSame(snapshot, this.markov.getSnapshot());
+
+        // New vertices are not in the snapshot until we recompute
+        MarkovVertex v = new MarkovVertex(this.catalog_stmt,
+                                          MarkovVertex.Type.QUERY,
+                                          this.vertices.length,
+                                          new PartitionSet(1),
+                                          new PartitionSet());
+        this.markov.addVertex(v);
+        this.markov.addToEdge(this.vertices[0], v).incrementInstanceHits();
+        assertEquals(-1, snapshot.indexOf(v));
+
+        this.markov.calculateProbabilities(catalogContext.getAllPartitionIds());
+        MarkovGraphSnapshot new_snapshot = this.markov.getSnapshot();
+        assertNotSame(snapshot, new_snapshot);
+        assertTrue(new_snapshot.indexOf(v) >= 0);
+        assertEquals(this.markov.getEdgeCount(), new_snapshot.getEdgeCount());
+    }
+}
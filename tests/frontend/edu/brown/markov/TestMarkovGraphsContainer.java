@@ -1,15 +1,21 @@
 package edu.brown.markov;
 
 import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.voltdb.VoltProcedure;
 import org.voltdb.benchmark.tpcc.procedures.neworder;
 import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
 
 import edu.brown.BaseTestCase;
 import edu.brown.catalog.CatalogUtil;
 import edu.brown.markov.containers.MarkovGraphsContainer;
+import edu.brown.markov.containers.MarkovGraphsContainerUtil;
+import edu.brown.utils.CollectionUtil;
 import edu.brown.utils.FileUtil;
+import edu.brown.utils.PartitionSet;
 import edu.brown.utils.ProjectType;
 
 public class TestMarkovGraphsContainer extends BaseTestCase {
@@ -58,4 +64,61 @@ public class TestMarkovGraphsContainer extends BaseTestCase {
         } // FOR
     }
     
+    /**
+     * testBinarySerialization
+     */
+    public void testBinarySerialization() throws Exception {
+        Statement catalog_stmt = CollectionUtil.first(catalog_proc.getStatements());
+        Map<Integer, MarkovGraphsContainer> markovs = new TreeMap<Integer, MarkovGraphsContainer>();
+        for (Integer p : CatalogUtil.getAllPartitionIds(catalog_db)) {
+            MarkovGraphsContainer m = new MarkovGraphsContainer();
+            MarkovGraph markov = m.getOrCreate(p, catalog_proc, true);
+            
+            MarkovVertex start = markov.getSpecialVertex(MarkovVertex.Type.START);
+            MarkovVertex commit = markov.getSpecialVertex(MarkovVertex.Type.COMMIT);
+            MarkovVertex v = new MarkovVertex(catalog_stmt, MarkovVertex.Type.QUERY, 0,
+                                              new PartitionSet(p), new PartitionSet());
+            v.incrementTotalHits();
+            markov.addVertex(v);
+            markov.addToEdge(start, v).incrementTotalHits();
+            markov.addToEdge(v, commit).incrementTotalHits();
+            markovs.put(p, m);
+        } // FOR
+        
+        tempFile = FileUtil.getTempFile("markovs", false);
+        MarkovGraphsContainerUtil.saveBinary(markovs, tempFile);
+        assertTrue(MarkovGraphsContainerUtil.isBinaryFile(tempFile));
+        
+        // Nothing should be deserialized until we ask for it
+        Map<Integer, MarkovGraphsContainer> clone = MarkovGraphsContainerUtil.load(catalogContext, tempFile);
+        assertEquals(markovs.keySet(), clone.keySet());
+        for (Integer p : markovs.keySet()) {
+            MarkovGraphsContainer clone_m = clone.get(p);
+            assertEquals(1, clone_m.getLazyCount());
+            
+            MarkovGraph orig = markovs.get(p).get(p, catalog_proc);
+            MarkovGraph loaded = clone_m.get(p, catalog_proc);
+            assertNotNull(loaded);
+            assertEquals(0, clone_m.getLazyCount());
+            assertEquals(orig.getGraphId(), loaded.getGraphId());
+            assertEquals(orig.getVertexCount(), loaded.getVertexCount());
+            assertEquals(orig.getEdgeCount(), loaded.getEdgeCount());
+            
+            for (MarkovVertex orig_v : orig.getVertices()) {
+                MarkovVertex loaded_v = loaded.getVertex(orig_v.getElementId());
+                assertNotNull(orig_v.toString(), loaded_v);
+                assertEquals(orig_v.getType(), loaded_v.getType());
+                assertEquals(orig_v.getCatalogItem(), loaded_v.getCatalogItem());
+                assertEquals(orig_v.getPartitions(), loaded_v.getPartitions());
+                assertEquals(orig_v.getTotalHits(), loaded_v.getTotalHits());
+                for (MarkovEdge orig_e : orig.getOutEdges(orig_v)) {
+                    MarkovVertex dest = loaded.getVertex(orig.getDest(orig_e).getElementId());
+                    MarkovEdge loaded_e = loaded.findEdge(loaded_v, dest);
+                    assertNotNull(loaded_e);
+                    assertEquals(orig_e.getProbability(), loaded_e.getProbability());
+                } // FOR
+            } // FOR
+        } // FOR
+    }
+    
 }
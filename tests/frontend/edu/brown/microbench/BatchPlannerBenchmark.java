@@ -0,0 +1,76 @@
+package edu.brown.microbench;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.ParameterSet;
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+
+import edu.brown.benchmark.tm1.procedures.GetAccessData;
+import edu.brown.benchmark.tm1.procedures.UpdateLocation;
+import edu.brown.hstore.BatchPlanner;
+import edu.brown.hstore.BatchPlanner.BatchPlan;
+import edu.brown.statistics.FastIntHistogram;
+import edu.brown.utils.PartitionEstimator;
+import edu.brown.utils.PartitionSet;
+import edu.brown.utils.ProjectType;
+
+/**
+ * Plan a single-partition batch and a multi-partition batch from TM1.
+ * Each operation plans both batches.
+ */
+public class BatchPlannerBenchmark extends MicroBenchmark {
+
+    private static final int NUM_PARTITIONS = 16;
+    private static final int BASE_PARTITION = 1;
+    private static final Long TXN_ID = 1000l;
+
+    private final FastIntHistogram touched_partitions = new FastIntHistogram(NUM_PARTITIONS);
+    private PartitionSet localPartitions;
+    private PartitionSet allPartitions;
+
+    private BatchPlanner spPlanner;
+    private ParameterSet spArgs[];
+    private BatchPlanner mpPlanner;
+    private ParameterSet mpArgs[];
+
+    @Override
+    public void setUp() throws Exception {
+        CatalogContext catalogContext = getCatalogContext(ProjectType.TM1, NUM_PARTITIONS);
+        PartitionEstimator p_estimator = new PartitionEstimator(catalogContext);
+        this.localPartitions = PartitionSet.singleton(BASE_PARTITION);
+        this.allPartitions = catalogContext.getAllPartitionIds();
+
+        // Single-Partition: GetAccessData
+        Procedure catalog_proc = catalogContext.procedures.getIgnoreCase(GetAccessData.class.getSimpleName());
+        Statement catalog_stmt = catalog_proc.getStatements().get("GetData");
+        SQLStmt batch[] = { new SQLStmt(catalog_stmt, catalog_stmt.getFragments()) };
+        this.spArgs = new ParameterSet[]{ VoltProcedure.getCleanParams(batch[0], new Object[]{ 1l, 1l }) };
+        this.spPlanner = new BatchPlanner(batch, catalog_proc, p_estimator);
+
+        // Multi-Partition: UpdateLocation
+        catalog_proc = catalogContext.procedures.getIgnoreCase(UpdateLocation.class.getSimpleName());
+        catalog_stmt = catalog_proc.getStatements().get("update");
+        batch = new SQLStmt[]{ new SQLStmt(catalog_stmt, catalog_stmt.getMs_fragments()) };
+        this.mpArgs = new ParameterSet[]{ VoltProcedure.getCleanParams(batch[0], new Object[]{ 1l, "XXX" }) };
+        this.mpPlanner = new BatchPlanner(batch, catalog_proc, p_estimator);
+    }
+
+    @Override
+    public long run(int ops) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < ops; i++) {
+            this.touched_partitions.clearValues();
+            BatchPlan plan = this.spPlanner.plan(TXN_ID, BASE_PARTITION, this.localPartitions,
+                                                 this.touched_partitions, this.spArgs);
+            checksum += plan.getFragmentCount();
+
+            this.touched_partitions.clearValues();
+            plan = this.mpPlanner.plan(TXN_ID, BASE_PARTITION, this.allPartitions,
+                                       this.touched_partitions, this.mpArgs);
+            checksum += plan.getFragmentCount() + this.touched_partitions.getValueCount();
+        } // FOR
+        return (checksum);
+    }
+}
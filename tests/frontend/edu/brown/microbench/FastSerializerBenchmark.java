@@ -0,0 +1,37 @@
+package edu.brown.microbench;
+
+import java.nio.ByteBuffer;
+
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+
+/**
+ * Write a small message with a FastSerializer and read it back with a FastDeserializer.
+ * The message roughly matches the header of a txn request (ids, counters and a name).
+ */
+public class FastSerializerBenchmark extends MicroBenchmark {
+
+    private final FastSerializer fs = new FastSerializer();
+    private final FastDeserializer fds = new FastDeserializer();
+    private final String procName = "GetSubscriberData";
+
+    @Override
+    public long run(int ops) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < ops; i++) {
+            this.fs.clear();
+            this.fs.writeLong(i);
+            this.fs.writeInt(i & 0xFF);
+            this.fs.writeString(this.procName);
+            this.fs.writeLong(~i);
+
+            ByteBuffer buffer = this.fs.getBuffer();
+            this.fds.setBuffer(buffer);
+            checksum += this.fds.readLong();
+            checksum += this.fds.readInt();
+            checksum += this.fds.readString().length();
+            checksum += this.fds.readLong();
+        } // FOR
+        return (checksum);
+    }
+}
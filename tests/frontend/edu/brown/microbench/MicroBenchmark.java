@@ -0,0 +1,75 @@
+package edu.brown.microbench;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.catalog.Catalog;
+
+import edu.brown.BaseTestCase;
+import edu.brown.benchmark.AbstractProjectBuilder;
+import edu.brown.catalog.FixCatalog;
+import edu.brown.utils.ProjectType;
+
+/**
+ * Base class for a single microbenchmark that is executed by the MicroBenchmarkRunner.
+ * Each benchmark measures one operation on an engine hot path. The runner will
+ * call run() repeatedly with the same number of operations and then report
+ * the average time per operation.
+ * <p>
+ * Subclasses must have a public no-argument constructor so that they can be
+ * instantiated in a forked JVM.
+ */
+public abstract class MicroBenchmark {
+
+    /**
+     * Called once before any of the warm-up or measurement iterations.
+     * @throws Exception
+     */
+    public void setUp() throws Exception {
+        // Nothing to do...
+    }
+
+    /**
+     * Called once after all of the measurement iterations are finished.
+     * @throws Exception
+     */
+    public void tearDown() throws Exception {
+        // Nothing to do...
+    }
+
+    /**
+     * Execute the operation that is being measured the given number of times.
+     * The return value should depend on the result of every operation so that
+     * the JIT cannot eliminate the work as dead code. The runner will make sure
+     * that the value is used.
+     * @param ops
+     * @return
+     * @throws Exception
+     */
+    public abstract long run(int ops) throws Exception;
+
+    /**
+     * Return the name of this benchmark that is used in the results
+     * @return
+     */
+    public String getName() {
+        return (this.getClass().getSimpleName());
+    }
+
+    // ----------------------------------------------------------------------------
+    // UTILITY METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Create a single-host, single-site CatalogContext for the given project
+     * with the given number of partitions.
+     * @param type
+     * @param num_partitions
+     * @return
+     * @throws Exception
+     */
+    protected static CatalogContext getCatalogContext(ProjectType type, int num_partitions) throws Exception {
+        AbstractProjectBuilder projectBuilder = BaseTestCase.getProjectBuilder(type);
+        Catalog catalog = projectBuilder.getFullCatalog(false);
+        catalog = FixCatalog.cloneCatalog(catalog, "localhost", 1, 1, num_partitions);
+        return (new CatalogContext(catalog, projectBuilder.getJarPath(true)));
+    }
+}
@@ -0,0 +1,141 @@
+package edu.brown.microbench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.voltdb.catalog.Database;
+
+import edu.brown.utils.JSONSerializable;
+import edu.brown.utils.JSONUtil;
+import edu.brown.utils.MathUtil;
+
+/**
+ * The measurements for a single MicroBenchmark.
+ * Each sample is the average time per operation (in nanoseconds)
+ * of one measurement iteration. Samples from multiple forks are combined.
+ */
+public class MicroBenchmarkResult implements JSONSerializable {
+
+    /**
+     * The z-score used for the confidence interval of the mean (99.9%)
+     */
+    private static final double CONFIDENCE_Z = 3.291d;
+
+    public String name;
+    public int forks;
+    public long operations;
+    public List<Double> samples = new ArrayList<Double>();
+
+    public double mean;
+    public double stdev;
+    public double min;
+    public double max;
+    public double error;
+
+    public MicroBenchmarkResult() {
+        // For serialization
+    }
+
+    public MicroBenchmarkResult(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Add a new measurement iteration
+     * @param ops The number of operations that were executed
+     * @param nanoseconds The total time it took to execute them
+     */
+    public void addSample(long ops, long nanoseconds) {
+        this.samples.add(nanoseconds / (double)ops);
+        this.operations += ops;
+    }
+
+    /**
+     * Add all of the samples from another fork of the same benchmark
+     * @param other
+     */
+    public void add(MicroBenchmarkResult other) {
+        assert(this.name.equals(other.name));
+        this.samples.addAll(other.samples);
+        this.operations += other.operations;
+        this.forks += Math.max(1, other.forks);
+    }
+
+    /**
+     * Compute the summary statistics from the samples
+     */
+    public void computeStatistics() {
+        int num_samples = this.samples.size();
+        if (num_samples == 0) return;
+
+        double values[] = new double[num_samples];
+        for (int i = 0; i < num_samples; i++) {
+            values[i] = this.samples.get(i);
+        } // FOR
+        this.mean = MathUtil.arithmeticMean(values);
+        this.stdev = (num_samples > 1 ? MathUtil.stdev(values) : 0d);
+        this.min = Collections.min(this.samples);
+        this.max = Collections.max(this.samples);
+        this.error = CONFIDENCE_Z * this.stdev / Math.sqrt(num_samples);
+    }
+
+    public String getName() {
+        return (this.name);
+    }
+    public double getMean() {
+        return (this.mean);
+    }
+    public double getError() {
+        return (this.error);
+    }
+
+    /**
+     * Returns true if this result is slower than the given baseline by more than
+     * the given threshold (e.g., 0.10 = 10%) and the difference is larger than the
+     * combined error of the two measurements.
+     * @param baseline
+     * @param threshold
+     * @return
+     */
+    public boolean isRegression(MicroBenchmarkResult baseline, double threshold) {
+        double delta = this.mean - baseline.mean;
+        return (delta > baseline.mean * threshold && delta > (this.error + baseline.error));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %.2f +/- %.2f ns/op [min=%.2f, max=%.2f, samples=%d]",
+                             this.name, this.mean, this.error, this.min, this.max, this.samples.size());
+    }
+
+    // ----------------------------------------------------------------------------
+    // SERIALIZATION METHODS
+    // ----------------------------------------------------------------------------
+    @Override
+    public void load(File input_path, Database catalog_db) throws IOException {
+        JSONUtil.load(this, catalog_db, input_path);
+    }
+    @Override
+    public void save(File output_path) throws IOException {
+        JSONUtil.save(this, output_path);
+    }
+    @Override
+    public String toJSONString() {
+        return (JSONUtil.toJSONString(this));
+    }
+    @Override
+    public void toJSON(JSONStringer stringer) throws JSONException {
+        JSONUtil.fieldsToJSON(stringer, this, MicroBenchmarkResult.class, JSONUtil.getSerializableFields(this.getClass()));
+    }
+    @Override
+    public void fromJSON(JSONObject json_object, Database catalog_db) throws JSONException {
+        this.samples.clear();
+        JSONUtil.fieldsFromJSON(json_object, catalog_db, this, MicroBenchmarkResult.class, true, JSONUtil.getSerializableFields(this.getClass()));
+    }
+}
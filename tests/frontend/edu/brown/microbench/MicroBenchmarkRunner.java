@@ -0,0 +1,316 @@
+package edu.brown.microbench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.ClassUtil;
+import edu.brown.utils.FileUtil;
+import edu.brown.utils.JSONUtil;
+import edu.brown.utils.StringUtil;
+
+/**
+ * Executes MicroBenchmarks with warm-up iterations, measurement iterations,
+ * and optionally in separate forked JVMs so that the results of one benchmark
+ * are not affected by the JIT decisions made for another.
+ * The results are written out as JSON so that they can be compared against
+ * a previous run to look for regressions.
+ * <p>
+ * Parameters (all optional):
+ * <ul>
+ *  <li><b>benchmarks</b> - Comma-separated list of MicroBenchmark class names (default: all)</li>
+ *  <li><b>forks</b> - Number of JVMs to fork per benchmark. Zero runs in this JVM (default: 1)</li>
+ *  <li><b>warmup</b> - Number of warm-up iterations (default: 5)</li>
+ *  <li><b>iterations</b> - Number of measurement iterations (default: 10)</li>
+ *  <li><b>time</b> - Minimum length of each iteration in milliseconds (default: 1000)</li>
+ *  <li><b>output</b> - File to write the JSON results to</li>
+ *  <li><b>baseline</b> - JSON results from a previous run to compare against</li>
+ *  <li><b>threshold</b> - How much slower than the baseline counts as a regression (default: 0.10)</li>
+ * </ul>
+ */
+public class MicroBenchmarkRunner {
+    private static final Logger LOG = Logger.getLogger(MicroBenchmarkRunner.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    /**
+     * The default set of benchmarks
+     */
+    public static final Class<?> BENCHMARKS[] = {
+        FastSerializerBenchmark.class,
+        VoltTableBenchmark.class,
+        ParameterSetBenchmark.class,
+        PartitionEstimatorBenchmark.class,
+        BatchPlannerBenchmark.class,
+        PartitionLockQueueBenchmark.class,
+        TransactionIdManagerBenchmark.class,
+    };
+
+    /**
+     * The number of operations passed to each invocation of MicroBenchmark.run()
+     */
+    private static final int OPS_PER_CALL = 1000;
+
+    /**
+     * Every benchmark's return value is folded into this so that
+     * the JIT can't throw away the work that they do
+     */
+    public static volatile long sink;
+
+    private int forks = 1;
+    private int warmupIterations = 5;
+    private int iterations = 10;
+    private long iterationTime = 1000;
+
+    public MicroBenchmarkRunner() {
+        // Nothing to do...
+    }
+
+    public void setForks(int forks) {
+        this.forks = forks;
+    }
+    public void setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+    public void setIterationTime(long iterationTime) {
+        this.iterationTime = iterationTime;
+    }
+
+    // ----------------------------------------------------------------------------
+    // EXECUTION
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Execute the given benchmark in this JVM
+     * @param benchmark
+     * @return
+     * @throws Exception
+     */
+    public MicroBenchmarkResult execute(MicroBenchmark benchmark) throws Exception {
+        MicroBenchmarkResult result = new MicroBenchmarkResult(benchmark.getName());
+        benchmark.setUp();
+        try {
+            long checksum = 0;
+            for (int i = 0; i < this.warmupIterations; i++) {
+                checksum += this.executeIteration(benchmark, null);
+            } // FOR
+            for (int i = 0; i < this.iterations; i++) {
+                checksum += this.executeIteration(benchmark, result);
+            } // FOR
+            sink += checksum;
+        } finally {
+            benchmark.tearDown();
+        }
+        result.computeStatistics();
+        return (result);
+    }
+
+    private long executeIteration(MicroBenchmark benchmark, MicroBenchmarkResult result) throws Exception {
+        long checksum = 0;
+        long ops = 0;
+        long start = System.nanoTime();
+        long stop = start + (this.iterationTime * 1000000l);
+        long now;
+        do {
+            checksum += benchmark.run(OPS_PER_CALL);
+            ops += OPS_PER_CALL;
+            now = System.nanoTime();
+        } while (now < stop);
+        if (result != null) result.addSample(ops, now - start);
+        return (checksum);
+    }
+
+    /**
+     * Execute the given benchmark in a new JVM and return its results.
+     * The new JVM uses the same classpath and JVM arguments as this one.
+     * @param benchmarkClass
+     * @return
+     * @throws Exception
+     */
+    public MicroBenchmarkResult fork(Class<?> benchmarkClass) throws Exception {
+        File output = File.createTempFile("microbench-", ".json");
+        try {
+            List<String> command = new ArrayList<String>();
+            command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(MicroBenchmarkRunner.class.getName());
+            command.add("benchmarks=" + benchmarkClass.getName());
+            command.add("forks=0");
+            command.add("warmup=" + this.warmupIterations);
+            command.add("iterations=" + this.iterations);
+            command.add("time=" + this.iterationTime);
+            command.add("output=" + output.getAbsolutePath());
+            if (debug.val) LOG.debug("Forking: " + StringUtil.join(" ", command));
+
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+            int exitCode = pb.start().waitFor();
+            if (exitCode != 0) {
+                throw new RuntimeException(String.format("Forked JVM for %s failed [exitCode=%d]",
+                                           benchmarkClass.getSimpleName(), exitCode));
+            }
+            Map<String, MicroBenchmarkResult> results = load(output);
+            assert(results.size() == 1) : results.keySet();
+            return (results.values().iterator().next());
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * Execute all of the given benchmarks and return their results
+     * @param benchmarkClasses
+     * @return
+     * @throws Exception
+     */
+    public Map<String, MicroBenchmarkResult> execute(List<Class<?>> benchmarkClasses) throws Exception {
+        Map<String, MicroBenchmarkResult> results = new LinkedHashMap<String, MicroBenchmarkResult>();
+        for (Class<?> benchmarkClass : benchmarkClasses) {
+            MicroBenchmarkResult result = null;
+            if (this.forks <= 0) {
+                MicroBenchmark benchmark = (MicroBenchmark)ClassUtil.newInstance(benchmarkClass, null, null);
+                result = this.execute(benchmark);
+            } else {
+                for (int fork = 0; fork < this.forks; fork++) {
+                    MicroBenchmarkResult forkResult = this.fork(benchmarkClass);
+                    if (result == null) result = new MicroBenchmarkResult(forkResult.getName());
+                    result.add(forkResult);
+                } // FOR
+                result.computeStatistics();
+            }
+            LOG.info(result.toString());
+            results.put(result.getName(), result);
+        } // FOR
+        return (results);
+    }
+
+    // ----------------------------------------------------------------------------
+    // SERIALIZATION
+    // ----------------------------------------------------------------------------
+
+    public static String toJSONString(Map<String, MicroBenchmarkResult> results) throws Exception {
+        JSONStringer stringer = new JSONStringer();
+        stringer.object();
+        for (MicroBenchmarkResult result : results.values()) {
+            stringer.key(result.getName()).object();
+            result.toJSON(stringer);
+            stringer.endObject();
+        } // FOR
+        stringer.endObject();
+        return (JSONUtil.format(stringer.toString()));
+    }
+
+    public static Map<String, MicroBenchmarkResult> load(File input) throws Exception {
+        JSONObject json = new JSONObject(FileUtil.readFile(input));
+        Map<String, MicroBenchmarkResult> results = new LinkedHashMap<String, MicroBenchmarkResult>();
+        for (String name : JSONObject.getNames(json)) {
+            MicroBenchmarkResult result = new MicroBenchmarkResult();
+            result.fromJSON(json.getJSONObject(name), null);
+            results.put(name, result);
+        } // FOR
+        return (results);
+    }
+
+    /**
+     * Compare the new results against the baseline and return
+     * the names of the benchmarks that have regressed.
+     * @param results
+     * @param baseline
+     * @param threshold
+     * @return
+     */
+    public static List<String> compare(Map<String, MicroBenchmarkResult> results,
+                                       Map<String, MicroBenchmarkResult> baseline,
+                                       double threshold) {
+        List<String> regressions = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-32s %14s %14s %9s\n", "BENCHMARK", "BASELINE", "CURRENT", "CHANGE"));
+        for (MicroBenchmarkResult result : results.values()) {
+            MicroBenchmarkResult base = baseline.get(result.getName());
+            if (base == null) continue;
+            boolean regressed = result.isRegression(base, threshold);
+            if (regressed) regressions.add(result.getName());
+            sb.append(String.format("%-32s %14.2f %14.2f %+8.1f%%%s\n",
+                                    result.getName(), base.getMean(), result.getMean(),
+                                    ((result.getMean() - base.getMean()) / base.getMean()) * 100d,
+                                    (regressed ? "  <-- REGRESSION" : "")));
+        } // FOR
+        LOG.info("Comparison against baseline (ns/op)\n" + sb);
+        return (regressions);
+    }
+
+    // ----------------------------------------------------------------------------
+    // MAIN
+    // ----------------------------------------------------------------------------
+
+    public static void main(String[] vargs) throws Exception {
+        Map<String, String> params = new HashMap<String, String>();
+        for (String arg : vargs) {
+            int idx = arg.indexOf('=');
+            if (idx <= 0) continue;
+            String value = arg.substring(idx+1).trim();
+            // Ignore unset ant properties
+            if (value.isEmpty() || value.startsWith("${")) continue;
+            params.put(arg.substring(0, idx).trim().toLowerCase(), value);
+        } // FOR
+
+        MicroBenchmarkRunner runner = new MicroBenchmarkRunner();
+        if (params.containsKey("forks")) runner.setForks(Integer.parseInt(params.get("forks")));
+        if (params.containsKey("warmup")) runner.setWarmupIterations(Integer.parseInt(params.get("warmup")));
+        if (params.containsKey("iterations")) runner.setIterations(Integer.parseInt(params.get("iterations")));
+        if (params.containsKey("time")) runner.setIterationTime(Long.parseLong(params.get("time")));
+
+        List<Class<?>> benchmarkClasses = new ArrayList<Class<?>>();
+        if (params.containsKey("benchmarks")) {
+            for (String name : params.get("benchmarks").split(",")) {
+                name = name.trim();
+                if (name.contains(".") == false) {
+                    name = MicroBenchmarkRunner.class.getPackage().getName() + "." + name;
+                }
+                benchmarkClasses.add(ClassUtil.getClass(name));
+            } // FOR
+        } else {
+            for (Class<?> benchmarkClass : BENCHMARKS) {
+                benchmarkClasses.add(benchmarkClass);
+            } // FOR
+        }
+
+        Map<String, MicroBenchmarkResult> results = runner.execute(benchmarkClasses);
+        String json = toJSONString(results);
+        if (params.containsKey("output")) {
+            File output = new File(params.get("output"));
+            FileUtil.writeStringToFile(output, json);
+            LOG.info("Wrote results to " + output.getAbsolutePath());
+        } else {
+            System.out.println(json);
+        }
+
+        if (params.containsKey("baseline")) {
+            double threshold = (params.containsKey("threshold") ? Double.parseDouble(params.get("threshold")) : 0.10d);
+            Map<String, MicroBenchmarkResult> baseline = load(new File(params.get("baseline")));
+            List<String> regressions = compare(results, baseline, threshold);
+            if (regressions.isEmpty() == false) {
+                LOG.error("Regressions: " + regressions);
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package edu.brown.microbench;
+
+import java.nio.ByteBuffer;
+
+import org.voltdb.ParameterSet;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+
+/**
+ * Serialize and deserialize the ParameterSet of a txn request.
+ */
+public class ParameterSetBenchmark extends MicroBenchmark {
+
+    private final ParameterSet params = new ParameterSet(1234l, "ABCDEFGHIJKLMNOP", 99, 3.14d, new long[]{ 1, 2, 3, 4 });
+    private final FastSerializer fs = new FastSerializer();
+    private final FastDeserializer fds = new FastDeserializer();
+
+    @Override
+    public long run(int ops) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < ops; i++) {
+            this.fs.clear();
+            this.params.writeExternal(this.fs);
+
+            ByteBuffer buffer = this.fs.getBuffer();
+            this.fds.setBuffer(buffer);
+            ParameterSet clone = new ParameterSet();
+            clone.readExternal(this.fds);
+            checksum += clone.toArray().length;
+        } // FOR
+        return (checksum);
+    }
+}
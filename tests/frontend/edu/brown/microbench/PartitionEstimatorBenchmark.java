@@ -0,0 +1,61 @@
+package edu.brown.microbench;
+
+import java.util.Random;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.catalog.Procedure;
+
+import edu.brown.benchmark.tm1.TM1Util;
+import edu.brown.benchmark.tm1.procedures.GetSubscriberData;
+import edu.brown.benchmark.tm1.procedures.UpdateLocation;
+import edu.brown.utils.PartitionEstimator;
+import edu.brown.utils.ProjectType;
+
+/**
+ * Compute the base partition of TM1 txn requests. This alternates between
+ * a procedure that is partitioned on a long and one that is partitioned on a string.
+ */
+public class PartitionEstimatorBenchmark extends MicroBenchmark {
+
+    private static final int NUM_PARTITIONS = 16;
+    private static final int NUM_PARAMS = 1024;
+
+    private PartitionEstimator p_estimator;
+    private Procedure procs[];
+    private Object params[][];
+
+    @Override
+    public void setUp() throws Exception {
+        CatalogContext catalogContext = getCatalogContext(ProjectType.TM1, NUM_PARTITIONS);
+        this.p_estimator = new PartitionEstimator(catalogContext);
+
+        Procedure getSubscriber = catalogContext.procedures.getIgnoreCase(GetSubscriberData.class.getSimpleName());
+        Procedure updateLocation = catalogContext.procedures.getIgnoreCase(UpdateLocation.class.getSimpleName());
+        assert(getSubscriber != null);
+        assert(updateLocation != null);
+
+        Random rand = new Random(0);
+        this.procs = new Procedure[NUM_PARAMS];
+        this.params = new Object[NUM_PARAMS][];
+        for (int i = 0; i < NUM_PARAMS; i++) {
+            long s_id = rand.nextInt(1000000);
+            if (i % 2 == 0) {
+                this.procs[i] = getSubscriber;
+                this.params[i] = new Object[]{ s_id };
+            } else {
+                this.procs[i] = updateLocation;
+                this.params[i] = new Object[]{ (long)rand.nextInt(), TM1Util.padWithZero(s_id) };
+            }
+        } // FOR
+    }
+
+    @Override
+    public long run(int ops) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < ops; i++) {
+            int idx = i % NUM_PARAMS;
+            checksum += this.p_estimator.getBasePartition(this.procs[idx], this.params[idx]);
+        } // FOR
+        return (checksum);
+    }
+}
@@ -0,0 +1,72 @@
+package edu.brown.microbench;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.ParameterSet;
+import org.voltdb.TransactionIdManager;
+import org.voltdb.catalog.Procedure;
+
+import edu.brown.benchmark.tm1.procedures.DeleteCallForwarding;
+import edu.brown.hstore.HStoreSite;
+import edu.brown.hstore.MockHStoreSite;
+import edu.brown.hstore.PartitionLockQueue;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.txns.AbstractTransaction;
+import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.utils.CollectionUtil;
+import edu.brown.utils.PartitionSet;
+import edu.brown.utils.ProjectType;
+
+/**
+ * Offer txns to a PartitionLockQueue and then poll them back out.
+ * Each operation is one offer and one poll. The txns are offered in
+ * batches so that the queue has more than one txn waiting in it.
+ */
+public class PartitionLockQueueBenchmark extends MicroBenchmark {
+
+    private static final int NUM_PARTITIONS = 2;
+    private static final int BATCH_SIZE = 8;
+
+    private HStoreSite hstore_site;
+    private TransactionIdManager idManager;
+    private PartitionLockQueue queue;
+    private final LocalTransaction txns[] = new LocalTransaction[BATCH_SIZE];
+
+    @Override
+    public void setUp() throws Exception {
+        CatalogContext catalogContext = getCatalogContext(ProjectType.TM1, NUM_PARTITIONS);
+        HStoreConf hstore_conf = HStoreConf.singleton();
+        this.hstore_site = new MockHStoreSite(CollectionUtil.first(catalogContext.sites).getId(), catalogContext, hstore_conf);
+        this.idManager = new TransactionIdManager(0);
+
+        // No delay before a txn is released so that every poll returns a txn
+        this.queue = new PartitionLockQueue(0, 0, Integer.MAX_VALUE, 1.0d);
+
+        Procedure catalog_proc = catalogContext.procedures.getIgnoreCase(DeleteCallForwarding.class.getSimpleName());
+        ParameterSet params = new ParameterSet();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            this.txns[i] = new LocalTransaction(this.hstore_site);
+            this.txns[i].testInit(this.idManager.getNextUniqueTransactionId(), 0, params, new PartitionSet(0), catalog_proc);
+        } // FOR
+    }
+
+    @Override
+    public long run(int ops) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < ops; i += BATCH_SIZE) {
+            for (int j = 0; j < BATCH_SIZE; j++) {
+                Long txnId = this.idManager.getNextUniqueTransactionId();
+                this.txns[j].setTransactionId(txnId);
+                this.queue.noteTransactionRecievedAndReturnLastSafeTxnId(txnId);
+                this.queue.offer(this.txns[j], false);
+            } // FOR
+            for (int j = 0; j < BATCH_SIZE; j++) {
+                AbstractTransaction ts = null;
+                while ((ts = this.queue.poll()) == null) {
+                    // The queue may need to check whether the next txn is safe
+                } // WHILE
+                checksum += ts.getTransactionId().longValue();
+            } // FOR
+        } // FOR
+        return (checksum);
+    }
+}
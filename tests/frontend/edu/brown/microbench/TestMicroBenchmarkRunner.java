@@ -0,0 +1,104 @@
+package edu.brown.microbench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import edu.brown.utils.FileUtil;
+
+public class TestMicroBenchmarkRunner extends TestCase {
+
+    public static class MockBenchmark extends MicroBenchmark {
+        @Override
+        public long run(int ops) throws Exception {
+            long total = 0;
+            for (int i = 0; i < ops; i++) {
+                total += Long.rotateLeft(total ^ i, 7);
+            } // FOR
+            return (total);
+        }
+    }
+
+    private MicroBenchmarkRunner runner;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.runner = new MicroBenchmarkRunner();
+        this.runner.setForks(0);
+        this.runner.setWarmupIterations(1);
+        this.runner.setIterations(3);
+        this.runner.setIterationTime(10);
+    }
+
+    /**
+     * testExecute
+     */
+    @Test
+    public void testExecute() throws Exception {
+        List<Class<?>> benchmarks = new ArrayList<Class<?>>();
+        benchmarks.add(MockBenchmark.class);
+        Map<String, MicroBenchmarkResult> results = this.runner.execute(benchmarks);
+        assertEquals(1, results.size());
+
+        MicroBenchmarkResult result = results.get(MockBenchmark.class.getSimpleName());
+        assertNotNull(result);
+        assertEquals(3, result.samples.size());
+        assertTrue(result.operations > 0);
+        assertTrue(result.getMean() > 0);
+        assertTrue(result.min <= result.getMean());
+        assertTrue(result.max >= result.getMean());
+    }
+
+    /**
+     * testSerialization
+     */
+    @Test
+    public void testSerialization() throws Exception {
+        MicroBenchmarkResult result = this.runner.execute(new MockBenchmark());
+        Map<String, MicroBenchmarkResult> results = new LinkedHashMap<String, MicroBenchmarkResult>();
+        results.put(result.getName(), result);
+
+        File f = FileUtil.getTempFile("json");
+        FileUtil.writeStringToFile(f, MicroBenchmarkRunner.toJSONString(results));
+        Map<String, MicroBenchmarkResult> clone = MicroBenchmarkRunner.load(f);
+        assertEquals(results.keySet(), clone.keySet());
+
+        MicroBenchmarkResult cloneResult = clone.get(result.getName());
+        assertEquals(result.samples, cloneResult.samples);
+        assertEquals(result.operations, cloneResult.operations);
+        assertEquals(result.getMean(), cloneResult.getMean(), 0.0001);
+        assertEquals(result.getError(), cloneResult.getError(), 0.0001);
+    }
+
+    /**
+     * testIsRegression
+     */
+    @Test
+    public void testIsRegression() throws Exception {
+        MicroBenchmarkResult baseline = new MicroBenchmarkResult("X");
+        MicroBenchmarkResult current = new MicroBenchmarkResult("X");
+        for (int i = 0; i < 10; i++) {
+            baseline.addSample(1000, 100000 + i);
+            current.addSample(1000, 100000 + i);
+        } // FOR
+        baseline.computeStatistics();
+        current.computeStatistics();
+        assertFalse(current.isRegression(baseline, 0.10));
+
+        // 50% slower
+        MicroBenchmarkResult slower = new MicroBenchmarkResult("X");
+        for (int i = 0; i < 10; i++) {
+            slower.addSample(1000, 150000 + i);
+        } // FOR
+        slower.computeStatistics();
+        assertTrue(slower.isRegression(baseline, 0.10));
+        assertFalse(baseline.isRegression(slower, 0.10));
+    }
+}
@@ -0,0 +1,25 @@
+package edu.brown.microbench;
+
+import org.voltdb.TransactionIdManager;
+
+/**
+ * Generate new txn ids from a single TransactionIdManager.
+ */
+public class TransactionIdManagerBenchmark extends MicroBenchmark {
+
+    private TransactionIdManager idManager;
+
+    @Override
+    public void setUp() throws Exception {
+        this.idManager = new TransactionIdManager(0);
+    }
+
+    @Override
+    public long run(int ops) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < ops; i++) {
+            checksum += this.idManager.getNextUniqueTransactionId();
+        } // FOR
+        return (checksum);
+    }
+}
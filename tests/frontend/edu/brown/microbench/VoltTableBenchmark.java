@@ -0,0 +1,50 @@
+package edu.brown.microbench;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Build a small VoltTable and then iterate over all of its rows.
+ * Each operation is one table with NUM_ROWS rows.
+ */
+public class VoltTableBenchmark extends MicroBenchmark {
+
+    private static final int NUM_ROWS = 10;
+    private static final ColumnInfo COLUMNS[] = {
+        new ColumnInfo("ID", VoltType.BIGINT),
+        new ColumnInfo("COUNTER", VoltType.INTEGER),
+        new ColumnInfo("NAME", VoltType.STRING),
+        new ColumnInfo("BALANCE", VoltType.FLOAT),
+    };
+
+    private final VoltTable vt = new VoltTable(COLUMNS);
+    private final String names[] = new String[NUM_ROWS];
+
+    @Override
+    public void setUp() throws Exception {
+        for (int i = 0; i < NUM_ROWS; i++) {
+            this.names[i] = String.format("%015d", i);
+        } // FOR
+    }
+
+    @Override
+    public long run(int ops) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < ops; i++) {
+            this.vt.clearRowData();
+            for (int row = 0; row < NUM_ROWS; row++) {
+                this.vt.addRow(i + row, row, this.names[row], row * 1.5d);
+            } // FOR
+
+            this.vt.resetRowPosition();
+            while (this.vt.advanceRow()) {
+                checksum += this.vt.getLong(0);
+                checksum += this.vt.getLong(1);
+                checksum += this.vt.getString(2).length();
+                checksum += (long)this.vt.getDouble(3);
+            } // WHILE
+        } // FOR
+        return (checksum);
+    }
+}
@@ -0,0 +1,70 @@
+package edu.brown.profilers;
+
+import java.io.StringWriter;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import edu.brown.profilers.TransactionTracer.Phase;
+import edu.brown.statistics.LatencyHistogram;
+import junit.framework.TestCase;
+
+public class TestTransactionTracer extends TestCase {
+
+    private static final int BUFFER_SIZE = 10;
+    private final TransactionTracer tracer = new TransactionTracer(0, BUFFER_SIZE);
+
+    /**
+     * testRecord
+     */
+    public void testRecord() throws Exception {
+        // Txns that are not being traced should not be recorded
+        assertEquals(0, tracer.record(1000l, Phase.INIT, 0));
+        assertTrue(tracer.getHistogram(Phase.INIT).isEmpty());
+
+        long start = TransactionTracer.getTime();
+        long next = tracer.record(1000l, Phase.INIT, start);
+        assertTrue(next >= start);
+        next = tracer.record(1000l, Phase.QUEUE, next);
+        assertEquals(1, tracer.getHistogram(Phase.INIT).getCount());
+        assertEquals(1, tracer.getHistogram(Phase.QUEUE).getCount());
+        assertTrue(tracer.getHistogram(Phase.EXEC).isEmpty());
+
+        // Measurements from other threads should be combined
+        Thread t = new Thread() {
+            public void run() {
+                tracer.record(2000l, Phase.INIT, TransactionTracer.getTime());
+            }
+        };
+        t.start();
+        t.join();
+        LatencyHistogram h = tracer.getHistogram(Phase.INIT);
+        assertEquals(2, h.getCount());
+
+        tracer.reset();
+        assertTrue(tracer.getHistogram(Phase.INIT).isEmpty());
+    }
+
+    /**
+     * testWriteChromeTrace
+     */
+    public void testWriteChromeTrace() throws Exception {
+        long timestamp = TransactionTracer.getTime();
+        for (int i = 0; i < BUFFER_SIZE * 2; i++) {
+            timestamp = tracer.record(i, Phase.EXEC, timestamp);
+        } // FOR
+        StringWriter out = new StringWriter();
+        tracer.writeChromeTrace(out);
+
+        JSONArray events = new JSONObject(out.toString()).getJSONArray("traceEvents");
+        // One metadata event plus the last BUFFER_SIZE events
+        assertEquals(BUFFER_SIZE + 1, events.length());
+        assertEquals("M", events.getJSONObject(0).getString("ph"));
+        for (int i = 1; i < events.length(); i++) {
+            JSONObject event = events.getJSONObject(i);
+            assertEquals("X", event.getString("ph"));
+            assertEquals(Phase.EXEC.name(), event.getString("name"));
+            assertEquals(BUFFER_SIZE + i - 1, event.getJSONObject("args").getLong("txnId"));
+        } // FOR
+    }
+}
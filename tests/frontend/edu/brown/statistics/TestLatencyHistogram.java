@@ -0,0 +1,116 @@
+package edu.brown.statistics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.json.JSONObject;
+
+import junit.framework.TestCase;
+
+public class TestLatencyHistogram extends TestCase {
+
+    private final Random rand = new Random(0);
+    private final LatencyHistogram h = new LatencyHistogram();
+
+    /**
+     * testBuckets
+     */
+    public void testBuckets() throws Exception {
+        // Every value must fall within the bounds of its bucket and the
+        // buckets must be contiguous
+        long last_upper = -1;
+        for (int idx = 0; idx < LatencyHistogram.getBucketIndex(LatencyHistogram.MAX_VALUE); idx++) {
+            long lower = LatencyHistogram.getBucketLowerBound(idx);
+            long upper = LatencyHistogram.getBucketUpperBound(idx);
+            assertEquals("Bucket #" + idx, last_upper + 1, lower);
+            assertTrue(upper >= lower);
+            assertEquals(idx, LatencyHistogram.getBucketIndex(lower));
+            assertEquals(idx, LatencyHistogram.getBucketIndex(upper));
+            last_upper = upper;
+        } // FOR
+    }
+
+    /**
+     * testPercentiles
+     */
+    public void testPercentiles() throws Exception {
+        int num_values = 100000;
+        long values[] = new long[num_values];
+        for (int i = 0; i < num_values; i++) {
+            values[i] = (long)Math.abs(rand.nextGaussian() * 1000000) + 1000;
+            h.record(values[i]);
+        } // FOR
+        Arrays.sort(values);
+        assertEquals(num_values, h.getCount());
+        assertEquals(values[0], h.getMin());
+        assertEquals(values[num_values-1], h.getMax());
+
+        // Each percentile should be within the precision of the histogram
+        for (double p : new double[]{ 50, 90, 99, 99.9 }) {
+            long expected = values[(int)Math.ceil((p / 100.0) * num_values) - 1];
+            long actual = h.getValueAtPercentile(p);
+            double error = Math.abs(actual - expected) / (double)expected;
+            assertTrue(String.format("p%s: expected=%d, actual=%d", p, expected, actual), error < 0.05);
+        } // FOR
+        assertEquals(h.getMax(), h.getValueAtPercentile(100));
+    }
+
+    /**
+     * testAdd
+     */
+    public void testAdd() throws Exception {
+        LatencyHistogram other = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            h.record(i);
+            other.record(i * 1000);
+        } // FOR
+        h.add(other);
+        assertEquals(200, h.getCount());
+        assertEquals(1, h.getMin());
+        assertEquals(100000, h.getMax());
+        // The bucket for 100 holds [100, 101]
+        long p50 = h.getValueAtPercentile(50);
+        assertTrue(Long.toString(p50), p50 >= 100 && p50 <= 101);
+
+        h.clear();
+        assertTrue(h.isEmpty());
+        assertEquals(0, h.getValueAtPercentile(99));
+    }
+
+    /**
+     * testClamp
+     */
+    public void testClamp() throws Exception {
+        h.record(-10);
+        h.record(Long.MAX_VALUE);
+        assertEquals(0, h.getMin());
+        assertEquals(LatencyHistogram.MAX_VALUE, h.getMax());
+    }
+
+    /**
+     * testSerialization
+     */
+    public void testSerialization() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            h.record(rand.nextInt(100000));
+        } // FOR
+        String json = h.toJSONString();
+        assertFalse(json.isEmpty());
+
+        LatencyHistogram clone = new LatencyHistogram();
+        clone.fromJSON(new JSONObject(json), null);
+        assertEquals(h.getCount(), clone.getCount());
+        assertEquals(h.getMin(), clone.getMin());
+        assertEquals(h.getMax(), clone.getMax());
+        assertEquals(h.getMean(), clone.getMean());
+        for (double p : new double[]{ 1, 50, 99, 99.9, 100 }) {
+            assertEquals(h.getValueAtPercentile(p), clone.getValueAtPercentile(p));
+        } // FOR
+
+        // Empty histograms should stay empty
+        h.clear();
+        clone.fromJSON(new JSONObject(h.toJSONString()), null);
+        assertTrue(clone.isEmpty());
+        assertEquals(0, clone.getMin());
+    }
+}
@@ -0,0 +1,96 @@
+package edu.brown.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import edu.brown.statistics.FastIntHistogram;
+
+/**
+ * Measures how many bytes are allocated per distributed transaction
+ * for the different ways that we can iterate over a PartitionSet.
+ * Each simulated txn reuses the same PartitionSet (like BatchPlanner does),
+ * and then walks over it the same number of times that a distributed txn
+ * does on its way through the BatchPlanner, the lock queues, 2PC and finish.
+ * <p>
+ * Usage: PartitionSetAllocationBench [num_partitions] [num_txns]
+ */
+public class PartitionSetAllocationBench {
+
+    private static final int PARTITIONS_PER_TXN = 4;
+    private static final int ITERATIONS_PER_TXN = 8;
+
+    private enum Mode {
+        ITERATOR,
+        VALUES,
+        CURSOR;
+    }
+
+    private static long run(Mode mode, PartitionSet partitions, FastIntHistogram touched,
+                            int num_partitions, int num_txns, Random rand) {
+        long checksum = 0;
+        for (int txn = 0; txn < num_txns; txn++) {
+            partitions.clear();
+            for (int i = 0; i < PARTITIONS_PER_TXN; i++) {
+                partitions.add(rand.nextInt(num_partitions));
+            } // FOR
+            for (int i = 0; i < ITERATIONS_PER_TXN; i++) {
+                switch (mode) {
+                    case ITERATOR:
+                        for (Integer p : partitions) {
+                            touched.put(p.intValue());
+                            checksum += p;
+                        } // FOR
+                        break;
+                    case VALUES:
+                        for (int p : partitions.values()) {
+                            touched.put(p);
+                            checksum += p;
+                        } // FOR
+                        break;
+                    case CURSOR:
+                        for (int p = partitions.firstPartition(); p != PartitionSet.END; p = partitions.nextPartition(p)) {
+                            touched.put(p);
+                            checksum += p;
+                        } // FOR
+                        break;
+                } // SWITCH
+                // Somebody removes a partition from the set
+                // (e.g., the done partitions) which invalidates the values cache
+                if (i == ITERATIONS_PER_TXN / 2) {
+                    partitions.remove(partitions.get());
+                }
+            } // FOR
+            touched.clearValues();
+        } // FOR
+        return (checksum);
+    }
+
+    public static void main(String[] vargs) throws Exception {
+        int num_partitions = (vargs.length > 0 ? Integer.parseInt(vargs[0]) : 64);
+        int num_txns = (vargs.length > 1 ? Integer.parseInt(vargs[1]) : 1000000);
+
+        com.sun.management.ThreadMXBean mxbean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        PartitionSet partitions = new PartitionSet();
+        FastIntHistogram touched = new FastIntHistogram(num_partitions);
+
+        // Warm-up so that the JIT gets a chance to eliminate what it can
+        for (Mode mode : Mode.values()) {
+            run(mode, partitions, touched, num_partitions, num_txns / 10, new Random(0));
+        } // FOR
+
+        System.out.printf("%-10s %12s %12s\n", "MODE", "BYTES/TXN", "NS/TXN");
+        for (Mode mode : Mode.values()) {
+            Random rand = new Random(0);
+            long startBytes = mxbean.getThreadAllocatedBytes(threadId);
+            long startTime = System.nanoTime();
+            long checksum = run(mode, partitions, touched, num_partitions, num_txns, rand);
+            long stopTime = System.nanoTime();
+            long stopBytes = mxbean.getThreadAllocatedBytes(threadId);
+            System.out.printf("%-10s %12.1f %12.1f  [checksum=%d]\n", mode,
+                              (stopBytes - startBytes) / (double)num_txns,
+                              (stopTime - startTime) / (double)num_txns,
+                              checksum);
+        } // FOR
+    }
+}
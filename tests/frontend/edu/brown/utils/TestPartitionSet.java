@@ -1,14 +1,19 @@
 package edu.brown.utils;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+
 import edu.brown.hstore.HStoreConstants;
 
 import junit.framework.TestCase;
@@ -137,6 +142,129 @@ public class TestPartitionSet extends TestCase {
         assertEquals(set.size(), pset.size());
     }
     
+    /**
+     * testNextPartition
+     */
+    public void testNextPartition() {
+        this.initialize(rand.nextInt(NUM_PARTITIONS*3));
+        pset.add(HStoreConstants.NULL_PARTITION_ID);
+        assertTrue(pset.containsNull());
+        
+        // The cursor, the Iterator, and values() all have to return
+        // the same partitions in the same order, including the null partition
+        List<Integer> cursor = new ArrayList<Integer>();
+        for (int p = pset.firstPartition(); p != PartitionSet.END; p = pset.nextPartition(p)) {
+            cursor.add(p);
+        } // FOR
+        List<Integer> iterator = new ArrayList<Integer>();
+        for (Integer p : pset) {
+            iterator.add(p);
+        } // FOR
+        List<Integer> values = new ArrayList<Integer>();
+        for (int p : pset.values()) {
+            values.add(p);
+        } // FOR
+        assertEquals(pset.size(), cursor.size());
+        assertEquals(HStoreConstants.NULL_PARTITION_ID, cursor.get(0).intValue());
+        assertEquals(iterator, cursor);
+        assertEquals(values, cursor);
+        
+        // Starting from the null partition skips it
+        if (cursor.size() > 1) {
+            assertEquals(cursor.get(1).intValue(), pset.nextPartition(HStoreConstants.NULL_PARTITION_ID));
+        }
+        
+        PartitionSet empty = new PartitionSet();
+        assertEquals(PartitionSet.END, empty.firstPartition());
+        empty.add(HStoreConstants.NULL_PARTITION_ID);
+        assertEquals(HStoreConstants.NULL_PARTITION_ID, empty.firstPartition());
+        assertEquals(PartitionSet.END, empty.nextPartition(empty.firstPartition()));
+    }
+    
+    /**
+     * testImmutable
+     */
+    public void testImmutable() {
+        this.initialize(rand.nextInt(NUM_PARTITIONS) + 1);
+        PartitionSet copy = new PartitionSet(pset);
+        assertSame(pset, pset.makeImmutable());
+        assertTrue(pset.isImmutable());
+        assertFalse(copy.isImmutable());
+        try {
+            pset.add(NUM_PARTITIONS);
+            fail("Modified an immutable PartitionSet");
+        } catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+        try {
+            pset.clear();
+            fail("Modified an immutable PartitionSet");
+        } catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+        try {
+            pset.retainAll(new PartitionSet());
+            fail("Modified an immutable PartitionSet");
+        } catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+        assertEquals(copy, pset);
+        assertEquals(set.size(), pset.values().length);
+        
+        // Copies of immutable sets can be modified
+        copy = new PartitionSet(pset);
+        copy.add(NUM_PARTITIONS);
+        assertEquals(pset.size() + 1, copy.size());
+    }
+    
+    /**
+     * testValuesInvalidate
+     */
+    public void testValuesInvalidate() {
+        pset.addAll(new PartitionSet(0, 1, 2));
+        assertEquals(3, pset.values().length);
+        pset.removeAll(new PartitionSet(1));
+        assertEquals(2, pset.values().length);
+        pset.retainAll(new PartitionSet(2));
+        assertEquals(1, pset.values().length);
+        pset.addAll(new PartitionSet(3, 4));
+        assertEquals(3, pset.values().length);
+    }
+    
+    /**
+     * testContainsAllPartitionSet
+     */
+    public void testContainsAllPartitionSet() {
+        this.initialize(rand.nextInt(NUM_PARTITIONS) + 1);
+        assertTrue(pset.containsAll(new PartitionSet()));
+        assertTrue(pset.containsAll(new PartitionSet(pset)));
+        
+        PartitionSet other = new PartitionSet(pset.get());
+        assertTrue(pset.containsAll(other));
+        other.add(HStoreConstants.NULL_PARTITION_ID);
+        assertFalse(pset.containsAll(other));
+        pset.add(HStoreConstants.NULL_PARTITION_ID);
+        assertTrue(pset.containsAll(other));
+        other.add(NUM_PARTITIONS);
+        assertFalse(pset.containsAll(other));
+    }
+    
+    /**
+     * testSerialization
+     */
+    public void testSerialization() throws Exception {
+        this.initialize(rand.nextInt(NUM_PARTITIONS) + 1);
+        pset.add(HStoreConstants.NULL_PARTITION_ID);
+        FastSerializer out = new FastSerializer();
+        pset.writeExternal(out);
+        
+        PartitionSet clone = new PartitionSet();
+        clone.readExternal(new FastDeserializer(out.getBytes()));
+        assertEquals(pset.size(), clone.size());
+        assertTrue(clone.containsNull());
+        assertEquals(pset, clone);
+    }
+    
     /**
      * testToString
      */
@@ -0,0 +1,315 @@
+package org.voltdb;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.voltdb.catalog.Table;
+import org.voltdb.jni.ExecutionEngine;
+import org.voltdb.jni.ExecutionEngineJNI;
+import org.voltdb.utils.DBBPool;
+import org.voltdb.utils.DBBPool.BBContainer;
+import org.voltdb.utils.VoltTableUtil;
+
+import edu.brown.BaseTestCase;
+import edu.brown.benchmark.tm1.TM1Constants;
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.utils.FileUtil;
+import edu.brown.utils.ProjectType;
+import edu.brown.utils.ThreadUtil;
+
+/**
+ * AriesCheckpointer Tests
+ */
+public class TestAriesCheckpointer extends BaseTestCase {
+
+    private static final int PARTITION_ID = 0;
+    private static final int NUM_TUPLES = 1000;
+    private static final int CHECKPOINT_TIMEOUT = 10000; // ms
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // Nothing to do
+        }
+    };
+
+    private File ariesDir;
+    private File logFile;
+    private AriesCheckpointer checkpointer;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TM1);
+        this.ariesDir = FileUtil.getTempDirectory("aries-checkpointer");
+        this.logFile = new File(this.ariesDir, "aries.log");
+        this.checkpointer = new AriesCheckpointer(PARTITION_ID, this.ariesDir, this.logFile, NOOP);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.checkpointer.shutdown();
+        FileUtil.deleteDirectory(this.ariesDir);
+        super.tearDown();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // UTILITY METHODS
+    // --------------------------------------------------------------------------------------------
+
+    private static byte[] fill(char c, int length) {
+        byte b[] = new byte[length];
+        Arrays.fill(b, (byte)c);
+        return (b);
+    }
+
+    private static byte[] concat(byte[]...parts) {
+        int length = 0;
+        for (byte part[] : parts) {
+            length += part.length;
+        } // FOR
+        byte b[] = new byte[length];
+        int offset = 0;
+        for (byte part[] : parts) {
+            System.arraycopy(part, 0, b, offset, part.length);
+            offset += part.length;
+        } // FOR
+        return (b);
+    }
+
+    private void appendLog(byte b[]) throws IOException {
+        FileOutputStream out = new FileOutputStream(this.logFile, true);
+        try {
+            out.write(b);
+        } finally {
+            out.close();
+        }
+    }
+
+    private byte[] readLog(long offset) throws IOException {
+        byte b[] = FileUtil.readBytesFromFile(this.logFile.getAbsolutePath());
+        return (Arrays.copyOfRange(b, (int)offset, b.length));
+    }
+
+    private ExecutionEngine createEngine(Table catalog_tbl) throws Exception {
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        ExecutionEngine ee = new ExecutionEngineJNI(null, 0, 0, PARTITION_ID, 0, "");
+        ee.loadCatalog(catalog.serialize());
+        this.loadTuples(ee, catalog_tbl, 0);
+        return (ee);
+    }
+
+    private void loadTuples(ExecutionEngine ee, Table catalog_tbl, int firstId) {
+        VoltTable vt = CatalogUtil.getVoltTable(catalog_tbl);
+        for (int i = firstId; i < firstId + NUM_TUPLES; i++) {
+            Object row[] = VoltTableUtil.getRandomRow(catalog_tbl);
+            row[0] = i;
+            vt.addRow(row);
+        } // FOR
+        ee.loadTable(catalog_tbl.getRelativeIndex(), vt, 0, 0, Long.MAX_VALUE, false);
+    }
+
+    private AriesCheckpointer.Checkpoint runCheckpoint(ExecutionEngine ee, long txnId) throws IOException {
+        assertTrue(this.checkpointer.start(ee, catalog_db, txnId));
+        long stop = System.currentTimeMillis() + CHECKPOINT_TIMEOUT;
+        while (this.checkpointer.isActive()) {
+            assertTrue(System.currentTimeMillis() < stop);
+            if (this.checkpointer.doWork(ee) == false) ThreadUtil.sleep(10);
+        } // WHILE
+        AriesCheckpointer.Checkpoint checkpoint = this.checkpointer.getLastCheckpoint();
+        assertNotNull(checkpoint);
+        assertEquals(txnId, checkpoint.txnId);
+        return (checkpoint);
+    }
+
+    private void drainTableStream(ExecutionEngine ee, int tableId, TableStreamType type) {
+        BBContainer origin = DBBPool.allocateDirect(SnapshotSiteProcessor.m_snapshotBufferLength);
+        BBContainer c = new BBContainer(origin.b, DBBPool.getBufferAddress(origin.b)) {
+            @Override
+            public void discard() {
+                // Nothing to do
+            }
+        };
+        try {
+            int serialized;
+            do {
+                c.b.clear();
+                serialized = ee.tableStreamSerializeMore(c, tableId, type);
+                assertTrue(serialized >= 0);
+            } while (serialized > 0);
+        } finally {
+            origin.discard();
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // TEST CASES
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * testCompactLog
+     */
+    @Test
+    public void testCompactLog() throws Exception {
+        byte prefix[] = fill('A', 1000);
+        byte tail[] = fill('B', 100);
+        byte appended[] = fill('C', 10);
+        this.appendLog(concat(prefix, tail));
+
+        AriesCheckpointer.Checkpoint checkpoint = new AriesCheckpointer.Checkpoint(1, prefix.length, "checkpoint-1");
+        this.checkpointer.writeMetadata(checkpoint);
+        this.checkpointer.prepareCompaction(checkpoint);
+
+        // The EE keeps appending to the log while the tail is being copied
+        this.appendLog(appended);
+        this.checkpointer.compactLog(checkpoint);
+
+        // Everything from before the checkpoint is gone and the replay starts at the front
+        assertTrue(Arrays.equals(concat(tail, appended), this.readLog(0)));
+        AriesCheckpointer.Checkpoint last = this.checkpointer.getLastCheckpoint();
+        assertNotNull(last);
+        assertEquals(checkpoint.txnId, last.txnId);
+        assertEquals(0, last.logOffset);
+        assertEquals(-1, last.logSize);
+        assertEquals(checkpoint.dirName, last.dirName);
+    }
+
+    /**
+     * testReplayFromLogOffset
+     */
+    @Test
+    public void testReplayFromLogOffset() throws Exception {
+        // The tail is too big to copy to the front of the log, so the log is
+        // left alone and the replay has to start from the checkpoint's offset
+        byte prefix[] = fill('A', 100);
+        byte tail[] = fill('B', 1000);
+        this.appendLog(concat(prefix, tail));
+
+        AriesCheckpointer.Checkpoint checkpoint = new AriesCheckpointer.Checkpoint(1, prefix.length, "checkpoint-1");
+        this.checkpointer.writeMetadata(checkpoint);
+        this.checkpointer.prepareCompaction(checkpoint);
+        this.checkpointer.compactLog(checkpoint);
+
+        AriesCheckpointer.Checkpoint last = this.checkpointer.getLastCheckpoint();
+        assertNotNull(last);
+        assertEquals(prefix.length, last.logOffset);
+        assertEquals(prefix.length + tail.length, this.logFile.length());
+        assertTrue(Arrays.equals(tail, this.readLog(last.logOffset)));
+    }
+
+    /**
+     * testCompactLogTooMuchAppended
+     */
+    @Test
+    public void testCompactLogTooMuchAppended() throws Exception {
+        // Enough was appended after the tail was copied that the compacted log would
+        // run past the checkpoint's offset, so the records after it must stay put
+        byte prefix[] = fill('A', 100);
+        byte tail[] = fill('B', 50);
+        byte appended[] = fill('C', 60);
+        this.appendLog(concat(prefix, tail));
+
+        AriesCheckpointer.Checkpoint checkpoint = new AriesCheckpointer.Checkpoint(1, prefix.length, "checkpoint-1");
+        this.checkpointer.writeMetadata(checkpoint);
+        this.checkpointer.prepareCompaction(checkpoint);
+        this.appendLog(appended);
+        this.checkpointer.compactLog(checkpoint);
+
+        AriesCheckpointer.Checkpoint last = this.checkpointer.getLastCheckpoint();
+        assertEquals(prefix.length, last.logOffset);
+        assertTrue(Arrays.equals(concat(tail, appended), this.readLog(last.logOffset)));
+    }
+
+    /**
+     * testRepairLog
+     */
+    @Test
+    public void testRepairLog() throws Exception {
+        // Pretend that we crashed after the log was copied to the front
+        // but before it was cut down to its new size
+        byte tail[] = fill('B', 100);
+        this.appendLog(concat(tail, fill('A', 900), tail));
+        this.checkpointer.writeMetadata(new AriesCheckpointer.Checkpoint(1, 0, tail.length, "checkpoint-1"));
+
+        AriesCheckpointer.Checkpoint checkpoint = this.checkpointer.repairLog(this.checkpointer.getLastCheckpoint());
+        assertNotNull(checkpoint);
+        assertEquals(0, checkpoint.logOffset);
+        assertEquals(-1, checkpoint.logSize);
+        assertTrue(Arrays.equals(tail, this.readLog(0)));
+
+        // The EE can append to the log again, so the next recovery must leave it alone
+        AriesCheckpointer.Checkpoint last = this.checkpointer.getLastCheckpoint();
+        assertEquals(-1, last.logSize);
+        this.appendLog(fill('C', 10));
+        assertSame(last, this.checkpointer.repairLog(last));
+        assertEquals(tail.length + 10, this.logFile.length());
+    }
+
+    /**
+     * testCheckpointAndRecover
+     */
+    @Test
+    public void testCheckpointAndRecover() throws Exception {
+        Table catalog_tbl = this.getTable(TM1Constants.TABLENAME_SUBSCRIBER);
+        ExecutionEngine ee = this.createEngine(catalog_tbl);
+        AriesCheckpointer.Checkpoint checkpoint = this.runCheckpoint(ee, 1000l);
+
+        ExecutionEngine recoveryEE = new ExecutionEngineJNI(null, 0, 0, PARTITION_ID, 0, "");
+        recoveryEE.loadCatalog(catalog.serialize());
+        AriesCheckpointer recovery = new AriesCheckpointer(PARTITION_ID, this.ariesDir, this.logFile, NOOP);
+        AriesCheckpointer.Checkpoint recovered = recovery.recover(recoveryEE, catalog_db);
+        assertNotNull(recovered);
+        assertEquals(checkpoint.txnId, recovered.txnId);
+        assertEquals(checkpoint.logOffset, recovered.logOffset);
+        assertEquals(NUM_TUPLES, recoveryEE.serializeTable(catalog_tbl.getRelativeIndex()).getRowCount());
+
+        ee.release();
+        recoveryEE.release();
+    }
+
+    /**
+     * testCheckpointAndIncrementalSnapshot
+     */
+    @Test
+    public void testCheckpointAndIncrementalSnapshot() throws Exception {
+        Table catalog_tbl = this.getTable(TM1Constants.TABLENAME_SUBSCRIBER);
+        int tableId = catalog_tbl.getRelativeIndex();
+        ExecutionEngine ee = this.createEngine(catalog_tbl);
+
+        // Once a snapshot has written out the table, the next incremental snapshot can skip it
+        assertTrue(ee.activateTableStream(tableId, TableStreamType.SNAPSHOT));
+        this.drainTableStream(ee, tableId, TableStreamType.SNAPSHOT);
+        assertFalse(ee.isTableModifiedSinceSnapshot(tableId));
+
+        // A checkpoint is not part of the snapshot chain, so the changes made
+        // before it still have to go into the next incremental snapshot
+        this.loadTuples(ee, catalog_tbl, NUM_TUPLES);
+        assertTrue(ee.isTableModifiedSinceSnapshot(tableId));
+        this.runCheckpoint(ee, 1000l);
+        assertTrue(ee.isTableModifiedSinceSnapshot(tableId));
+
+        // A snapshot can't stream the table while a checkpoint is using it, so the
+        // checkpoint has to be cancelled first
+        assertTrue(this.checkpointer.start(ee, catalog_db, 1001l));
+        assertFalse(ee.activateTableStream(tableId, TableStreamType.SNAPSHOT));
+        this.checkpointer.cancel(ee);
+        assertFalse(this.checkpointer.isActive());
+        assertEquals(1000l, this.checkpointer.getLastCheckpoint().txnId);
+
+        // And a checkpoint can't start while the snapshot is running
+        assertTrue(ee.activateTableStream(tableId, TableStreamType.SNAPSHOT));
+        assertFalse(this.checkpointer.start(ee, catalog_db, 1002l));
+        assertFalse(this.checkpointer.isActive());
+        this.drainTableStream(ee, tableId, TableStreamType.SNAPSHOT);
+        assertFalse(ee.isTableModifiedSinceSnapshot(tableId));
+
+        // Everything goes back to normal once the snapshot is finished
+        this.runCheckpoint(ee, 1003l);
+        assertFalse(ee.isTableModifiedSinceSnapshot(tableId));
+
+        ee.release();
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.voltdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import edu.brown.utils.FileUtil;
+
+public class TestAriesLogNative extends TestCase {
+
+    private static final int NUM_THREADS = 4;
+    private static final int NUM_RECORDS = 250;
+
+    private File logFile;
+    private AriesLogNative log;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.logFile = FileUtil.getTempFile("log");
+        this.log = new AriesLogNative(1, 1, 0, 5, this.logFile.getAbsolutePath());
+        this.log.setRecoveryCompleted(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.log.m_keepLogging = false;
+        this.logFile.delete();
+        super.tearDown();
+    }
+
+    /**
+     * testConcurrentLog
+     */
+    @Test
+    public void testConcurrentLog() throws Exception {
+        final Map<Long, byte[]> records = new ConcurrentHashMap<Long, byte[]>();
+        final CountDownLatch durable = new CountDownLatch(NUM_THREADS * NUM_RECORDS);
+        final Runnable callback = new Runnable() {
+            @Override
+            public void run() {
+                durable.countDown();
+            }
+        };
+
+        Thread threads[] = new Thread[NUM_THREADS];
+        for (int t = 0; t < NUM_THREADS; t++) {
+            final int threadId = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < NUM_RECORDS; i++) {
+                        byte b[] = String.format("%d:%d;", threadId, i).getBytes();
+                        long lsn = log.log(b, callback);
+                        records.put(lsn, b);
+                    } // FOR
+                }
+            };
+            threads[t].start();
+        } // FOR
+        for (Thread t : threads) {
+            t.join();
+        } // FOR
+
+        assertTrue(durable.await(10, TimeUnit.SECONDS));
+        assertEquals(NUM_THREADS * NUM_RECORDS, records.size());
+        assertEquals(NUM_THREADS * NUM_RECORDS, this.log.getDurableLSN());
+
+        // The records should have been written out in LSN order
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (long lsn = 1; lsn <= records.size(); lsn++) {
+            byte b[] = records.get(lsn);
+            assertNotNull("Missing LSN " + lsn, b);
+            expected.write(b);
+        } // FOR
+        byte contents[] = FileUtil.readBytesFromFile(this.logFile.getAbsolutePath());
+        assertTrue(contents.length >= expected.size());
+        assertTrue(Arrays.equals(expected.toByteArray(), Arrays.copyOf(contents, expected.size())));
+
+        // Anything after the records must be zeroes so that recovery knows where the log ends
+        for (int i = expected.size(); i < contents.length; i++) {
+            assertEquals(0, contents[i]);
+        } // FOR
+    }
+}
@@ -23,7 +23,10 @@
 
 package org.voltdb;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import junit.framework.TestCase;
 
@@ -85,12 +88,10 @@ public class TestTransactionIdManager extends TestCase {
 
     public void testLastTxnId() {
         for (int i = 0; i < 1000; i++) {
-            Long id = tim.getNextUniqueTransactionId();
-            assertNotNull(id);
+            long id = tim.getNextUniqueTransactionId();
             assertEquals(id, tim.getLastTxnId());
 
-            Long id2 = tim.getNextUniqueTransactionId();
-            assertNotNull(id2);
+            long id2 = tim.getNextUniqueTransactionId();
             assertEquals(id2, tim.getLastTxnId());
 
             assertTrue(id2 > id);
@@ -133,4 +134,50 @@ public class TestTransactionIdManager extends TestCase {
         System.out.printf("%d > %d\n", txnId1, txnId2);
     }
 
+    /** the ids must keep going up even if the clock is moved backwards */
+    public void testClockMovedBackwards() {
+        final long stepid = tim.getNextUniqueTransactionId();
+        final long stepts = TransactionIdManager.getTimestampFromTransactionId(stepid);
+        tim.setTimeDelta(-60000);
+
+        // Generate enough ids to wrap the counter bits a few times
+        long lastid = stepid;
+        long iters = TransactionIdManager.COUNTER_MAX_VALUE * 3;
+        for (int i = 0; i < iters; i++) {
+            long id = tim.getNextUniqueTransactionId();
+            assertTrue(id > stepid);
+            assertTrue(id > lastid);
+            assertTrue(TransactionIdManager.getTimestampFromTransactionId(id) >= stepts);
+            assertEquals(VoltDB.INITIATOR_SITE_ID, TransactionIdManager.getInitiatorIdFromTransactionId(id));
+            lastid = id;
+        }
+        assertTrue(tim.getLastUsedTime() >= stepts);
+    }
+
+    public void testConcurrentUniqueIds() throws Exception {
+        final int numThreads = 4;
+        final int numIds = 50000;
+        final Set<Long> generatedIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        Thread threads[] = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    long lastid = 0;
+                    for (int i = 0; i < numIds; i++) {
+                        long id = tim.getNextUniqueTransactionId();
+                        assertTrue(id > lastid);
+                        generatedIds.add(id);
+                        lastid = id;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(numThreads * numIds, generatedIds.size());
+    }
+
 }
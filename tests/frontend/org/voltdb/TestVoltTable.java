@@ -29,7 +29,9 @@ import java.util.Arrays;
 import junit.framework.TestCase;
 
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializableTestUtil;
+import org.voltdb.messaging.FastSerializer;
 import org.voltdb.types.TimestampType;
 import org.voltdb.types.VoltDecimalHelper;
 
@@ -641,4 +643,192 @@ public class TestVoltTable extends TestCase {
         }
         assertEquals(rowcounter, content.length);
     }
+
+    public void testRowAppender() {
+        VoltTable expected = new VoltTable(
+                new ColumnInfo("tinyint", VoltType.TINYINT),
+                new ColumnInfo("string", VoltType.STRING),
+                new ColumnInfo("integer", VoltType.INTEGER),
+                new ColumnInfo("bigint", VoltType.BIGINT),
+                new ColumnInfo("float", VoltType.FLOAT),
+                new ColumnInfo("timestamp", VoltType.TIMESTAMP),
+                new ColumnInfo("decimal", VoltType.DECIMAL),
+                new ColumnInfo("boolean", VoltType.BOOLEAN)
+        );
+        VoltTable actual = expected.clone(0);
+        BigDecimal decimal = new BigDecimal(7654321).setScale(VoltDecimalHelper.kDefaultScale);
+
+        // Enough rows to force the buffer to grow
+        VoltTable.RowAppender appender = actual.getRowAppender();
+        assertSame(appender, actual.getRowAppender());
+        for (int i = 0; i < 1000; i++) {
+            expected.addRow((byte)(i % 100), "row" + i, i, (long)i * 1000, i / 2.0d,
+                            new TimestampType(i), decimal, (i % 2 == 0));
+            appender.startRow()
+                    .appendLong(i % 100)
+                    .appendString("row" + i)
+                    .appendLong(i)
+                    .appendLong((long)i * 1000)
+                    .appendDouble(i / 2.0d)
+                    .appendTimestamp(new TimestampType(i))
+                    .appendDecimal(decimal)
+                    .appendBoolean(i % 2 == 0)
+                    .endRow();
+        }
+        expected.addRow(null, null, null, null, null, null, null, null);
+        appender.startRow();
+        for (int i = 0; i < actual.getColumnCount(); i++) {
+            appender.appendNull();
+        }
+        appender.endRow();
+
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        assertTrue(expected.hasSameContents(actual));
+        assertEquals(expected, FastSerializableTestUtil.roundTrip(actual));
+    }
+
+    public void testRowAppenderDecimal() {
+        t = new VoltTable(new ColumnInfo("decimal", VoltType.DECIMAL));
+        VoltTable.RowAppender appender = t.getRowAppender();
+        appender.startRow().appendValue(42).endRow();
+        appender.startRow().appendValue(-7l).endRow();
+        appender.startRow().appendValue(Short.valueOf((short)12345)).endRow();
+        appender.startRow().appendValue(2.5d).endRow();
+        appender.startRow().appendValue(1e20).endRow();
+        appender.startRow().appendValue(new BigDecimal("3.14")).endRow();
+        appender.startRow().appendValue(VoltType.NULL_DECIMAL).endRow();
+
+        String expected[] = { "42", "-7", "12345", "2.5", "100000000000000000000", "3.14" };
+        assertEquals(expected.length + 1, t.getRowCount());
+        for (int i = 0; i < expected.length; i++) {
+            BigDecimal actual = t.fetchRow(i).getDecimalAsBigDecimal(0);
+            assertEquals(0, new BigDecimal(expected[i]).compareTo(actual));
+        }
+        VoltTableRow row = t.fetchRow(expected.length);
+        row.getDecimalAsBigDecimal(0);
+        assertTrue(row.wasNull());
+    }
+
+    public void testRowAppenderExceptionSafe() {
+        t = new VoltTable(
+                new ColumnInfo("foo", VoltType.BIGINT),
+                new ColumnInfo("bar", VoltType.STRING),
+                new ColumnInfo("baz", VoltType.TINYINT)
+        );
+        VoltTable.RowAppender appender = t.getRowAppender();
+        appender.startRow().appendLong(0).appendString("a").appendLong(1).endRow();
+
+        // Wrong type
+        try {
+            appender.startRow().appendLong(42).appendString("").appendString("bad");
+            fail("expected exception");
+        } catch (VoltTypeException e) {}
+        // Overflow
+        try {
+            appender.startRow().appendLong(42).appendString("").appendLong(1000);
+            fail("expected exception");
+        } catch (VoltTypeException e) {}
+        // Missing column
+        try {
+            appender.startRow().appendLong(42).appendString("").endRow();
+            fail("expected exception");
+        } catch (IllegalStateException e) {}
+        // Aborted
+        appender.startRow().appendLong(42);
+        appender.abortRow();
+
+        appender.startRow().appendLong(2).appendString("b").appendLong(3).endRow();
+
+        // the contents of the table should not be corrupted
+        assertEquals(2, t.getRowCount());
+        assertEquals(0L, t.fetchRow(0).getLong(0));
+        assertEquals("a", t.fetchRow(0).getString(1));
+        assertEquals(1L, t.fetchRow(0).getLong(2));
+        assertEquals(2L, t.fetchRow(1).getLong(0));
+        assertEquals("b", t.fetchRow(1).getString(1));
+        assertEquals(3L, t.fetchRow(1).getLong(2));
+    }
+
+    public void testAddRowsFromColumns() {
+        t = new VoltTable(
+                new ColumnInfo("foo", VoltType.BIGINT),
+                new ColumnInfo("bar", VoltType.STRING),
+                new ColumnInfo("baz", VoltType.SMALLINT),
+                new ColumnInfo("qux", VoltType.FLOAT)
+        );
+        t2 = t.clone(0);
+        int num_rows = 500;
+        long foo[] = new long[num_rows];
+        String bar[] = new String[num_rows];
+        short baz[] = new short[num_rows];
+        Object qux[] = new Object[num_rows];
+        for (int i = 0; i < num_rows; i++) {
+            foo[i] = i;
+            bar[i] = (i % 10 == 0 ? null : "bar" + i);
+            baz[i] = (short)(i * 2);
+            qux[i] = (i % 7 == 0 ? null : Double.valueOf(i * 1.5));
+            t2.addRow(foo[i], bar[i], baz[i], qux[i]);
+        }
+        t.addRowsFromColumns(num_rows, foo, bar, baz, qux);
+        assertEquals(num_rows, t.getRowCount());
+        assertTrue(t.hasSameContents(t2));
+
+        // Mismatched types don't leave a partial row behind
+        try {
+            t.addRowsFromColumns(1, new String[]{ "x" }, bar, baz, qux);
+            fail("expected exception");
+        } catch (VoltTypeException e) {}
+        assertEquals(num_rows, t.getRowCount());
+        assertTrue(t.hasSameContents(t2));
+    }
+
+    public void testAddSameSchema() {
+        t = new VoltTable(
+                new ColumnInfo("foo", VoltType.BIGINT),
+                new ColumnInfo("bar", VoltType.STRING)
+        );
+        for (int i = 0; i < 100; i++) {
+            t.addRow(i, (i % 3 == 0 ? null : "bar" + i));
+        }
+        // The rows are copied without deserializing them
+        t2 = t.clone(0);
+        VoltTable deserialized = FastSerializableTestUtil.roundTrip(t);
+        while (deserialized.advanceRow()) {
+            t2.add(deserialized);
+        }
+        assertTrue(t.hasSameContents(t2));
+
+        // A different schema goes through addRow()
+        VoltTable t3 = new VoltTable(
+                new ColumnInfo("foo", VoltType.INTEGER),
+                new ColumnInfo("bar", VoltType.STRING)
+        );
+        t.resetRowPosition();
+        while (t.advanceRow()) {
+            t3.add(t);
+        }
+        assertEquals(t.getRowCount(), t3.getRowCount());
+        t.resetRowPosition();
+        t3.resetRowPosition();
+        while (t.advanceRow() && t3.advanceRow()) {
+            assertEquals(t.getLong(0), t3.getLong(0));
+            assertEquals(t.getString(1), t3.getString(1));
+        }
+    }
+
+    public void testReadExternalResetsSchema() throws Exception {
+        t = new VoltTable(new ColumnInfo("foo", VoltType.BIGINT));
+        t.addRow(1L);
+        assertTrue(t.advanceRow());
+        assertEquals(1L, t.getLong(0));
+
+        VoltTable other = new VoltTable(new ColumnInfo("a", VoltType.STRING), new ColumnInfo("b", VoltType.FLOAT));
+        other.addRow("x", 2.5d);
+        t.readExternal(new FastDeserializer(FastSerializer.serialize(other)));
+        assertEquals(VoltType.STRING, t.getColumnType(0));
+        assertEquals(VoltType.FLOAT, t.getColumnType(1));
+        assertTrue(t.advanceRow());
+        assertEquals("x", t.getString(0));
+        assertEquals(2.5d, t.getDouble(1));
+    }
 }
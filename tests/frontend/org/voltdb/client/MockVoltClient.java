@@ -313,6 +313,11 @@ public class MockVoltClient implements Client {
         // TODO Auto-generated method stub
     }
     
+    @Override
+    public void setNextInvocationTime(long timestamp) {
+        // Nothing to do...
+    }
+
     @Override
     public ProfileMeasurement getQueueTime() {
         return null;
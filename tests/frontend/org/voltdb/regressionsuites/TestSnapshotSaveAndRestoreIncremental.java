@@ -0,0 +1,171 @@
+package org.voltdb.regressionsuites;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.List;
+
+import junit.framework.Test;
+
+import org.voltdb.BackendTarget;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.client.Client;
+import org.voltdb.sysprocs.saverestore.SaveRestoreTestProjectBuilder;
+import org.voltdb.sysprocs.saverestore.SnapshotUtil;
+
+/**
+ * Test that an incremental snapshot only writes out the tables that were
+ * changed since its base and that restoring it pulls the rest from the base
+ */
+public class TestSnapshotSaveAndRestoreIncremental extends RegressionSuite {
+
+    private static final String PREFIX = "snapshotincr";
+    private static final String TMPDIR = "./snapshot";
+    private static final String BASE_NONCE = "testincrbase";
+    private static final String INCR_NONCE = "testincrdelta";
+    private static final int ALLOWEXPORT = 0;
+    private static final int NUM_PARTITIONS = 2;
+
+    private static final String PARTITIONED_TABLE = "PARTITION_TESTER";
+    private static final String REPLICATED_TABLE = "REPLICATED_TESTER";
+
+    public TestSnapshotSaveAndRestoreIncremental(String name) {
+        super(name);
+    }
+
+    @Override
+    public void setUp() {
+        deleteTestFiles();
+        super.setUp();
+        DefaultSnapshotDataTarget.m_simulateFullDiskWritingChunk = false;
+        DefaultSnapshotDataTarget.m_simulateFullDiskWritingHeader = false;
+        org.voltdb.sysprocs.SnapshotRegistry.clear();
+    }
+
+    @Override
+    public void tearDown() {
+        try {
+            deleteTestFiles();
+            super.tearDown();
+        } catch (final Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void deleteTestFiles() {
+        File tmp_dir = new File(TMPDIR);
+        if (tmp_dir.exists() == false) {
+            tmp_dir.mkdir();
+            return;
+        }
+        for (File tmp_file : listSnapshotFiles(BASE_NONCE, null)) {
+            tmp_file.delete();
+        }
+        for (File tmp_file : listSnapshotFiles(INCR_NONCE, null)) {
+            tmp_file.delete();
+        }
+    }
+
+    private static File[] listSnapshotFiles(final String nonce, final String tableName) {
+        return new File(TMPDIR).listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String file) {
+                return file.startsWith(nonce) &&
+                       (tableName == null || (file.contains("-" + tableName + "-") ||
+                                              file.endsWith("-" + tableName + ".vpt")));
+            }
+        });
+    }
+
+    private void loadTable(Client client, String tableName, int numItems, int indexBase) throws Exception {
+        VoltTable vt = new VoltTable(new ColumnInfo("ID", VoltType.INTEGER),
+                                     new ColumnInfo("NAME", VoltType.STRING),
+                                     new ColumnInfo("INTVAL", VoltType.INTEGER),
+                                     new ColumnInfo("FLOATVAL", VoltType.FLOAT));
+        for (int i = indexBase; i < numItems + indexBase; i++) {
+            vt.addRow(i, "name_" + i, i, new Double(i));
+        }
+        client.callProcedure("@LoadMultipartitionTable", tableName, vt);
+    }
+
+    private void saveTables(Client client, String nonce) throws Exception {
+        VoltTable results[] = client.callProcedure("@SnapshotSave", TMPDIR, nonce, (byte) 1).getResults();
+        while (results[0].advanceRow()) {
+            assertEquals(results[0].getString("ERR_MSG"), "SUCCESS", results[0].getString("RESULT"));
+        }
+    }
+
+    private void checkTable(Client client, String tableName, int expectedRows) throws Exception {
+        VoltTable result = client.callProcedure("SaveRestoreSelect", tableName).getResults()[0];
+        assertEquals(tableName, expectedRows, result.getRowCount());
+        int i = 0;
+        while (result.advanceRow()) {
+            assertEquals(i, result.getLong(0));
+            assertEquals("name_" + i, result.getString(1));
+            ++i;
+        }
+    }
+
+    /**
+     * testIncrementalSaveAndRestore
+     */
+    public void testIncrementalSaveAndRestore() throws Exception {
+        int num_replicated_items = 10;
+        int num_partitioned_items = 20;
+        Client client = this.getClient();
+
+        this.loadTable(client, REPLICATED_TABLE, num_replicated_items, 0);
+        this.loadTable(client, PARTITIONED_TABLE, num_partitioned_items, 0);
+
+        // The first snapshot always has to be a full snapshot
+        this.saveTables(client, BASE_NONCE);
+        assertNull(SnapshotUtil.retrieveSnapshotBase(TMPDIR, BASE_NONCE));
+        assertTrue(listSnapshotFiles(BASE_NONCE, REPLICATED_TABLE).length > 0);
+        assertTrue(listSnapshotFiles(BASE_NONCE, PARTITIONED_TABLE).length > 0);
+
+        // Only change the partitioned table
+        this.loadTable(client, PARTITIONED_TABLE, num_partitioned_items, num_partitioned_items);
+        this.saveTables(client, INCR_NONCE);
+        assertEquals(BASE_NONCE, SnapshotUtil.retrieveSnapshotBase(TMPDIR, INCR_NONCE));
+        List<String> chain = SnapshotUtil.retrieveSnapshotChain(TMPDIR, INCR_NONCE);
+        assertEquals(2, chain.size());
+        assertEquals(INCR_NONCE, chain.get(0));
+        assertEquals(BASE_NONCE, chain.get(1));
+        assertEquals(0, listSnapshotFiles(INCR_NONCE, REPLICATED_TABLE).length);
+        assertTrue(listSnapshotFiles(INCR_NONCE, PARTITIONED_TABLE).length > 0);
+
+        // Kill and restart all the execution sites.
+        m_config.shutDown();
+        m_config.startUp();
+        client = this.getClient();
+
+        VoltTable results[] = client.callProcedure("@SnapshotRestore", TMPDIR, INCR_NONCE, ALLOWEXPORT).getResults();
+        while (results[0].advanceRow()) {
+            if (results[0].getString("RESULT").equals("FAILURE")) {
+                fail(results[0].getString("ERR_MSG"));
+            }
+        }
+
+        // The replicated table comes from the base snapshot while the
+        // partitioned table has the rows that were added after it
+        this.checkTable(client, REPLICATED_TABLE, num_replicated_items);
+        this.checkTable(client, PARTITIONED_TABLE, num_partitioned_items * 2);
+    }
+
+    public static Test suite() {
+        MultiConfigSuiteBuilder builder = new MultiConfigSuiteBuilder(TestSnapshotSaveAndRestoreIncremental.class);
+        SaveRestoreTestProjectBuilder project = new SaveRestoreTestProjectBuilder("snapshot-VoltDB-project");
+        project.addAllDefaults();
+        deleteTestFiles();
+
+        VoltServerConfig config = new LocalSingleProcessServer(PREFIX + "-" + NUM_PARTITIONS + "-partition.jar",
+                                                               NUM_PARTITIONS, BackendTarget.NATIVE_EE_JNI);
+        config.setConfParameter("site.snapshot_incremental", true);
+        boolean success = config.compile(project);
+        assert(success);
+        builder.addServerConfig(config);
+
+        return builder;
+    }
+}
@@ -1,6 +1,8 @@
 package org.voltdb.regressionsuites;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import junit.framework.Test;
@@ -20,6 +22,7 @@ import org.voltdb.client.ClientResponse;
 import org.voltdb.utils.VoltTableUtil;
 
 import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.profilers.TransactionTracer.Phase;
 import edu.brown.utils.StringUtil;
 
 /**
@@ -207,6 +210,64 @@ public class TestStatsSuite extends RegressionSuite {
         System.out.println(StringUtil.formatMaps(profilerStats));
     }
 
+    /**
+     * testTransactionTraceStats
+     */
+    public void testTransactionTraceStats() throws Exception {
+        CatalogContext catalogContext = this.getCatalogContext();
+        Client client = this.getClient();
+        RegressionSuiteUtil.initializeTPCCDatabase(catalogContext, client);
+        
+        int expected = 20;
+        for (int i = 0; i < expected; i++) {
+            ClientResponse cresponse = client.callProcedure("GetItemIndex", 1);
+            assertNotNull(cresponse);
+            assertEquals(Status.OK, cresponse.getStatus());
+        } // FOR
+        
+        ClientResponse cresponse = RegressionSuiteUtil.getStats(client, SysProcSelector.TXNTRACE);
+        assertNotNull(cresponse);
+        assertEquals(Status.OK, cresponse.getStatus());
+        VoltTable results[] = cresponse.getResults();
+        assertEquals(1, results.length);
+        // System.out.println(VoltTableUtil.format(results[0]));
+        
+        // Every site reports one row per phase
+        assertEquals(catalogContext.numberOfSites * Phase.values().length, results[0].getRowCount());
+        long execCount = 0;
+        while (results[0].advanceRow()) {
+            Phase phase = Phase.valueOf(results[0].getString("PHASE"));
+            if (phase == Phase.EXEC) execCount += results[0].getLong("COUNT");
+        } // WHILE
+        assertTrue(Long.toString(execCount), execCount >= expected);
+    }
+    
+    /**
+     * testQueryCacheStats
+     */
+    public void testQueryCacheStats() throws Exception {
+        CatalogContext catalogContext = this.getCatalogContext();
+        Client client = this.getClient();
+        
+        ClientResponse cresponse = RegressionSuiteUtil.getStats(client, SysProcSelector.QUERYCACHE);
+        assertNotNull(cresponse);
+        assertEquals(Status.OK, cresponse.getStatus());
+        VoltTable results[] = cresponse.getResults();
+        assertEquals(1, results.length);
+        // System.out.println(VoltTableUtil.format(results[0]));
+        
+        // Every partition reports one row
+        assertEquals(catalogContext.numberOfPartitions, results[0].getRowCount());
+        Set<Integer> partitions = new HashSet<Integer>();
+        while (results[0].advanceRow()) {
+            int partition = (int)results[0].getLong("PARTITION");
+            assertTrue(Integer.toString(partition), partitions.add(partition));
+            assertTrue(results[0].getLong("HITS") >= 0);
+            assertTrue(results[0].getLong("MISSES") >= 0);
+        } // WHILE
+        assertEquals(catalogContext.getAllPartitionIds().size(), partitions.size());
+    }
+
     /**
      * testIndexStats
      */
@@ -28,15 +28,22 @@ import java.io.IOException;
 import junit.framework.Test;
 
 import org.voltdb.BackendTarget;
+import org.voltdb.CatalogContext;
 import org.voltdb.SysProcSelector;
+import org.voltdb.VoltSystemProcedure;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
+import org.voltdb.catalog.Table;
 import org.voltdb.client.Client;
+import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.sysprocs.LoadPartitionTable;
 import org.voltdb.utils.VoltTableUtil;
 
+import edu.brown.catalog.CatalogUtil;
 import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.utils.PartitionEstimator;
 
 public class TestSystemProcedureSuite extends RegressionSuite {
 
@@ -261,6 +268,54 @@ public class TestSystemProcedureSuite extends RegressionSuite {
     }
 
 
+    public void testLoadPartitionTable() throws Exception {
+        Client client = getClient();
+        CatalogContext catalogContext = this.getCatalogContext();
+        Table catalog_tbl = catalogContext.getTableByName("NEW_ORDER");
+        PartitionEstimator p_estimator = new PartitionEstimator(catalogContext);
+
+        // Split the tuples up by partition on the client side
+        VoltTable tables[] = new VoltTable[catalogContext.numberOfPartitions];
+        int num_tuples = 0;
+        for (int w_id = 1; w_id <= 8; w_id++) {
+            for (int o_id = 1; o_id <= 10; o_id++) {
+                VoltTable vt = CatalogUtil.getVoltTable(catalog_tbl);
+                vt.addRow(o_id, 1, w_id);
+                vt.advanceRow();
+                int p = p_estimator.getTableRowPartition(catalog_tbl, vt);
+                if (tables[p] == null) tables[p] = CatalogUtil.getVoltTable(catalog_tbl);
+                tables[p].add(vt);
+                num_tuples++;
+            } // FOR
+        } // FOR
+
+        String procName = VoltSystemProcedure.procCallName(LoadPartitionTable.class);
+        for (int p = 0; p < tables.length; p++) {
+            if (tables[p] == null) continue;
+            ClientResponse cr = client.callProcedure(procName, p, catalog_tbl.getName(), tables[p]);
+            assertEquals(Status.OK, cr.getStatus());
+        } // FOR
+
+        long found = 0;
+        VoltTable results[] = client.callProcedure("@Statistics", SysProcSelector.TABLE.name(), 0).getResults();
+        while (results[0].advanceRow()) {
+            if (results[0].getString("TABLE_NAME").equalsIgnoreCase(catalog_tbl.getName())) {
+                found += results[0].getLong("TUPLE_COUNT");
+            }
+        } // WHILE
+        assertEquals(num_tuples, found);
+
+        // Replicated tables have to be loaded with @LoadMultipartitionTable
+        VoltTable item = CatalogUtil.getVoltTable(catalogContext.getTableByName("ITEM"));
+        item.addRow(1, 1, "name", 1.0d, "data");
+        try {
+            client.callProcedure(procName, 0, "ITEM", item);
+            fail();
+        } catch (ProcCallException ex) {
+            // Expected
+        }
+    }
+
     /**
      * Build a list of the tests to be run. Use the regression suite
      * helpers to allow multiple backends.
@@ -0,0 +1,32 @@
+package org.voltdb.regressionsuites.specexecprocs;
+
+import org.voltdb.ProcInfo;
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+import edu.brown.benchmark.tm1.TM1Constants;
+
+/**
+ * Read-only single-partition transaction that is allowed to
+ * skip its partition's lock queue and read stale data
+ */
+@ProcInfo(
+    partitionParam = 0,
+    singlePartition = true,
+    allowStaleReads = true
+)
+public class StaleReadSubscriber extends VoltProcedure {
+    
+    public final SQLStmt getSubscriber = new SQLStmt(
+        "SELECT S_ID, MSC_LOCATION " +
+        "  FROM " + TM1Constants.TABLENAME_SUBSCRIBER +
+        " WHERE S_ID = ? "
+    );
+    
+    public VoltTable[] run(long s_id) {
+        voltQueueSQL(getSubscriber, s_id);
+        return (voltExecuteSQL(true));
+    }
+
+}
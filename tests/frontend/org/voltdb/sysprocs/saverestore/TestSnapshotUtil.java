@@ -0,0 +1,142 @@
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import edu.brown.utils.FileUtil;
+
+public class TestSnapshotUtil extends TestCase {
+
+    private static final String FULL_NONCE = "full";
+    private static final String INCR0_NONCE = "incr0";
+    private static final String INCR1_NONCE = "incr1";
+    private static final String FILE_SUFFIX = "-TABLE-host_0-site_0-partition_0.vpt";
+
+    private File dir;
+    private String path;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.dir = FileUtil.getTempDirectory("snapshot-util");
+        this.path = this.dir.getAbsolutePath();
+        for (File f : this.dir.listFiles()) {
+            f.delete();
+        } // FOR
+
+        // full <- incr0 <- incr1
+        SnapshotUtil.recordSnapshotBase(this.path, INCR0_NONCE, FULL_NONCE);
+        SnapshotUtil.recordSnapshotBase(this.path, INCR1_NONCE, INCR0_NONCE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtil.deleteDirectory(this.dir);
+        super.tearDown();
+    }
+
+    private File createTableFile(String nonce) throws IOException {
+        File f = new File(this.dir, nonce + FILE_SUFFIX);
+        FileOutputStream fos = new FileOutputStream(f);
+        fos.write(1);
+        fos.close();
+        return (f);
+    }
+
+    /**
+     * testRetrieveSnapshotBase
+     */
+    public void testRetrieveSnapshotBase() throws Exception {
+        assertNull(SnapshotUtil.retrieveSnapshotBase(this.path, FULL_NONCE));
+        assertEquals(FULL_NONCE, SnapshotUtil.retrieveSnapshotBase(this.path, INCR0_NONCE));
+        assertEquals(INCR0_NONCE, SnapshotUtil.retrieveSnapshotBase(this.path, INCR1_NONCE));
+    }
+
+    /**
+     * testRetrieveSnapshotChain
+     */
+    public void testRetrieveSnapshotChain() throws Exception {
+        List<String> chain = SnapshotUtil.retrieveSnapshotChain(this.path, INCR1_NONCE);
+        assertEquals(3, chain.size());
+        assertEquals(INCR1_NONCE, chain.get(0));
+        assertEquals(INCR0_NONCE, chain.get(1));
+        assertEquals(FULL_NONCE, chain.get(2));
+
+        chain = SnapshotUtil.retrieveSnapshotChain(this.path, FULL_NONCE);
+        assertEquals(1, chain.size());
+        assertEquals(FULL_NONCE, chain.get(0));
+    }
+
+    /**
+     * testRetrieveSnapshotChainCycle
+     */
+    public void testRetrieveSnapshotChainCycle() throws Exception {
+        // A broken chain that points back at itself must still terminate
+        SnapshotUtil.recordSnapshotBase(this.path, FULL_NONCE, INCR1_NONCE);
+        List<String> chain = SnapshotUtil.retrieveSnapshotChain(this.path, INCR1_NONCE);
+        assertEquals(3, chain.size());
+
+        File missing = new File(this.dir, INCR1_NONCE + FILE_SUFFIX);
+        assertEquals(missing, SnapshotUtil.resolveSnapshotFile(this.path, INCR1_NONCE, missing));
+    }
+
+    /**
+     * testResolveSnapshotFile
+     */
+    public void testResolveSnapshotFile() throws Exception {
+        File full = this.createTableFile(FULL_NONCE);
+        File incr1 = new File(this.dir, INCR1_NONCE + FILE_SUFFIX);
+
+        // The table was not written by either incremental snapshot
+        assertEquals(full, SnapshotUtil.resolveSnapshotFile(this.path, INCR1_NONCE, incr1));
+
+        // The closest snapshot in the chain that has the table wins
+        File incr0 = this.createTableFile(INCR0_NONCE);
+        assertEquals(incr0, SnapshotUtil.resolveSnapshotFile(this.path, INCR1_NONCE, incr1));
+
+        // A file that exists is never redirected
+        this.createTableFile(INCR1_NONCE);
+        assertEquals(incr1, SnapshotUtil.resolveSnapshotFile(this.path, INCR1_NONCE, incr1));
+        assertEquals(full, SnapshotUtil.resolveSnapshotFile(this.path, FULL_NONCE, full));
+    }
+
+    /**
+     * testResolveSnapshotFileMissing
+     */
+    public void testResolveSnapshotFileMissing() throws Exception {
+        // Nothing in the chain has the file, so the caller gets back the original
+        File incr1 = new File(this.dir, INCR1_NONCE + FILE_SUFFIX);
+        assertEquals(incr1, SnapshotUtil.resolveSnapshotFile(this.path, INCR1_NONCE, incr1));
+
+        // A full snapshot does not have a base to look in
+        File full = new File(this.dir, FULL_NONCE + FILE_SUFFIX);
+        assertEquals(full, SnapshotUtil.resolveSnapshotFile(this.path, FULL_NONCE, full));
+    }
+
+    /**
+     * testCorruptedSnapshotBase
+     */
+    public void testCorruptedSnapshotBase() throws Exception {
+        File base = new File(this.dir, SnapshotUtil.constructBaseFilenameForNonce(INCR1_NONCE));
+        FileOutputStream fos = new FileOutputStream(base);
+        fos.write(new byte[]{ 0, 0, 0, 0, 'x', '\n' });
+        fos.close();
+
+        try {
+            SnapshotUtil.retrieveSnapshotBase(this.path, INCR1_NONCE);
+            fail("Failed to detect a corrupted snapshot base file");
+        } catch (IOException ex) {
+            // Expected
+        }
+
+        // Restore falls back to the file for the requested snapshot
+        this.createTableFile(FULL_NONCE);
+        File incr1 = new File(this.dir, INCR1_NONCE + FILE_SUFFIX);
+        assertEquals(incr1, SnapshotUtil.resolveSnapshotFile(this.path, INCR1_NONCE, incr1));
+    }
+
+}
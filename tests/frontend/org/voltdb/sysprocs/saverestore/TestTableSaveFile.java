@@ -0,0 +1,166 @@
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import junit.framework.TestCase;
+
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.EELibraryLoader;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.utils.DBBPool;
+import org.voltdb.utils.DBBPool.BBContainer;
+
+public class TestTableSaveFile extends TestCase {
+
+    private static final int PARTITION_ID = 0;
+    private static final int NUM_CHUNKS = 8;
+    private static final int ROWS_PER_CHUNK = 1000;
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        this.file = File.createTempFile("TestTableSaveFile", ".vpt");
+        this.file.deleteOnExit();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.file.delete();
+        super.tearDown();
+    }
+
+    /**
+     * Build a length-prefixed chunk in the format that the EE hands to
+     * the SnapshotDataTarget. Each row is a single BIGINT.
+     */
+    private static BBContainer makeChunk(long firstId, int numRows, boolean corruptCRC) {
+        final int dataLength = numRows * (4 + 8) + 4;
+        ByteBuffer b = ByteBuffer.allocateDirect(DefaultSnapshotDataTarget.CHUNK_HEADER_LENGTH + dataLength);
+        b.putInt(0); // Length is filled in by the target
+        b.putInt(PARTITION_ID);
+
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(4).putInt(PARTITION_ID).array());
+        b.putInt((int)crc.getValue());
+
+        ByteBuffer data = ByteBuffer.allocate(dataLength);
+        for (int i = 0; i < numRows; i++) {
+            data.putInt(8);
+            data.putLong(firstId + i);
+        } // FOR
+        data.putInt(numRows);
+        crc.reset();
+        crc.update(data.array());
+        int dataCRC = (int)crc.getValue();
+        b.putInt(corruptCRC ? dataCRC + 1 : dataCRC);
+
+        data.flip();
+        b.put(data);
+        b.flip();
+        return (DBBPool.wrapBB(b));
+    }
+
+    private void writeSaveFile(boolean compressed, int corruptChunk) throws Exception {
+        VoltTable schema = new VoltTable(new VoltTable.ColumnInfo("ID", VoltType.BIGINT));
+        DefaultSnapshotDataTarget target = new DefaultSnapshotDataTarget(
+                this.file, 0, "cluster", "database", "TABLE", 1, false,
+                new int[]{ PARTITION_ID }, schema, System.currentTimeMillis(),
+                new int[]{ 0, 0, 0, (compressed ? DefaultSnapshotDataTarget.VERSION_COMPRESSED_CHUNKS : 0) });
+        for (int i = 0; i < NUM_CHUNKS; i++) {
+            target.write(makeChunk(i * ROWS_PER_CHUNK, ROWS_PER_CHUNK, i == corruptChunk)).get();
+        } // FOR
+        target.close();
+    }
+
+    private Set<Long> readSaveFile(TableSaveFile savefile) throws Exception {
+        Set<Long> ids = new TreeSet<Long>();
+        while (savefile.hasMoreChunks()) {
+            BBContainer c = savefile.getNextChunk();
+            if (c == null) continue;
+            try {
+                VoltTable vt = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b, true);
+                while (vt.advanceRow()) {
+                    assertTrue(ids.add(vt.getLong(0)));
+                } // WHILE
+            } finally {
+                c.discard();
+            }
+        } // WHILE
+        return (ids);
+    }
+
+    private TableSaveFile openSaveFile() throws Exception {
+        FileInputStream fis = new FileInputStream(this.file);
+        return (new TableSaveFile(fis.getChannel(), 3, null));
+    }
+
+    /**
+     * testCompressedRoundTrip
+     */
+    public void testCompressedRoundTrip() throws Exception {
+        this.writeSaveFile(true, -1);
+
+        TableSaveFile savefile = this.openSaveFile();
+        try {
+            assertTrue(savefile.isCompressed());
+            assertTrue(savefile.getCompleted());
+            assertEquals("TABLE", savefile.getTableName());
+
+            Set<Long> ids = this.readSaveFile(savefile);
+            assertEquals(NUM_CHUNKS * ROWS_PER_CHUNK, ids.size());
+            for (long id = 0; id < NUM_CHUNKS * ROWS_PER_CHUNK; id++) {
+                assertTrue(Long.toString(id), ids.contains(id));
+            } // FOR
+            assertTrue(savefile.getCorruptedPartitionIds().isEmpty());
+        } finally {
+            savefile.close();
+        }
+    }
+
+    /**
+     * testUncompressedRoundTrip
+     */
+    public void testUncompressedRoundTrip() throws Exception {
+        this.writeSaveFile(false, -1);
+
+        TableSaveFile savefile = this.openSaveFile();
+        try {
+            assertFalse(savefile.isCompressed());
+            Set<Long> ids = this.readSaveFile(savefile);
+            assertEquals(NUM_CHUNKS * ROWS_PER_CHUNK, ids.size());
+        } finally {
+            savefile.close();
+        }
+    }
+
+    /**
+     * testCompressedBadCRC
+     */
+    public void testCompressedBadCRC() throws Exception {
+        this.writeSaveFile(true, NUM_CHUNKS / 2);
+
+        TableSaveFile savefile = this.openSaveFile();
+        try {
+            assertTrue(savefile.isCompressed());
+            this.readSaveFile(savefile);
+            fail("Failed to reject a chunk with a bad CRC");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("CRC mismatch"));
+        } finally {
+            savefile.close();
+        }
+        assertTrue(savefile.getCorruptedPartitionIds().contains(PARTITION_ID));
+    }
+
+}